@@ -22,7 +22,13 @@
 package com.kingsrook.qqq.backend.core.actions;
 
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.actions.AbstractTableActionInput;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleDispatcher;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleInterface;
@@ -35,10 +41,25 @@ import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleInterface;
  ** Most obvious use-case would be a JDBC Connection.  See subclass in rdbms module.
  ** Ditto MongoDB.
  **
+ ** Post-commit actions (e.g., to invalidate caches of data that the transaction
+ ** changed - which, until it commits, other connections still see the old
+ ** values of) can be added, to run after the next commit.  Subclasses that
+ ** override commit & rollback must call runPostCommitActions and
+ ** clearPostCommitActions from them.
+ **
  ** Note:  One would imagine that this class shouldn't ever implement Serializable...
  *******************************************************************************/
 public class QBackendTransaction implements AutoCloseable
 {
+   private static final QLogger LOG = QLogger.getLogger(QBackendTransaction.class);
+
+   /////////////////////////////////////////////////////////////////////////
+   // keyed, so that a caller can add to one action (e.g., of keys to     //
+   // invalidate) across many statements, instead of adding one for each. //
+   /////////////////////////////////////////////////////////////////////////
+   private final Map<Object, Runnable> postCommitActions = new LinkedHashMap<>();
+
+
 
    /*******************************************************************************
     **
@@ -58,9 +79,10 @@ public class QBackendTransaction implements AutoCloseable
     *******************************************************************************/
    public void commit() throws QException
    {
-      ////////////////////////
-      // noop in base class //
-      ////////////////////////
+      /////////////////////////////////////////////////////////
+      // noop in base class - other than post-commit actions //
+      /////////////////////////////////////////////////////////
+      runPostCommitActions();
    }
 
 
@@ -70,9 +92,82 @@ public class QBackendTransaction implements AutoCloseable
     *******************************************************************************/
    public void rollback() throws QException
    {
-      ////////////////////////
-      // noop in base class //
-      ////////////////////////
+      //////////////////////////////////////////////////////////////////
+      // noop in base class - other than dropping post-commit actions //
+      //////////////////////////////////////////////////////////////////
+      clearPostCommitActions();
+   }
+
+
+
+   /*******************************************************************************
+    ** Add an action to run after the transaction next commits (it's dropped if the
+    ** transaction is rolled back instead).
+    *******************************************************************************/
+   public void addPostCommitAction(Runnable action)
+   {
+      synchronized(postCommitActions)
+      {
+         postCommitActions.put(new Object(), action);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the post-commit action with a key - adding one from the supplier, if
+    ** there isn't one yet (since the last commit or rollback).
+    *******************************************************************************/
+   @SuppressWarnings("unchecked")
+   public <T extends Runnable> T computePostCommitActionIfAbsent(Object key, Supplier<T> supplier)
+   {
+      synchronized(postCommitActions)
+      {
+         return ((T) postCommitActions.computeIfAbsent(key, k -> supplier.get()));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Run (and remove) the post-commit actions - logging (rather than throwing)
+    ** any errors from them, as the commit itself is done.  For subclasses to call
+    ** after committing.
+    *******************************************************************************/
+   protected void runPostCommitActions()
+   {
+      List<Runnable> actions;
+      synchronized(postCommitActions)
+      {
+         actions = new ArrayList<>(postCommitActions.values());
+         postCommitActions.clear();
+      }
+
+      for(Runnable action : actions)
+      {
+         try
+         {
+            action.run();
+         }
+         catch(Exception e)
+         {
+            LOG.warn("Error running a post-commit action", e);
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Remove the post-commit actions, without running them.  For subclasses to
+    ** call after rolling back.
+    *******************************************************************************/
+   protected void clearPostCommitActions()
+   {
+      synchronized(postCommitActions)
+      {
+         postCommitActions.clear();
+      }
    }
 
 
@@ -49,6 +49,11 @@ import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
  * finalFlush call to be on the supplier thread to avoid deadlocks. But, if this
  * fix/change turns out to not be correct, one can set this system property to
  * anything other than "true" (recommended "false") to revert to the old behavior.
+ *
+ * If the RecordPipe is in "blocking hand-off" mode (see
+ * {@link RecordPipe#setUseBlockingHandOff(boolean)}), then instead of sleeping
+ * while the pipe has too few records, the consumer side waits on the pipe, and
+ * is woken as soon as the producer has added enough records (or finishes).
  *******************************************************************************/
 public class AsyncRecordPipeLoop
 {
@@ -103,17 +108,27 @@ public class AsyncRecordPipeLoop
          // And, since this is a tricky bit to know we're 100% confident changing, we'll wrap a feature flag around this    //
          // change (see below, after the loop, in the consumer thread, where we originally did this flush).                 //
          /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-         Serializable output = supplier.apply(callback);
-
-         if(doFinalFlushInSupplierThread)
+         try
          {
-            if(recordPipe instanceof BufferedRecordPipe bufferedRecordPipe)
+            Serializable output = supplier.apply(callback);
+
+            if(doFinalFlushInSupplierThread)
             {
-               bufferedRecordPipe.finalFlush();
+               if(recordPipe instanceof BufferedRecordPipe bufferedRecordPipe)
+               {
+                  bufferedRecordPipe.finalFlush();
+               }
             }
-         }
 
-         return (output);
+            return (output);
+         }
+         finally
+         {
+            ////////////////////////////////////////////////////////////////////
+            // let a consumer waiting on the pipe know it needn't wait longer //
+            ////////////////////////////////////////////////////////////////////
+            recordPipe.markProducerFinished();
+         }
       });
       LOG.debug("Started supplier job [" + jobUUID + "] for record pipe.");
 
@@ -137,14 +152,31 @@ public class AsyncRecordPipeLoop
 
       while(jobState.equals(AsyncJobState.RUNNING))
       {
-         if(recordPipe.countAvailableRecords() < minRecordsToConsume)
+         /////////////////////////////////////////////////////////////////////////////
+         // once the producer has finished, no more records are coming - so consume //
+         // whatever is left, rather than waiting for minRecordsToConsume of them.  //
+         /////////////////////////////////////////////////////////////////////////////
+         int     availableRecords = recordPipe.countAvailableRecords();
+         boolean producerFinished = recordPipe.isProducerFinished();
+         if(availableRecords < minRecordsToConsume && (availableRecords == 0 || !producerFinished))
          {
-            ///////////////////////////////////////////////////////////////
-            // if the pipe is too empty, sleep to let the producer work. //
-            // todo - smarter sleep?  like get notified vs. sleep?       //
-            ///////////////////////////////////////////////////////////////
-            LOG.trace("Too few records are available in the pipe. Sleeping [" + nextSleepMillis + "] ms to give producer a chance to work");
-            SleepUtils.sleep(nextSleepMillis, TimeUnit.MILLISECONDS);
+            if(recordPipe.getUseBlockingHandOff() && !producerFinished)
+            {
+               ///////////////////////////////////////////////////////////////////////////
+               // if the pipe is too empty, wait for the producer to signal that it has //
+               // added enough records (or finished) - the timeout is just a backstop.  //
+               ///////////////////////////////////////////////////////////////////////////
+               awaitAvailableRecords(recordPipe, nextSleepMillis);
+            }
+            else
+            {
+               //////////////////////////////////////////////////////////////////////////////
+               // if the pipe is too empty, sleep to let the producer work (or, if it has  //
+               // finished, to let its job leave the RUNNING state, without busy-spinning) //
+               //////////////////////////////////////////////////////////////////////////////
+               LOG.trace("Too few records are available in the pipe. Sleeping [" + nextSleepMillis + "] ms to give producer a chance to work");
+               SleepUtils.sleep(nextSleepMillis, TimeUnit.MILLISECONDS);
+            }
             nextSleepMillis = Math.min(nextSleepMillis * 2, MAX_SLEEP_MS);
 
             long timeSinceLastReceivedRecord = System.currentTimeMillis() - lastReceivedRecordsAt;
@@ -243,6 +275,25 @@ public class AsyncRecordPipeLoop
 
 
 
+   /*******************************************************************************
+    ** in blocking hand-off mode, wait on the pipe for records (instead of sleeping).
+    *******************************************************************************/
+   private void awaitAvailableRecords(RecordPipe recordPipe, int timeoutMillis) throws QException
+   {
+      try
+      {
+         LOG.trace("Too few records are available in the pipe. Waiting up to [" + timeoutMillis + "] ms for producer to add more");
+         recordPipe.awaitAvailableRecords(minRecordsToConsume, timeoutMillis, TimeUnit.MILLISECONDS);
+      }
+      catch(InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw (new QException("Interrupted while waiting for records in pipe", e));
+      }
+   }
+
+
+
    /*******************************************************************************
     ** Getter for minRecordsToConsume
     *******************************************************************************/
@@ -24,10 +24,9 @@ package com.kingsrook.qqq.backend.core.actions.reporting;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.instances.QMetaDataVariableInterpreter;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
 
@@ -35,11 +34,30 @@ import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
 /*******************************************************************************
  ** Subclass of record pipe that ony allows through distinct records, based on
  ** the set of fields specified in the constructor as a uniqueKey.
+ **
+ ** The unique-key values seen are kept in a SpillingDistinctKeySet - so once
+ ** they pass maxMemoryBytes, they're spilled to temp files (which are deleted
+ ** when the producer finishes, or the pipe is terminated).  The default limit
+ ** can be set via the qqq.distinctFilteringRecordPipe.maxMemoryMegabytes system
+ ** property (or QQQ_DISTINCT_FILTERING_RECORD_PIPE_MAX_MEMORY_MEGABYTES env var).
  *******************************************************************************/
 public class DistinctFilteringRecordPipe extends RecordPipe
 {
-   private UniqueKey         uniqueKey;
-   private Set<Serializable> seenValues = new HashSet<>();
+   private static final long    DEFAULT_MAX_MEMORY_BYTES;
+   private static final boolean DEFAULT_USE_BLOOM_FILTER;
+
+   private UniqueKey              uniqueKey;
+   private SpillingDistinctKeySet seenValues;
+
+   private long    maxMemoryBytes = DEFAULT_MAX_MEMORY_BYTES;
+   private boolean useBloomFilter = DEFAULT_USE_BLOOM_FILTER;
+
+   static
+   {
+      QMetaDataVariableInterpreter interpreter = new QMetaDataVariableInterpreter();
+      DEFAULT_MAX_MEMORY_BYTES = interpreter.getIntegerFromPropertyOrEnvironment("qqq.distinctFilteringRecordPipe.maxMemoryMegabytes", "QQQ_DISTINCT_FILTERING_RECORD_PIPE_MAX_MEMORY_MEGABYTES", 64) * 1024L * 1024L;
+      DEFAULT_USE_BLOOM_FILTER = interpreter.getBooleanFromPropertyOrEnvironment("qqq.distinctFilteringRecordPipe.useBloomFilter", "QQQ_DISTINCT_FILTERING_RECORD_PIPE_USE_BLOOM_FILTER", true);
+   }
 
 
 
@@ -111,15 +129,61 @@ public class DistinctFilteringRecordPipe extends RecordPipe
     ** return true if we've seen this record before (based on the unique key) -
     ** also - update the set of seen values!
     *******************************************************************************/
-   private boolean seenBefore(QRecord record)
+   private boolean seenBefore(QRecord record) throws QException
+   {
+      return (!getSeenValues().add(extractUKValues(record)));
+   }
+
+
+
+   /*******************************************************************************
+    ** lazily create the set of seen values - so any fluent settings are applied.
+    *******************************************************************************/
+   synchronized SpillingDistinctKeySet getSeenValues()
    {
-      Serializable ukValues = extractUKValues(record);
-      if(seenValues.contains(ukValues))
+      if(seenValues == null)
       {
-         return true;
+         seenValues = new SpillingDistinctKeySet(maxMemoryBytes, useBloomFilter);
+      }
+      return (seenValues);
+   }
+
+
+
+   /*******************************************************************************
+    ** when the producer is done, no more values will be checked - so release them
+    ** (and delete any spill files).
+    *******************************************************************************/
+   @Override
+   public void markProducerFinished()
+   {
+      super.markProducerFinished();
+      closeSeenValues();
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public void terminate()
+   {
+      super.terminate();
+      closeSeenValues();
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private synchronized void closeSeenValues()
+   {
+      if(seenValues != null)
+      {
+         seenValues.close();
       }
-      seenValues.add(ukValues);
-      return false;
    }
 
 
@@ -143,4 +207,28 @@ public class DistinctFilteringRecordPipe extends RecordPipe
          return (rs);
       }
    }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxMemoryBytes - must be set before any records are added.
+    **
+    *******************************************************************************/
+   public DistinctFilteringRecordPipe withMaxMemoryBytes(long maxMemoryBytes)
+   {
+      this.maxMemoryBytes = maxMemoryBytes;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for useBloomFilter - must be set before any records are added.
+    **
+    *******************************************************************************/
+   public DistinctFilteringRecordPipe withUseBloomFilter(boolean useBloomFilter)
+   {
+      this.useBloomFilter = useBloomFilter;
+      return (this);
+   }
 }
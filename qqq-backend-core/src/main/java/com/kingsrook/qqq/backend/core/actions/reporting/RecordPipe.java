@@ -27,7 +27,10 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.instances.QMetaDataVariableInterpreter;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.utils.SleepUtils;
@@ -37,6 +40,16 @@ import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeConsumer;
 /*******************************************************************************
  ** Object to connect a producer of records with a consumer.
  ** Best for those to be on different threads, to avoid deadlock.
+ **
+ ** By default, a producer that finds the pipe full sleeps-and-retries (in
+ ** BLOCKING_SLEEP_MILLIS increments), and consumers (e.g., AsyncRecordPipeLoop)
+ ** poll the pipe with their own sleeps.  In "blocking hand-off" mode (see
+ ** setUseBlockingHandOff, or the system property
+ ** "qqq.RecordPipe.useBlockingHandOff" / env var
+ ** QQQ_RECORD_PIPE_USE_BLOCKING_HAND_OFF), a producer instead waits on the queue
+ ** itself (so it wakes as soon as a consumer takes records), and a consumer can
+ ** use awaitAvailableRecords to be woken as soon as enough records have been
+ ** added (or the producer finishes, or the pipe is terminated).
  *******************************************************************************/
 public class RecordPipe
 {
@@ -47,10 +60,34 @@ public class RecordPipe
 
    private static long MAX_SLEEP_LOOP_MILLIS = 300_000; // 5 minutes
 
+   ///////////////////////////////////////////////////////////////////////////////
+   // in blocking hand-off mode, a full-pipe producer waits on the queue in     //
+   // slices of this size - it is woken as soon as space opens up; the slice    //
+   // just bounds how long it takes to notice a terminate or the overall limit. //
+   ///////////////////////////////////////////////////////////////////////////////
+   private static final long BLOCKING_OFFER_SLICE_MILLIS = 1_000;
+
+   //////////////////////////////////////////////////////////////////////////
+   // default value for the useBlockingHandOff mode, per new pipe instance //
+   //////////////////////////////////////////////////////////////////////////
+   private static boolean defaultUseBlockingHandOff = new QMetaDataVariableInterpreter().getBooleanFromPropertyOrEnvironment("qqq.RecordPipe.useBlockingHandOff", "QQQ_RECORD_PIPE_USE_BLOCKING_HAND_OFF", false);
+
    private int capacity = DEFAULT_CAPACITY;
    private ArrayBlockingQueue<QRecord> queue = new ArrayBlockingQueue<>(capacity);
 
-   private boolean isTerminated = false;
+   private volatile boolean isTerminated     = false;
+   private volatile boolean producerFinished = false;
+
+   private boolean useBlockingHandOff = defaultUseBlockingHandOff;
+
+   ///////////////////////////////////////////////////////////////////////////////
+   // used in blocking hand-off mode, for a consumer to wait for records.       //
+   // awaitedRecordCount is > 0 only while a consumer is waiting, so producers  //
+   // only pay for taking the lock (to signal) when someone is actually waiting //
+   ///////////////////////////////////////////////////////////////////////////////
+   private final    ReentrantLock availabilityLock   = new ReentrantLock();
+   private final    Condition     recordsAvailable   = availabilityLock.newCondition();
+   private volatile int           awaitedRecordCount = 0;
 
    private UnsafeConsumer<List<QRecord>, QException> postRecordActions = null;
 
@@ -96,6 +133,30 @@ public class RecordPipe
    {
       isTerminated = true;
       queue.clear();
+      signalRecordsAvailable();
+   }
+
+
+
+   /*******************************************************************************
+    ** Indicate that the producer writing into this pipe is done (won't add any more
+    ** records).  Wakes up any consumer blocked in awaitAvailableRecords, so it can
+    ** take the final records without waiting out its timeout.
+    *******************************************************************************/
+   public void markProducerFinished()
+   {
+      producerFinished = true;
+      signalRecordsAvailable();
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for producerFinished
+    *******************************************************************************/
+   public boolean isProducerFinished()
+   {
+      return (producerFinished);
    }
 
 
@@ -134,6 +195,23 @@ public class RecordPipe
     ** already ran.
     *******************************************************************************/
    private void doAddRecord(QRecord record)
+   {
+      if(useBlockingHandOff)
+      {
+         doAddRecordBlockingHandOff(record);
+      }
+      else
+      {
+         doAddRecordSleepPolling(record);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** original add-record implementation - if the pipe is full, sleep and retry.
+    *******************************************************************************/
+   private void doAddRecordSleepPolling(QRecord record)
    {
       boolean offerResult = queue.offer(record);
 
@@ -156,6 +234,113 @@ public class RecordPipe
          }
          LOG.debug("Pipe has opened up.  Resuming.");
       }
+
+      signalIfConsumerIsSatisfied();
+   }
+
+
+
+   /*******************************************************************************
+    ** blocking hand-off add-record implementation - if the pipe is full, wait on
+    ** the queue (which a consumer's poll/drain will wake us from), in slices, so
+    ** that termination and the overall timeout are still honored.
+    *******************************************************************************/
+   private void doAddRecordBlockingHandOff(QRecord record)
+   {
+      boolean offerResult = queue.offer(record);
+
+      if(!offerResult && !isTerminated)
+      {
+         LOG.debug("Pipe is full.  Waiting.");
+         long waitLoopStartTime = System.currentTimeMillis();
+         while(!offerResult && !isTerminated)
+         {
+            long remainingMillis = MAX_SLEEP_LOOP_MILLIS - (System.currentTimeMillis() - waitLoopStartTime);
+            if(remainingMillis < 0)
+            {
+               LOG.warn("Giving up adding record to pipe, due to pipe being full for more than " + MAX_SLEEP_LOOP_MILLIS + " millis");
+               throw (new IllegalStateException("Giving up adding record to pipe, due to pipe staying full too long."));
+            }
+
+            try
+            {
+               offerResult = queue.offer(record, Math.max(1, Math.min(remainingMillis, BLOCKING_OFFER_SLICE_MILLIS)), TimeUnit.MILLISECONDS);
+            }
+            catch(InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+               throw (new IllegalStateException("Interrupted while waiting to add record to pipe.", e));
+            }
+         }
+         LOG.debug("Pipe has opened up.  Resuming.");
+      }
+
+      signalIfConsumerIsSatisfied();
+   }
+
+
+
+   /*******************************************************************************
+    ** if a consumer is waiting (in awaitAvailableRecords) and the pipe now has as
+    ** many records as it wants, wake it up.
+    *******************************************************************************/
+   private void signalIfConsumerIsSatisfied()
+   {
+      int awaited = awaitedRecordCount;
+      if(awaited > 0 && queue.size() >= awaited)
+      {
+         signalRecordsAvailable();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void signalRecordsAvailable()
+   {
+      availabilityLock.lock();
+      try
+      {
+         recordsAvailable.signalAll();
+      }
+      finally
+      {
+         availabilityLock.unlock();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Block the calling (consumer) thread until at least minRecords are available
+    ** in the pipe, or the producer is marked as finished, or the pipe is terminated,
+    ** or the timeout expires - whichever comes first.
+    **
+    ** @return true iff at least minRecords are available upon return.
+    *******************************************************************************/
+   public boolean awaitAvailableRecords(int minRecords, long timeout, TimeUnit timeUnit) throws InterruptedException
+   {
+      long remainingNanos = timeUnit.toNanos(timeout);
+      int  target         = Math.max(1, Math.min(minRecords, capacity));
+
+      availabilityLock.lock();
+      try
+      {
+         awaitedRecordCount = target;
+         while(queue.size() < target && !isTerminated && !producerFinished && remainingNanos > 0)
+         {
+            remainingNanos = recordsAvailable.awaitNanos(remainingNanos);
+         }
+      }
+      finally
+      {
+         awaitedRecordCount = 0;
+         availabilityLock.unlock();
+      }
+
+      return (countAvailableRecords() >= target);
    }
 
 
@@ -185,18 +370,28 @@ public class RecordPipe
    public List<QRecord> consumeAvailableRecords()
    {
       List<QRecord> rs = new ArrayList<>();
+      consumeAvailableRecords(rs);
+      return (rs);
+   }
 
-      while(!isTerminated)
+
+
+   /*******************************************************************************
+    ** Drain all currently available records from the pipe into the caller-supplied
+    ** list (e.g., so a consumer can re-use one list across many batches), in a
+    ** single operation on the underlying queue (which also wakes up a producer that
+    ** is blocked on a full pipe).
+    **
+    ** @return the number of records added to the list.
+    *******************************************************************************/
+   public int consumeAvailableRecords(List<QRecord> records)
+   {
+      if(isTerminated)
       {
-         QRecord record = queue.poll();
-         if(record == null)
-         {
-            break;
-         }
-         rs.add(record);
+         return (0);
       }
 
-      return (rs);
+      return (queue.drainTo(records));
    }
 
 
@@ -245,4 +440,35 @@ public class RecordPipe
    {
       return totalRecordCount;
    }
+
+
+
+   /*******************************************************************************
+    ** Getter for useBlockingHandOff
+    *******************************************************************************/
+   public boolean getUseBlockingHandOff()
+   {
+      return (this.useBlockingHandOff);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for useBlockingHandOff
+    *******************************************************************************/
+   public void setUseBlockingHandOff(boolean useBlockingHandOff)
+   {
+      this.useBlockingHandOff = useBlockingHandOff;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for useBlockingHandOff
+    *******************************************************************************/
+   public RecordPipe withUseBlockingHandOff(boolean useBlockingHandOff)
+   {
+      this.useBlockingHandOff = useBlockingHandOff;
+      return (this);
+   }
 }
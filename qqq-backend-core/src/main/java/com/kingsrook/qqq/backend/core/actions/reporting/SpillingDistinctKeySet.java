@@ -0,0 +1,821 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.actions.reporting;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** A set of unique-key values (e.g., for DistinctFilteringRecordPipe), whose
+ ** memory use is capped.
+ **
+ ** Keys are held in memory in an encoded (byte[]) form, in hashed partitions.
+ ** Once their estimated size (plus the Bloom filter's, below) passes
+ ** maxMemoryBytes, they are all spilled - appended to one keys file per
+ ** partition, under a temp directory - and dropped from memory.  Each spill also
+ ** writes, per partition, an index "run" file of its keys' hashes & offsets in
+ ** the keys file, sorted by hash - and merges it with the partition's previous
+ ** run while that one is no bigger (so a partition has a logarithmic number of
+ ** runs, and each key is re-written a logarithmic number of times).  A key that
+ ** isn't in memory is then looked for on disk by binary searches of its
+ ** partition's runs, reading only the keys whose hashes match it (rather than
+ ** the whole partition).  And (if enabled) only if a Bloom filter of the spilled
+ ** keys says it might be there, so the common case of a new key doesn't read
+ ** from disk at all.  The Bloom filter is sized for a multiple of the spilled
+ ** keys, but to no more than half of maxMemoryBytes (past which, its false
+ ** positive rate goes up).  Keys found on disk are kept in memory again, so
+ ** repeats of them are cheap.
+ **
+ ** Keys are compared by their encoding: Strings, Integers and Longs by value;
+ ** other java.lang, java.math and java.time values (and UUIDs) by their class
+ ** and string form (which, for those types, agrees with equals); anything else
+ ** by its java serialization.  Lists (e.g., of multi-field key values) are
+ ** compared element by element.
+ **
+ ** Methods are synchronized, so closing the set (e.g., when a pipe is terminated
+ ** by its consumer) while a producer is still adding to it is safe.
+ *******************************************************************************/
+public class SpillingDistinctKeySet
+{
+   private static final QLogger LOG = QLogger.getLogger(SpillingDistinctKeySet.class);
+
+   private static final int    NO_OF_PARTITIONS                      = 256;
+   private static final int    ESTIMATED_BYTES_OVERHEAD_PER_KEY      = 64;
+   private static final int    INDEX_ENTRY_BYTES                     = 16;
+   private static final int    BLOOM_FILTER_EXPECTED_KEYS_MULTIPLIER = 4;
+   private static final double BLOOM_FILTER_FALSE_POSITIVE_RATE      = 0.01;
+   private static final int    BLOOM_FILTER_MAX_MEMORY_DIVISOR       = 2;
+
+   private final long    maxMemoryBytes;
+   private final boolean useBloomFilter;
+
+   private final List<Set<EncodedKey>> partitions    = new ArrayList<>();
+   private final long[]                spilledCounts = new long[NO_OF_PARTITIONS];
+   private final long[]                keysFileSizes = new long[NO_OF_PARTITIONS];
+   private final List<List<IndexRun>>  indexRuns     = new ArrayList<>();
+
+   private long        memoryBytes     = 0;
+   private long        size            = 0;
+   private int         noOfSpills      = 0;
+   private int         noOfIndexRuns   = 0;
+   private long        noOfDiskLookups = 0;
+   private Path        spillDirectory;
+   private BloomFilter bloomFilter;
+   private boolean     closed          = false;
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    ** @param maxMemoryBytes estimated bytes of keys to hold in memory, before
+    ** spilling them to disk.
+    ** @param useBloomFilter whether to use a Bloom filter, to avoid looking on disk
+    ** for keys that were never spilled.
+    *******************************************************************************/
+   public SpillingDistinctKeySet(long maxMemoryBytes, boolean useBloomFilter)
+   {
+      this.maxMemoryBytes = maxMemoryBytes;
+      this.useBloomFilter = useBloomFilter;
+
+      for(int i = 0; i < NO_OF_PARTITIONS; i++)
+      {
+         partitions.add(new HashSet<>());
+         indexRuns.add(new ArrayList<>());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Add a key to the set - returning true if it wasn't already in the set.
+    ** After the set is closed, keys aren't stored, and this always returns true.
+    *******************************************************************************/
+   public synchronized boolean add(Serializable key) throws QException
+   {
+      if(closed)
+      {
+         return (true);
+      }
+
+      EncodedKey      encodedKey    = new EncodedKey(encode(key));
+      int             partition     = encodedKey.getPartition();
+      Set<EncodedKey> partitionKeys = partitions.get(partition);
+      if(partitionKeys.contains(encodedKey))
+      {
+         return (false);
+      }
+
+      if(spilledCounts[partition] > 0 && (bloomFilter == null || bloomFilter.mightContain(encodedKey.hash)))
+      {
+         encodedKey.isSpilled = isInSpillFile(partition, encodedKey);
+      }
+
+      partitionKeys.add(encodedKey);
+      memoryBytes += encodedKey.bytes.length + ESTIMATED_BYTES_OVERHEAD_PER_KEY;
+      if(!encodedKey.isSpilled)
+      {
+         size++;
+      }
+
+      if(getEstimatedMemoryBytes() > maxMemoryBytes)
+      {
+         spill();
+      }
+
+      return (!encodedKey.isSpilled);
+   }
+
+
+
+   /*******************************************************************************
+    ** Discard all keys, and delete any spill files.
+    *******************************************************************************/
+   public synchronized void close()
+   {
+      closed = true;
+      partitions.replaceAll(p -> new HashSet<>());
+      indexRuns.forEach(List::clear);
+      bloomFilter = null;
+
+      if(spillDirectory != null)
+      {
+         try(Stream<Path> files = Files.walk(spillDirectory))
+         {
+            for(Path path : files.sorted(Comparator.reverseOrder()).toList())
+            {
+               Files.deleteIfExists(path);
+            }
+         }
+         catch(IOException e)
+         {
+            LOG.warn("Error deleting distinct key spill files", e, logPair("directory", spillDirectory));
+         }
+         spillDirectory = null;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** write all in-memory keys (that aren't already on disk) to their partitions'
+    ** files, and drop them from memory.
+    *******************************************************************************/
+   private void spill() throws QException
+   {
+      try
+      {
+         if(spillDirectory == null)
+         {
+            spillDirectory = Files.createTempDirectory("qqq-distinct-keys-");
+         }
+
+         for(int i = 0; i < NO_OF_PARTITIONS; i++)
+         {
+            Set<EncodedKey> partitionKeys = partitions.get(i);
+            if(partitionKeys.isEmpty())
+            {
+               continue;
+            }
+
+            //////////////////////////////////////////////////////////////////////
+            // append the keys to the partition's keys file, noting the hash &  //
+            // offset of each, for the partition's new index run, written after //
+            //////////////////////////////////////////////////////////////////////
+            long[] newIndexEntries = new long[partitionKeys.size() * 2];
+            int    noOfNewKeys     = 0;
+            try(DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(getKeysFile(i), StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024)))
+            {
+               for(EncodedKey encodedKey : partitionKeys)
+               {
+                  if(!encodedKey.isSpilled)
+                  {
+                     newIndexEntries[noOfNewKeys * 2] = encodedKey.hash;
+                     newIndexEntries[noOfNewKeys * 2 + 1] = keysFileSizes[i];
+                     noOfNewKeys++;
+
+                     outputStream.writeInt(encodedKey.bytes.length);
+                     outputStream.write(encodedKey.bytes);
+                     keysFileSizes[i] += 4 + encodedKey.bytes.length;
+
+                     if(bloomFilter != null)
+                     {
+                        bloomFilter.add(encodedKey.hash);
+                     }
+                  }
+               }
+            }
+
+            if(noOfNewKeys > 0)
+            {
+               addIndexRun(i, newIndexEntries, noOfNewKeys);
+            }
+
+            partitions.set(i, new HashSet<>());
+         }
+
+         /////////////////////////////////////////////////////////////////////////
+         // (re)build the bloom filter, sized for some multiple of the keys now //
+         // spilled, the first time, and whenever it fills past its design size //
+         /////////////////////////////////////////////////////////////////////////
+         if(useBloomFilter && (bloomFilter == null || getNoOfSpilledKeys() > bloomFilter.expectedKeys))
+         {
+            rebuildBloomFilter();
+         }
+
+         memoryBytes = 0;
+         noOfSpills++;
+         LOG.debug("Spilled distinct keys to disk", logPair("noOfSpills", noOfSpills), logPair("size", size), logPair("directory", spillDirectory));
+      }
+      catch(IOException e)
+      {
+         throw (new QException("Error spilling distinct keys to disk", e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** write a spill's (hash, offset) entries for a partition as a new index run
+    ** (sorted by hash) - then merge the partition's last two runs, while the
+    ** older one is no bigger than the newer one.
+    *******************************************************************************/
+   private void addIndexRun(int partition, long[] newIndexEntries, int noOfNewKeys) throws IOException
+   {
+      Integer[] order = new Integer[noOfNewKeys];
+      for(int i = 0; i < noOfNewKeys; i++)
+      {
+         order[i] = i;
+      }
+      Arrays.sort(order, Comparator.comparingLong(i -> newIndexEntries[i * 2]));
+
+      IndexRun newRun = new IndexRun(getNewIndexRunFile(partition), noOfNewKeys);
+      try(DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(newRun.file()), 64 * 1024)))
+      {
+         for(int i : order)
+         {
+            outputStream.writeLong(newIndexEntries[i * 2]);
+            outputStream.writeLong(newIndexEntries[i * 2 + 1]);
+         }
+      }
+
+      List<IndexRun> runs = indexRuns.get(partition);
+      runs.add(newRun);
+      spilledCounts[partition] += noOfNewKeys;
+
+      while(runs.size() > 1 && runs.get(runs.size() - 2).noOfEntries() <= runs.get(runs.size() - 1).noOfEntries())
+      {
+         IndexRun newer = runs.remove(runs.size() - 1);
+         IndexRun older = runs.remove(runs.size() - 1);
+         runs.add(mergeIndexRuns(partition, older, newer));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** merge two index runs into a new one (deleting them).
+    *******************************************************************************/
+   private IndexRun mergeIndexRuns(int partition, IndexRun older, IndexRun newer) throws IOException
+   {
+      IndexRun merged = new IndexRun(getNewIndexRunFile(partition), older.noOfEntries() + newer.noOfEntries());
+      try(DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(merged.file()), 64 * 1024));
+         DataInputStream olderInputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(older.file()), 64 * 1024));
+         DataInputStream newerInputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(newer.file()), 64 * 1024)))
+      {
+         long olderLeft = older.noOfEntries() - 1;
+         long newerLeft = newer.noOfEntries() - 1;
+         long olderHash = olderInputStream.readLong();
+         long newerHash = newerInputStream.readLong();
+         while(olderLeft >= 0 || newerLeft >= 0)
+         {
+            if(newerLeft < 0 || (olderLeft >= 0 && olderHash <= newerHash))
+            {
+               outputStream.writeLong(olderHash);
+               outputStream.writeLong(olderInputStream.readLong());
+               if(olderLeft-- > 0)
+               {
+                  olderHash = olderInputStream.readLong();
+               }
+            }
+            else
+            {
+               outputStream.writeLong(newerHash);
+               outputStream.writeLong(newerInputStream.readLong());
+               if(newerLeft-- > 0)
+               {
+                  newerHash = newerInputStream.readLong();
+               }
+            }
+         }
+      }
+
+      Files.delete(older.file());
+      Files.delete(newer.file());
+      return (merged);
+   }
+
+
+
+   /*******************************************************************************
+    ** build a new bloom filter, from the hashes in all the index runs.
+    *******************************************************************************/
+   private void rebuildBloomFilter() throws IOException
+   {
+      long maxBloomFilterBits = Math.max(64, maxMemoryBytes / BLOOM_FILTER_MAX_MEMORY_DIVISOR * 8);
+      bloomFilter = new BloomFilter(Math.max(1, getNoOfSpilledKeys()) * BLOOM_FILTER_EXPECTED_KEYS_MULTIPLIER, BLOOM_FILTER_FALSE_POSITIVE_RATE, maxBloomFilterBits);
+      for(List<IndexRun> runs : indexRuns)
+      {
+         for(IndexRun run : runs)
+         {
+            try(DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file()), 64 * 1024)))
+            {
+               for(long i = 0; i < run.noOfEntries(); i++)
+               {
+                  bloomFilter.add(inputStream.readLong());
+                  inputStream.skipNBytes(8);
+               }
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** the estimated bytes of memory used by the keys held in memory, plus the
+    ** Bloom filter (if there is one).
+    *******************************************************************************/
+   synchronized long getEstimatedMemoryBytes()
+   {
+      return (memoryBytes + (bloomFilter == null ? 0 : bloomFilter.words.length * 8L));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private long getNoOfSpilledKeys()
+   {
+      return (Arrays.stream(spilledCounts).sum());
+   }
+
+
+
+   /*******************************************************************************
+    ** look for a key on disk - in each of its partition's index runs.
+    *******************************************************************************/
+   private boolean isInSpillFile(int partition, EncodedKey encodedKey) throws QException
+   {
+      noOfDiskLookups++;
+      try(FileChannel keysChannel = FileChannel.open(getKeysFile(partition), StandardOpenOption.READ))
+      {
+         for(IndexRun run : indexRuns.get(partition))
+         {
+            if(isInIndexRun(run, keysChannel, encodedKey))
+            {
+               return (true);
+            }
+         }
+         return (false);
+      }
+      catch(IOException e)
+      {
+         throw (new QException("Error reading distinct keys spilled to disk", e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** binary search an index run for the first entry with the key's hash, then
+    ** read (from the keys file) only the keys of the entries with that hash.
+    *******************************************************************************/
+   private boolean isInIndexRun(IndexRun run, FileChannel keysChannel, EncodedKey encodedKey) throws IOException
+   {
+      try(FileChannel indexChannel = FileChannel.open(run.file(), StandardOpenOption.READ))
+      {
+         ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+         long       low        = 0;
+         long       high       = run.noOfEntries();
+         while(low < high)
+         {
+            long middle = (low + high) >>> 1;
+            readFully(indexChannel, indexEntry, middle * INDEX_ENTRY_BYTES);
+            if(indexEntry.getLong(0) < encodedKey.hash)
+            {
+               low = middle + 1;
+            }
+            else
+            {
+               high = middle;
+            }
+         }
+
+         for(long i = low; i < run.noOfEntries(); i++)
+         {
+            readFully(indexChannel, indexEntry, i * INDEX_ENTRY_BYTES);
+            if(indexEntry.getLong(0) != encodedKey.hash)
+            {
+               return (false);
+            }
+
+            ByteBuffer key = ByteBuffer.allocate(4 + encodedKey.bytes.length);
+            readFully(keysChannel, key, indexEntry.getLong(8));
+            if(key.getInt(0) == encodedKey.bytes.length && Arrays.equals(key.array(), 4, key.capacity(), encodedKey.bytes, 0, encodedKey.bytes.length))
+            {
+               return (true);
+            }
+         }
+         return (false);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** read from a channel, at a position, until the buffer is full (or the
+    ** channel ends - which, for a key of a different length than the buffer's,
+    ** can happen at the end of the keys file).
+    *******************************************************************************/
+   private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+   {
+      buffer.clear();
+      while(buffer.hasRemaining())
+      {
+         int bytesRead = channel.read(buffer, position + buffer.position());
+         if(bytesRead < 0)
+         {
+            break;
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** the file a partition's spilled keys are appended to - each as its length,
+    ** then its bytes.
+    *******************************************************************************/
+   private Path getKeysFile(int partition)
+   {
+      return (spillDirectory.resolve("partition-" + partition + ".keys"));
+   }
+
+
+
+   /*******************************************************************************
+    ** a new file for an index run of a partition.
+    *******************************************************************************/
+   private Path getNewIndexRunFile(int partition)
+   {
+      return (spillDirectory.resolve("partition-" + partition + "-run-" + (noOfIndexRuns++) + ".index"));
+   }
+
+
+
+   /*******************************************************************************
+    ** encode a key value into bytes - where equal values give equal bytes.
+    *******************************************************************************/
+   static byte[] encode(Serializable key) throws QException
+   {
+      try
+      {
+         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(32);
+         DataOutputStream      outputStream          = new DataOutputStream(byteArrayOutputStream);
+         writeValue(outputStream, key);
+         outputStream.flush();
+         return (byteArrayOutputStream.toByteArray());
+      }
+      catch(IOException e)
+      {
+         throw (new QException("Error encoding distinct key value", e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void writeValue(DataOutputStream outputStream, Object value) throws IOException
+   {
+      if(value == null)
+      {
+         outputStream.writeByte('N');
+      }
+      else if(value instanceof String string)
+      {
+         outputStream.writeByte('S');
+         writeBytes(outputStream, string.getBytes(StandardCharsets.UTF_8));
+      }
+      else if(value instanceof Integer integer)
+      {
+         outputStream.writeByte('I');
+         outputStream.writeInt(integer);
+      }
+      else if(value instanceof Long longValue)
+      {
+         outputStream.writeByte('J');
+         outputStream.writeLong(longValue);
+      }
+      else if(value instanceof List<?> list)
+      {
+         outputStream.writeByte('L');
+         outputStream.writeInt(list.size());
+         for(Object element : list)
+         {
+            writeValue(outputStream, element);
+         }
+      }
+      else if(isComparableByString(value.getClass()))
+      {
+         outputStream.writeByte('T');
+         outputStream.writeUTF(value.getClass().getName());
+         writeBytes(outputStream, value.toString().getBytes(StandardCharsets.UTF_8));
+      }
+      else
+      {
+         ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+         try(ObjectOutputStream objectOutputStream = new ObjectOutputStream(serialized))
+         {
+            objectOutputStream.writeObject(value);
+         }
+         outputStream.writeByte('O');
+         writeBytes(outputStream, serialized.toByteArray());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** types whose toString is distinct for values that aren't equal (e.g., not
+    ** java.util.Date, whose toString drops milliseconds).
+    *******************************************************************************/
+   private static boolean isComparableByString(Class<?> c)
+   {
+      String packageName = c.getPackageName();
+      return (packageName.equals("java.lang") || packageName.equals("java.math") || packageName.equals("java.time") || c.equals(UUID.class));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static void writeBytes(DataOutputStream outputStream, byte[] bytes) throws IOException
+   {
+      outputStream.writeInt(bytes.length);
+      outputStream.write(bytes);
+   }
+
+
+
+   /*******************************************************************************
+    ** 64-bit hash of bytes (FNV-1a, then murmur3's finalizer, to spread the bits).
+    *******************************************************************************/
+   static long hash(byte[] bytes)
+   {
+      long h = 0xcbf29ce484222325L;
+      for(byte b : bytes)
+      {
+         h ^= b;
+         h *= 0x100000001b3L;
+      }
+
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return (h);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for size - the number of distinct keys added.
+    *******************************************************************************/
+   public synchronized long getSize()
+   {
+      return (this.size);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for noOfSpills
+    *******************************************************************************/
+   public synchronized int getNoOfSpills()
+   {
+      return (this.noOfSpills);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for noOfDiskLookups
+    *******************************************************************************/
+   public synchronized long getNoOfDiskLookups()
+   {
+      return (this.noOfDiskLookups);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for spillDirectory
+    *******************************************************************************/
+   public synchronized Path getSpillDirectory()
+   {
+      return (this.spillDirectory);
+   }
+
+
+
+   /***************************************************************************
+    ** an encoded key - equal (and hashed) by its bytes.
+    ***************************************************************************/
+   private static class EncodedKey
+   {
+      private final byte[] bytes;
+      private final long   hash;
+
+      /////////////////////////////////////////////////////////////////////////
+      // true if this key is already in its partition's spill file (e.g., it //
+      // was found there), so it needn't be written again at the next spill. //
+      /////////////////////////////////////////////////////////////////////////
+      private boolean isSpilled = false;
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      EncodedKey(byte[] bytes)
+      {
+         this.bytes = bytes;
+         this.hash = SpillingDistinctKeySet.hash(bytes);
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      int getPartition()
+      {
+         return (Math.floorMod((int) (hash >>> 32), NO_OF_PARTITIONS));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public boolean equals(Object o)
+      {
+         return (o instanceof EncodedKey that && hash == that.hash && Arrays.equals(bytes, that.bytes));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public int hashCode()
+      {
+         return ((int) hash);
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** a file of (hash, offset in the partition's keys file) entries, for some of
+    ** a partition's spilled keys - sorted by hash.
+    ***************************************************************************/
+   private record IndexRun(Path file, long noOfEntries)
+   {
+   }
+
+
+
+   /***************************************************************************
+    ** a Bloom filter over 64-bit key hashes - using double hashing to derive
+    ** its bit positions.
+    ***************************************************************************/
+   private static class BloomFilter
+   {
+      private final long   expectedKeys;
+      private final long[] words;
+      private final long   noOfBits;
+      private final int    noOfHashes;
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      BloomFilter(long expectedKeys, double falsePositiveRate, long maxBits)
+      {
+         this.expectedKeys = expectedKeys;
+
+         long bits = Math.min(maxBits, (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+         this.words = new long[(int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64)];
+         this.noOfBits = words.length * 64L;
+         this.noOfHashes = Math.max(1, (int) Math.round((double) noOfBits / expectedKeys * Math.log(2)));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      void add(long hash)
+      {
+         long h2 = secondHash(hash);
+         for(int i = 0; i < noOfHashes; i++)
+         {
+            long bit = Math.floorMod(hash + i * h2, noOfBits);
+            words[(int) (bit >>> 6)] |= (1L << bit);
+         }
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      boolean mightContain(long hash)
+      {
+         long h2 = secondHash(hash);
+         for(int i = 0; i < noOfHashes; i++)
+         {
+            long bit = Math.floorMod(hash + i * h2, noOfBits);
+            if((words[(int) (bit >>> 6)] & (1L << bit)) == 0)
+            {
+               return (false);
+            }
+         }
+         return (true);
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      private static long secondHash(long hash)
+      {
+         return ((Long.rotateLeft(hash, 32) * 0x9e3779b97f4a7c15L) | 1);
+      }
+   }
+}
@@ -41,6 +41,7 @@ import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizers;
 import com.kingsrook.qqq.backend.core.actions.interfaces.DeleteInterface;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryStatManager;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.ValidateRecordSecurityLockHelper;
+import com.kingsrook.qqq.backend.core.actions.values.SharedPossibleValueLabelCache;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.logging.LogPair;
@@ -208,6 +209,12 @@ public class DeleteAction
       /////////////////////////////////////////////////////////////////////////////////////////////////////////////
       deleteInput.setPrimaryKeys(originalPrimaryKeys);
 
+      ////////////////////////////////////////////////////////////////////////////////////
+      // remove any labels for these records from shared possible-value caches (if the  //
+      // delete was by filter, w/o a list of primary keys, that clears the whole cache) //
+      ////////////////////////////////////////////////////////////////////////////////////
+      SharedPossibleValueLabelCache.getInstance().invalidateForTable(table.getName(), primaryKeys, deleteInput.getTransaction());
+
       ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
       // merge the backend's output with any validation errors we found (whose pkeys wouldn't have gotten into the backend delete) //
       ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -46,6 +46,7 @@ import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMeta
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryStatManager;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.UniqueKeyHelper;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.ValidateRecordSecurityLockHelper;
+import com.kingsrook.qqq.backend.core.actions.values.SharedPossibleValueLabelCache;
 import com.kingsrook.qqq.backend.core.actions.values.ValueBehaviorApplier;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
@@ -166,6 +167,11 @@ public class InsertAction extends AbstractQActionFunction<InsertInput, InsertOut
          LOG.info("Errors in insertAction", logPair("tableName", table.getName()), logPair("errorCount", errors.size()), errors.size() < 10 ? logPair("errors", errors) : logPair("first10Errors", errors.subList(0, 10)));
       }
 
+      ///////////////////////////////////////////////////////////////////////////
+      // remove any labels for these records from shared possible-value caches //
+      ///////////////////////////////////////////////////////////////////////////
+      SharedPossibleValueLabelCache.getInstance().invalidateForRecords(table, insertOutput.getRecords(), insertInput.getTransaction());
+
       //////////////////////////////////////////////////
       // insert any associations in the input records //
       //////////////////////////////////////////////////
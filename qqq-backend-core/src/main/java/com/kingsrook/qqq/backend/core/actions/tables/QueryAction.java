@@ -40,6 +40,7 @@ import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMeta
 import com.kingsrook.qqq.backend.core.actions.reporting.BufferedRecordPipe;
 import com.kingsrook.qqq.backend.core.actions.reporting.RecordPipeBufferedWrapper;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.FilterValidationHelper;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.KeysetPaginationHelper;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryActionCacheHelper;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryStatManager;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.SelectionValidationHelper;
@@ -134,6 +135,15 @@ public class QueryAction
       ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
       queryInput.setFilter(ValueBehaviorApplier.applyFieldBehaviorsToFilter(QContext.getQInstance(), table, queryInput.getFilter(), Collections.emptySet()));
 
+      //////////////////////////////////////////////////////////////////////////////////////////////////
+      // for keyset pagination, the filter gets a unique ordering, and criteria to continue after the //
+      // given values/token (as a new filter object, so this needs to happen before the queryStat).   //
+      //////////////////////////////////////////////////////////////////////////////////////////////////
+      if(KeysetPaginationHelper.isKeysetPaginationRequested(queryInput))
+      {
+         KeysetPaginationHelper.applyToQueryInput(queryInput, table);
+      }
+
       QueryStat queryStat = QueryStatManager.newQueryStat(backend, table, queryInput.getFilter(), QueryAction.class.getSimpleName());
 
       QBackendModuleDispatcher qBackendModuleDispatcher = new QBackendModuleDispatcher();
@@ -164,6 +174,10 @@ public class QueryAction
 
       if(queryInput.getRecordPipe() == null)
       {
+         ////////////////////////////////////////////////////////////////////////////////////////////////////
+         // make the continuation token before post-record actions, which may hide or mask orderBy values. //
+         ////////////////////////////////////////////////////////////////////////////////////////////////////
+         setContinuationTokenInOutput(queryInput, table, queryOutput);
          postRecordActions(queryOutput.getRecords());
       }
 
@@ -172,6 +186,27 @@ public class QueryAction
 
 
 
+   /***************************************************************************
+    ** if the input asked for a continuation token, and a full page of records
+    ** came back (so there may be more records after them), put a token for the
+    ** last record in the output.
+    ***************************************************************************/
+   private static void setContinuationTokenInOutput(QueryInput queryInput, QTableMetaData table, QueryOutput queryOutput)
+   {
+      if(!queryInput.getShouldGenerateContinuationToken() || queryInput.getFilter() == null || queryInput.getFilter().getLimit() == null)
+      {
+         return;
+      }
+
+      List<QRecord> records = queryOutput.getRecords();
+      if(CollectionUtils.nullSafeHasContents(records) && records.size() >= queryInput.getFilter().getLimit())
+      {
+         queryOutput.setContinuationToken(KeysetPaginationHelper.makeContinuationToken(table, queryInput.getFilter(), records));
+      }
+   }
+
+
+
    /***************************************************************************
     *
     ***************************************************************************/
@@ -42,6 +42,7 @@ import com.kingsrook.qqq.backend.core.actions.interfaces.UpdateInterface;
 import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerAction;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.QueryStatManager;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.ValidateRecordSecurityLockHelper;
+import com.kingsrook.qqq.backend.core.actions.values.SharedPossibleValueLabelCache;
 import com.kingsrook.qqq.backend.core.actions.values.ValueBehaviorApplier;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
@@ -191,6 +192,11 @@ public class UpdateAction
          LOG.info("Errors in updateAction", logPair("tableName", updateInput.getTableName()), logPair("errorCount", errors.size()), errors.size() < 10 ? logPair("errors", errors) : logPair("first10Errors", errors.subList(0, 10)));
       }
 
+      ///////////////////////////////////////////////////////////////////////////
+      // remove any labels for these records from shared possible-value caches //
+      ///////////////////////////////////////////////////////////////////////////
+      SharedPossibleValueLabelCache.getInstance().invalidateForRecords(table, updateOutput.getRecords(), updateInput.getTransaction());
+
       /////////////////////////////////////////////////////////////////////////////////////
       // update (inserting and deleting as needed) any associations in the input records //
       /////////////////////////////////////////////////////////////////////////////////////
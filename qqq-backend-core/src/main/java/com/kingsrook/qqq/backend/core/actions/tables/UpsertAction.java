@@ -0,0 +1,439 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.actions.tables;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import com.kingsrook.qqq.backend.core.actions.AbstractQActionFunction;
+import com.kingsrook.qqq.backend.core.actions.ActionHelper;
+import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
+import com.kingsrook.qqq.backend.core.actions.audits.DMLAuditAction;
+import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizers;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.UniqueKeyHelper;
+import com.kingsrook.qqq.backend.core.actions.values.SharedPossibleValueLabelCache;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.statusmessages.BadInputStatusMessage;
+import com.kingsrook.qqq.backend.core.model.metadata.audits.AuditLevel;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.DynamicDefaultValueBehavior;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleDispatcher;
+import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleInterface;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Action to do an "upsert" - e.g., insert records whose unique-key values
+ ** aren't in the table yet, and update the ones whose key values are (based on
+ ** a UniqueKey that's part of the input).
+ **
+ ** If the table's backend module provides a native UpsertInterface (e.g., RDBMS
+ ** INSERT ... ON CONFLICT / ON DUPLICATE KEY UPDATE, or a mongo bulkWrite with
+ ** upsert), and the table doesn't need anything that only the full Insert &
+ ** Update actions can do (customizers, automations, associations, audits, record
+ ** security locks), then the backend does the whole thing in one round trip per
+ ** page (per distinct set of fields in the records - as a record that doesn't
+ ** have a field must not set it to null in a row that already exists).
+ **
+ ** Otherwise, this action falls back to querying for existing keys, then running
+ ** InsertAction and UpdateAction (in one transaction) - same as ReplaceAction,
+ ** but without any deletes.
+ *******************************************************************************/
+public class UpsertAction extends AbstractQActionFunction<UpsertInput, UpsertOutput>
+{
+   private static final QLogger LOG = QLogger.getLogger(UpsertAction.class);
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public UpsertOutput execute(UpsertInput input) throws QException
+   {
+      ActionHelper.validateSession(input);
+
+      if(!StringUtils.hasContent(input.getTableName()))
+      {
+         throw (new QException("Table name was not specified in upsert input"));
+      }
+
+      QTableMetaData table = input.getTable();
+      if(table == null)
+      {
+         throw (new QException("Error:  Undefined table: " + input.getTableName()));
+      }
+
+      if(input.getKey() == null || CollectionUtils.nullSafeIsEmpty(input.getKey().getFieldNames()))
+      {
+         throw (new QException("A unique key was not specified in upsert input"));
+      }
+
+      if(CollectionUtils.nullSafeIsEmpty(input.getRecords()))
+      {
+         LOG.debug("Upsert request called with 0 records.  Returning with no-op", logPair("tableName", input.getTableName()));
+         return (new UpsertOutput().withRecords(new ArrayList<>()));
+      }
+
+      QBackendModuleInterface qModule         = new QBackendModuleDispatcher().getQBackendModule(input.getBackend());
+      UpsertInterface         upsertInterface = qModule.getUpsertInterface();
+      if(upsertInterface != null && canUseNativeUpsert(input, table))
+      {
+         return (executeNative(input, table, upsertInterface));
+      }
+
+      return (executeViaInsertAndUpdate(input, table));
+   }
+
+
+
+   /*******************************************************************************
+    ** The native upsert skips the parts of InsertAction & UpdateAction that happen
+    ** after the records are stored - so it can only be used when the table
+    ** doesn't need any of them.  It also can't check that the session may read &
+    ** write a row that it conflicts with (as UpdateAction does) - so tables with
+    ** record security locks always use the insert & update actions.
+    *******************************************************************************/
+   static boolean canUseNativeUpsert(UpsertInput input, QTableMetaData table)
+   {
+      if(CollectionUtils.nullSafeHasContents(table.getRecordSecurityLocks()))
+      {
+         return (false);
+      }
+
+      for(TableCustomizers customizer : List.of(TableCustomizers.PRE_INSERT_RECORD, TableCustomizers.POST_INSERT_RECORD, TableCustomizers.PRE_UPDATE_RECORD, TableCustomizers.POST_UPDATE_RECORD))
+      {
+         if(table.getCustomizer(customizer.getRole()).isPresent() || CollectionUtils.nullSafeHasContents(QContext.getQInstance().getTableCustomizers(customizer)))
+         {
+            return (false);
+         }
+      }
+
+      if(table.getAutomationDetails() != null)
+      {
+         return (false);
+      }
+
+      AuditLevel auditLevel = DMLAuditAction.getAuditLevel(input);
+      if(!input.getOmitDmlAudit() && auditLevel != null && !AuditLevel.NONE.equals(auditLevel))
+      {
+         return (false);
+      }
+
+      for(QRecord record : input.getRecords())
+      {
+         if(CollectionUtils.nullSafeHasContents(record.getAssociatedRecords()))
+         {
+            return (false);
+         }
+      }
+
+      return (true);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private UpsertOutput executeNative(UpsertInput input, QTableMetaData table, UpsertInterface upsertInterface) throws QException
+   {
+      ///////////////////////////////////////////////////////////////////////////////
+      // figure out what to update on conflict, for each record, before insert-    //
+      // validations run, as those put default values into the records, which must //
+      // not clobber values in rows that already exist.                            //
+      ///////////////////////////////////////////////////////////////////////////////
+      List<Set<String>> fieldNamesToUpdatePerRecord = new ArrayList<>();
+      for(QRecord record : input.getRecords())
+      {
+         Set<String> fieldNamesToUpdate = getDefaultFieldNamesToUpdate(table, input.getKey(), List.of(record));
+         if(input.getFieldNamesToUpdate() != null)
+         {
+            fieldNamesToUpdate.retainAll(input.getFieldNamesToUpdate());
+         }
+         fieldNamesToUpdatePerRecord.add(fieldNamesToUpdate);
+      }
+
+      ////////////////////////////////////////////////////////////////////////////////
+      // run the standard insert validations & value behaviors - but not the unique //
+      // key check, as a key that's already in the table is the point of an upsert. //
+      ////////////////////////////////////////////////////////////////////////////////
+      InsertInput insertInput = new InsertInput(table.getName())
+         .withRecords(input.getRecords())
+         .withTransaction(input.getTransaction())
+         .withInputSource(input.getInputSource())
+         .withFlags(input.getFlags())
+         .withSkipUniqueKeyCheck(true);
+      new InsertAction().performValidations(insertInput, false, false);
+
+      //////////////////////////////////////////////////////////////////////////
+      // group the valid records by their fields to update - as one statement //
+      // updates the same columns for every row that it conflicts with.       //
+      //////////////////////////////////////////////////////////////////////////
+      List<QRecord>                   records                           = insertInput.getRecords();
+      Map<Set<String>, List<Integer>> recordIndexesByFieldNamesToUpdate = new LinkedHashMap<>();
+      for(int i = 0; i < records.size(); i++)
+      {
+         if(CollectionUtils.nullSafeIsEmpty(records.get(i).getErrors()))
+         {
+            recordIndexesByFieldNamesToUpdate.computeIfAbsent(fieldNamesToUpdatePerRecord.get(i), k -> new ArrayList<>()).add(i);
+         }
+      }
+
+      UpsertOutput output = new UpsertOutput().withRecords(new ArrayList<>(records));
+      for(Map.Entry<Set<String>, List<Integer>> entry : recordIndexesByFieldNamesToUpdate.entrySet())
+      {
+         List<Integer> recordIndexes = entry.getValue();
+         UpsertInput backendInput = new UpsertInput(table.getName())
+            .withRecords(recordIndexes.stream().map(records::get).toList())
+            .withKey(input.getKey())
+            .withFieldNamesToUpdate(entry.getKey())
+            .withTransaction(input.getTransaction())
+            .withOmitDmlAudit(input.getOmitDmlAudit())
+            .withFlags(input.getFlags());
+         backendInput.setInputSource(input.getInputSource());
+         List<QRecord> backendRecords = CollectionUtils.nonNullList(upsertInterface.execute(backendInput).getRecords());
+
+         ////////////////////////////////////////////////////////////////////////
+         // put the backend's records (in input order) back in their positions //
+         ////////////////////////////////////////////////////////////////////////
+         for(int i = 0; i < recordIndexes.size() && i < backendRecords.size(); i++)
+         {
+            output.getRecords().set(recordIndexes.get(i), backendRecords.get(i));
+         }
+      }
+
+      if(!recordIndexesByFieldNamesToUpdate.isEmpty())
+      {
+         SharedPossibleValueLabelCache.getInstance().invalidateForRecords(table, output.getRecords(), input.getTransaction());
+      }
+      return (output);
+   }
+
+
+
+   /*******************************************************************************
+    ** by default, an upsert updates the fields that are present in the input
+    ** records - but never the primary key or the unique key's fields, nor any
+    ** create-date fields - plus any modify-date fields.
+    *******************************************************************************/
+   public static Set<String> getDefaultFieldNamesToUpdate(QTableMetaData table, UniqueKey uniqueKey, List<QRecord> records)
+   {
+      Set<String> fieldNames = new LinkedHashSet<>();
+      for(QRecord record : records)
+      {
+         fieldNames.addAll(record.getValues().keySet());
+      }
+
+      for(QFieldMetaData field : table.getFields().values())
+      {
+         DynamicDefaultValueBehavior behavior = field.getBehaviorOnlyIfSet(DynamicDefaultValueBehavior.class);
+         if(DynamicDefaultValueBehavior.MODIFY_DATE.equals(behavior))
+         {
+            fieldNames.add(field.getName());
+         }
+         else if(DynamicDefaultValueBehavior.CREATE_DATE.equals(behavior))
+         {
+            fieldNames.remove(field.getName());
+         }
+      }
+
+      fieldNames.retainAll(table.getFields().keySet());
+      fieldNames.remove(table.getPrimaryKeyField());
+      uniqueKey.getFieldNames().forEach(fieldNames::remove);
+      return (fieldNames);
+   }
+
+
+
+   /*******************************************************************************
+    ** generic upsert, for backends without a native one (or tables that need the
+    ** full insert & update actions):  look up which keys already exist, then
+    ** update those records, and insert the rest.  A record that repeats the key
+    ** of an earlier record being inserted is updated onto the row that record
+    ** inserted (as a native upsert would do).  Output records are in the same
+    ** order as the input records.
+    *******************************************************************************/
+   private UpsertOutput executeViaInsertAndUpdate(UpsertInput input, QTableMetaData table) throws QException
+   {
+      UpsertOutput output = new UpsertOutput().withRecords(new ArrayList<>(input.getRecords()));
+
+      QBackendTransaction transaction         = input.getTransaction();
+      boolean             weOwnTheTransaction = false;
+
+      try
+      {
+         UniqueKey uniqueKey       = input.getKey();
+         String    primaryKeyField = table.getPrimaryKeyField();
+
+         if(transaction == null)
+         {
+            transaction = QBackendTransaction.openFor(new InsertInput(input.getTableName()));
+            weOwnTheTransaction = true;
+         }
+
+         ////////////////////////////////////////////////////////////////////////////
+         // keep each record's index in the input, to put the output back in order //
+         ////////////////////////////////////////////////////////////////////////////
+         List<QRecord> insertList    = new ArrayList<>();
+         List<Integer> insertIndexes = new ArrayList<>();
+         List<QRecord> updateList    = new ArrayList<>();
+         List<Integer> updateIndexes = new ArrayList<>();
+
+         ////////////////////////////////////////////////////////////////////////
+         // records whose key repeats one that an earlier record is inserting, //
+         // and the position of that earlier record in the insert list.        //
+         ////////////////////////////////////////////////////////////////////////
+         Map<List<Serializable>, Integer> insertPositionByKeyValues = new HashMap<>();
+         List<Integer>                    repeatIndexes             = new ArrayList<>();
+         List<Integer>                    repeatInsertPositions     = new ArrayList<>();
+
+         int index = 0;
+         for(List<QRecord> page : CollectionUtils.getPages(input.getRecords(), 1000))
+         {
+            Map<List<Serializable>, Serializable> existingKeys = UniqueKeyHelper.getExistingKeys(transaction, table, page, uniqueKey, false);
+
+            for(QRecord record : page)
+            {
+               //////////////////////////////////////////////////////////////////
+               // a record with a null key value can't match an existing row - //
+               // so, same as a native upsert, it gets inserted.               //
+               //////////////////////////////////////////////////////////////////
+               Optional<List<Serializable>> keyValues = UniqueKeyHelper.getKeyValues(table, uniqueKey, record, false);
+               if(keyValues.isPresent() && existingKeys.containsKey(keyValues.get()))
+               {
+                  record.setValue(primaryKeyField, existingKeys.get(keyValues.get()));
+                  updateList.add(record);
+                  updateIndexes.add(index);
+               }
+               else if(keyValues.isPresent() && insertPositionByKeyValues.containsKey(keyValues.get()))
+               {
+                  repeatIndexes.add(index);
+                  repeatInsertPositions.add(insertPositionByKeyValues.get(keyValues.get()));
+               }
+               else
+               {
+                  keyValues.ifPresent(kv -> insertPositionByKeyValues.put(kv, insertList.size()));
+                  insertList.add(record);
+                  insertIndexes.add(index);
+               }
+               index++;
+            }
+         }
+
+         InsertInput insertInput = new InsertInput();
+         insertInput.setTableName(table.getName());
+         insertInput.setRecords(insertList);
+         insertInput.withFlags(input.getFlags());
+         insertInput.setTransaction(transaction);
+         insertInput.setOmitDmlAudit(input.getOmitDmlAudit());
+         insertInput.setInputSource(input.getInputSource());
+         InsertOutput  insertOutput    = new InsertAction().execute(insertInput);
+         List<QRecord> insertedRecords = CollectionUtils.nonNullList(insertOutput.getRecords());
+         for(int i = 0; i < insertIndexes.size() && i < insertedRecords.size(); i++)
+         {
+            output.getRecords().set(insertIndexes.get(i), insertedRecords.get(i));
+         }
+
+         /////////////////////////////////////////////////////////////////////////
+         // now that the earlier records are inserted, update the repeats of    //
+         // their keys onto them (after any other updates, so, in input order,  //
+         // the last one wins) - unless the earlier record didn't get inserted. //
+         /////////////////////////////////////////////////////////////////////////
+         for(int i = 0; i < repeatIndexes.size(); i++)
+         {
+            QRecord      record         = input.getRecords().get(repeatIndexes.get(i));
+            int          insertPosition = repeatInsertPositions.get(i);
+            QRecord      insertedRecord = insertPosition < insertedRecords.size() ? insertedRecords.get(insertPosition) : null;
+            Serializable insertedId     = insertedRecord == null ? null : insertedRecord.getValue(primaryKeyField);
+            if(insertedId != null && CollectionUtils.nullSafeIsEmpty(insertedRecord.getErrors()))
+            {
+               record.setValue(primaryKeyField, insertedId);
+               updateList.add(record);
+               updateIndexes.add(repeatIndexes.get(i));
+            }
+            else
+            {
+               record.addError(new BadInputStatusMessage("This record was not upserted, because an earlier record with the same unique key values failed to insert."));
+            }
+         }
+
+         UpdateInput updateInput = new UpdateInput();
+         updateInput.setTableName(table.getName());
+         updateInput.setRecords(updateList);
+         updateInput.withFlags(input.getFlags());
+         updateInput.setTransaction(transaction);
+         updateInput.setOmitDmlAudit(input.getOmitDmlAudit());
+         updateInput.setInputSource(input.getInputSource());
+         UpdateOutput  updateOutput   = new UpdateAction().execute(updateInput);
+         List<QRecord> updatedRecords = CollectionUtils.nonNullList(updateOutput.getRecords());
+         for(int i = 0; i < updateIndexes.size() && i < updatedRecords.size(); i++)
+         {
+            output.getRecords().set(updateIndexes.get(i), updatedRecords.get(i));
+         }
+
+         if(weOwnTheTransaction)
+         {
+            transaction.commit();
+         }
+
+         return (output);
+      }
+      catch(Exception e)
+      {
+         if(weOwnTheTransaction)
+         {
+            LOG.warn("Caught top-level UpsertAction exception - rolling back exception", e);
+            transaction.rollback();
+         }
+         throw (new QException("Error executing upsert action", e));
+      }
+      finally
+      {
+         if(weOwnTheTransaction)
+         {
+            transaction.close();
+         }
+      }
+   }
+}
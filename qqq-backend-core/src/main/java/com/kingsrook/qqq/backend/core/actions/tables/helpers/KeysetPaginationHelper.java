@@ -0,0 +1,495 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.actions.tables.helpers;
+
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.exceptions.QUserFacingException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+import com.kingsrook.qqq.backend.core.utils.ValueUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Utility to let QueryAction do keyset (aka "seek") pagination - that is - to
+ ** fetch the next page of a query by asking for records that sort after the
+ ** last record of the previous page, rather than by skipping over all previous
+ ** pages' records (which backends generally do by reading & discarding them -
+ ** so each page gets slower than the one before it).
+ **
+ ** Callers either set continueAfterValues on their QQueryFilter (one value per
+ ** orderBy), or pass an opaque continuation token (as generated by this class,
+ ** from the last record of a previous page) in their QueryInput.
+ **
+ ** For this to give a stable result, the query's orderBys need to identify a
+ ** unique record - so the table's primary key is added as a final orderBy, if
+ ** it isn't already in the query's orderBys.
+ **
+ ** Seeking only works on orderBy fields that can't be null:  a record with a
+ ** null value can't be continued after, and the greater/less-than criteria
+ ** would exclude records with nulls (and where nulls sort differs by backend).
+ ** So if any orderBy is on a nullable field (that is, not the primary key, and
+ ** not a required field of the table), continuation tokens fall back to
+ ** holding an offset (e.g., a skip) for the next page, and continueAfterValues
+ ** for such a field are rejected.
+ *******************************************************************************/
+public class KeysetPaginationHelper
+{
+   private static final QLogger LOG = QLogger.getLogger(KeysetPaginationHelper.class);
+
+
+
+   /*******************************************************************************
+    ** check if the query input uses any of the keyset pagination options.
+    *******************************************************************************/
+   public static boolean isKeysetPaginationRequested(QueryInput queryInput)
+   {
+      if(StringUtils.hasContent(queryInput.getContinuationToken()) || queryInput.getShouldGenerateContinuationToken())
+      {
+         return (true);
+      }
+
+      return (queryInput.getFilter() != null && CollectionUtils.nullSafeHasContents(queryInput.getFilter().getContinueAfterValues()));
+   }
+
+
+
+   /*******************************************************************************
+    ** Set up the query input's filter for keyset pagination:  make sure it has
+    ** a unique ordering, decode its continuation token (if given), and turn its
+    ** continueAfterValues (if any) into criteria.  The input's filter is replaced
+    ** with a new filter object (so the caller's filter is not modified).
+    *******************************************************************************/
+   public static void applyToQueryInput(QueryInput queryInput, QTableMetaData table) throws QException
+   {
+      QQueryFilter filter = queryInput.getFilter() == null ? new QQueryFilter() : queryInput.getFilter().clone();
+      if(filter.getSubFilterSetOperator() != null)
+      {
+         throw (new QUserFacingException("Keyset pagination cannot be used on a query with a sub-filter set operator (" + filter.getSubFilterSetOperator() + ")"));
+      }
+
+      addPrimaryKeyOrderByIfNeeded(table, filter);
+
+      if(StringUtils.hasContent(queryInput.getContinuationToken()))
+      {
+         JSONObject tokenJSON = decodeContinuationToken(table, filter, queryInput.getContinuationToken());
+         if(tokenJSON.has("skip"))
+         {
+            filter.setSkip(getSkipFromToken(tokenJSON));
+         }
+         else
+         {
+            filter.setContinueAfterValues(getValuesFromToken(tokenJSON));
+         }
+      }
+
+      if(CollectionUtils.nullSafeHasContents(filter.getContinueAfterValues()))
+      {
+         List<QFilterOrderBy> orderBys = CollectionUtils.nonNullList(filter.getOrderBys());
+         for(int i = 0; i < filter.getContinueAfterValues().size() && i < orderBys.size(); i++)
+         {
+            if(isOrderByNullable(table, orderBys.get(i)))
+            {
+               throw (new QUserFacingException("Continue-after values cannot be used for order by field [" + orderBys.get(i).getFieldName() + "], as it may be null (and records with a null value would be skipped)."));
+            }
+         }
+
+         filter = makeFilterWithContinueAfterCriteria(filter);
+      }
+
+      queryInput.setFilter(filter);
+   }
+
+
+
+   /*******************************************************************************
+    ** If the filter's orderBys don't already include the table's primary key,
+    ** add it as the final orderBy, so that the ordering is total (e.g., no ties
+    ** between records, which could otherwise be skipped or repeated between pages).
+    *******************************************************************************/
+   public static void addPrimaryKeyOrderByIfNeeded(QTableMetaData table, QQueryFilter filter)
+   {
+      String primaryKeyField = table.getPrimaryKeyField();
+      if(primaryKeyField == null)
+      {
+         return;
+      }
+
+      for(QFilterOrderBy orderBy : CollectionUtils.nonNullList(filter.getOrderBys()))
+      {
+         if(primaryKeyField.equals(orderBy.getFieldName()) || (table.getName() + "." + primaryKeyField).equals(orderBy.getFieldName()))
+         {
+            return;
+         }
+      }
+
+      if(filter.getOrderBys() == null)
+      {
+         filter.setOrderBys(new ArrayList<>());
+      }
+      filter.addOrderBy(new QFilterOrderBy(primaryKeyField, true));
+   }
+
+
+
+   /*******************************************************************************
+    ** check if any of the filter's orderBys may have null values - in which case,
+    ** pages can't be continued by seeking after the values of the previous page's
+    ** last record.
+    *******************************************************************************/
+   public static boolean hasNullableOrderBy(QTableMetaData table, QQueryFilter filter)
+   {
+      for(QFilterOrderBy orderBy : CollectionUtils.nonNullList(filter.getOrderBys()))
+      {
+         if(isOrderByNullable(table, orderBy))
+         {
+            return (true);
+         }
+      }
+      return (false);
+   }
+
+
+
+   /*******************************************************************************
+    ** an orderBy is taken as nullable unless it is on the table's primary key or
+    ** a required field of the table (so, e.g., a field from a joined table is
+    ** always taken as nullable - as an outer join can give it a null).
+    *******************************************************************************/
+   private static boolean isOrderByNullable(QTableMetaData table, QFilterOrderBy orderBy)
+   {
+      String fieldName = orderBy.getFieldName();
+      if(fieldName == null)
+      {
+         return (true);
+      }
+
+      if(fieldName.startsWith(table.getName() + "."))
+      {
+         fieldName = fieldName.substring(table.getName().length() + 1);
+      }
+
+      if(fieldName.equals(table.getPrimaryKeyField()))
+      {
+         return (false);
+      }
+
+      QFieldMetaData field = table.getFields() == null ? null : table.getFields().get(fieldName);
+      return (field == null || !field.getIsRequired());
+   }
+
+
+
+   /*******************************************************************************
+    ** Build a new filter, which is the input filter AND'ed with criteria that
+    ** select only records after the filter's continueAfterValues, in the order of
+    ** its orderBys.  e.g., for orderBys (a ASC, b DESC, c ASC), and values (x,y,z):
+    **
+    ** <pre>
+    ** a >= x AND ((a > x) OR (a = x AND b < y) OR (a = x AND b = y AND c > z))
+    ** </pre>
+    **
+    ** This is the portable equivalent of a SQL row-value comparison like
+    ** (a,b,c) > (x,y,z), which not all backends support, and which can't express
+    ** mixed sort directions anyway.  The leading a >= x is logically redundant,
+    ** but it gives a database a simple range on the first orderBy for an index to
+    ** seek to.
+    **
+    ** If fewer values than orderBys are given, only that many leading orderBys
+    ** are used in the criteria.
+    *******************************************************************************/
+   public static QQueryFilter makeFilterWithContinueAfterCriteria(QQueryFilter filter) throws QException
+   {
+      List<Serializable>   values   = filter.getContinueAfterValues();
+      List<QFilterOrderBy> orderBys = CollectionUtils.nonNullList(filter.getOrderBys());
+
+      if(values.size() > orderBys.size())
+      {
+         throw (new QUserFacingException("Too many continue-after values were given (" + values.size() + ") for the query's order by (" + orderBys.size() + " field" + StringUtils.plural(orderBys) + ")"));
+      }
+
+      for(int i = 0; i < values.size(); i++)
+      {
+         if(values.get(i) == null)
+         {
+            throw (new QUserFacingException("A null continue-after value was given for field [" + orderBys.get(i).getFieldName() + "] - keyset pagination requires non-null values"));
+         }
+      }
+
+      QQueryFilter afterFilter = new QQueryFilter().withBooleanOperator(QQueryFilter.BooleanOperator.OR);
+      for(int i = 0; i < values.size(); i++)
+      {
+         QQueryFilter tupleFilter = new QQueryFilter();
+         for(int j = 0; j < i; j++)
+         {
+            tupleFilter.addCriteria(new QFilterCriteria(orderBys.get(j).getFieldName(), QCriteriaOperator.EQUALS, values.get(j)));
+         }
+         tupleFilter.addCriteria(new QFilterCriteria(orderBys.get(i).getFieldName(), getAfterOperator(orderBys.get(i), false), values.get(i)));
+         afterFilter.addSubFilter(tupleFilter);
+      }
+
+      ///////////////////////////////////////////////////////////////////////////////////////////////
+      // the new filter gets the original's orderBys, skip & limit - while the original's criteria //
+      // (but not those other attributes) go down into a sub-filter, along-side the after-filter.  //
+      ///////////////////////////////////////////////////////////////////////////////////////////////
+      QQueryFilter originalCriteria = filter.clone();
+      originalCriteria.setOrderBys(new ArrayList<>());
+      originalCriteria.setSkip(null);
+      originalCriteria.setLimit(null);
+      originalCriteria.setContinueAfterValues(null);
+
+      QQueryFilter rs = new QQueryFilter();
+      rs.setOrderBys(filter.getOrderBys());
+      rs.setSkip(filter.getSkip());
+      rs.setLimit(filter.getLimit());
+
+      if(values.size() > 1)
+      {
+         rs.addCriteria(new QFilterCriteria(orderBys.get(0).getFieldName(), getAfterOperator(orderBys.get(0), true), values.get(0)));
+      }
+
+      if(originalCriteria.hasAnyCriteria())
+      {
+         rs.addSubFilter(originalCriteria);
+      }
+      rs.addSubFilter(afterFilter);
+
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static QCriteriaOperator getAfterOperator(QFilterOrderBy orderBy, boolean orEquals)
+   {
+      if(orderBy.getIsAscending())
+      {
+         return (orEquals ? QCriteriaOperator.GREATER_THAN_OR_EQUALS : QCriteriaOperator.GREATER_THAN);
+      }
+      return (orEquals ? QCriteriaOperator.LESS_THAN_OR_EQUALS : QCriteriaOperator.LESS_THAN);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the values from a record for each of a filter's orderBys - e.g., to be
+    ** used as the continueAfterValues for the next page of a query.  Returns null
+    ** if the record is missing a value for any of the orderBys (as we can't seek
+    ** after a null - though, for fields that aren't nullable, that shouldn't
+    ** happen).
+    *******************************************************************************/
+   public static List<Serializable> getContinueAfterValues(QQueryFilter filter, QRecord record)
+   {
+      List<Serializable> rs = new ArrayList<>();
+      for(QFilterOrderBy orderBy : CollectionUtils.nonNullList(filter.getOrderBys()))
+      {
+         Serializable value = record.getValue(orderBy.getFieldName());
+         if(value == null)
+         {
+            LOG.debug("Null value for order by field - cannot continue after this record", logPair("fieldName", orderBy.getFieldName()));
+            return (null);
+         }
+         rs.add(value);
+      }
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** Make an opaque token, that a caller can pass back in a QueryInput, to get
+    ** the page of records that follows the given page of records (as queried with
+    ** the given filter).  The token includes the table name and orderBys, so that
+    ** it can be validated against the query it is later used with.
+    **
+    ** The token holds the orderBy values of the page's last record - or, if any
+    ** orderBy is nullable, the offset (skip) of the next page.  Returns null if
+    ** there are no records, or if the last record is missing a value for any of
+    ** the filter's orderBys.
+    *******************************************************************************/
+   public static String makeContinuationToken(QTableMetaData table, QQueryFilter filter, List<QRecord> records)
+   {
+      if(CollectionUtils.nullSafeIsEmpty(records))
+      {
+         return (null);
+      }
+
+      JSONObject tokenJSON = new JSONObject()
+         .put("table", table.getName())
+         .put("orderBy", getOrderBySignature(filter));
+
+      if(hasNullableOrderBy(table, filter))
+      {
+         int skip = (filter.getSkip() == null ? 0 : filter.getSkip()) + records.size();
+         return (encodeContinuationToken(tokenJSON.put("skip", skip)));
+      }
+
+      List<Serializable> values = getContinueAfterValues(filter, records.get(records.size() - 1));
+      if(values == null)
+      {
+         return (null);
+      }
+
+      JSONArray valuesJSON = new JSONArray();
+      for(Serializable value : values)
+      {
+         //////////////////////////////////////////////////////////////////////////////////
+         // values go in as strings, along with their type - so that, e.g., a BigDecimal //
+         // or an Instant comes back out of the token as exactly what went in.           //
+         //////////////////////////////////////////////////////////////////////////////////
+         QFieldType type = ValueUtils.inferQFieldTypeFromValue(value, QFieldType.STRING);
+         valuesJSON.put(new JSONObject()
+            .put("type", type.name())
+            .put("value", ValueUtils.getValueAsString(value)));
+      }
+
+      return (encodeContinuationToken(tokenJSON.put("values", valuesJSON)));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static String encodeContinuationToken(JSONObject tokenJSON)
+   {
+      return (Base64.getUrlEncoder().withoutPadding().encodeToString(tokenJSON.toString().getBytes(StandardCharsets.UTF_8)));
+   }
+
+
+
+   /*******************************************************************************
+    ** Decode a continuation token (as made by makeContinuationToken) into the list
+    ** of continueAfterValues for the filter - validating that it was made for
+    ** this same table and ordering.  Returns null for a token that holds an
+    ** offset (as made for a query with a nullable orderBy) rather than values.
+    *******************************************************************************/
+   public static List<Serializable> parseContinuationToken(QTableMetaData table, QQueryFilter filter, String token) throws QUserFacingException
+   {
+      JSONObject tokenJSON = decodeContinuationToken(table, filter, token);
+      return (tokenJSON.has("skip") ? null : getValuesFromToken(tokenJSON));
+   }
+
+
+
+   /*******************************************************************************
+    ** decode a token's JSON, validating that it was made for this same table
+    ** and ordering.
+    *******************************************************************************/
+   private static JSONObject decodeContinuationToken(QTableMetaData table, QQueryFilter filter, String token) throws QUserFacingException
+   {
+      JSONObject tokenJSON;
+      try
+      {
+         tokenJSON = new JSONObject(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+      }
+      catch(Exception e)
+      {
+         throw (new QUserFacingException("Invalid continuation token."));
+      }
+
+      if(!Objects.equals(table.getName(), tokenJSON.optString("table")) || !Objects.equals(getOrderBySignature(filter), tokenJSON.optString("orderBy")))
+      {
+         throw (new QUserFacingException("Continuation token does not match this query (its table or order by is different)."));
+      }
+
+      return (tokenJSON);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Integer getSkipFromToken(JSONObject tokenJSON) throws QUserFacingException
+   {
+      try
+      {
+         return (tokenJSON.getInt("skip"));
+      }
+      catch(Exception e)
+      {
+         throw (new QUserFacingException("Invalid continuation token."));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static List<Serializable> getValuesFromToken(JSONObject tokenJSON) throws QUserFacingException
+   {
+      try
+      {
+         List<Serializable> rs         = new ArrayList<>();
+         JSONArray          valuesJSON = tokenJSON.getJSONArray("values");
+         for(int i = 0; i < valuesJSON.length(); i++)
+         {
+            JSONObject valueJSON = valuesJSON.getJSONObject(i);
+            rs.add(ValueUtils.getValueAsFieldType(QFieldType.valueOf(valueJSON.getString("type")), valueJSON.getString("value")));
+         }
+         return (rs);
+      }
+      catch(Exception e)
+      {
+         throw (new QUserFacingException("Invalid continuation token."));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static String getOrderBySignature(QQueryFilter filter)
+   {
+      StringBuilder rs = new StringBuilder();
+      for(QFilterOrderBy orderBy : CollectionUtils.nonNullList(filter.getOrderBys()))
+      {
+         rs.append(orderBy.getFieldName()).append(orderBy.getIsAscending() ? " asc," : " desc,");
+      }
+      return (rs.toString());
+   }
+
+}
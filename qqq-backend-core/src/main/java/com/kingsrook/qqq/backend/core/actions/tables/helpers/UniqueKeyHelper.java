@@ -25,12 +25,15 @@ package com.kingsrook.qqq.backend.core.actions.tables.helpers;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
 import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
+import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
@@ -41,6 +44,7 @@ import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleDispatcher;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.ValueUtils;
 
@@ -53,7 +57,13 @@ public class UniqueKeyHelper
    private static Integer pageSize = 1000;
 
    /*******************************************************************************
+    ** Look up which of the records' unique key values already exist in the table,
+    ** returning a map of key values to primary keys.
     **
+    ** Only the key and primary-key fields are queried.  For a multi-field key,
+    ** the records' key values are looked up with a single TUPLE_IN criteria (if
+    ** the backend supports that), rather than an OR of AND sub-filters (which are
+    ** still used for records with a null key value, as TUPLE_IN never matches nulls).
     *******************************************************************************/
    public static Map<List<Serializable>, Serializable> getExistingKeys(QBackendTransaction transaction, QTableMetaData table, List<QRecord> recordList, UniqueKey uniqueKey, boolean allowNullKeyValuesToEqual) throws QException
    {
@@ -61,11 +71,17 @@ public class UniqueKeyHelper
       Map<List<Serializable>, Serializable> existingRecords = new HashMap<>();
       if(ukFieldNames != null)
       {
+         Set<String> fieldNamesToInclude = new HashSet<>(ukFieldNames);
+         fieldNamesToInclude.add(table.getPrimaryKeyField());
+
+         boolean useTupleIn = ukFieldNames.size() > 1 && new QBackendModuleDispatcher().getQBackendModule(QContext.getQInstance().getBackendForTable(table.getName())).supportsTupleInCriteria();
+
          for(List<QRecord> page : CollectionUtils.getPages(recordList, pageSize))
          {
             QueryInput queryInput = new QueryInput();
             queryInput.setTableName(table.getName());
             queryInput.setTransaction(transaction);
+            queryInput.setFieldNamesToInclude(fieldNamesToInclude);
 
             QQueryFilter filter = new QQueryFilter();
             if(ukFieldNames.size() == 1)
@@ -85,6 +101,7 @@ public class UniqueKeyHelper
             else
             {
                filter.setBooleanOperator(QQueryFilter.BooleanOperator.OR);
+               List<List<Serializable>> tuples = new ArrayList<>();
                for(QRecord record : page)
                {
                   if(CollectionUtils.nullSafeHasContents(record.getErrors()))
@@ -92,6 +109,21 @@ public class UniqueKeyHelper
                      continue;
                   }
 
+                  if(useTupleIn)
+                  {
+                     List<Serializable> tuple = new ArrayList<>();
+                     for(String fieldName : ukFieldNames)
+                     {
+                        tuple.add(record.getValue(fieldName));
+                     }
+
+                     if(!tuple.contains(null))
+                     {
+                        tuples.add(tuple);
+                        continue;
+                     }
+                  }
+
                   QQueryFilter subFilter = new QQueryFilter();
                   filter.addSubFilter(subFilter);
                   for(String fieldName : ukFieldNames)
@@ -108,11 +140,16 @@ public class UniqueKeyHelper
                   }
                }
 
-               if(CollectionUtils.nullSafeIsEmpty(filter.getSubFilters()))
+               if(!tuples.isEmpty())
+               {
+                  filter.addCriteria(QFilterCriteria.tupleIn(ukFieldNames, tuples));
+               }
+
+               if(!filter.hasAnyCriteria())
                {
-                  ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-                  // if we didn't build any sub-filters (because all records have errors in them), don't run a query w/ no clauses - continue to next page //
-                  ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+                  ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+                  // if we didn't build any criteria or sub-filters (because all records have errors in them), don't run a query w/ no clauses - continue to next page //
+                  ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
                   continue;
                }
             }
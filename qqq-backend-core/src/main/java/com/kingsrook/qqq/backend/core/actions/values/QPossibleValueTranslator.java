@@ -31,11 +31,25 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.kingsrook.qqq.backend.core.actions.customizers.QCodeLoader;
+import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizers;
 import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
+import com.kingsrook.qqq.backend.core.context.CapturedContext;
 import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.exceptions.QValueException;
+import com.kingsrook.qqq.backend.core.instances.QMetaDataVariableInterpreter;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.actions.tables.QueryHint;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
@@ -43,7 +57,6 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryJoin;
-import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
@@ -56,8 +69,11 @@ import com.kingsrook.qqq.backend.core.model.session.QSession;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.ListingHash;
 import com.kingsrook.qqq.backend.core.utils.Pair;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
 import com.kingsrook.qqq.backend.core.utils.ValueUtils;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeFunction;
+import com.kingsrook.qqq.backend.core.utils.memoization.MemoizedResult;
 import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
 
@@ -77,6 +93,21 @@ public class QPossibleValueTranslator
 
    private int maxSizePerPvsCache = 50_000;
 
+   /////////////////////////////////////////////////////////////////////////////////
+   // when priming the cache, ids are queried for in pages - with up to this many //
+   // pages being queried concurrently (by a shared pool of threads)              //
+   /////////////////////////////////////////////////////////////////////////////////
+   private static final int DEFAULT_PRIMING_PARALLELISM = new QMetaDataVariableInterpreter().getIntegerFromPropertyOrEnvironment("qqq.possibleValueTranslator.primingParallelism", "QQQ_POSSIBLE_VALUE_TRANSLATOR_PRIMING_PARALLELISM", 4);
+
+   private int primingPageSize    = 1000;
+   private int primingParallelism = DEFAULT_PRIMING_PARALLELISM;
+
+   private static final ThreadLocal<Boolean> isInPrimingWorker = ThreadLocal.withInitial(() -> false);
+
+   private static final Integer         CORE_THREADS    = 0;
+   private static final Integer         MAX_THREADS     = 64;
+   private static final ExecutorService executorService = new ThreadPoolExecutor(CORE_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), new PrefixedDefaultThreadFactory(QPossibleValueTranslator.class));
+
 
 
    /*******************************************************************************
@@ -560,84 +591,325 @@ public class QPossibleValueTranslator
          }
       }
 
-      try
+      //////////////////////////////////////////////////////////////////////////////////////
+      // take any values that we can from the shared label cache (for PVSes that opt in), //
+      // so only the ones that aren't there get queried for.                              //
+      //////////////////////////////////////////////////////////////////////////////////////
+      values = takeValuesFromSharedLabelCache(possibleValueSources, values);
+      if(values.isEmpty())
       {
-         for(List<Serializable> page : CollectionUtils.getPages(values, 1000))
+         return;
+      }
+
+      ///////////////////////////////////////////////////////////////////////////////////
+      // note shared caches' generations before querying, so if one gets invalidated   //
+      // while we're querying, we won't put possibly-stale values back into the cache. //
+      ///////////////////////////////////////////////////////////////////////////////////
+      SharedPossibleValueLabelCache sharedLabelCache            = SharedPossibleValueLabelCache.getInstance();
+      Map<String, Long>             sharedLabelCacheGenerations = new HashMap<>();
+      for(QPossibleValueSource possibleValueSource : possibleValueSources)
+      {
+         if(SharedPossibleValueLabelCache.isEnabled(possibleValueSource))
          {
-            QueryInput queryInput = new QueryInput();
-            queryInput.setTableName(tableName);
-            queryInput.setFilter(new QQueryFilter().withCriteria(new QFilterCriteria(idField, QCriteriaOperator.IN, page)));
-            queryInput.hasQueryHint(QueryHint.MAY_USE_READ_ONLY_BACKEND);
+            sharedLabelCacheGenerations.put(possibleValueSource.getName(), sharedLabelCache.getGeneration(possibleValueSource));
+         }
+      }
+
+      /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+      // if this table uses any possible value fields as part of its own record label, then THOSE possible values need translated.       //
+      // an earlier version of this code got into stack overflows, so do a "cheap" check for recursion depth too (in the calling thread) //
+      /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+      Set<String> possibleValueFieldsToTranslate = getPossibleValueFieldsToTranslateForLabels(possibleValueSources);
+      if(!possibleValueFieldsToTranslate.isEmpty() && !notTooDeep())
+      {
+         possibleValueFieldsToTranslate = Collections.emptySet();
+      }
+
+      Set<String>              fieldNamesToInclude = getFieldNamesToIncludeForLabels(tableName, idField, possibleValueSources);
+      List<List<Serializable>> pages               = new ArrayList<>(CollectionUtils.getPages(values, primingPageSize));
 
-            /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            // when querying for possible values, we do want to generate their display values, which makes record labels, which are usually used as PVS labels //
-            /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            queryInput.setShouldGenerateDisplayValues(true);
+      final String      finalIdField                        = idField;
+      final Set<String> finalPossibleValueFieldsToTranslate = possibleValueFieldsToTranslate;
+      Map<Integer, List<QRecord>> recordsByPageIndex = queryPages(tableName, pages, page ->
+      {
+         QueryInput queryInput = new QueryInput();
+         queryInput.setTableName(tableName);
+         queryInput.setFilter(new QQueryFilter().withCriteria(new QFilterCriteria(finalIdField, QCriteriaOperator.IN, page)));
+         queryInput.hasQueryHint(QueryHint.MAY_USE_READ_ONLY_BACKEND);
+         queryInput.setFieldNamesToInclude(fieldNamesToInclude);
+
+         /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+         // when querying for possible values, we do want to generate their display values, which makes record labels, which are usually used as PVS labels //
+         /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+         queryInput.setShouldGenerateDisplayValues(true);
+
+         if(!finalPossibleValueFieldsToTranslate.isEmpty())
+         {
+            queryInput.setShouldTranslatePossibleValues(true);
+            queryInput.setFieldsToTranslatePossibleValues(finalPossibleValueFieldsToTranslate);
+         }
 
-            /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            // also, if this table uses any possible value fields as part of its own record label, then THOSE possible values need translated. //
-            /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            Set<String> possibleValueFieldsToTranslate = new HashSet<>();
+         LOG.trace("Priming PVS cache for [" + page.size() + "] ids from [" + tableName + "] table.");
+         return (new QueryAction().execute(queryInput).getRecords());
+      });
+
+      for(int pageIndex = 0; pageIndex < pages.size(); pageIndex++)
+      {
+         //////////////////////////////////////////////////////////////////////////////////
+         // if a page's query failed (which was logged), don't cache anything for it, so //
+         // it can be tried again later (e.g., rather than caching its values as null)   //
+         //////////////////////////////////////////////////////////////////////////////////
+         List<QRecord> records = recordsByPageIndex.get(pageIndex);
+         if(records == null)
+         {
+            continue;
+         }
+
+         ///////////////////////////////////////////////////////////////////////////////////
+         // for all records that were found, put a formatted value into cache foreach PVS //
+         ///////////////////////////////////////////////////////////////////////////////////
+         for(QRecord record : records)
+         {
+            Serializable pkeyValue = record.getValue(idField);
+            for(QPossibleValueSource possibleValueSource : possibleValueSources)
+            {
+               QPossibleValue<?> possibleValue  = new QPossibleValue<>(pkeyValue, record.getRecordLabel());
+               String            formattedValue = formatPossibleValue(possibleValueSource, possibleValue);
+               possibleValueCache.get(possibleValueSource.getName()).put(pkeyValue, formattedValue);
+
+               if(sharedLabelCacheGenerations.containsKey(possibleValueSource.getName()))
+               {
+                  sharedLabelCache.put(possibleValueSource, sharedLabelCacheGenerations.get(possibleValueSource.getName()), pkeyValue, formattedValue);
+               }
+            }
+         }
+
+         /////////////////////////////////////////////////////////////////////////////////////////////////////////
+         // for all pkeys that were NOT found, put a null value into cache foreach PVS (to avoid re-looking up) //
+         /////////////////////////////////////////////////////////////////////////////////////////////////////////
+         for(Serializable pkey : pages.get(pageIndex))
+         {
             for(QPossibleValueSource possibleValueSource : possibleValueSources)
             {
-               if(possibleValueSource.getType().equals(QPossibleValueSourceType.TABLE))
+               if(!possibleValueCache.get(possibleValueSource.getName()).containsKey(pkey))
                {
-                  QTableMetaData table = QContext.getQInstance().getTable(possibleValueSource.getTableName());
-                  for(String recordLabelField : CollectionUtils.nonNullList(table.getRecordLabelFields()))
+                  possibleValueCache.get(possibleValueSource.getName()).put(pkey, null);
+
+                  if(sharedLabelCacheGenerations.containsKey(possibleValueSource.getName()))
                   {
-                     QFieldMetaData field = table.getField(recordLabelField);
-                     if(field.getPossibleValueSourceName() != null)
-                     {
-                        possibleValueFieldsToTranslate.add(field.getName());
-                     }
+                     sharedLabelCache.put(possibleValueSource, sharedLabelCacheGenerations.get(possibleValueSource.getName()), pkey, null);
                   }
                }
             }
+         }
+      }
+   }
+
+
 
-            ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            // an earlier version of this code got into stack overflows, so do a "cheap" check for recursion depth too... //
-            ////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-            if(!possibleValueFieldsToTranslate.isEmpty() && notTooDeep())
+   /*******************************************************************************
+    ** Run the query for each page of ids - concurrently (up to primingParallelism
+    ** at once), if there's more than one page - with the calling thread doing
+    ** one share of the work, and pool threads the rest.
+    **
+    ** Returns a map of page index to the records found for that page - where a
+    ** page whose query failed (which is logged) is left out of the map.
+    *******************************************************************************/
+   private Map<Integer, List<QRecord>> queryPages(String tableName, List<List<Serializable>> pages, UnsafeFunction<List<Serializable>, List<QRecord>, QException> pageQuerier)
+   {
+      Map<Integer, List<QRecord>> rs        = new ConcurrentHashMap<>();
+      AtomicInteger               nextIndex = new AtomicInteger(0);
+
+      Runnable worker = () ->
+      {
+         for(int pageIndex = nextIndex.getAndIncrement(); pageIndex < pages.size(); pageIndex = nextIndex.getAndIncrement())
+         {
+            try
             {
-               queryInput.setShouldTranslatePossibleValues(true);
-               queryInput.setFieldsToTranslatePossibleValues(possibleValueFieldsToTranslate);
+               rs.put(pageIndex, pageQuerier.apply(pages.get(pageIndex)));
             }
+            catch(Exception e)
+            {
+               LOG.warn("Error looking up possible values for table [" + tableName + "]", e);
+            }
+         }
+      };
+
+      ///////////////////////////////////////////////////////////////////////////////////
+      // only go parallel from the top level - not from within a thread that's already //
+      // priming (e.g., when translating PVS fields in a PVS table's record labels)    //
+      ///////////////////////////////////////////////////////////////////////////////////
+      int     parallelism        = Math.min(primingParallelism, pages.size());
+      boolean wasInPrimingWorker = isInPrimingWorker.get();
+      if(parallelism <= 1 || wasInPrimingWorker)
+      {
+         worker.run();
+         return (rs);
+      }
 
-            LOG.trace("Priming PVS cache for [" + page.size() + "] ids from [" + tableName + "] table.");
-            QueryOutput queryOutput = new QueryAction().execute(queryInput);
-
-            ///////////////////////////////////////////////////////////////////////////////////
-            // for all records that were found, put a formatted value into cache foreach PVS //
-            ///////////////////////////////////////////////////////////////////////////////////
-            for(QRecord record : queryOutput.getRecords())
+      ///////////////////////////////////////////////////////////////////////////////////
+      // pool threads get the instance & session (but not the transaction or action    //
+      // stack) from this thread - same as the page queries here have always run with. //
+      ///////////////////////////////////////////////////////////////////////////////////
+      CapturedContext capturedContext = new CapturedContext(QContext.getQInstance(), QContext.getQSession());
+      List<Future<?>> futures         = new ArrayList<>();
+      for(int i = 1; i < parallelism; i++)
+      {
+         try
+         {
+            futures.add(executorService.submit(() ->
             {
-               Serializable pkeyValue = record.getValue(idField);
-               for(QPossibleValueSource possibleValueSource : possibleValueSources)
+               try
                {
-                  QPossibleValue<?> possibleValue = new QPossibleValue<>(pkeyValue, record.getRecordLabel());
-                  possibleValueCache.get(possibleValueSource.getName()).put(pkeyValue, formatPossibleValue(possibleValueSource, possibleValue));
+                  QContext.init(capturedContext);
+                  isInPrimingWorker.set(true);
+                  worker.run();
                }
-            }
+               finally
+               {
+                  isInPrimingWorker.remove();
+                  QContext.clear();
+               }
+            }));
+         }
+         catch(RejectedExecutionException e)
+         {
+            ////////////////////////////////////////////////////////////////////////////
+            // if the pool is saturated, that's okay - the threads we have (including //
+            // this one) will just do all the pages.                                  //
+            ////////////////////////////////////////////////////////////////////////////
+            LOG.debug("Possible value priming executor rejected a worker", logPair("tableName", tableName));
+            break;
+         }
+      }
+
+      try
+      {
+         isInPrimingWorker.set(true);
+         worker.run();
+      }
+      finally
+      {
+         isInPrimingWorker.set(wasInPrimingWorker);
+      }
+
+      for(Future<?> future : futures)
+      {
+         try
+         {
+            future.get();
+         }
+         catch(InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted waiting for possible value priming worker", logPair("tableName", tableName));
+            break;
+         }
+         catch(ExecutionException e)
+         {
+            LOG.warn("Error in possible value priming worker", e, logPair("tableName", tableName));
+         }
+      }
 
-            /////////////////////////////////////////////////////////////////////////////////////////////////////////
-            // for all pkeys that were NOT found, put a null value into cache foreach PVS (to avoid re-looking up) //
-            /////////////////////////////////////////////////////////////////////////////////////////////////////////
-            for(Serializable pkey : page)
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** get the names of fields in the PVS table that are possible-values used in its
+    ** record label - which need translated to build those labels.
+    *******************************************************************************/
+   private Set<String> getPossibleValueFieldsToTranslateForLabels(List<QPossibleValueSource> possibleValueSources)
+   {
+      Set<String> rs = new HashSet<>();
+      for(QPossibleValueSource possibleValueSource : possibleValueSources)
+      {
+         if(possibleValueSource.getType().equals(QPossibleValueSourceType.TABLE))
+         {
+            QTableMetaData table = QContext.getQInstance().getTable(possibleValueSource.getTableName());
+            for(String recordLabelField : CollectionUtils.nonNullList(table.getRecordLabelFields()))
             {
-               for(QPossibleValueSource possibleValueSource : possibleValueSources)
+               QFieldMetaData field = table.getField(recordLabelField);
+               if(field.getPossibleValueSourceName() != null)
                {
-                  if(!possibleValueCache.get(possibleValueSource.getName()).containsKey(pkey))
-                  {
-                     possibleValueCache.get(possibleValueSource.getName()).put(pkey, null);
-                  }
+                  rs.add(field.getName());
                }
             }
          }
       }
-      catch(Exception e)
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** get the set of fields to select when querying a PVS table for labels - just
+    ** the id field, primary key, and record label fields - so wide tables don't
+    ** have all of their columns fetched and formatted.
+    **
+    ** Returns null (meaning all fields) if the table has a post-query customizer,
+    ** as it may use other fields (e.g., to build its own record labels).
+    *******************************************************************************/
+   private Set<String> getFieldNamesToIncludeForLabels(String tableName, String idField, List<QPossibleValueSource> possibleValueSources)
+   {
+      QTableMetaData table = QContext.getQInstance().getTable(tableName);
+      if(table == null || table.getCustomizer(TableCustomizers.POST_QUERY_RECORD.getRole()).isPresent())
+      {
+         return (null);
+      }
+
+      Set<String> rs = new HashSet<>();
+      rs.add(idField);
+      if(table.getPrimaryKeyField() != null)
       {
-         LOG.warn("Error looking up possible values for table [" + tableName + "]", e);
+         rs.add(table.getPrimaryKeyField());
       }
+
+      rs.addAll(CollectionUtils.nonNullList(table.getRecordLabelFields()));
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** For PVSes that use the shared label cache - copy values found in it into this
+    ** translator's cache - returning the values that still need to be looked up
+    ** (e.g., ones not found in the shared cache for all of the PVSes).
+    *******************************************************************************/
+   private Collection<Serializable> takeValuesFromSharedLabelCache(List<QPossibleValueSource> possibleValueSources, Collection<Serializable> values)
+   {
+      if(possibleValueSources.stream().noneMatch(SharedPossibleValueLabelCache::isEnabled))
+      {
+         return (values);
+      }
+
+      SharedPossibleValueLabelCache sharedLabelCache = SharedPossibleValueLabelCache.getInstance();
+      List<Serializable>            rs               = new ArrayList<>();
+      for(Serializable value : values)
+      {
+         Map<String, String> labelsByPvsName = new HashMap<>();
+         for(QPossibleValueSource possibleValueSource : possibleValueSources)
+         {
+            Optional<MemoizedResult<String>> cachedLabel = sharedLabelCache.get(possibleValueSource, value);
+            if(cachedLabel.isEmpty())
+            {
+               break;
+            }
+            labelsByPvsName.put(possibleValueSource.getName(), cachedLabel.get().getResult());
+         }
+
+         if(labelsByPvsName.size() == possibleValueSources.size())
+         {
+            labelsByPvsName.forEach((pvsName, label) -> possibleValueCache.get(pvsName).put(value, label));
+         }
+         else
+         {
+            rs.add(value);
+         }
+      }
+
+      return (rs);
    }
 
 
@@ -680,4 +952,44 @@ public class QPossibleValueTranslator
       this.maxSizePerPvsCache = maxSizePerPvsCache;
    }
 
+
+
+   /*******************************************************************************
+    ** Getter for primingPageSize
+    *******************************************************************************/
+   public int getPrimingPageSize()
+   {
+      return (this.primingPageSize);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for primingPageSize
+    *******************************************************************************/
+   public void setPrimingPageSize(int primingPageSize)
+   {
+      this.primingPageSize = primingPageSize;
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for primingParallelism
+    *******************************************************************************/
+   public int getPrimingParallelism()
+   {
+      return (this.primingParallelism);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for primingParallelism
+    *******************************************************************************/
+   public void setPrimingParallelism(int primingParallelism)
+   {
+      this.primingParallelism = primingParallelism;
+   }
+
 }
@@ -0,0 +1,473 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.actions.values;
+
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PVSSharedLabelCache;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSource;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSourceType;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.memoization.Memoization;
+import com.kingsrook.qqq.backend.core.utils.memoization.MemoizationStatistics;
+import com.kingsrook.qqq.backend.core.utils.memoization.MemoizedResult;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Instance-wide cache of formatted possible-value labels, for table-type
+ ** PossibleValueSources that opt in to it (via their sharedLabelCache setting).
+ **
+ ** Used by QPossibleValueTranslator, behind its own per-translator cache, so
+ ** that labels found by one request don't need re-queried by the next one.
+ ** Insert, Update, Delete, and Upsert actions call invalidateForTable (or
+ ** invalidateForRecords), to remove labels for records that they change.
+ **
+ ** Each invalidation bumps a "generation" number for the affected PVSes - and
+ ** labels are only stored if their PVS's generation hasn't changed since before
+ ** the query that found them ran - so a query that raced with an auto-committed
+ ** DML action can't put a stale label back in the cache.  But if the action ran
+ ** in a transaction, other connections keep seeing the old rows until it
+ ** commits - so a query after the invalidation could still cache an old label.
+ ** So, for those, the invalidation is also added as a post-commit action to the
+ ** transaction (one per table, collecting the keys of all of its statements),
+ ** to run again once the new rows are visible.
+ *******************************************************************************/
+public class SharedPossibleValueLabelCache
+{
+   private static final QLogger LOG = QLogger.getLogger(SharedPossibleValueLabelCache.class);
+
+   private static final SharedPossibleValueLabelCache sharedPossibleValueLabelCache = new SharedPossibleValueLabelCache();
+
+   //////////////////////////////////////////////////////////////////////////
+   // past this many keys, a post-commit invalidation clears whole caches, //
+   // rather than hold onto the keys of a transaction's every statement.   //
+   //////////////////////////////////////////////////////////////////////////
+   private static final int MAX_POST_COMMIT_KEYS = 10_000;
+
+   ///////////////////////////////////////////////////////////////////////////
+   // keys are pvsNames - and caches are only for the qInstance noted here; //
+   // if a different one comes along (e.g., it was reloaded), start over.   //
+   ///////////////////////////////////////////////////////////////////////////
+   private final    Map<String, PvsCache> caches = new ConcurrentHashMap<>();
+   private volatile QInstance             qInstance;
+
+
+
+   /***************************************************************************
+    ** the cache (and its generation number) for one PVS
+    ***************************************************************************/
+   private static class PvsCache
+   {
+      private final PVSSharedLabelCache              settings;
+      private final Memoization<Serializable, String> memoization;
+      private final AtomicLong                       generation = new AtomicLong();
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       **
+       *******************************************************************************/
+      private PvsCache(PVSSharedLabelCache settings)
+      {
+         this.settings = settings;
+         this.memoization = new Memoization<Serializable, String>(Duration.ofSeconds(settings.getTimeoutSeconds()), settings.getMaxSize())
+            .withMayStoreNullValues(true);
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** a transaction's post-commit invalidation for one table - collecting the
+    ** primary keys of its statements (or, null, to clear whole caches).
+    ***************************************************************************/
+   private static class PostCommitInvalidation implements Runnable
+   {
+      private final String            tableName;
+      private       Set<Serializable> primaryKeys = new HashSet<>();
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       **
+       *******************************************************************************/
+      private PostCommitInvalidation(String tableName)
+      {
+         this.tableName = tableName;
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      private synchronized void addPrimaryKeys(Collection<Serializable> primaryKeys)
+      {
+         if(this.primaryKeys == null)
+         {
+            return;
+         }
+
+         if(primaryKeys == null || this.primaryKeys.size() + primaryKeys.size() > MAX_POST_COMMIT_KEYS)
+         {
+            this.primaryKeys = null;
+            return;
+         }
+
+         this.primaryKeys.addAll(primaryKeys);
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public synchronized void run()
+      {
+         getInstance().invalidateForTable(tableName, primaryKeys);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Singleton constructor
+    *******************************************************************************/
+   private SharedPossibleValueLabelCache()
+   {
+   }
+
+
+
+   /*******************************************************************************
+    ** Singleton accessor
+    *******************************************************************************/
+   public static SharedPossibleValueLabelCache getInstance()
+   {
+      return (sharedPossibleValueLabelCache);
+   }
+
+
+
+   /*******************************************************************************
+    ** check if a PVS uses the shared label cache.
+    *******************************************************************************/
+   public static boolean isEnabled(QPossibleValueSource possibleValueSource)
+   {
+      return (possibleValueSource != null && possibleValueSource.getSharedLabelCache() != null && QPossibleValueSourceType.TABLE.equals(possibleValueSource.getType()));
+   }
+
+
+
+   /*******************************************************************************
+    ** Look up the label for an id in a PVS's shared cache.  An empty Optional
+    ** means it isn't cached; a MemoizedResult with a null value means it's cached
+    ** as not-found.
+    *******************************************************************************/
+   public Optional<MemoizedResult<String>> get(QPossibleValueSource possibleValueSource, Serializable id)
+   {
+      PvsCache pvsCache = getPvsCache(possibleValueSource);
+      if(pvsCache == null)
+      {
+         return (Optional.empty());
+      }
+
+      return (pvsCache.memoization.getMemoizedResult(id));
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the current generation of a PVS's cache - to be read before querying for
+    ** labels, and then passed to put, after the query.
+    *******************************************************************************/
+   public long getGeneration(QPossibleValueSource possibleValueSource)
+   {
+      PvsCache pvsCache = getPvsCache(possibleValueSource);
+      return (pvsCache == null ? 0 : pvsCache.generation.get());
+   }
+
+
+
+   /*******************************************************************************
+    ** Store the label for an id (null meaning not-found) in a PVS's shared cache -
+    ** unless it has been invalidated since the input generation was read.
+    *******************************************************************************/
+   public void put(QPossibleValueSource possibleValueSource, long generation, Serializable id, String label)
+   {
+      PvsCache pvsCache = getPvsCache(possibleValueSource);
+      if(pvsCache == null || pvsCache.generation.get() != generation)
+      {
+         return;
+      }
+
+      pvsCache.memoization.storeResult(id, label);
+
+      ///////////////////////////////////////////////////////////////////////////
+      // if an invalidation ran between the check above and the store, undo it //
+      ///////////////////////////////////////////////////////////////////////////
+      if(pvsCache.generation.get() != generation)
+      {
+         pvsCache.memoization.clearKey(id);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Invalidate cached labels after records in a table were inserted, updated, or
+    ** deleted.  If primaryKeys are given, then for PVSes over the table that are
+    ** keyed by its primary key, only those keys are removed; else (or for other
+    ** PVSes that could be affected - e.g., ones over a table whose record label
+    ** includes a possible value from this table), the whole cache is cleared.
+    *******************************************************************************/
+   public void invalidateForTable(String tableName, Collection<Serializable> primaryKeys)
+   {
+      if(caches.isEmpty() || tableName == null)
+      {
+         return;
+      }
+
+      QInstance qInstance = QContext.getQInstance();
+      for(Map.Entry<String, PvsCache> entry : caches.entrySet())
+      {
+         QPossibleValueSource possibleValueSource = qInstance == null ? null : qInstance.getPossibleValueSource(entry.getKey());
+         PvsCache             pvsCache            = entry.getValue();
+
+         if(possibleValueSource == null)
+         {
+            pvsCache.generation.incrementAndGet();
+            pvsCache.memoization.clear();
+         }
+         else if(tableName.equals(possibleValueSource.getTableName()))
+         {
+            pvsCache.generation.incrementAndGet();
+            if(primaryKeys != null && possibleValueSource.getOverrideIdField() == null)
+            {
+               for(Serializable primaryKey : primaryKeys)
+               {
+                  pvsCache.memoization.clearKey(primaryKey);
+               }
+            }
+            else
+            {
+               pvsCache.memoization.clear();
+            }
+         }
+         else if(doesRecordLabelUseTable(qInstance, possibleValueSource, tableName))
+         {
+            pvsCache.generation.incrementAndGet();
+            pvsCache.memoization.clear();
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Invalidate cached labels after records in a table were inserted, updated, or
+    ** deleted, in a transaction (which may be null, if they were auto-committed) -
+    ** now, and again after the transaction commits.
+    *******************************************************************************/
+   public void invalidateForTable(String tableName, Collection<Serializable> primaryKeys, QBackendTransaction transaction)
+   {
+      invalidateForTable(tableName, primaryKeys);
+
+      ///////////////////////////////////////////////////////////////////////
+      // this is added even if there are no caches yet - as a query in the //
+      // transaction's window could make one (with an old label in it).    //
+      ///////////////////////////////////////////////////////////////////////
+      if(transaction != null && tableName != null)
+      {
+         PostCommitInvalidation postCommitInvalidation = transaction.computePostCommitActionIfAbsent(List.of(SharedPossibleValueLabelCache.class, tableName), () -> new PostCommitInvalidation(tableName));
+         postCommitInvalidation.addPrimaryKeys(primaryKeys);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Invalidate cached labels for a list of records (e.g., from an insert or
+    ** update) in a table, in a transaction (which may be null, if they were
+    ** auto-committed) - now, and again after the transaction commits.
+    *******************************************************************************/
+   public void invalidateForRecords(QTableMetaData table, Collection<QRecord> records, QBackendTransaction transaction)
+   {
+      if(table == null || (caches.isEmpty() && transaction == null))
+      {
+         return;
+      }
+
+      ///////////////////////////////////////////////////////////////////////////
+      // if any stored record's primary key isn't known (e.g., a native upsert //
+      // on a backend that can't report ids), then invalidate the whole table. //
+      ///////////////////////////////////////////////////////////////////////////
+      String             primaryKeyField = table.getPrimaryKeyField();
+      List<Serializable> primaryKeys     = new ArrayList<>();
+      for(QRecord record : CollectionUtils.nonNullCollection(records))
+      {
+         if(CollectionUtils.nullSafeHasContents(record.getErrors()))
+         {
+            continue;
+         }
+
+         Serializable primaryKey = record.getValue(primaryKeyField);
+         if(primaryKey == null)
+         {
+            invalidateForTable(table.getName(), null, transaction);
+            return;
+         }
+         primaryKeys.add(primaryKey);
+      }
+      invalidateForTable(table.getName(), primaryKeys, transaction);
+   }
+
+
+
+   /*******************************************************************************
+    ** check if a PVS's table uses a possible value from another table in its
+    ** record label - in which case, changing that table can change these labels.
+    *******************************************************************************/
+   private boolean doesRecordLabelUseTable(QInstance qInstance, QPossibleValueSource possibleValueSource, String tableName)
+   {
+      QTableMetaData pvsTable = qInstance.getTable(possibleValueSource.getTableName());
+      if(pvsTable == null)
+      {
+         return (true);
+      }
+
+      for(String recordLabelField : CollectionUtils.nonNullList(pvsTable.getRecordLabelFields()))
+      {
+         QFieldMetaData field = pvsTable.getFields().get(recordLabelField);
+         if(field != null && field.getPossibleValueSourceName() != null)
+         {
+            QPossibleValueSource fieldPossibleValueSource = qInstance.getPossibleValueSource(field.getPossibleValueSourceName());
+            if(fieldPossibleValueSource != null && tableName.equals(fieldPossibleValueSource.getTableName()))
+            {
+               return (true);
+            }
+         }
+      }
+
+      return (false);
+   }
+
+
+
+   /*******************************************************************************
+    ** get (making if needed) the cache for a PVS - or null if it doesn't opt in.
+    *******************************************************************************/
+   private PvsCache getPvsCache(QPossibleValueSource possibleValueSource)
+   {
+      if(!isEnabled(possibleValueSource))
+      {
+         return (null);
+      }
+
+      QInstance currentQInstance = QContext.getQInstance();
+      if(currentQInstance != qInstance)
+      {
+         synchronized(this)
+         {
+            if(currentQInstance != qInstance)
+            {
+               caches.clear();
+               qInstance = currentQInstance;
+            }
+         }
+      }
+
+      ///////////////////////////////////////////////////////////////////////////
+      // make a new cache if there isn't one, or if the PVS's settings changed //
+      ///////////////////////////////////////////////////////////////////////////
+      PVSSharedLabelCache settings = possibleValueSource.getSharedLabelCache();
+      PvsCache            pvsCache = caches.get(possibleValueSource.getName());
+      if(pvsCache == null || pvsCache.settings != settings)
+      {
+         pvsCache = caches.compute(possibleValueSource.getName(), (name, existing) -> existing != null && existing.settings == settings ? existing : new PvsCache(settings));
+      }
+
+      return (pvsCache);
+   }
+
+
+
+   /*******************************************************************************
+    ** get hit/miss/size statistics for each PVS's cache.
+    *******************************************************************************/
+   public Map<String, MemoizationStatistics> getStatistics()
+   {
+      Map<String, MemoizationStatistics> rs = new LinkedHashMap<>();
+      caches.forEach((name, pvsCache) -> rs.put(name, pvsCache.memoization.getStatistics()));
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** log the hit rate (and other statistics) of each PVS's cache.
+    *******************************************************************************/
+   public void logStatistics()
+   {
+      getStatistics().forEach((name, statistics) -> LOG.info("Shared possible value label cache statistics",
+         logPair("possibleValueSource", name),
+         logPair("hitRate", statistics.hitRate()),
+         logPair("hitCount", statistics.hitCount()),
+         logPair("missCount", statistics.missCount()),
+         logPair("evictionCount", statistics.evictionCount()),
+         logPair("size", statistics.size())));
+   }
+
+
+
+   /*******************************************************************************
+    ** remove all cached labels (and statistics).
+    *******************************************************************************/
+   public void clear()
+   {
+      caches.values().forEach(pvsCache -> pvsCache.generation.incrementAndGet());
+      caches.clear();
+   }
+
+}
@@ -22,13 +22,17 @@
 package com.kingsrook.qqq.backend.core.adapters;
 
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import com.kingsrook.qqq.backend.core.actions.reporting.RecordPipe;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
@@ -40,6 +44,7 @@ import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.model.statusmessages.BadInputStatusMessage;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
 import com.kingsrook.qqq.backend.core.utils.ValueUtils;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeConsumer;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
@@ -49,14 +54,16 @@ import org.apache.commons.csv.CSVRecord;
  ** Adapter class to convert a CSV string into a list of QRecords.
  **
  ** Based on which method is called, can either take a pipe, and stream records
- ** into it - or return a list of all records from the file.  Either way, at this
- ** time, the full CSV string is read & parsed - a future optimization might read
- ** the CSV content from a stream as well.
+ ** into it - or return a list of all records from the file.  The CSV content can
+ ** be given either as a String, or as a Reader - in which case it is parsed
+ ** incrementally, one CSV record at a time, so (when combined with a pipe) the
+ ** full file never needs to be held in memory.
  *******************************************************************************/
 public class CsvToQRecordAdapter
 {
-   private RecordPipe    recordPipe = null;
-   private List<QRecord> recordList = null;
+   private RecordPipe                          recordPipe     = null;
+   private List<QRecord>                       recordList     = null;
+   private UnsafeConsumer<QRecord, QException> recordConsumer = null;
 
 
 
@@ -72,6 +79,18 @@ public class CsvToQRecordAdapter
 
 
 
+   /*******************************************************************************
+    ** stream records from a CSV Reader into a RecordPipe, for a given table, optionally
+    ** using a given mapping.  The reader is consumed incrementally (but not closed).
+    **
+    *******************************************************************************/
+   public void buildRecordsFromCsv(RecordPipe recordPipe, Reader csvReader, QTableMetaData table, AbstractQFieldMapping<?> mapping, Consumer<QRecord> recordCustomizer) throws QException
+   {
+      buildRecordsFromCsv(new InputWrapper().withRecordPipe(recordPipe).withCsvReader(csvReader).withTable(table).withMapping(mapping).withRecordCustomizer(recordCustomizer));
+   }
+
+
+
    /*******************************************************************************
     ** convert a CSV String into a List of QRecords, for a given table, optionally
     ** using a given mapping.
@@ -94,22 +113,24 @@ public class CsvToQRecordAdapter
    public void buildRecordsFromCsv(InputWrapper inputWrapper) throws QException
    {
       String                   csv              = inputWrapper.getCsv();
+      Reader                   csvReader        = inputWrapper.getCsvReader();
       AbstractQFieldMapping<?> mapping          = inputWrapper.getMapping();
       Consumer<QRecord>        recordCustomizer = inputWrapper.getRecordCustomizer();
       QTableMetaData           table            = inputWrapper.getTable();
       Integer                  limit            = inputWrapper.getLimit();
 
-      if(!StringUtils.hasContent(csv))
+      if(csvReader == null && !StringUtils.hasContent(csv))
       {
          throw (new IllegalArgumentException("Empty csv value was provided."));
       }
 
-      /////////////////////////////////////////////////////////////////////////////////////////////////////////
-      // if caller supplied a record pipe, use it -- but if it's null, then create a recordList to populate. //
-      // see addRecord method for usage.                                                                     //
-      /////////////////////////////////////////////////////////////////////////////////////////////////////////
+      ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+      // if caller supplied a record pipe or consumer, use it -- but if not, then create a recordList to populate. //
+      // see addRecord method for usage.                                                                           //
+      ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
       this.recordPipe = inputWrapper.getRecordPipe();
-      if(this.recordPipe == null)
+      this.recordConsumer = inputWrapper.getRecordConsumer();
+      if(this.recordPipe == null && this.recordConsumer == null)
       {
          this.recordList = new ArrayList<>();
       }
@@ -118,19 +139,27 @@ public class CsvToQRecordAdapter
       // once, from a DOS csv file (that had come from Excel), we had a "﻿" character (FEFF, Byte-order marker) at the start of a //
       // CSV, which caused our first header to not match...  So, let us strip away any FEFF or FFFE's at the start of CSV strings.     //
       ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-      if(csv.length() > 1 && (csv.charAt(0) == 0xfeff || csv.charAt(0) == 0xfffe))
-      {
-         csv = csv.substring(1);
-      }
-
       try
       {
+         if(csvReader == null)
+         {
+            if(csv.length() > 1 && (csv.charAt(0) == 0xfeff || csv.charAt(0) == 0xfffe))
+            {
+               csv = csv.substring(1);
+            }
+            csvReader = new StringReader(csv);
+         }
+         else
+         {
+            csvReader = prepareCsvReader(csvReader);
+         }
+
          ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
          // if there's no mapping (e.g., table-standard field names), or key-based mapping, then first row is headers //
          ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
          if(mapping == null || AbstractQFieldMapping.SourceType.KEY.equals(mapping.getSourceType()))
          {
-            CSVParser csvParser = new CSVParser(new StringReader(csv),
+            CSVParser csvParser = new CSVParser(csvReader,
                CSVFormat.DEFAULT
                   .withFirstRecordAsHeader()
                   .withIgnoreHeaderCase()
@@ -147,7 +176,7 @@ public class CsvToQRecordAdapter
 
             Iterator<CSVRecord> csvIterator = csvParser.iterator();
             int                 recordCount = 0;
-            while(csvIterator.hasNext())
+            while(!isStopped(inputWrapper) && csvIterator.hasNext())
             {
                CSVRecord csvRecord = csvIterator.next();
 
@@ -184,6 +213,11 @@ public class CsvToQRecordAdapter
                      ///////////////////////////////////////
                      for(QFieldMetaData field : table.getFields().values())
                      {
+                        if(!isFieldIncluded(inputWrapper, field))
+                        {
+                           continue;
+                        }
+
                         String fieldSource = mapping == null ? field.getName() : String.valueOf(mapping.getFieldSource(field.getName()));
                         fieldSource = adjustHeaderCase(fieldSource, inputWrapper);
                         setValue(inputWrapper, qRecord, field, csvValues.get(fieldSource));
@@ -210,13 +244,13 @@ public class CsvToQRecordAdapter
             ///////////////////////////////
             // else, index-based mapping //
             ///////////////////////////////
-            CSVParser csvParser = new CSVParser(new StringReader(csv),
+            CSVParser csvParser = new CSVParser(csvReader,
                CSVFormat.DEFAULT
                   .withTrim());
 
             Iterator<CSVRecord> csvIterator = csvParser.iterator();
             int                 recordCount = 0;
-            while(csvIterator.hasNext())
+            while(!isStopped(inputWrapper) && csvIterator.hasNext())
             {
                CSVRecord csvRecord = csvIterator.next();
 
@@ -238,6 +272,11 @@ public class CsvToQRecordAdapter
                {
                   for(QFieldMetaData field : table.getFields().values())
                   {
+                     if(!isFieldIncluded(inputWrapper, field))
+                     {
+                        continue;
+                     }
+
                      Integer fieldIndex = (Integer) mapping.getFieldSource(field.getName());
                      setValue(inputWrapper, qRecord, field, csvValues.get(fieldIndex));
                   }
@@ -270,6 +309,33 @@ public class CsvToQRecordAdapter
 
 
 
+   /*******************************************************************************
+    ** buffer a caller-supplied reader (if it isn't already), then apply the same
+    ** checks we do to a csv string:  fail if it is empty, and skip past a leading
+    ** byte-order marker - peeking just the first character, so nothing else of
+    ** the stream gets read here.
+    *******************************************************************************/
+   private Reader prepareCsvReader(Reader csvReader) throws IOException
+   {
+      BufferedReader bufferedReader = (csvReader instanceof BufferedReader br) ? br : new BufferedReader(csvReader);
+
+      bufferedReader.mark(1);
+      int firstChar = bufferedReader.read();
+      if(firstChar == -1)
+      {
+         throw (new IllegalArgumentException("Empty csv value was provided."));
+      }
+
+      if(firstChar != 0xfeff && firstChar != 0xfffe)
+      {
+         bufferedReader.reset();
+      }
+
+      return (bufferedReader);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -321,6 +387,27 @@ public class CsvToQRecordAdapter
 
 
 
+   /*******************************************************************************
+    ** check the caller's stop condition (if any) - which we do before reading each
+    ** csv record, so that once it's met, no more of the input gets read.
+    *******************************************************************************/
+   private boolean isStopped(InputWrapper inputWrapper)
+   {
+      return (inputWrapper.getStopCondition() != null && inputWrapper.getStopCondition().getAsBoolean());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private boolean isFieldIncluded(InputWrapper inputWrapper, QFieldMetaData field)
+   {
+      return (inputWrapper.getFieldNamesToInclude() == null || inputWrapper.getFieldNamesToInclude().contains(field.getName()));
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -372,7 +459,7 @@ public class CsvToQRecordAdapter
 
 
    /*******************************************************************************
-    ** Add a record - either to the pipe, or list, whichever we're building.
+    ** Add a record - either to the pipe, consumer, or list, whichever we're building.
     *******************************************************************************/
    private void addRecord(QRecord record) throws QException
    {
@@ -381,6 +468,11 @@ public class CsvToQRecordAdapter
          recordPipe.addRecord(record);
       }
 
+      if(recordConsumer != null)
+      {
+         recordConsumer.run(record);
+      }
+
       if(recordList != null)
       {
          recordList.add(record);
@@ -413,10 +505,16 @@ public class CsvToQRecordAdapter
    {
       private RecordPipe               recordPipe;
       private String                   csv;
+      private Reader                   csvReader;
       private QTableMetaData           table;
       private AbstractQFieldMapping<?> mapping;
       private Consumer<QRecord>        recordCustomizer;
       private Integer                  limit;
+      private Set<String>              fieldNamesToInclude;
+
+      private UnsafeConsumer<QRecord, QException> recordConsumer;
+      private BooleanSupplier                     stopCondition;
+
       private boolean                  doCorrectValueTypes = false;
 
       private boolean caseSensitiveHeaders   = false;
@@ -492,6 +590,40 @@ public class CsvToQRecordAdapter
 
 
 
+      /*******************************************************************************
+       ** Getter for csvReader
+       **
+       *******************************************************************************/
+      public Reader getCsvReader()
+      {
+         return csvReader;
+      }
+
+
+
+      /*******************************************************************************
+       ** Setter for csvReader - if given, it is used (instead of csv), and read
+       ** incrementally.  The caller remains responsible for closing it.
+       *******************************************************************************/
+      public void setCsvReader(Reader csvReader)
+      {
+         this.csvReader = csvReader;
+      }
+
+
+
+      /*******************************************************************************
+       ** Fluent setter for csvReader
+       **
+       *******************************************************************************/
+      public InputWrapper withCsvReader(Reader csvReader)
+      {
+         this.csvReader = csvReader;
+         return (this);
+      }
+
+
+
       /*******************************************************************************
        ** Getter for table
        **
@@ -696,6 +828,108 @@ public class CsvToQRecordAdapter
 
 
 
+      /*******************************************************************************
+       ** Getter for fieldNamesToInclude
+       **
+       *******************************************************************************/
+      public Set<String> getFieldNamesToInclude()
+      {
+         return fieldNamesToInclude;
+      }
+
+
+
+      /*******************************************************************************
+       ** Setter for fieldNamesToInclude - if given, only these fields (of the table)
+       ** get values set in the records that are built.
+       *******************************************************************************/
+      public void setFieldNamesToInclude(Set<String> fieldNamesToInclude)
+      {
+         this.fieldNamesToInclude = fieldNamesToInclude;
+      }
+
+
+
+      /*******************************************************************************
+       ** Fluent setter for fieldNamesToInclude
+       **
+       *******************************************************************************/
+      public InputWrapper withFieldNamesToInclude(Set<String> fieldNamesToInclude)
+      {
+         this.fieldNamesToInclude = fieldNamesToInclude;
+         return (this);
+      }
+
+
+
+      /*******************************************************************************
+       ** Getter for recordConsumer
+       **
+       *******************************************************************************/
+      public UnsafeConsumer<QRecord, QException> getRecordConsumer()
+      {
+         return recordConsumer;
+      }
+
+
+
+      /*******************************************************************************
+       ** Setter for recordConsumer - if given, records are passed to it as they're
+       ** built (instead of being collected into the record list).
+       *******************************************************************************/
+      public void setRecordConsumer(UnsafeConsumer<QRecord, QException> recordConsumer)
+      {
+         this.recordConsumer = recordConsumer;
+      }
+
+
+
+      /*******************************************************************************
+       ** Fluent setter for recordConsumer
+       **
+       *******************************************************************************/
+      public InputWrapper withRecordConsumer(UnsafeConsumer<QRecord, QException> recordConsumer)
+      {
+         this.recordConsumer = recordConsumer;
+         return (this);
+      }
+
+
+
+      /*******************************************************************************
+       ** Getter for stopCondition
+       **
+       *******************************************************************************/
+      public BooleanSupplier getStopCondition()
+      {
+         return stopCondition;
+      }
+
+
+
+      /*******************************************************************************
+       ** Setter for stopCondition - checked before each csv record is read; once it
+       ** returns true, parsing ends, leaving the rest of the input unread.
+       *******************************************************************************/
+      public void setStopCondition(BooleanSupplier stopCondition)
+      {
+         this.stopCondition = stopCondition;
+      }
+
+
+
+      /*******************************************************************************
+       ** Fluent setter for stopCondition
+       **
+       *******************************************************************************/
+      public InputWrapper withStopCondition(BooleanSupplier stopCondition)
+      {
+         this.stopCondition = stopCondition;
+         return (this);
+      }
+
+
+
       /*******************************************************************************
        ** Getter for doCorrectValueTypes
        **
@@ -22,15 +22,27 @@
 package com.kingsrook.qqq.backend.core.adapters;
 
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.shared.mapping.AbstractQFieldMapping;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.utils.JsonUtils;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeConsumer;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -39,9 +51,20 @@ import org.json.JSONObject;
 /*******************************************************************************
  ** Adapter class to convert a JSON string into a list of QRecords.
  **
+ ** Can also read JSON from a Reader, using Jackson's streaming parser to walk
+ ** the tokens of a top-level array, so only one element at a time is held in
+ ** memory (see the Reader overload of buildRecordsFromJson).
  *******************************************************************************/
 public class JsonToQRecordAdapter
 {
+   /////////////////////////////////////////////////////////////////////////////////////////////////////
+   // read decimals as (un-normalized) BigDecimals, so re-writing an element for org.json is lossless //
+   /////////////////////////////////////////////////////////////////////////////////////////////////////
+   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+      .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+      .configure(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES, false);
+
+
 
    /*******************************************************************************
     ** convert a JSON String into a List of QRecords, for a given table, optionally
@@ -62,7 +85,7 @@ public class JsonToQRecordAdapter
          if(JsonUtils.looksLikeObject(json))
          {
             JSONObject jsonObject = JsonUtils.toJSONObject(json);
-            rs.add(buildRecordFromJsonObject(jsonObject, table, mapping));
+            rs.add(buildRecordFromJsonObject(jsonObject, table, mapping, null));
          }
          else if(JsonUtils.looksLikeArray(json))
          {
@@ -71,7 +94,7 @@ public class JsonToQRecordAdapter
             {
                if(object instanceof JSONObject jsonObject)
                {
-                  rs.add(buildRecordFromJsonObject(jsonObject, table, mapping));
+                  rs.add(buildRecordFromJsonObject(jsonObject, table, mapping, null));
                }
                else
                {
@@ -95,11 +118,102 @@ public class JsonToQRecordAdapter
 
 
    /*******************************************************************************
-    ** private method to build one QRecord from one jsonObject
+    ** stream QRecords out of JSON from a Reader, for a given table, optionally
+    ** using a given mapping, passing each one to the recordConsumer as soon as it
+    ** is built.  Input may be a single object, or an array of objects - in which
+    ** case the array is walked token by token, never materializing the whole thing.
+    **
+    ** Records are built exactly as by the String overload (each element is handed
+    ** to org.json), so values come out with the same types either way.  The reader
+    ** is not closed.
+    *******************************************************************************/
+   public void buildRecordsFromJson(Reader jsonReader, QTableMetaData table, AbstractQFieldMapping<?> mapping, UnsafeConsumer<QRecord, QException> recordConsumer) throws QException
+   {
+      buildRecordsFromJson(jsonReader, table, mapping, null, recordConsumer, null);
+   }
+
+
+
+   /*******************************************************************************
+    ** stream QRecords out of JSON from a Reader, as above - but, if given, only
+    ** setting values for the fieldNamesToInclude, and checking the stopCondition
+    ** before each element of an array, to end parsing (leaving the rest of the
+    ** input unread) once it returns true.
+    *******************************************************************************/
+   public void buildRecordsFromJson(Reader jsonReader, QTableMetaData table, AbstractQFieldMapping<?> mapping, Set<String> fieldNamesToInclude, UnsafeConsumer<QRecord, QException> recordConsumer, BooleanSupplier stopCondition) throws QException
+   {
+      if(jsonReader == null)
+      {
+         throw (new IllegalArgumentException("Empty json value was provided."));
+      }
+
+      try(JsonParser jsonParser = OBJECT_MAPPER.getFactory().createParser(jsonReader))
+      {
+         jsonParser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+         JsonToken firstToken = jsonParser.nextToken();
+         if(firstToken == null)
+         {
+            throw (new IllegalArgumentException("Empty json value was provided."));
+         }
+         else if(firstToken == JsonToken.START_OBJECT)
+         {
+            recordConsumer.run(buildRecordFromJsonNode(jsonParser, table, mapping, fieldNamesToInclude));
+         }
+         else if(firstToken == JsonToken.START_ARRAY)
+         {
+            int index = 0;
+            while(stopCondition == null || !stopCondition.getAsBoolean())
+            {
+               JsonToken token = jsonParser.nextToken();
+               if(token == JsonToken.END_ARRAY)
+               {
+                  break;
+               }
+               else if(token == null)
+               {
+                  throw (new IllegalArgumentException("Malformed JSON value - input ended before the end of the json array."));
+               }
+               else if(token != JsonToken.START_OBJECT)
+               {
+                  throw (new IllegalArgumentException("Element at index " + index + " in json array was not a json object."));
+               }
+
+               recordConsumer.run(buildRecordFromJsonNode(jsonParser, table, mapping, fieldNamesToInclude));
+               index++;
+            }
+         }
+         else
+         {
+            throw (new IllegalArgumentException("Malformed JSON value - did not start with '{' or '['."));
+         }
+      }
+      catch(IOException | JSONException e)
+      {
+         throw (new IllegalArgumentException("Malformed JSON value: " + e.getMessage(), e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** read the object the parser is positioned at, and build a QRecord from it.
+    *******************************************************************************/
+   private QRecord buildRecordFromJsonNode(JsonParser jsonParser, QTableMetaData table, AbstractQFieldMapping<?> mapping, Set<String> fieldNamesToInclude) throws IOException
+   {
+      JsonNode jsonNode = OBJECT_MAPPER.readTree(jsonParser);
+      return (buildRecordFromJsonObject(new JSONObject(jsonNode.toString()), table, mapping, fieldNamesToInclude));
+   }
+
+
+
+   /*******************************************************************************
+    ** private method to build one QRecord from one jsonObject - with values for
+    ** only the fieldNamesToInclude, if given (and if there's a table).
     **
     ** todo - meta-data validation, type handling
     *******************************************************************************/
-   private QRecord buildRecordFromJsonObject(JSONObject jsonObject, QTableMetaData table, AbstractQFieldMapping<?> mapping)
+   private QRecord buildRecordFromJsonObject(JSONObject jsonObject, QTableMetaData table, AbstractQFieldMapping<?> mapping, Set<String> fieldNamesToInclude)
    {
       QRecord record = new QRecord();
 
@@ -114,6 +228,11 @@ public class JsonToQRecordAdapter
       {
          for(QFieldMetaData field : table.getFields().values())
          {
+            if(fieldNamesToInclude != null && !fieldNamesToInclude.contains(field.getName()))
+            {
+               continue;
+            }
+
             String fieldSource = mapping == null ? field.getName() : String.valueOf(mapping.getFieldSource(field.getName()));
             // todo - so if the mapping didn't say how to map this field, does that mean we should use the default name for the field?
             if(jsonObject.has(fieldSource))
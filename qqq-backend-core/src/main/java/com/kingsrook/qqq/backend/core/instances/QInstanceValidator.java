@@ -88,6 +88,7 @@ import com.kingsrook.qqq.backend.core.model.metadata.layout.QAppChildMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.layout.QAppMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.layout.QAppSection;
 import com.kingsrook.qqq.backend.core.model.metadata.menus.QMenu;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PVSSharedLabelCache;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSource;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSourceType;
 import com.kingsrook.qqq.backend.core.model.metadata.processes.QBackendStepMetaData;
@@ -2595,6 +2596,7 @@ public class QInstanceValidator
                assertCondition(!CollectionUtils.nullSafeHasContents(possibleValueSource.getSearchFields()), "enum-type possibleValueSource " + name + " should not have searchFields.");
                assertCondition(!CollectionUtils.nullSafeHasContents(possibleValueSource.getOrderByFields()), "enum-type possibleValueSource " + name + " should not have orderByFields.");
                assertCondition(possibleValueSource.getCustomCodeReference() == null, "enum-type possibleValueSource " + name + " should not have a customCodeReference.");
+               assertCondition(possibleValueSource.getSharedLabelCache() == null, "enum-type possibleValueSource " + name + " should not have a sharedLabelCache.");
 
                assertCondition(CollectionUtils.nullSafeHasContents(possibleValueSource.getEnumValues()), "enum-type possibleValueSource " + name + " is missing enum values");
             }
@@ -2634,6 +2636,22 @@ public class QInstanceValidator
                      }
                   }
                }
+
+               PVSSharedLabelCache sharedLabelCache = possibleValueSource.getSharedLabelCache();
+               if(sharedLabelCache != null)
+               {
+                  assertCondition(sharedLabelCache.getMaxSize() != null && sharedLabelCache.getMaxSize() > 0, "possibleValueSource " + name + " sharedLabelCache must have a positive maxSize.");
+                  assertCondition(sharedLabelCache.getTimeoutSeconds() != null && sharedLabelCache.getTimeoutSeconds() > 0, "possibleValueSource " + name + " sharedLabelCache must have a positive timeoutSeconds.");
+
+                  ///////////////////////////////////////////////////////////////////////////////////////////////////
+                  // labels in the shared cache are seen by all users - so they can't come from a table where what //
+                  // a user can see depends on their security keys                                                 //
+                  ///////////////////////////////////////////////////////////////////////////////////////////////////
+                  if(tableMetaData != null)
+                  {
+                     assertCondition(CollectionUtils.nullSafeIsEmpty(tableMetaData.getRecordSecurityLocks()), "possibleValueSource " + name + " cannot use a sharedLabelCache, as its table has recordSecurityLocks.");
+                  }
+               }
             }
             case CUSTOM ->
             {
@@ -2641,6 +2659,7 @@ public class QInstanceValidator
                assertCondition(!StringUtils.hasContent(possibleValueSource.getTableName()), "custom-type possibleValueSource " + name + " should not have a tableName.");
                assertCondition(!CollectionUtils.nullSafeHasContents(possibleValueSource.getSearchFields()), "custom-type possibleValueSource " + name + " should not have searchFields.");
                assertCondition(!CollectionUtils.nullSafeHasContents(possibleValueSource.getOrderByFields()), "custom-type possibleValueSource " + name + " should not have orderByFields.");
+               assertCondition(possibleValueSource.getSharedLabelCache() == null, "custom-type possibleValueSource " + name + " should not have a sharedLabelCache.");
 
                if(assertCondition(possibleValueSource.getCustomCodeReference() != null, "custom-type possibleValueSource " + name + " is missing a customCodeReference."))
                {
@@ -51,5 +51,10 @@ public enum QCriteriaOperator
    BETWEEN,
    NOT_BETWEEN,
    TRUE,
-   FALSE
+   FALSE,
+
+   //////////////////////////////////////////////////////////////////////////////////
+   // row-value IN, as in (a, b) IN ((?, ?), (?, ?)) - see QFilterCriteria.tupleIn //
+   //////////////////////////////////////////////////////////////////////////////////
+   TUPLE_IN
 }
@@ -56,6 +56,12 @@ public class QFilterCriteria implements Serializable, Cloneable, QMetaDataObject
    ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
    private String otherFieldName;
 
+   ////////////////////////////////////////////////////////////////////////////////////
+   // for TUPLE_IN criteria - the fields in each tuple (where each value is a List). //
+   // fieldName is always the first of these, for code that only looks at that.     //
+   ////////////////////////////////////////////////////////////////////////////////////
+   private List<String> tupleFieldNames;
+
    private Set<CriteriaOptionInterface> options = null;
 
 
@@ -81,6 +87,11 @@ public class QFilterCriteria implements Serializable, Cloneable, QMetaDataObject
             clone.options.addAll(options);
          }
 
+         if(tupleFieldNames != null)
+         {
+            clone.tupleFieldNames = new ArrayList<>(tupleFieldNames);
+         }
+
          return clone;
       }
       catch(CloneNotSupportedException e)
@@ -166,6 +177,42 @@ public class QFilterCriteria implements Serializable, Cloneable, QMetaDataObject
 
 
 
+   /*******************************************************************************
+    ** Build a row-value IN criteria - e.g., (a, b) IN ((1, 'x'), (2, 'y')) - which
+    ** matches records whose values for the given fields equal any of the tuples.
+    ** As in SQL, a null in a tuple (or in a record) never matches.
+    **
+    ** All of the fields should be from the same table.  Backends that can't
+    ** evaluate this operator (see QBackendModuleInterface.supportsTupleInCriteria)
+    ** need an OR of AND sub-filters instead.
+    **
+    ** @param fieldNames the fields in each tuple, in order
+    ** @param tuples lists of values, each in the same order as fieldNames
+    *******************************************************************************/
+   public static QFilterCriteria tupleIn(List<String> fieldNames, Collection<? extends List<? extends Serializable>> tuples)
+   {
+      if(CollectionUtils.nullSafeIsEmpty(fieldNames))
+      {
+         throw (new IllegalArgumentException("At least one field name is required for a TUPLE_IN criteria"));
+      }
+
+      List<Serializable> values = new ArrayList<>();
+      for(List<? extends Serializable> tuple : CollectionUtils.nonNullCollection(tuples))
+      {
+         if(tuple == null || tuple.size() != fieldNames.size())
+         {
+            throw (new IllegalArgumentException("Incorrect number of values in TUPLE_IN tuple (expected " + fieldNames.size() + ", received " + (tuple == null ? 0 : tuple.size()) + ")"));
+         }
+         values.add(new ArrayList<>(tuple));
+      }
+
+      QFilterCriteria criteria = new QFilterCriteria(fieldNames.get(0), QCriteriaOperator.TUPLE_IN, values);
+      criteria.setTupleFieldNames(new ArrayList<>(fieldNames));
+      return (criteria);
+   }
+
+
+
    /*******************************************************************************
     ** Getter for fieldName
     **
@@ -312,6 +359,40 @@ public class QFilterCriteria implements Serializable, Cloneable, QMetaDataObject
 
 
 
+   /*******************************************************************************
+    ** Getter for tupleFieldNames
+    **
+    *******************************************************************************/
+   public List<String> getTupleFieldNames()
+   {
+      return tupleFieldNames;
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for tupleFieldNames
+    **
+    *******************************************************************************/
+   public void setTupleFieldNames(List<String> tupleFieldNames)
+   {
+      this.tupleFieldNames = tupleFieldNames;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for tupleFieldNames
+    **
+    *******************************************************************************/
+   public QFilterCriteria withTupleFieldNames(List<String> tupleFieldNames)
+   {
+      this.tupleFieldNames = tupleFieldNames;
+      return (this);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -323,7 +404,7 @@ public class QFilterCriteria implements Serializable, Cloneable, QMetaDataObject
          return ("<null-field-criteria>");
       }
 
-      StringBuilder rs = new StringBuilder(fieldName);
+      StringBuilder rs = new StringBuilder(tupleFieldNames == null ? fieldName : "(" + String.join(",", tupleFieldNames) + ")");
       try
       {
          rs.append(" ").append(operator).append(" ");
@@ -383,7 +464,7 @@ public class QFilterCriteria implements Serializable, Cloneable, QMetaDataObject
       }
 
       QFilterCriteria that = (QFilterCriteria) o;
-      return Objects.equals(fieldName, that.fieldName) && operator == that.operator && Objects.equals(values, that.values) && Objects.equals(otherFieldName, that.otherFieldName);
+      return Objects.equals(fieldName, that.fieldName) && operator == that.operator && Objects.equals(values, that.values) && Objects.equals(otherFieldName, that.otherFieldName) && Objects.equals(tupleFieldNames, that.tupleFieldNames);
    }
 
 
@@ -394,7 +475,7 @@ public class QFilterCriteria implements Serializable, Cloneable, QMetaDataObject
    @Override
    public int hashCode()
    {
-      return Objects.hash(fieldName, operator, values, otherFieldName);
+      return Objects.hash(fieldName, operator, values, otherFieldName, tupleFieldNames);
    }
 
 
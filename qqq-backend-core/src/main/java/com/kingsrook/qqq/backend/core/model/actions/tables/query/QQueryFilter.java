@@ -74,6 +74,13 @@ public class QQueryFilter implements Serializable, Cloneable, QMetaDataObject
    private Integer skip;
    private Integer limit;
 
+   ////////////////////////////////////////////////////////////////////////////////////////////////////////////
+   // keyset (seek) pagination - values from the last record of a previous page, one per orderBy (in order). //
+   // when set, QueryAction adds criteria to only return records that sort after this tuple - which, unlike  //
+   // a skip, doesn't make the backend re-scan every previously-returned row.  see KeysetPaginationHelper.   //
+   ////////////////////////////////////////////////////////////////////////////////////////////////////////////
+   private List<Serializable> continueAfterValues;
+
 
 
    /*******************************************************************************
@@ -158,6 +165,11 @@ public class QQueryFilter implements Serializable, Cloneable, QMetaDataObject
             }
          }
 
+         if(continueAfterValues != null)
+         {
+            clone.continueAfterValues = new ArrayList<>(continueAfterValues);
+         }
+
          return clone;
       }
       catch(CloneNotSupportedException e)
@@ -814,6 +826,37 @@ public class QQueryFilter implements Serializable, Cloneable, QMetaDataObject
 
 
 
+   /*******************************************************************************
+    ** Getter for continueAfterValues
+    *******************************************************************************/
+   public List<Serializable> getContinueAfterValues()
+   {
+      return (this.continueAfterValues);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for continueAfterValues
+    *******************************************************************************/
+   public void setContinueAfterValues(List<Serializable> continueAfterValues)
+   {
+      this.continueAfterValues = continueAfterValues;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for continueAfterValues
+    *******************************************************************************/
+   public QQueryFilter withContinueAfterValues(List<Serializable> continueAfterValues)
+   {
+      this.continueAfterValues = continueAfterValues;
+      return (this);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -831,7 +874,7 @@ public class QQueryFilter implements Serializable, Cloneable, QMetaDataObject
       }
 
       QQueryFilter that = (QQueryFilter) o;
-      return Objects.equals(criteria, that.criteria) && Objects.equals(orderBys, that.orderBys) && booleanOperator == that.booleanOperator && Objects.equals(subFilters, that.subFilters) && Objects.equals(skip, that.skip) && Objects.equals(limit, that.limit);
+      return Objects.equals(criteria, that.criteria) && Objects.equals(orderBys, that.orderBys) && booleanOperator == that.booleanOperator && Objects.equals(subFilters, that.subFilters) && Objects.equals(skip, that.skip) && Objects.equals(limit, that.limit) && Objects.equals(continueAfterValues, that.continueAfterValues);
    }
 
 
@@ -842,7 +885,7 @@ public class QQueryFilter implements Serializable, Cloneable, QMetaDataObject
    @Override
    public int hashCode()
    {
-      return Objects.hash(criteria, orderBys, booleanOperator, subFilters, skip, limit);
+      return Objects.hash(criteria, orderBys, booleanOperator, subFilters, skip, limit, continueAfterValues);
    }
 
 
@@ -88,6 +88,14 @@ public class QueryInput extends AbstractTableActionInput implements QueryOrGetIn
    private EnumSet<QueryHint> queryHints = EnumSet.noneOf(QueryHint.class);
    private Set<ActionFlag>    flags;
 
+   /////////////////////////////////////////////////////////////////////////////////////////////////
+   // keyset pagination - a token from a previous page's QueryOutput, to continue after its last  //
+   // record, and/or a request for this query's output to include such a token for its next page. //
+   // see KeysetPaginationHelper.                                                                 //
+   /////////////////////////////////////////////////////////////////////////////////////////////////
+   private String  continuationToken;
+   private boolean shouldGenerateContinuationToken = false;
+
 
 
    /*******************************************************************************
@@ -809,4 +817,66 @@ public class QueryInput extends AbstractTableActionInput implements QueryOrGetIn
       super.withInputSource(inputSource);
       return (this);
    }
+
+
+
+   /*******************************************************************************
+    ** Getter for continuationToken
+    *******************************************************************************/
+   public String getContinuationToken()
+   {
+      return (this.continuationToken);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for continuationToken
+    *******************************************************************************/
+   public void setContinuationToken(String continuationToken)
+   {
+      this.continuationToken = continuationToken;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for continuationToken
+    *******************************************************************************/
+   public QueryInput withContinuationToken(String continuationToken)
+   {
+      this.continuationToken = continuationToken;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for shouldGenerateContinuationToken
+    *******************************************************************************/
+   public boolean getShouldGenerateContinuationToken()
+   {
+      return (this.shouldGenerateContinuationToken);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for shouldGenerateContinuationToken
+    *******************************************************************************/
+   public void setShouldGenerateContinuationToken(boolean shouldGenerateContinuationToken)
+   {
+      this.shouldGenerateContinuationToken = shouldGenerateContinuationToken;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for shouldGenerateContinuationToken
+    *******************************************************************************/
+   public QueryInput withShouldGenerateContinuationToken(boolean shouldGenerateContinuationToken)
+   {
+      this.shouldGenerateContinuationToken = shouldGenerateContinuationToken;
+      return (this);
+   }
 }
@@ -39,6 +39,8 @@ public class QueryOutput extends AbstractActionOutput implements Serializable
 {
    private QueryOutputStorageInterface storage;
 
+   private String continuationToken;
+
 
 
    /*******************************************************************************
@@ -105,4 +107,36 @@ public class QueryOutput extends AbstractActionOutput implements Serializable
       }
       return (rs);
    }
+
+
+
+   /*******************************************************************************
+    ** Getter for continuationToken - set (when requested in the QueryInput) if a
+    ** full page of records was returned - so there may be more records after them.
+    *******************************************************************************/
+   public String getContinuationToken()
+   {
+      return (this.continuationToken);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for continuationToken
+    *******************************************************************************/
+   public void setContinuationToken(String continuationToken)
+   {
+      this.continuationToken = continuationToken;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for continuationToken
+    *******************************************************************************/
+   public QueryOutput withContinuationToken(String continuationToken)
+   {
+      this.continuationToken = continuationToken;
+      return (this);
+   }
 }
@@ -85,6 +85,9 @@ public class QFilterCriteriaDeserializer extends StdDeserializer<QFilterCriteria
       QCriteriaOperator operator       = objectMapper.treeToValue(node.get("operator"), QCriteriaOperator.class);
       String            otherFieldName = objectMapper.treeToValue(node.get("otherFieldName"), String.class);
 
+      @SuppressWarnings("unchecked")
+      List<String> tupleFieldNames = objectMapper.treeToValue(node.get("tupleFieldNames"), List.class);
+
       ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
       // look at all the values - if any of them are actually meant to be an Expression (instance of subclass of AbstractFilterExpression)     //
       // they'll have deserialized as a Map, with a "type" key.  If that's the case, then re/de serialize them into the proper expression type //
@@ -124,6 +127,7 @@ public class QFilterCriteriaDeserializer extends StdDeserializer<QFilterCriteria
       criteria.setOperator(operator);
       criteria.setValues(values);
       criteria.setOtherFieldName(otherFieldName);
+      criteria.setTupleFieldNames(tupleFieldNames);
 
       return (criteria);
    }
@@ -0,0 +1,292 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.model.actions.tables.upsert;
+
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
+import com.kingsrook.qqq.backend.core.model.actions.AbstractTableActionInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.ActionFlag;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+
+
+/*******************************************************************************
+ ** Input for an upsert action - e.g., insert records whose unique-key values
+ ** are not yet in the table, and update the ones whose key values are.
+ **
+ ** fieldNamesToUpdate - optional - which fields get written when a record's key
+ ** is already in the table.  If not given, the UpsertAction will use all fields
+ ** present in each input record, except for the primary key, the unique key's
+ ** fields, and any create-date fields.  If given, each record still only writes
+ ** the ones of these fields that it has.
+ *******************************************************************************/
+public class UpsertInput extends AbstractTableActionInput
+{
+   private QBackendTransaction transaction;
+   private UniqueKey           key;
+   private List<QRecord>       records;
+   private Set<String>         fieldNamesToUpdate;
+
+   private boolean omitDmlAudit = false;
+
+   private Set<ActionFlag> flags;
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   public UpsertInput()
+   {
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   public UpsertInput(String tableName)
+   {
+      setTableName(tableName);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for transaction
+    *******************************************************************************/
+   public QBackendTransaction getTransaction()
+   {
+      return (this.transaction);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for transaction
+    *******************************************************************************/
+   public void setTransaction(QBackendTransaction transaction)
+   {
+      this.transaction = transaction;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for transaction
+    *******************************************************************************/
+   public UpsertInput withTransaction(QBackendTransaction transaction)
+   {
+      this.transaction = transaction;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for key
+    *******************************************************************************/
+   public UniqueKey getKey()
+   {
+      return (this.key);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for key
+    *******************************************************************************/
+   public void setKey(UniqueKey key)
+   {
+      this.key = key;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for key
+    *******************************************************************************/
+   public UpsertInput withKey(UniqueKey key)
+   {
+      this.key = key;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for records
+    *******************************************************************************/
+   public List<QRecord> getRecords()
+   {
+      return (this.records);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for records
+    *******************************************************************************/
+   public void setRecords(List<QRecord> records)
+   {
+      this.records = records;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for records
+    *******************************************************************************/
+   public UpsertInput withRecords(List<QRecord> records)
+   {
+      this.records = records;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for fieldNamesToUpdate
+    *******************************************************************************/
+   public Set<String> getFieldNamesToUpdate()
+   {
+      return (this.fieldNamesToUpdate);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for fieldNamesToUpdate
+    *******************************************************************************/
+   public void setFieldNamesToUpdate(Set<String> fieldNamesToUpdate)
+   {
+      this.fieldNamesToUpdate = fieldNamesToUpdate;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for fieldNamesToUpdate
+    *******************************************************************************/
+   public UpsertInput withFieldNamesToUpdate(Set<String> fieldNamesToUpdate)
+   {
+      this.fieldNamesToUpdate = fieldNamesToUpdate;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for omitDmlAudit
+    *******************************************************************************/
+   public boolean getOmitDmlAudit()
+   {
+      return (this.omitDmlAudit);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for omitDmlAudit
+    *******************************************************************************/
+   public void setOmitDmlAudit(boolean omitDmlAudit)
+   {
+      this.omitDmlAudit = omitDmlAudit;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for omitDmlAudit
+    *******************************************************************************/
+   public UpsertInput withOmitDmlAudit(boolean omitDmlAudit)
+   {
+      this.omitDmlAudit = omitDmlAudit;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for flags
+    *******************************************************************************/
+   public Set<ActionFlag> getFlags()
+   {
+      return (this.flags);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for flags
+    *******************************************************************************/
+   public void setFlags(Set<ActionFlag> flags)
+   {
+      this.flags = flags;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for flags
+    *******************************************************************************/
+   public UpsertInput withFlags(Set<ActionFlag> flags)
+   {
+      this.flags = flags;
+      return (this);
+   }
+
+
+
+   /***************************************************************************
+    **
+    ***************************************************************************/
+   public UpsertInput withFlag(ActionFlag flag)
+   {
+      if(this.flags == null)
+      {
+         this.flags = new HashSet<>();
+      }
+      this.flags.add(flag);
+      return (this);
+   }
+
+
+
+   /***************************************************************************
+    **
+    ***************************************************************************/
+   public boolean hasFlag(ActionFlag flag)
+   {
+      if(this.flags == null)
+      {
+         return (false);
+      }
+
+      return (this.flags.contains(flag));
+   }
+
+}
@@ -66,6 +66,12 @@ import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
  ** processing a record - e.g., in a list of records that may be the output of an
  ** action, like a bulk load.  Warnings play a similar role, but are just advice
  ** - they don't mean that the action was failed, just something you may need to know.
+ **
+ ** All of the maps & lists in a record are allocated lazily (by their getters,
+ ** or when something is added to them), since most records (e.g., query results)
+ ** only ever use their values.  For high-volume uses, the values map may be a
+ ** QRecordValueMap (an array of values, indexed by a field index that's shared
+ ** across many records).
  *******************************************************************************/
 public class QRecord implements Serializable
 {
@@ -74,14 +80,29 @@ public class QRecord implements Serializable
    private String tableName;
    private String recordLabel;
 
-   private Map<String, Serializable> values         = new LinkedHashMap<>();
-   private Map<String, String>       displayValues  = new LinkedHashMap<>();
-   private Map<String, Serializable> backendDetails = new LinkedHashMap<>();
+   private Map<String, Serializable> values;
+   private Map<String, String>       displayValues;
+   private Map<String, Serializable> backendDetails;
+
+   private List<QErrorMessage>   errors;
+   private List<QWarningMessage> warnings;
 
-   private List<QErrorMessage>   errors   = new ArrayList<>();
-   private List<QWarningMessage> warnings = new ArrayList<>();
+   private Map<String, List<QRecord>> associatedRecords;
 
-   private Map<String, List<QRecord>> associatedRecords = new HashMap<>();
+   ////////////////////////////////////////////////////////////////////////////////
+   // the collections above start as null, and are created on first use.  but a  //
+   // caller may also explicitly set one to null (and expects to then get back   //
+   // null from its getter), so these bits track which ones were explicitly set  //
+   // to null (vs. just not yet created).                                        //
+   ////////////////////////////////////////////////////////////////////////////////
+   private static final int VALUES             = 1;
+   private static final int DISPLAY_VALUES     = 1 << 1;
+   private static final int BACKEND_DETAILS    = 1 << 2;
+   private static final int ERRORS             = 1 << 3;
+   private static final int WARNINGS           = 1 << 4;
+   private static final int ASSOCIATED_RECORDS = 1 << 5;
+
+   private int explicitlyNullCollections = 0;
 
    ////////////////////////////////////////////////
    // well-known keys for the backendDetails map //
@@ -119,6 +140,7 @@ public class QRecord implements Serializable
    {
       this.tableName = record.tableName;
       this.recordLabel = record.recordLabel;
+      this.explicitlyNullCollections = record.explicitlyNullCollections;
 
       this.values = deepCopySimpleMap(record.values);
       this.displayValues = deepCopySimpleMap(record.displayValues);
@@ -154,7 +176,13 @@ public class QRecord implements Serializable
          return (null);
       }
 
-      Map<String, V> clone = new LinkedHashMap<>(map.size());
+      /////////////////////////////////////////////////////////////////////////
+      // keep compact (index-backed) value maps compact, sharing their index //
+      /////////////////////////////////////////////////////////////////////////
+      Map<String, V> clone = (map instanceof QRecordValueMap valueMap)
+         ? (Map<String, V>) new QRecordValueMap(valueMap.getFieldIndex())
+         : new LinkedHashMap<>(map.size());
+
       for(Map.Entry<String, V> entry : map.entrySet())
       {
          Serializable value = entry.getValue();
@@ -270,7 +298,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void setValue(String fieldName, Serializable value)
    {
-      values.put(fieldName, value);
+      getValues().put(fieldName, value);
    }
 
 
@@ -280,8 +308,15 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void removeValue(String fieldName)
    {
-      values.remove(fieldName);
-      displayValues.remove(fieldName);
+      if(values != null)
+      {
+         values.remove(fieldName);
+      }
+
+      if(displayValues != null)
+      {
+         displayValues.remove(fieldName);
+      }
    }
 
 
@@ -291,7 +326,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void setValue(QFieldMetaData field, Serializable value)
    {
-      values.put(field.getName(), value);
+      getValues().put(field.getName(), value);
    }
 
 
@@ -312,7 +347,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void setDisplayValue(String fieldName, String displayValue)
    {
-      displayValues.put(fieldName, displayValue);
+      getDisplayValues().put(fieldName, displayValue);
    }
 
 
@@ -402,6 +437,10 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public Map<String, Serializable> getValues()
    {
+      if(values == null && isNotExplicitlyNull(VALUES))
+      {
+         values = new LinkedHashMap<>();
+      }
       return values;
    }
 
@@ -414,6 +453,7 @@ public class QRecord implements Serializable
    public void setValues(Map<String, Serializable> values)
    {
       this.values = values;
+      setExplicitlyNull(VALUES, values == null);
    }
 
 
@@ -424,6 +464,10 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public Serializable getValue(String fieldName)
    {
+      if(values == null && isNotExplicitlyNull(VALUES))
+      {
+         return (null);
+      }
       return (values.get(fieldName));
    }
 
@@ -435,6 +479,10 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public Map<String, String> getDisplayValues()
    {
+      if(displayValues == null && isNotExplicitlyNull(DISPLAY_VALUES))
+      {
+         displayValues = new LinkedHashMap<>();
+      }
       return displayValues;
    }
 
@@ -447,6 +495,7 @@ public class QRecord implements Serializable
    public void setDisplayValues(Map<String, String> displayValues)
    {
       this.displayValues = displayValues;
+      setExplicitlyNull(DISPLAY_VALUES, displayValues == null);
    }
 
 
@@ -457,6 +506,10 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public String getDisplayValue(String fieldName)
    {
+      if(displayValues == null && isNotExplicitlyNull(DISPLAY_VALUES))
+      {
+         return (null);
+      }
       return (displayValues.get(fieldName));
    }
 
@@ -561,6 +614,10 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public Map<String, Serializable> getBackendDetails()
    {
+      if(backendDetails == null && isNotExplicitlyNull(BACKEND_DETAILS))
+      {
+         backendDetails = new LinkedHashMap<>();
+      }
       return backendDetails;
    }
 
@@ -573,6 +630,7 @@ public class QRecord implements Serializable
    public void setBackendDetails(Map<String, Serializable> backendDetails)
    {
       this.backendDetails = backendDetails;
+      setExplicitlyNull(BACKEND_DETAILS, backendDetails == null);
    }
 
 
@@ -583,7 +641,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void addBackendDetail(String key, Serializable value)
    {
-      this.backendDetails.put(key, value);
+      getBackendDetails().put(key, value);
    }
 
 
@@ -606,6 +664,11 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public Serializable getBackendDetail(String key)
    {
+      if(this.backendDetails == null && isNotExplicitlyNull(BACKEND_DETAILS))
+      {
+         return (null);
+      }
+
       if(!this.backendDetails.containsKey(key))
       {
          return (null);
@@ -633,6 +696,10 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public List<QErrorMessage> getErrors()
    {
+      if(errors == null && isNotExplicitlyNull(ERRORS))
+      {
+         errors = new ArrayList<>();
+      }
       return (errors);
    }
 
@@ -661,6 +728,7 @@ public class QRecord implements Serializable
    public void setErrors(List<QErrorMessage> errors)
    {
       this.errors = errors;
+      setExplicitlyNull(ERRORS, errors == null);
    }
 
 
@@ -671,7 +739,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void addError(QErrorMessage error)
    {
-      this.errors.add(error);
+      getErrors().add(error);
    }
 
 
@@ -703,6 +771,10 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public Map<String, List<QRecord>> getAssociatedRecords()
    {
+      if(associatedRecords == null && isNotExplicitlyNull(ASSOCIATED_RECORDS))
+      {
+         associatedRecords = new HashMap<>();
+      }
       return (this.associatedRecords);
    }
 
@@ -714,6 +786,7 @@ public class QRecord implements Serializable
    public void setAssociatedRecords(Map<String, List<QRecord>> associatedRecords)
    {
       this.associatedRecords = associatedRecords;
+      setExplicitlyNull(ASSOCIATED_RECORDS, associatedRecords == null);
    }
 
 
@@ -723,7 +796,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public QRecord withAssociatedRecords(Map<String, List<QRecord>> associatedRecords)
    {
-      this.associatedRecords = associatedRecords;
+      setAssociatedRecords(associatedRecords);
       return (this);
    }
 
@@ -736,7 +809,7 @@ public class QRecord implements Serializable
    {
       if(this.associatedRecords == null)
       {
-         this.associatedRecords = new HashMap<>();
+         setAssociatedRecords(new HashMap<>());
       }
       this.associatedRecords.put(name, associatedRecords);
       return (this);
@@ -751,7 +824,7 @@ public class QRecord implements Serializable
    {
       if(this.associatedRecords == null)
       {
-         this.associatedRecords = new HashMap<>();
+         setAssociatedRecords(new HashMap<>());
       }
       this.associatedRecords.putIfAbsent(name, new ArrayList<>());
       this.associatedRecords.get(name).add(associatedRecord);
@@ -765,6 +838,10 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public List<QWarningMessage> getWarnings()
    {
+      if(warnings == null && isNotExplicitlyNull(WARNINGS))
+      {
+         warnings = new ArrayList<>();
+      }
       return (this.warnings);
    }
 
@@ -792,6 +869,7 @@ public class QRecord implements Serializable
    public void setWarnings(List<QWarningMessage> warnings)
    {
       this.warnings = warnings;
+      setExplicitlyNull(WARNINGS, warnings == null);
    }
 
 
@@ -813,7 +891,7 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public QRecord withWarnings(List<QWarningMessage> warnings)
    {
-      this.warnings = warnings;
+      setWarnings(warnings);
       return (this);
    }
 
@@ -825,7 +903,34 @@ public class QRecord implements Serializable
     *******************************************************************************/
    public void addWarning(QWarningMessage warning)
    {
-      this.warnings.add(warning);
+      getWarnings().add(warning);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private boolean isNotExplicitlyNull(int collectionBit)
+   {
+      return ((explicitlyNullCollections & collectionBit) == 0);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void setExplicitlyNull(int collectionBit, boolean isNull)
+   {
+      if(isNull)
+      {
+         explicitlyNullCollections |= collectionBit;
+      }
+      else
+      {
+         explicitlyNullCollections &= ~collectionBit;
+      }
    }
 
 }
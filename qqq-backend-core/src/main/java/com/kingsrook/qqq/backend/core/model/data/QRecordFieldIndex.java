@@ -0,0 +1,133 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.model.data;
+
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+
+
+/*******************************************************************************
+ ** Immutable mapping of field names to "slot" positions, shared by all of the
+ ** QRecordValueMap objects built for the same set of fields (e.g., every row
+ ** from one query, or every record of a table in the memory backend), so that
+ ** each of those maps only needs an array of values, rather than its own hash
+ ** table of entries.
+ *******************************************************************************/
+public class QRecordFieldIndex implements Serializable
+{
+   private final String[]             fieldNames;
+   private final Map<String, Integer> slotsByFieldName;
+
+
+
+   /*******************************************************************************
+    ** Constructor - slots are assigned in the iteration order of fieldNames.
+    ** Duplicate names are ignored (they keep their first slot).
+    *******************************************************************************/
+   public QRecordFieldIndex(Collection<String> fieldNames)
+   {
+      this.slotsByFieldName = new HashMap<>(fieldNames.size() * 2);
+      for(String fieldName : fieldNames)
+      {
+         slotsByFieldName.putIfAbsent(fieldName, slotsByFieldName.size());
+      }
+
+      this.fieldNames = new String[slotsByFieldName.size()];
+      for(Map.Entry<String, Integer> entry : slotsByFieldName.entrySet())
+      {
+         this.fieldNames[entry.getValue()] = entry.getKey();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Build an index over all of the fields in a table.
+    *******************************************************************************/
+   public static QRecordFieldIndex forTable(QTableMetaData table)
+   {
+      return (new QRecordFieldIndex(table.getFields().keySet()));
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the slot for a field name - or -1 if the field is not in this index.
+    *******************************************************************************/
+   public int getSlot(Object fieldName)
+   {
+      Integer slot = slotsByFieldName.get(fieldName);
+      return (slot == null ? -1 : slot);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the name of the field in a slot.
+    *******************************************************************************/
+   public String getFieldName(int slot)
+   {
+      return (fieldNames[slot]);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the number of slots in this index.
+    *******************************************************************************/
+   public int size()
+   {
+      return (fieldNames.length);
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if this index has exactly the given field names, in the same order -
+    ** e.g., to decide if a cached index can still be used for a table whose
+    ** meta-data may have changed.
+    *******************************************************************************/
+   public boolean hasFieldNames(Collection<String> otherFieldNames)
+   {
+      if(otherFieldNames.size() != fieldNames.length)
+      {
+         return (false);
+      }
+
+      int slot = 0;
+      for(String otherFieldName : otherFieldNames)
+      {
+         if(!fieldNames[slot++].equals(otherFieldName))
+         {
+            return (false);
+         }
+      }
+
+      return (true);
+   }
+
+}
@@ -0,0 +1,501 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.model.data;
+
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+
+/*******************************************************************************
+ ** Compact implementation of the Map used for a QRecord's values, for use where
+ ** many records are built with the same set of fields (e.g., query results).
+ **
+ ** Field values are stored in an array, in slots assigned by a QRecordFieldIndex,
+ ** which is shared by all of the maps built for the same fields - so each record
+ ** only costs one small object plus an array, rather than a LinkedHashMap with an
+ ** entry object per field.  Keys that aren't in the index (e.g., values added by
+ ** application code for fields that weren't selected) go into an "overflow"
+ ** LinkedHashMap, which is only created if needed.
+ **
+ ** Behaves like a LinkedHashMap in every way callers should rely on (including
+ ** null values, and keys that are present with a null value vs. not present),
+ ** except that iteration order is: indexed fields (in index order), then overflow
+ ** fields (in insertion order).
+ *******************************************************************************/
+public class QRecordValueMap extends AbstractMap<String, Serializable> implements Serializable
+{
+   private final QRecordFieldIndex fieldIndex;
+   private final Serializable[]    slots;
+   private int                     occupiedSlotCount = 0;
+
+   private LinkedHashMap<String, Serializable> overflow = null;
+
+   /***************************************************************************
+    ** an empty (java null) slot means "no such key"; a key that is present with
+    ** a null value is stored as this marker (enums are serializable singletons).
+    ***************************************************************************/
+   private enum NullValue
+   {
+      INSTANCE
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor - an empty map, with slots for the fields in the index.
+    *******************************************************************************/
+   public QRecordValueMap(QRecordFieldIndex fieldIndex)
+   {
+      this.fieldIndex = fieldIndex;
+      this.slots = new Serializable[fieldIndex.size()];
+   }
+
+
+
+   /*******************************************************************************
+    ** Copy constructor - (shallow) copy of another map, sharing its index.
+    *******************************************************************************/
+   public QRecordValueMap(QRecordValueMap other)
+   {
+      this.fieldIndex = other.fieldIndex;
+      this.slots = other.slots.clone();
+      this.occupiedSlotCount = other.occupiedSlotCount;
+      if(other.overflow != null)
+      {
+         this.overflow = new LinkedHashMap<>(other.overflow);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor - an index-backed copy of any map of values.
+    *******************************************************************************/
+   public QRecordValueMap(QRecordFieldIndex fieldIndex, Map<String, ? extends Serializable> values)
+   {
+      this(fieldIndex);
+      if(values != null)
+      {
+         putAll(values);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for fieldIndex
+    *******************************************************************************/
+   public QRecordFieldIndex getFieldIndex()
+   {
+      return (fieldIndex);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public int size()
+   {
+      return (occupiedSlotCount + (overflow == null ? 0 : overflow.size()));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public boolean isEmpty()
+   {
+      return (size() == 0);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public boolean containsKey(Object key)
+   {
+      int slot = fieldIndex.getSlot(key);
+      if(slot >= 0)
+      {
+         return (slots[slot] != null);
+      }
+
+      return (overflow != null && overflow.containsKey(key));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public Serializable get(Object key)
+   {
+      int slot = fieldIndex.getSlot(key);
+      if(slot >= 0)
+      {
+         return (unwrap(slots[slot]));
+      }
+
+      return (overflow == null ? null : overflow.get(key));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public Serializable put(String key, Serializable value)
+   {
+      int slot = fieldIndex.getSlot(key);
+      if(slot >= 0)
+      {
+         return (putInSlot(slot, value));
+      }
+
+      if(overflow == null)
+      {
+         overflow = new LinkedHashMap<>();
+      }
+      return (overflow.put(key, value));
+   }
+
+
+
+   /*******************************************************************************
+    ** Put a value directly into a slot (e.g., for a caller that already knows the
+    ** slot for each of its fields, such as a query's result-set loop).
+    *******************************************************************************/
+   public Serializable putInSlot(int slot, Serializable value)
+   {
+      Serializable previous = slots[slot];
+      if(previous == null)
+      {
+         occupiedSlotCount++;
+      }
+
+      slots[slot] = (value == null ? NullValue.INSTANCE : value);
+      return (unwrap(previous));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public Serializable remove(Object key)
+   {
+      int slot = fieldIndex.getSlot(key);
+      if(slot >= 0)
+      {
+         Serializable previous = slots[slot];
+         if(previous != null)
+         {
+            slots[slot] = null;
+            occupiedSlotCount--;
+         }
+         return (unwrap(previous));
+      }
+
+      return (overflow == null ? null : overflow.remove(key));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public void clear()
+   {
+      Arrays.fill(slots, null);
+      occupiedSlotCount = 0;
+      overflow = null;
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public Set<Entry<String, Serializable>> entrySet()
+   {
+      return (new EntrySet());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Serializable unwrap(Serializable slotValue)
+   {
+      return (slotValue == NullValue.INSTANCE ? null : slotValue);
+   }
+
+
+
+   /***************************************************************************
+    ** entry set view over the slots, then the overflow map.
+    ***************************************************************************/
+   private class EntrySet extends AbstractSet<Entry<String, Serializable>>
+   {
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public Iterator<Entry<String, Serializable>> iterator()
+      {
+         return (new EntryIterator());
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public int size()
+      {
+         return (QRecordValueMap.this.size());
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** iterator over occupied slots, then over the overflow map.
+    ***************************************************************************/
+   private class EntryIterator implements Iterator<Entry<String, Serializable>>
+   {
+      private int nextSlot;
+      private int lastSlot = -1;
+
+      private Iterator<Entry<String, Serializable>> overflowIterator = null;
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      EntryIterator()
+      {
+         nextSlot = findOccupiedSlot(0);
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      private int findOccupiedSlot(int from)
+      {
+         for(int i = from; i < slots.length; i++)
+         {
+            if(slots[i] != null)
+            {
+               return (i);
+            }
+         }
+         return (-1);
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public boolean hasNext()
+      {
+         if(nextSlot >= 0)
+         {
+            return (true);
+         }
+
+         if(overflowIterator == null && overflow != null)
+         {
+            overflowIterator = overflow.entrySet().iterator();
+         }
+
+         return (overflowIterator != null && overflowIterator.hasNext());
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public Entry<String, Serializable> next()
+      {
+         if(!hasNext())
+         {
+            throw (new NoSuchElementException());
+         }
+
+         if(nextSlot >= 0)
+         {
+            lastSlot = nextSlot;
+            nextSlot = findOccupiedSlot(nextSlot + 1);
+            return (new SlotEntry(lastSlot));
+         }
+
+         lastSlot = -1;
+         return (overflowIterator.next());
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public void remove()
+      {
+         if(lastSlot >= 0)
+         {
+            if(slots[lastSlot] == null)
+            {
+               throw (new IllegalStateException());
+            }
+            slots[lastSlot] = null;
+            occupiedSlotCount--;
+         }
+         else if(overflowIterator != null)
+         {
+            overflowIterator.remove();
+         }
+         else
+         {
+            throw (new IllegalStateException());
+         }
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** map entry that reads & writes through to a slot.
+    ***************************************************************************/
+   private class SlotEntry implements Entry<String, Serializable>
+   {
+      private final int slot;
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      SlotEntry(int slot)
+      {
+         this.slot = slot;
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public String getKey()
+      {
+         return (fieldIndex.getFieldName(slot));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public Serializable getValue()
+      {
+         return (unwrap(slots[slot]));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public Serializable setValue(Serializable value)
+      {
+         return (putInSlot(slot, value));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public boolean equals(Object o)
+      {
+         return (o instanceof Entry<?, ?> other && Objects.equals(getKey(), other.getKey()) && Objects.equals(getValue(), other.getValue()));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public int hashCode()
+      {
+         return (Objects.hashCode(getKey()) ^ Objects.hashCode(getValue()));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public String toString()
+      {
+         return (getKey() + "=" + getValue());
+      }
+   }
+
+}
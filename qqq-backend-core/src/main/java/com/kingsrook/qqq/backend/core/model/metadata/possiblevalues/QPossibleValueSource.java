@@ -64,6 +64,7 @@ public class QPossibleValueSource implements TopLevelMetaDataInterface
    private String overrideIdField;
    private List<String>         searchFields;
    private List<QFilterOrderBy> orderByFields;
+   private PVSSharedLabelCache  sharedLabelCache;
 
    /////////////////////
    // for type = ENUM //
@@ -715,4 +716,34 @@ public class QPossibleValueSource implements TopLevelMetaDataInterface
    }
 
 
+
+   /*******************************************************************************
+    ** Getter for sharedLabelCache
+    *******************************************************************************/
+   public PVSSharedLabelCache getSharedLabelCache()
+   {
+      return (this.sharedLabelCache);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for sharedLabelCache
+    *******************************************************************************/
+   public void setSharedLabelCache(PVSSharedLabelCache sharedLabelCache)
+   {
+      this.sharedLabelCache = sharedLabelCache;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for sharedLabelCache
+    *******************************************************************************/
+   public QPossibleValueSource withSharedLabelCache(PVSSharedLabelCache sharedLabelCache)
+   {
+      this.sharedLabelCache = sharedLabelCache;
+      return (this);
+   }
+
 }
@@ -88,6 +88,12 @@ public class QueryStat extends QRecordEntity
    @QIgnore
    private Integer recordCount;
 
+   @QIgnore
+   private Long sqlBuildMicros;
+
+   @QIgnore
+   private Boolean sqlCacheHit;
+
    private Set<String>  joinTableNames;
    private QQueryFilter queryFilter;
 
@@ -635,4 +641,80 @@ public class QueryStat extends QRecordEntity
       return (this);
    }
 
+
+
+   /*******************************************************************************
+    * Getter for sqlBuildMicros
+    * @see #withSqlBuildMicros(Long)
+    *******************************************************************************/
+   public Long getSqlBuildMicros()
+   {
+      return (this.sqlBuildMicros);
+   }
+
+
+
+   /*******************************************************************************
+    * Setter for sqlBuildMicros
+    * @see #withSqlBuildMicros(Long)
+    *******************************************************************************/
+   public void setSqlBuildMicros(Long sqlBuildMicros)
+   {
+      this.sqlBuildMicros = sqlBuildMicros;
+   }
+
+
+
+   /*******************************************************************************
+    * Fluent setter for sqlBuildMicros
+    *
+    * @param sqlBuildMicros
+    * time (in microseconds) that a backend spent building the query (e.g., its
+    * SQL text and bind params) - before it was sent to the database.
+    * @return this
+    *******************************************************************************/
+   public QueryStat withSqlBuildMicros(Long sqlBuildMicros)
+   {
+      this.sqlBuildMicros = sqlBuildMicros;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    * Getter for sqlCacheHit
+    * @see #withSqlCacheHit(Boolean)
+    *******************************************************************************/
+   public Boolean getSqlCacheHit()
+   {
+      return (this.sqlCacheHit);
+   }
+
+
+
+   /*******************************************************************************
+    * Setter for sqlCacheHit
+    * @see #withSqlCacheHit(Boolean)
+    *******************************************************************************/
+   public void setSqlCacheHit(Boolean sqlCacheHit)
+   {
+      this.sqlCacheHit = sqlCacheHit;
+   }
+
+
+
+   /*******************************************************************************
+    * Fluent setter for sqlCacheHit
+    *
+    * @param sqlCacheHit
+    * whether the backend found the SQL for this query's shape in a cache (true),
+    * or had to build it (false).  null if the backend doesn't have such a cache.
+    * @return this
+    *******************************************************************************/
+   public QueryStat withSqlCacheHit(Boolean sqlCacheHit)
+   {
+      this.sqlCacheHit = sqlCacheHit;
+      return (this);
+   }
+
 }
@@ -31,6 +31,7 @@ import com.kingsrook.qqq.backend.core.actions.interfaces.InsertInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QStorageInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QueryInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.UpdateInterface;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.AbstractTableActionInput;
 import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
@@ -121,6 +122,25 @@ public interface QBackendModuleInterface
       return null;
    }
 
+   /*******************************************************************************
+    ** Optional - a backend's native (single-round-trip) upsert.  Null (the
+    ** default) means UpsertAction falls back to query + insert + update.
+    *******************************************************************************/
+   default UpsertInterface getUpsertInterface()
+   {
+      return (null);
+   }
+
+   /*******************************************************************************
+    ** Whether this backend's query (and count) actions can evaluate TUPLE_IN
+    ** criteria (see QFilterCriteria.tupleIn).  If not (the default), callers
+    ** should build an OR of AND sub-filters instead.
+    *******************************************************************************/
+   default boolean supportsTupleInCriteria()
+   {
+      return (false);
+   }
+
    /*******************************************************************************
     **
     *******************************************************************************/
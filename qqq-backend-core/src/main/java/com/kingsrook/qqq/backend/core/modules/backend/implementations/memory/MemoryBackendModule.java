@@ -29,6 +29,7 @@ import com.kingsrook.qqq.backend.core.actions.interfaces.InsertInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QStorageInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QueryInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.UpdateInterface;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableBackendDetails;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleDispatcher;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleInterface;
 
@@ -61,6 +62,17 @@ public class MemoryBackendModule implements QBackendModuleInterface
 
 
 
+   /*******************************************************************************
+    ** Method to identify the class used for table-backend details for this module.
+    *******************************************************************************/
+   @Override
+   public Class<? extends QTableBackendDetails> getTableBackendDetailsClass()
+   {
+      return (MemoryTableBackendDetails.class);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -126,6 +138,16 @@ public class MemoryBackendModule implements QBackendModuleInterface
    }
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public boolean supportsTupleInCriteria()
+   {
+      return (true);
+   }
+
+
 
    /*******************************************************************************
     **
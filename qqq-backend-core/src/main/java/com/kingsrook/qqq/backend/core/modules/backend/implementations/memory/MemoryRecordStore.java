@@ -40,7 +40,11 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import com.kingsrook.qqq.backend.core.actions.dashboard.widgets.DateTimeGroupBy;
 import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerAction;
@@ -69,6 +73,8 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryJoin;
 import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateInput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.data.QRecordFieldIndex;
+import com.kingsrook.qqq.backend.core.model.data.QRecordValueMap;
 import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.FieldAndJoinTable;
@@ -80,6 +86,7 @@ import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.variants.BackendVariantsConfig;
 import com.kingsrook.qqq.backend.core.model.metadata.variants.BackendVariantsUtil;
 import com.kingsrook.qqq.backend.core.modules.backend.implementations.utils.BackendQueryFilterUtils;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.utils.TopKRecordSelector;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.ListingHash;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
@@ -95,20 +102,29 @@ public class MemoryRecordStore
 {
    private static final QLogger LOG = QLogger.getLogger(MemoryRecordStore.class);
 
-   private static MemoryRecordStore instance;
+   private static volatile MemoryRecordStore instance;
 
-   //////////////////////////////////////////////////////////
-   // these maps are: BackendIdentifier > tableName > data //
-   //////////////////////////////////////////////////////////
-   private Map<BackendIdentifier, Map<String, Map<Serializable, QRecord>>> data;
-   private Map<BackendIdentifier, Map<String, Integer>>                    nextSerials;
+   ///////////////////////////////////////////////////////////////////////////
+   // this map is: BackendIdentifier > tableName > data (records, indexes & //
+   // next serial) - where each table's data is guarded by its own lock.    //
+   ///////////////////////////////////////////////////////////////////////////
+   private Map<BackendIdentifier, Map<String, TableData>> data;
 
-   private static boolean collectStatistics = false;
+   ///////////////////////////////////////////////////////////////////////////////
+   // field indexes, keyed by the (ordered) field names of the records they are //
+   // for - shared by the compact value maps of all stored records that have    //
+   // the same fields, in the same order.  capped at MAX_FIELD_INDEXES entries. //
+   ///////////////////////////////////////////////////////////////////////////////
+   private Map<List<String>, QRecordFieldIndex> fieldIndexes;
+
+   private static final int MAX_FIELD_INDEXES = 1_000;
+
+   private static volatile boolean collectStatistics = false;
 
    public static final String STAT_QUERIES_RAN = "queriesRan";
    public static final String STAT_INSERTS_RAN = "insertsRan";
 
-   private static final Map<String, Integer> statistics = Collections.synchronizedMap(new HashMap<>());
+   private static final Map<String, Integer> statistics = new ConcurrentHashMap<>();
 
    public static final ListingHash<Class<? extends AbstractActionInput>, AbstractActionInput> actionInputs = new ListingHash<>();
 
@@ -126,8 +142,8 @@ public class MemoryRecordStore
     *******************************************************************************/
    private MemoryRecordStore()
    {
-      data = Collections.synchronizedMap(new HashMap<>());
-      nextSerials = Collections.synchronizedMap(new HashMap<>());
+      data = new ConcurrentHashMap<>();
+      fieldIndexes = new ConcurrentHashMap<>();
    }
 
 
@@ -150,7 +166,7 @@ public class MemoryRecordStore
    public void reset()
    {
       data.clear();
-      nextSerials.clear();
+      fieldIndexes.clear();
    }
 
 
@@ -162,7 +178,13 @@ public class MemoryRecordStore
    {
       if(instance == null)
       {
-         instance = new MemoryRecordStore();
+         synchronized(MemoryRecordStore.class)
+         {
+            if(instance == null)
+            {
+               instance = new MemoryRecordStore();
+            }
+         }
       }
       return (instance);
    }
@@ -170,13 +192,59 @@ public class MemoryRecordStore
 
 
    /*******************************************************************************
-    **
+    ** get the data for a table - making sure its indexes match the table's index
+    ** definitions (e.g., building them from the table's records if they don't).
     *******************************************************************************/
-   private Map<Serializable, QRecord> getTableData(QTableMetaData table) throws QException
+   private TableData getTableData(QTableMetaData table) throws QException
    {
-      BackendIdentifier                       backendIdentifier = getBackendIdentifier(table);
-      Map<String, Map<Serializable, QRecord>> dataForBackend    = data.computeIfAbsent(backendIdentifier, k -> new HashMap<>());
-      return (dataForBackend.computeIfAbsent(table.getName(), k -> new HashMap<>()));
+      BackendIdentifier      backendIdentifier = getBackendIdentifier(table);
+      Map<String, TableData> dataForBackend    = data.computeIfAbsent(backendIdentifier, k -> new ConcurrentHashMap<>());
+      TableData              tableData         = dataForBackend.computeIfAbsent(table.getName(), k -> new TableData());
+      tableData.ensureIndexes(MemoryTableIndexes.getIndexDefinitions(table));
+      return (tableData);
+   }
+
+
+
+   /*******************************************************************************
+    ** get a snapshot of the records from a table that may match a filter - using
+    ** an index if one applies to the filter, else, all of the table's records.
+    *******************************************************************************/
+   private List<QRecord> getCandidateRecords(QTableMetaData table, QQueryFilter filter, JoinsContext joinsContext) throws QException
+   {
+      TableData tableData = getTableData(table);
+
+      Set<String> joinTableNamesAndAliases = new HashSet<>();
+      for(QueryJoin queryJoin : joinsContext.getQueryJoins())
+      {
+         joinTableNamesAndAliases.add(queryJoin.getJoinTableOrItsAlias());
+         joinTableNamesAndAliases.add(queryJoin.getJoinTable());
+      }
+
+      tableData.lock.readLock().lock();
+      try
+      {
+         Collection<Serializable> primaryKeys = tableData.indexes.findCandidatePrimaryKeys(table, filter, joinTableNamesAndAliases);
+         if(primaryKeys == null)
+         {
+            return (new ArrayList<>(tableData.records.values()));
+         }
+
+         List<QRecord> records = new ArrayList<>(primaryKeys.size());
+         for(Serializable primaryKey : primaryKeys)
+         {
+            QRecord record = tableData.records.get(primaryKey);
+            if(record != null)
+            {
+               records.add(record);
+            }
+         }
+         return (records);
+      }
+      finally
+      {
+         tableData.lock.readLock().unlock();
+      }
    }
 
 
@@ -208,12 +276,15 @@ public class MemoryRecordStore
    {
       incrementStatistic(input);
 
-      Collection<QRecord> tableData = getTableData(input.getTable()).values();
-      List<QRecord>       records   = new ArrayList<>();
-
       QQueryFilter filter       = clonedOrNewFilter(input.getFilter());
       JoinsContext joinsContext = new JoinsContext(QContext.getQInstance(), input.getTableName(), input.getQueryJoins(), filter);
 
+      ////////////////////////////////////////////////////////////////////////////////////////
+      // stored records are never modified (updates replace them), so the query works on a  //
+      // consistent snapshot of them, taken under the table's read lock, without holding it //
+      ////////////////////////////////////////////////////////////////////////////////////////
+      Collection<QRecord> tableData = getCandidateRecords(input.getTable(), input.getFilter(), joinsContext);
+
       /////////////////////////////////////////////////////////////////////////////////////////////////
       // if we every wanted or needed per-query control here, that could look like:                  //
       // || input.hasFlag(MemoryBackendQueryActionFlags.BUILD_JOIN_CROSS_PRODUCT_FROM_JOIN_CONTEXT)) //
@@ -222,14 +293,14 @@ public class MemoryRecordStore
       {
          if(CollectionUtils.nullSafeHasContents(joinsContext.getQueryJoins()))
          {
-            tableData = buildJoinCrossProduct(input.getTable(), joinsContext.getQueryJoins());
+            tableData = buildJoinCrossProduct(input.getTable(), tableData, joinsContext.getQueryJoins());
          }
       }
       else
       {
          if(CollectionUtils.nullSafeHasContents(input.getQueryJoins()))
          {
-            tableData = buildJoinCrossProduct(input.getTable(), input.getQueryJoins());
+            tableData = buildJoinCrossProduct(input.getTable(), tableData, input.getQueryJoins());
          }
       }
 
@@ -246,29 +317,31 @@ public class MemoryRecordStore
          personalizedTables.put(joinTable.getName(), joinTable);
       }
 
+      ///////////////////////////////////////////////////////////////////////////////////
+      // the selector only holds on to the records that can be in the output (e.g., if //
+      // there's a limit), and applies the filter's order-bys, skip & limit to them.   //
+      ///////////////////////////////////////////////////////////////////////////////////
+      Predicate<QRecord> filterPredicate = BackendQueryFilterUtils.compileFilter(input.getFilter(), joinsContext);
+      TopKRecordSelector recordSelector  = new TopKRecordSelector(input.getFilter());
       for(QRecord qRecord : tableData)
       {
-         if(qRecord.getTableName() == null)
-         {
-            ///////////////////////////////////////////////////////////////////////////////////////////
-            // internally, doesRecordMatch likes to know table names on records, so, set if missing. //
-            ///////////////////////////////////////////////////////////////////////////////////////////
-            qRecord.setTableName(input.getTableName());
-         }
-
-         boolean recordMatches = BackendQueryFilterUtils.doesRecordMatch(input.getFilter(), joinsContext, qRecord);
+         boolean recordMatches = filterPredicate.test(qRecord);
 
          if(recordMatches)
          {
-            qRecord.setErrors(new ArrayList<>());
-            ValidateRecordSecurityLockHelper.validateSecurityFields(input.getTable(), List.of(qRecord), ValidateRecordSecurityLockHelper.Action.SELECT, null);
-            if(CollectionUtils.nullSafeHasContents(qRecord.getErrors()))
+            ////////////////////////////////////////////////////////////////////////////////
+            // check security on a copy of the record - as the stored record may be being //
+            // read by other threads, so it must not be modified (e.g., by adding errors) //
+            ////////////////////////////////////////////////////////////////////////////////
+            QRecord recordToReturn = new QRecord(qRecord);
+            recordToReturn.setErrors(new ArrayList<>());
+            ValidateRecordSecurityLockHelper.validateSecurityFields(input.getTable(), List.of(recordToReturn), ValidateRecordSecurityLockHelper.Action.SELECT, null);
+            if(CollectionUtils.nullSafeHasContents(recordToReturn.getErrors()))
             {
-               //////////////////////////////////////////////////////////////////////////////////////////////////////
-               // security error!  no record for you.  but remove the error, so future generations won't see it... //
-               //////////////////////////////////////////////////////////////////////////////////////////////////////
-               qRecord.setErrors(new ArrayList<>());
-               LOG.trace("Error selecting record (presumably security?): " + qRecord.getErrors());
+               /////////////////////////////////////////
+               // security error!  no record for you. //
+               /////////////////////////////////////////
+               LOG.trace("Error selecting record (presumably security?): " + recordToReturn.getErrors());
             }
             else
             {
@@ -276,32 +349,38 @@ public class MemoryRecordStore
                // make sure we're not giving back records that are all full of associations... //
                // or fields that the user isn't supposed to get (e.g., from personalization)   //
                //////////////////////////////////////////////////////////////////////////////////
-               QRecord recordToReturn = new QRecord(qRecord);
                stripUnrecognizedFieldsFromRecords(List.of(recordToReturn), personalizedTables, input.getTable());
                recordToReturn.setAssociatedRecords(new HashMap<>());
-               records.add(recordToReturn);
+               recordSelector.add(recordToReturn);
+
+               if(recordSelector.isSatisfied())
+               {
+                  break;
+               }
             }
          }
       }
 
-      BackendQueryFilterUtils.sortRecordList(input.getFilter(), records);
-      records = BackendQueryFilterUtils.applySkipAndLimit(input.getFilter(), records);
-
-      return (records);
+      return (recordSelector.getRecords());
    }
 
 
 
    /*******************************************************************************
+    ** join the (candidate) records from the query's table to its joined tables.
+    ** where a join condition's right-side field is indexed (or is the primary key),
+    ** matching records are found through the index, rather than by a full scan.
     **
+    ** each joined table's read lock is held while joining to it (one table at a
+    ** time - so a query never waits for one lock while holding another).
     *******************************************************************************/
-   private Collection<QRecord> buildJoinCrossProduct(QTableMetaData table, List<QueryJoin> queryJoins) throws QException
+   private Collection<QRecord> buildJoinCrossProduct(QTableMetaData table, Collection<QRecord> tableRecords, List<QueryJoin> queryJoins) throws QException
    {
       QInstance qInstance = QContext.getQInstance();
 
       List<QRecord>  crossProduct = new ArrayList<>();
       QTableMetaData leftTable    = table;
-      for(QRecord record : getTableData(leftTable).values())
+      for(QRecord record : tableRecords)
       {
          QRecord productRecord = new QRecord();
          addRecordToProduct(productRecord, record, null);
@@ -310,34 +389,62 @@ public class MemoryRecordStore
 
       for(QueryJoin queryJoin : queryJoins)
       {
-         QTableMetaData      nextTable        = qInstance.getTable(queryJoin.getJoinTable());
-         Collection<QRecord> nextTableRecords = getTableData(nextTable).values();
-         QJoinMetaData       joinMetaData     = Objects.requireNonNull(queryJoin.getJoinMetaData(), () -> "Could not find a join between tables [" + leftTable + "][" + queryJoin.getJoinTable() + "]");
+         QTableMetaData nextTable     = qInstance.getTable(queryJoin.getJoinTable());
+         TableData      nextTableData = getTableData(nextTable);
+         QJoinMetaData  joinMetaData  = Objects.requireNonNull(queryJoin.getJoinMetaData(), () -> "Could not find a join between tables [" + leftTable + "][" + queryJoin.getJoinTable() + "]");
 
          List<QRecord> nextLevelProduct = new ArrayList<>();
-         for(QRecord productRecord : crossProduct)
+         nextTableData.lock.readLock().lock();
+         try
          {
-            boolean matchFound = false;
-            for(QRecord nextTableRecord : nextTableRecords)
+            ////////////////////////////////////////////////////////////////////////////
+            // look for a join-on whose right-side field is the primary key, or is    //
+            // indexed - to find the records each product record joins to through it. //
+            ////////////////////////////////////////////////////////////////////////////
+            JoinOn indexedJoinOn = null;
+            for(JoinOn joinOn : joinMetaData.getJoinOns())
             {
-               if(joinMatches(productRecord, nextTableRecord, queryJoin, joinMetaData))
+               if(joinOn.getRightField().equals(nextTable.getPrimaryKeyField()) || nextTableData.indexes.hasIndexForJoin(joinOn.getRightField()))
                {
-                  QRecord joinRecord = new QRecord(productRecord);
-                  addRecordToProduct(joinRecord, nextTableRecord, queryJoin.getJoinTableOrItsAlias());
-                  nextLevelProduct.add(joinRecord);
-                  matchFound = true;
+                  indexedJoinOn = joinOn;
+                  break;
                }
             }
 
-            if(!matchFound)
+            for(QRecord productRecord : crossProduct)
             {
-               if(QueryJoin.Type.LEFT.equals(queryJoin.getType()))
+               Collection<QRecord> candidateRecords = nextTableData.records.values();
+               if(indexedJoinOn != null)
+               {
+                  candidateRecords = getJoinCandidateRecords(productRecord, queryJoin, indexedJoinOn, nextTable, nextTableData);
+               }
+
+               boolean matchFound = false;
+               for(QRecord nextTableRecord : candidateRecords)
                {
-                  QRecord joinRecord = new QRecord(productRecord);
-                  nextLevelProduct.add(joinRecord);
+                  if(joinMatches(productRecord, nextTableRecord, queryJoin, joinMetaData))
+                  {
+                     QRecord joinRecord = new QRecord(productRecord);
+                     addRecordToProduct(joinRecord, nextTableRecord, queryJoin.getJoinTableOrItsAlias());
+                     nextLevelProduct.add(joinRecord);
+                     matchFound = true;
+                  }
+               }
+
+               if(!matchFound)
+               {
+                  if(QueryJoin.Type.LEFT.equals(queryJoin.getType()))
+                  {
+                     QRecord joinRecord = new QRecord(productRecord);
+                     nextLevelProduct.add(joinRecord);
+                  }
                }
             }
          }
+         finally
+         {
+            nextTableData.lock.readLock().unlock();
+         }
 
          crossProduct = nextLevelProduct;
       }
@@ -347,6 +454,48 @@ public class MemoryRecordStore
 
 
 
+   /*******************************************************************************
+    ** get the records from a join's table that may join to a product record, via
+    ** an index on (or the primary key being) the right-side field of a join-on.
+    ** must be called while holding the next table's read lock.
+    *******************************************************************************/
+   private Collection<QRecord> getJoinCandidateRecords(QRecord productRecord, QueryJoin queryJoin, JoinOn joinOn, QTableMetaData nextTable, TableData nextTableData)
+   {
+      Serializable leftValue = getJoinLeftValue(productRecord, queryJoin, joinOn);
+      if(leftValue == null)
+      {
+         ///////////////////////////////////////////////////////////////////////
+         // a null joins to records with a null value - which aren't indexed. //
+         ///////////////////////////////////////////////////////////////////////
+         return (nextTableData.records.values());
+      }
+
+      if(joinOn.getRightField().equals(nextTable.getPrimaryKeyField()))
+      {
+         QRecord record = nextTableData.records.get(leftValue);
+         return (record == null ? Collections.emptyList() : List.of(record));
+      }
+
+      Collection<Serializable> primaryKeys = nextTableData.indexes.findPrimaryKeysForJoin(joinOn.getRightField(), leftValue);
+      if(primaryKeys == null)
+      {
+         return (nextTableData.records.values());
+      }
+
+      List<QRecord> records = new ArrayList<>(primaryKeys.size());
+      for(Serializable primaryKey : primaryKeys)
+      {
+         QRecord record = nextTableData.records.get(primaryKey);
+         if(record != null)
+         {
+            records.add(record);
+         }
+      }
+      return (records);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -354,9 +503,7 @@ public class MemoryRecordStore
    {
       for(JoinOn joinOn : joinMetaData.getJoinOns())
       {
-         Serializable leftValue = productRecord.getValues().containsKey(queryJoin.getBaseTableOrAlias() + "." + joinOn.getLeftField())
-            ? productRecord.getValue(queryJoin.getBaseTableOrAlias() + "." + joinOn.getLeftField())
-            : productRecord.getValue(joinOn.getLeftField());
+         Serializable leftValue  = getJoinLeftValue(productRecord, queryJoin, joinOn);
          Serializable rightValue = nextTableRecord.getValue(joinOn.getRightField());
          if(!Objects.equals(leftValue, rightValue))
          {
@@ -369,6 +516,18 @@ public class MemoryRecordStore
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Serializable getJoinLeftValue(QRecord productRecord, QueryJoin queryJoin, JoinOn joinOn)
+   {
+      return productRecord.getValues().containsKey(queryJoin.getBaseTableOrAlias() + "." + joinOn.getLeftField())
+         ? productRecord.getValue(queryJoin.getBaseTableOrAlias() + "." + joinOn.getLeftField())
+         : productRecord.getValue(joinOn.getLeftField());
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -450,80 +609,87 @@ public class MemoryRecordStore
          return (new ArrayList<>());
       }
 
-      QTableMetaData             table     = input.getTable();
-      Map<Serializable, QRecord> tableData = getTableData(table);
-
-      ////////////////////////////////////////
-      // grab the next unique serial to use //
-      ////////////////////////////////////////
-      Integer nextSerial = getNextSerial(table);
-      if(nextSerial == null)
-      {
-         nextSerial = 1;
-      }
-
-      while(tableData.containsKey(nextSerial))
-      {
-         nextSerial++;
-      }
-
-      List<QRecord>  outputRecords   = new ArrayList<>();
-      QFieldMetaData primaryKeyField = table.getField(table.getPrimaryKeyField());
+      QTableMetaData    table           = input.getTable();
+      TableData         tableData       = getTableData(table);
+      QFieldMetaData    primaryKeyField = table.getField(table.getPrimaryKeyField());
+      QRecordFieldIndex fieldIndex      = null;
+
+      ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+      // make a copy of each record, to be inserted, and returned. this can avoid some cases where the in-memory store acts     //
+      // differently from other backends, because of having the same record variable in the backend store and in the user-code. //
+      // (this is done before taking the table's write lock, to keep the time it's held to a minimum).                          //
+      ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+      List<QRecord> recordsToInsert = new ArrayList<>(input.getRecords().size());
       for(QRecord record : input.getRecords())
       {
-         ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-         // make a copy of the record, to be inserted, and returned. this can avoid some cases where the in-memory store acts      //
-         // differently from other backends, because of having the same record variable in the backend store and in the user-code. //
-         ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
          QRecord recordToInsert = new QRecord(record);
          stripUnrecognizedFieldsFromRecords(List.of(recordToInsert), table);
 
-         makeValueTypesMatchFieldTypes(table, recordToInsert);
-
-         if(CollectionUtils.nullSafeHasContents(recordToInsert.getErrors()))
+         //////////////////////////////////////////////////////////////////////////////
+         // index the record's own fields (in their order), so its values iterate in //
+         // the same order as they were given (as a LinkedHashMap would).  records   //
+         // in a batch usually share their fields, so try the previous index first.  //
+         //////////////////////////////////////////////////////////////////////////////
+         if(fieldIndex == null || !fieldIndex.hasFieldNames(recordToInsert.getValues().keySet()))
          {
-            outputRecords.add(recordToInsert);
-            continue;
+            fieldIndex = getFieldIndex(recordToInsert.getValues().keySet());
          }
+         recordToInsert.setValues(new QRecordValueMap(fieldIndex, recordToInsert.getValues()));
+         recordToInsert.setTableName(table.getName());
+
+         makeValueTypesMatchFieldTypes(table, recordToInsert);
+         recordsToInsert.add(recordToInsert);
+      }
 
-         /////////////////////////////////////////////////
-         // set the next serial in the record if needed //
-         /////////////////////////////////////////////////
-         if(recordToInsert.getValue(primaryKeyField.getName()) == null && (primaryKeyField.getType().equals(QFieldType.INTEGER) || primaryKeyField.getType().equals(QFieldType.LONG)))
+      List<QRecord> outputRecords = new ArrayList<>();
+      tableData.lock.writeLock().lock();
+      try
+      {
+         for(QRecord recordToInsert : recordsToInsert)
          {
-            if(primaryKeyField.getType().equals(QFieldType.LONG))
+            if(CollectionUtils.nullSafeHasContents(recordToInsert.getErrors()))
             {
-               recordToInsert.setValue(primaryKeyField.getName(), (nextSerial++).longValue());
+               outputRecords.add(recordToInsert);
+               continue;
             }
-            else
+
+            /////////////////////////////////////////////////
+            // set the next serial in the record if needed //
+            /////////////////////////////////////////////////
+            if(recordToInsert.getValue(primaryKeyField.getName()) == null && (primaryKeyField.getType().equals(QFieldType.INTEGER) || primaryKeyField.getType().equals(QFieldType.LONG)))
             {
-               recordToInsert.setValue(primaryKeyField.getName(), nextSerial++);
+               recordToInsert.setValue(primaryKeyField.getName(), getNextSerial(tableData, primaryKeyField));
             }
-         }
 
-         ///////////////////////////////////////////////////////////////////////////////////////////////////
-         // make sure that if the user supplied a serial, greater than the one we had, that we skip ahead //
-         ///////////////////////////////////////////////////////////////////////////////////////////////////
-         if(primaryKeyField.getType().equals(QFieldType.INTEGER) && recordToInsert.getValueInteger(primaryKeyField.getName()) > nextSerial)
-         {
-            nextSerial = recordToInsert.getValueInteger(primaryKeyField.getName()) + 1;
-         }
-         else if(primaryKeyField.getType().equals(QFieldType.LONG) && recordToInsert.getValueInteger(primaryKeyField.getName()) > nextSerial)
-         {
-            //////////////////////////////////////
-            // todo - mmm, could overflow here? //
-            //////////////////////////////////////
-            nextSerial = recordToInsert.getValueInteger(primaryKeyField.getName()) + 1;
-         }
+            ///////////////////////////////////////////////////////////////////////////////////////////////////
+            // make sure that if the user supplied a serial, greater than the one we had, that we skip ahead //
+            ///////////////////////////////////////////////////////////////////////////////////////////////////
+            if(primaryKeyField.getType().equals(QFieldType.INTEGER) || primaryKeyField.getType().equals(QFieldType.LONG))
+            {
+               //////////////////////////////////////
+               // todo - mmm, could overflow here? //
+               //////////////////////////////////////
+               int suppliedSerial = recordToInsert.getValueInteger(primaryKeyField.getName());
+               tableData.nextSerial.accumulateAndGet(suppliedSerial + 1, Math::max);
+            }
 
-         tableData.put(recordToInsert.getValue(primaryKeyField.getName()), recordToInsert);
-         if(returnInsertedRecords)
-         {
-            outputRecords.add(recordToInsert);
+            Serializable primaryKey     = recordToInsert.getValue(primaryKeyField.getName());
+            QRecord      replacedRecord = tableData.records.put(primaryKey, recordToInsert);
+            tableData.indexes.remove(primaryKey, replacedRecord);
+            tableData.indexes.add(primaryKey, recordToInsert);
+            if(returnInsertedRecords)
+            {
+               //////////////////////////////////////////////////////////////////////////
+               // return a copy - as the stored record must not be modified by callers //
+               //////////////////////////////////////////////////////////////////////////
+               outputRecords.add(new QRecord(recordToInsert));
+            }
          }
       }
-
-      setNextSerial(table, nextSerial);
+      finally
+      {
+         tableData.lock.writeLock().unlock();
+      }
 
       return (outputRecords);
    }
@@ -577,25 +743,47 @@ public class MemoryRecordStore
 
 
    /***************************************************************************
-    **
+    ** get the (cached) field index for a list of field names - making a new one
+    ** if those names (in that order) aren't cached yet.  Once the cache is full,
+    ** new indexes are still made, just not cached.
     ***************************************************************************/
-   private void setNextSerial(QTableMetaData table, Integer nextSerial) throws QException
+   private QRecordFieldIndex getFieldIndex(Collection<String> fieldNames)
    {
-      BackendIdentifier    backendIdentifier     = getBackendIdentifier(table);
-      Map<String, Integer> nextSerialsForBackend = nextSerials.computeIfAbsent(backendIdentifier, (k) -> new HashMap<>());
-      nextSerialsForBackend.put(table.getName(), nextSerial);
+      List<String>      key        = List.copyOf(fieldNames);
+      QRecordFieldIndex fieldIndex = fieldIndexes.get(key);
+      if(fieldIndex == null)
+      {
+         fieldIndex = new QRecordFieldIndex(key);
+         if(fieldIndexes.size() < MAX_FIELD_INDEXES)
+         {
+            fieldIndexes.putIfAbsent(key, fieldIndex);
+         }
+      }
+      return (fieldIndex);
    }
 
 
 
    /***************************************************************************
-    **
+    ** get the next serial for a table's primary key - skipping any values that
+    ** are already in use (e.g., from records inserted with a supplied value).
+    ** must be called while holding the table's write lock.
     ***************************************************************************/
-   private Integer getNextSerial(QTableMetaData table) throws QException
+   private static Serializable getNextSerial(TableData tableData, QFieldMetaData primaryKeyField)
    {
-      BackendIdentifier    backendIdentifier     = getBackendIdentifier(table);
-      Map<String, Integer> nextSerialsForBackend = nextSerials.computeIfAbsent(backendIdentifier, (k) -> new HashMap<>());
-      return (nextSerialsForBackend.get(table.getName()));
+      while(true)
+      {
+         Serializable primaryKey = tableData.nextSerial.getAndIncrement();
+         if(primaryKeyField.getType().equals(QFieldType.LONG))
+         {
+            primaryKey = ((Integer) primaryKey).longValue();
+         }
+
+         if(!tableData.records.containsKey(primaryKey))
+         {
+            return (primaryKey);
+         }
+      }
    }
 
 
@@ -634,56 +822,73 @@ public class MemoryRecordStore
          return (new ArrayList<>());
       }
 
-      QTableMetaData             table     = input.getTable();
-      Map<Serializable, QRecord> tableData = getTableData(table);
+      QTableMetaData table     = input.getTable();
+      TableData      tableData = getTableData(table);
 
       List<QRecord>  outputRecords   = new ArrayList<>();
       QFieldMetaData primaryKeyField = table.getField(table.getPrimaryKeyField());
-      for(QRecord record : input.getRecords())
+      tableData.lock.writeLock().lock();
+      try
       {
-         Serializable primaryKeyValue = ValueUtils.getValueAsFieldType(primaryKeyField.getType(), record.getValue(primaryKeyField.getName()));
-
-         if(CollectionUtils.nullSafeHasContents(record.getErrors()))
+         for(QRecord record : input.getRecords())
          {
-            outputRecords.add(record);
-            continue;
-         }
+            Serializable primaryKeyValue = ValueUtils.getValueAsFieldType(primaryKeyField.getType(), record.getValue(primaryKeyField.getName()));
 
-         if(tableData.containsKey(primaryKeyValue))
-         {
-            QRecord recordToUpdate = tableData.get(primaryKeyValue);
-            for(Map.Entry<String, Serializable> valueEntry : record.getValues().entrySet())
+            if(CollectionUtils.nullSafeHasContents(record.getErrors()))
             {
-               if(!table.getFields().containsKey(valueEntry.getKey()))
-               {
-                  /////////////////////////////////////////////////////////////
-                  // don't update values in fields that aren't in the table  //
-                  // (or that the user doesn't have, due to personalization) //
-                  /////////////////////////////////////////////////////////////
-                  continue;
-               }
+               outputRecords.add(record);
+               continue;
+            }
 
-               String fieldName = valueEntry.getKey();
-               try
+            QRecord storedRecord = tableData.records.get(primaryKeyValue);
+            if(storedRecord != null)
+            {
+               ////////////////////////////////////////////////////////////////////////////////
+               // stored records are never modified (as queries may be reading them, outside //
+               // of the lock) - rather, an updated copy of the record replaces the old one. //
+               ////////////////////////////////////////////////////////////////////////////////
+               QRecord recordToUpdate = new QRecord(storedRecord);
+               for(Map.Entry<String, Serializable> valueEntry : record.getValues().entrySet())
                {
-                  ///////////////////////////////////////////////
-                  // try to make field values match field type //
-                  ///////////////////////////////////////////////
-                  recordToUpdate.setValue(fieldName, ValueUtils.getValueAsFieldType(table.getField(fieldName).getType(), valueEntry.getValue()));
+                  if(!table.getFields().containsKey(valueEntry.getKey()))
+                  {
+                     /////////////////////////////////////////////////////////////
+                     // don't update values in fields that aren't in the table  //
+                     // (or that the user doesn't have, due to personalization) //
+                     /////////////////////////////////////////////////////////////
+                     continue;
+                  }
+
+                  String fieldName = valueEntry.getKey();
+                  try
+                  {
+                     ///////////////////////////////////////////////
+                     // try to make field values match field type //
+                     ///////////////////////////////////////////////
+                     recordToUpdate.setValue(fieldName, ValueUtils.getValueAsFieldType(table.getField(fieldName).getType(), valueEntry.getValue()));
+                  }
+                  catch(Exception e)
+                  {
+                     LOG.info("Error converting value to field's type", e, logPair("fieldName", fieldName), logPair("value", valueEntry.getValue()));
+                     recordToUpdate.setValue(fieldName, valueEntry.getValue());
+                  }
                }
-               catch(Exception e)
+
+               tableData.records.put(primaryKeyValue, recordToUpdate);
+               tableData.indexes.remove(primaryKeyValue, storedRecord);
+               tableData.indexes.add(primaryKeyValue, recordToUpdate);
+
+               if(returnUpdatedRecords)
                {
-                  LOG.info("Error converting value to field's type", e, logPair("fieldName", fieldName), logPair("value", valueEntry.getValue()));
-                  recordToUpdate.setValue(fieldName, valueEntry.getValue());
+                  outputRecords.add(record);
                }
             }
-
-            if(returnUpdatedRecords)
-            {
-               outputRecords.add(record);
-            }
          }
       }
+      finally
+      {
+         tableData.lock.writeLock().unlock();
+      }
 
       return (outputRecords);
    }
@@ -700,19 +905,28 @@ public class MemoryRecordStore
          return (0);
       }
 
-      QTableMetaData             table           = input.getTable();
-      QFieldMetaData             primaryKeyField = table.getField(table.getPrimaryKeyField());
-      Map<Serializable, QRecord> tableData       = getTableData(table);
-      int                        rowsDeleted     = 0;
-      for(Serializable primaryKeyValue : input.getPrimaryKeys())
+      QTableMetaData table           = input.getTable();
+      QFieldMetaData primaryKeyField = table.getField(table.getPrimaryKeyField());
+      TableData      tableData       = getTableData(table);
+      int            rowsDeleted     = 0;
+
+      tableData.lock.writeLock().lock();
+      try
       {
-         primaryKeyValue = ValueUtils.getValueAsFieldType(primaryKeyField.getType(), primaryKeyValue);
-         if(tableData.containsKey(primaryKeyValue))
+         for(Serializable primaryKeyValue : input.getPrimaryKeys())
          {
-            tableData.remove(primaryKeyValue);
-            rowsDeleted++;
+            primaryKeyValue = ValueUtils.getValueAsFieldType(primaryKeyField.getType(), primaryKeyValue);
+            if(tableData.records.containsKey(primaryKeyValue))
+            {
+               tableData.indexes.remove(primaryKeyValue, tableData.records.remove(primaryKeyValue));
+               rowsDeleted++;
+            }
          }
       }
+      finally
+      {
+         tableData.lock.writeLock().unlock();
+      }
 
       return (rowsDeleted);
    }
@@ -738,7 +952,11 @@ public class MemoryRecordStore
    {
       if(collectStatistics)
       {
-         actionInputs.add(input.getClass(), input);
+         synchronized(actionInputs)
+         {
+            actionInputs.add(input.getClass(), input);
+         }
+
          if(input instanceof QueryInput)
          {
             incrementStatistic(STAT_QUERIES_RAN);
@@ -760,8 +978,7 @@ public class MemoryRecordStore
    {
       if(collectStatistics)
       {
-         statistics.putIfAbsent(statName, 0);
-         statistics.put(statName, statistics.get(statName) + 1);
+         statistics.merge(statName, 1, Integer::sum);
       }
    }
 
@@ -774,7 +991,10 @@ public class MemoryRecordStore
    public static void resetStatistics()
    {
       statistics.clear();
-      actionInputs.clear();
+      synchronized(actionInputs)
+      {
+         actionInputs.clear();
+      }
    }
 
 
@@ -1176,7 +1396,7 @@ public class MemoryRecordStore
     ***************************************************************************/
    private static final class NonVariant implements BackendIdentifier
    {
-      private static NonVariant nonVariant = null;
+      private static final NonVariant nonVariant = new NonVariant();
 
 
 
@@ -1195,10 +1415,6 @@ public class MemoryRecordStore
        *******************************************************************************/
       public static NonVariant getInstance()
       {
-         if(nonVariant == null)
-         {
-            nonVariant = new NonVariant();
-         }
          return (nonVariant);
       }
    }
@@ -1214,6 +1430,64 @@ public class MemoryRecordStore
 
 
 
+   /***************************************************************************
+    ** the data for one table (in one backend or variant): its records, their
+    ** indexes, and the next serial for its primary key.
+    **
+    ** Each table has its own read/write lock - so queries run concurrently with
+    ** each other, and with writes to other tables, while writes to a table are
+    ** exclusive.  Records (and indexes) are only read or changed while holding
+    ** the lock - but since stored records are never modified once stored (an
+    ** update replaces a record with an updated copy), a query can take a
+    ** snapshot of record references under the lock, then filter them without it.
+    **
+    ** (a HashMap under a lock is used for the records, rather than a concurrent
+    ** map, so that the records and their indexes always change together, and
+    ** so null primary keys keep working as they always have).
+    ***************************************************************************/
+   private static final class TableData
+   {
+      private final ReentrantReadWriteLock     lock       = new ReentrantReadWriteLock();
+      private final Map<Serializable, QRecord> records    = new HashMap<>();
+      private final AtomicInteger              nextSerial = new AtomicInteger(1);
+
+      private volatile MemoryTableIndexes indexes = new MemoryTableIndexes(Collections.emptyList());
+
+
+
+      /*******************************************************************************
+       ** make sure this table's indexes match the given definitions - rebuilding
+       ** them from the table's records if they don't.
+       *******************************************************************************/
+      private void ensureIndexes(List<MemoryTableIndex> definitions)
+      {
+         if(indexes.getDefinitions().equals(definitions))
+         {
+            return;
+         }
+
+         lock.writeLock().lock();
+         try
+         {
+            if(!indexes.getDefinitions().equals(definitions))
+            {
+               MemoryTableIndexes newIndexes = new MemoryTableIndexes(definitions);
+               for(Map.Entry<Serializable, QRecord> entry : records.entrySet())
+               {
+                  newIndexes.add(entry.getKey(), entry.getValue());
+               }
+               indexes = newIndexes;
+            }
+         }
+         finally
+         {
+            lock.writeLock().unlock();
+         }
+      }
+   }
+
+
+
    /*******************************************************************************
     * Getter for buildJoinCrossProductFromJoinContext
     * @see #withBuildJoinCrossProductFromJoinContext(boolean)
@@ -0,0 +1,149 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.modules.backend.implementations.memory;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import com.kingsrook.qqq.backend.core.instances.QInstanceValidator;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableBackendDetails;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+
+
+/*******************************************************************************
+ ** Memory-backend specific meta-data for a table - e.g., indexes to maintain
+ ** over the table's records (in addition to ones made for its unique keys).
+ *******************************************************************************/
+public class MemoryTableBackendDetails extends QTableBackendDetails
+{
+   private List<MemoryTableIndex> indexes;
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   public MemoryTableBackendDetails()
+   {
+      super();
+      setBackendType(MemoryBackendModule.class);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for indexes
+    **
+    *******************************************************************************/
+   public List<MemoryTableIndex> getIndexes()
+   {
+      return indexes;
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for indexes
+    **
+    *******************************************************************************/
+   public void setIndexes(List<MemoryTableIndex> indexes)
+   {
+      this.indexes = indexes;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for indexes
+    **
+    *******************************************************************************/
+   public MemoryTableBackendDetails withIndexes(List<MemoryTableIndex> indexes)
+   {
+      this.indexes = indexes;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter to add a single index
+    **
+    *******************************************************************************/
+   public MemoryTableBackendDetails withIndex(MemoryTableIndex index)
+   {
+      if(this.indexes == null)
+      {
+         this.indexes = new ArrayList<>();
+      }
+      this.indexes.add(index);
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public void validate(QInstance qInstance, QTableMetaData table, QInstanceValidator qInstanceValidator)
+   {
+      super.validate(qInstance, table, qInstanceValidator);
+
+      String prefix = "Table " + (table == null ? "null" : table.getName()) + " backend details - ";
+      for(MemoryTableIndex index : CollectionUtils.nonNullList(indexes))
+      {
+         if(qInstanceValidator.assertCondition(CollectionUtils.nullSafeHasContents(index.getFieldNames()), prefix + "index is missing fieldNames"))
+         {
+            for(String fieldName : index.getFieldNames())
+            {
+               qInstanceValidator.assertCondition(table != null && table.getFields().containsKey(fieldName), prefix + "index field [" + fieldName + "] is not a field on this table.");
+            }
+
+            qInstanceValidator.assertCondition(!MemoryTableIndex.Type.SORTED.equals(index.getType()) || index.getFieldNames().size() == 1, prefix + "SORTED index " + index.getFieldNames() + " must have exactly one field.");
+         }
+
+         qInstanceValidator.assertCondition(index.getType() != null, prefix + "index " + index.getFieldNames() + " is missing a type.");
+      }
+   }
+
+
+
+   /***************************************************************************
+    * finish the cloning operation started in the base class. copy all state
+    * from the subclass into the input clone (which can be safely casted to
+    * the subclass's type, as it was obtained by super.clone())
+    ***************************************************************************/
+   @Override
+   protected QTableBackendDetails finishClone(QTableBackendDetails abstractClone)
+   {
+      MemoryTableBackendDetails clone = (MemoryTableBackendDetails) abstractClone;
+      if(indexes != null)
+      {
+         clone.indexes = new ArrayList<>(indexes);
+      }
+      return (clone);
+   }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.modules.backend.implementations.memory;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+
+/*******************************************************************************
+ ** Definition of an index on a table in the memory backend - either a HASH index
+ ** (for EQUALS and IN criteria, and join conditions) over one or more fields, or
+ ** a SORTED index (which can also do range criteria) over a single field.
+ **
+ ** Single-field HASH indexes are also made automatically, for a table's unique
+ ** keys (and multi-field ones for multi-field unique keys).
+ *******************************************************************************/
+public class MemoryTableIndex implements Serializable
+{
+   private List<String> fieldNames;
+   private Type         type = Type.HASH;
+
+
+
+   /***************************************************************************
+    ** types of indexes
+    ***************************************************************************/
+   public enum Type
+   {
+      HASH,
+      SORTED
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   public MemoryTableIndex()
+   {
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   public MemoryTableIndex(Type type, String... fieldNames)
+   {
+      this.type = type;
+      this.fieldNames = Arrays.stream(fieldNames).toList();
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for fieldNames
+    **
+    *******************************************************************************/
+   public List<String> getFieldNames()
+   {
+      return fieldNames;
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for fieldNames
+    **
+    *******************************************************************************/
+   public void setFieldNames(List<String> fieldNames)
+   {
+      this.fieldNames = fieldNames;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for fieldNames
+    **
+    *******************************************************************************/
+   public MemoryTableIndex withFieldNames(List<String> fieldNames)
+   {
+      this.fieldNames = fieldNames;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter to add a single fieldName
+    **
+    *******************************************************************************/
+   public MemoryTableIndex withFieldName(String fieldName)
+   {
+      if(this.fieldNames == null)
+      {
+         this.fieldNames = new ArrayList<>();
+      }
+      else if(!(this.fieldNames instanceof ArrayList))
+      {
+         this.fieldNames = new ArrayList<>(this.fieldNames);
+      }
+      this.fieldNames.add(fieldName);
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for type
+    **
+    *******************************************************************************/
+   public Type getType()
+   {
+      return type;
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for type
+    **
+    *******************************************************************************/
+   public void setType(Type type)
+   {
+      this.type = type;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for type
+    **
+    *******************************************************************************/
+   public MemoryTableIndex withType(Type type)
+   {
+      this.type = type;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public boolean equals(Object o)
+   {
+      if(this == o)
+      {
+         return true;
+      }
+      if(o == null || getClass() != o.getClass())
+      {
+         return false;
+      }
+      MemoryTableIndex that = (MemoryTableIndex) o;
+      return Objects.equals(fieldNames, that.fieldNames) && type == that.type;
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public int hashCode()
+   {
+      return Objects.hash(fieldNames, type);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public String toString()
+   {
+      return ("MemoryTableIndex{type=" + type + ", fieldNames=" + fieldNames + '}');
+   }
+
+}
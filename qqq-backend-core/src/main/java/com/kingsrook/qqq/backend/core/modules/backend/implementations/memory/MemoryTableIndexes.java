@@ -0,0 +1,835 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.modules.backend.implementations.memory;
+
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.CriteriaOption;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.expressions.AbstractFilterExpression;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+import com.kingsrook.qqq.backend.core.utils.ValueUtils;
+
+
+/*******************************************************************************
+ ** The indexes the MemoryRecordStore maintains for one table's records - that
+ ** is, for each of the table's MemoryTableIndex definitions (from its unique
+ ** keys and its MemoryTableBackendDetails), a map of field value(s) to the
+ ** primary keys of the records with those values.
+ **
+ ** Indexes are only ever used to find CANDIDATE records for a query - a superset
+ ** of the records that match - and the query's full filter is still applied to
+ ** those candidates.  So, an index is only used for a criteria where it can't
+ ** miss a record that a scan would have matched.  In particular:
+ ** - only top-level criteria of an AND filter (or a filter with one criteria);
+ ** - not for criteria with expression values, or with the CASE_INSENSITIVE option;
+ ** - an index whose records' values aren't all of one type isn't used at all;
+ ** - SORTED indexes are only used for ranges over types whose natural ordering
+ **   is the ordering that filters use (Integer, String, LocalDate and Instant).
+ **
+ ** Note that, without an order-by, records found through an index come back in
+ ** index order, rather than the table's order.
+ **
+ ** Not thread safe - the MemoryRecordStore guards each table's indexes with
+ ** that table's lock.
+ *******************************************************************************/
+class MemoryTableIndexes
+{
+   private static final Set<Class<?>> SORTABLE_CLASSES = Set.of(Integer.class, String.class, LocalDate.class, Instant.class);
+
+   private final List<MemoryTableIndex> definitions;
+   private final List<RecordIndex>      indexes = new ArrayList<>();
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   MemoryTableIndexes(List<MemoryTableIndex> definitions)
+   {
+      this.definitions = definitions;
+      for(MemoryTableIndex definition : definitions)
+      {
+         indexes.add(new RecordIndex(definition.getFieldNames(), definition.getType()));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** get the index definitions for a table - a HASH index for each of its unique
+    ** keys (other than just its primary key, which the store is already keyed by),
+    ** plus any indexes from its MemoryTableBackendDetails.
+    *******************************************************************************/
+   static List<MemoryTableIndex> getIndexDefinitions(QTableMetaData table)
+   {
+      List<MemoryTableIndex> definitions = new ArrayList<>();
+      for(UniqueKey uniqueKey : CollectionUtils.nonNullList(table.getUniqueKeys()))
+      {
+         List<String> fieldNames = uniqueKey.getFieldNames();
+         if(CollectionUtils.nullSafeHasContents(fieldNames) && !fieldNames.equals(List.of(table.getPrimaryKeyField())))
+         {
+            addDefinition(definitions, new MemoryTableIndex().withType(MemoryTableIndex.Type.HASH).withFieldNames(new ArrayList<>(fieldNames)));
+         }
+      }
+
+      if(table.getBackendDetails() instanceof MemoryTableBackendDetails memoryTableBackendDetails)
+      {
+         for(MemoryTableIndex index : CollectionUtils.nonNullList(memoryTableBackendDetails.getIndexes()))
+         {
+            //////////////////////////////////////////////////////////////////////
+            // skip invalid definitions (the instance validator reports these). //
+            //////////////////////////////////////////////////////////////////////
+            if(index.getType() == null || CollectionUtils.nullSafeIsEmpty(index.getFieldNames()))
+            {
+               continue;
+            }
+
+            if(MemoryTableIndex.Type.SORTED.equals(index.getType()) && index.getFieldNames().size() != 1)
+            {
+               continue;
+            }
+
+            addDefinition(definitions, new MemoryTableIndex().withType(index.getType()).withFieldNames(new ArrayList<>(index.getFieldNames())));
+         }
+      }
+
+      return (definitions);
+   }
+
+
+
+   /***************************************************************************
+    **
+    ***************************************************************************/
+   private static void addDefinition(List<MemoryTableIndex> definitions, MemoryTableIndex definition)
+   {
+      if(!definitions.contains(definition))
+      {
+         definitions.add(definition);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for definitions
+    **
+    *******************************************************************************/
+   List<MemoryTableIndex> getDefinitions()
+   {
+      return definitions;
+   }
+
+
+
+   /*******************************************************************************
+    ** add a record (which has been put in the table) to all indexes.
+    *******************************************************************************/
+   void add(Serializable primaryKey, QRecord record)
+   {
+      for(RecordIndex index : indexes)
+      {
+         index.add(primaryKey, record);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** remove a record (which is being taken out of the table, or is about to have
+    ** its values changed) from all indexes.
+    *******************************************************************************/
+   void remove(Serializable primaryKey, QRecord record)
+   {
+      if(record == null)
+      {
+         return;
+      }
+
+      for(RecordIndex index : indexes)
+      {
+         index.remove(primaryKey, record);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** For a query's filter, find the primary keys of the candidate records that
+    ** may match it, using the most selective usable index (including the primary
+    ** key itself) - or return null if no index can be used (so, all records must
+    ** be scanned).  Returned primary keys may not exist in the table.
+    **
+    ** @param joinTableNamesAndAliases names & aliases of tables joined in the query
+    ** - used to make sure a "table.field" criteria really is for this table.
+    *******************************************************************************/
+   Collection<Serializable> findCandidatePrimaryKeys(QTableMetaData table, QQueryFilter filter, Set<String> joinTableNamesAndAliases)
+   {
+      if(filter == null || CollectionUtils.nullSafeIsEmpty(filter.getCriteria()))
+      {
+         return (null);
+      }
+
+      //////////////////////////////////////////////////////////////////////////
+      // sub-filters of an AND can only narrow its matches, so they're safe  //
+      // to ignore here - but an OR is only usable if it has just one criteria //
+      //////////////////////////////////////////////////////////////////////////
+      boolean isAnd = QQueryFilter.BooleanOperator.AND.equals(filter.getBooleanOperator());
+      if(!isAnd && (filter.getCriteria().size() > 1 || CollectionUtils.nullSafeHasContents(filter.getSubFilters())))
+      {
+         return (null);
+      }
+
+      Collection<Serializable>  best         = null;
+      Map<String, Serializable> equalsValues = new HashMap<>();
+      for(QFilterCriteria criteria : filter.getCriteria())
+      {
+         if(QCriteriaOperator.TUPLE_IN.equals(criteria.getOperator()))
+         {
+            Collection<Serializable> candidates = findCandidatePrimaryKeysForTupleIn(table, criteria);
+            if(candidates != null && (best == null || candidates.size() < best.size()))
+            {
+               best = candidates;
+            }
+            continue;
+         }
+
+         String fieldName = getIndexableFieldName(table, criteria, joinTableNamesAndAliases);
+         if(fieldName == null)
+         {
+            continue;
+         }
+
+         List<Serializable> values = getCriteriaValues(table.getField(fieldName), criteria);
+         if(values == null)
+         {
+            continue;
+         }
+
+         if(QCriteriaOperator.EQUALS.equals(criteria.getOperator()))
+         {
+            equalsValues.put(fieldName, values.get(0));
+         }
+
+         Collection<Serializable> candidates = findCandidatePrimaryKeys(table, fieldName, criteria.getOperator(), values);
+         if(candidates != null && (best == null || candidates.size() < best.size()))
+         {
+            best = candidates;
+         }
+      }
+
+      ////////////////////////////////////////////////////////////////////////////
+      // multi-field (hash) indexes can be used if all their fields have EQUALS //
+      ////////////////////////////////////////////////////////////////////////////
+      for(RecordIndex index : indexes)
+      {
+         if(index.fieldNames.size() > 1 && equalsValues.keySet().containsAll(index.fieldNames))
+         {
+            List<Serializable> key = new ArrayList<>();
+            for(String fieldName : index.fieldNames)
+            {
+               key.add(equalsValues.get(fieldName));
+            }
+
+            Collection<Serializable> candidates = index.getPrimaryKeysForValues(key);
+            if(candidates != null && (best == null || candidates.size() < best.size()))
+            {
+               best = candidates;
+            }
+         }
+      }
+
+      return (best);
+   }
+
+
+
+   /*******************************************************************************
+    ** Find the primary keys of the records whose value in a field equals a value
+    ** (per Objects.equals), for a join condition - or return null if there's no
+    ** usable single-field index on the field.
+    *******************************************************************************/
+   Collection<Serializable> findPrimaryKeysForJoin(String fieldName, Serializable value)
+   {
+      if(value == null)
+      {
+         return (null);
+      }
+
+      for(RecordIndex index : indexes)
+      {
+         if(index.usable && index.fieldNames.size() == 1 && index.fieldNames.get(0).equals(fieldName))
+         {
+            if(index.valueClasses[0] == null || !index.valueClasses[0].equals(value.getClass()))
+            {
+               ////////////////////////////////////////////////////////////////////
+               // a value of another type (or any value, if no records have one) //
+               // can't be Objects.equals to any record's value.                 //
+               ////////////////////////////////////////////////////////////////////
+               return (Collections.emptySet());
+            }
+
+            Set<Serializable> primaryKeys = index.entries.get(value);
+            return (primaryKeys == null ? Collections.emptySet() : primaryKeys);
+         }
+      }
+
+      return (null);
+   }
+
+
+
+   /*******************************************************************************
+    ** check if a field has a (single-field) index, that can be used for joins.
+    *******************************************************************************/
+   boolean hasIndexForJoin(String fieldName)
+   {
+      for(RecordIndex index : indexes)
+      {
+         if(index.usable && index.fieldNames.size() == 1 && index.fieldNames.get(0).equals(fieldName))
+         {
+            return (true);
+         }
+      }
+      return (false);
+   }
+
+
+
+   /***************************************************************************
+    ** candidate primary keys for one criteria - from the primary key itself, or
+    ** from the most selective single-field index on the field.
+    ***************************************************************************/
+   private Collection<Serializable> findCandidatePrimaryKeys(QTableMetaData table, String fieldName, QCriteriaOperator operator, List<Serializable> values)
+   {
+      boolean isEqualsOrIn = QCriteriaOperator.EQUALS.equals(operator) || QCriteriaOperator.IN.equals(operator);
+      if(fieldName.equals(table.getPrimaryKeyField()) && isEqualsOrIn)
+      {
+         return (new LinkedHashSet<>(values));
+      }
+
+      Collection<Serializable> best = null;
+      for(RecordIndex index : indexes)
+      {
+         if(index.fieldNames.size() != 1 || !index.fieldNames.get(0).equals(fieldName))
+         {
+            continue;
+         }
+
+         Collection<Serializable> candidates = null;
+         if(isEqualsOrIn)
+         {
+            candidates = index.getPrimaryKeysForEqualsOrIn(values);
+         }
+         else if(MemoryTableIndex.Type.SORTED.equals(index.type))
+         {
+            candidates = switch(operator)
+            {
+               case GREATER_THAN, GREATER_THAN_OR_EQUALS -> index.getPrimaryKeysForRange(values.get(0), null, false);
+               case LESS_THAN, LESS_THAN_OR_EQUALS -> index.getPrimaryKeysForRange(null, values.get(0), true);
+               case BETWEEN -> index.getPrimaryKeysForRange(values.get(0), values.get(1), false);
+               default -> null;
+            };
+         }
+
+         if(candidates != null && (best == null || candidates.size() < best.size()))
+         {
+            best = candidates;
+         }
+      }
+
+      return (best);
+   }
+
+
+
+   /***************************************************************************
+    ** candidate primary keys for a TUPLE_IN criteria, from an index on exactly
+    ** its fields (in any order) - looking up each tuple in it.
+    ***************************************************************************/
+   private Collection<Serializable> findCandidatePrimaryKeysForTupleIn(QTableMetaData table, QFilterCriteria criteria)
+   {
+      List<String> tupleFieldNames = criteria.getTupleFieldNames();
+      if(tupleFieldNames == null || StringUtils.hasContent(criteria.getOtherFieldName()) || criteria.hasOption(CriteriaOption.CASE_INSENSITIVE))
+      {
+         return (null);
+      }
+
+      for(String fieldName : tupleFieldNames)
+      {
+         if(!table.getFields().containsKey(fieldName))
+         {
+            return (null);
+         }
+      }
+
+      for(RecordIndex index : indexes)
+      {
+         if(index.fieldNames.size() != tupleFieldNames.size() || !new HashSet<>(index.fieldNames).equals(new HashSet<>(tupleFieldNames)))
+         {
+            continue;
+         }
+
+         Set<Serializable> primaryKeys = new LinkedHashSet<>();
+         for(Serializable tuple : CollectionUtils.nonNullList(criteria.getValues()))
+         {
+            if(!(tuple instanceof List<?> tupleValues) || tupleValues.size() != tupleFieldNames.size())
+            {
+               return (null);
+            }
+
+            ////////////////////////////////////////////////////////////////////
+            // put the tuple's values in the index's field order, typed - and //
+            // skip tuples with a null, as they can't match anything.         //
+            ////////////////////////////////////////////////////////////////////
+            List<Serializable> key = new ArrayList<>();
+            for(String fieldName : index.fieldNames)
+            {
+               Object tupleValue = tupleValues.get(tupleFieldNames.indexOf(fieldName));
+               if(tupleValue instanceof AbstractFilterExpression<?>)
+               {
+                  return (null);
+               }
+
+               try
+               {
+                  key.add(ValueUtils.getValueAsFieldType(table.getField(fieldName).getType(), tupleValue));
+               }
+               catch(Exception e)
+               {
+                  return (null);
+               }
+            }
+
+            if(key.contains(null))
+            {
+               continue;
+            }
+
+            Collection<Serializable> primaryKeysForTuple = index.getPrimaryKeysForValues(key);
+            if(primaryKeysForTuple == null)
+            {
+               return (null);
+            }
+            primaryKeys.addAll(primaryKeysForTuple);
+         }
+
+         return (primaryKeys);
+      }
+
+      return (null);
+   }
+
+
+
+   /***************************************************************************
+    ** if a criteria is for a field in this table, return that field's name.
+    ***************************************************************************/
+   private static String getIndexableFieldName(QTableMetaData table, QFilterCriteria criteria, Set<String> joinTableNamesAndAliases)
+   {
+      String fieldName = criteria.getFieldName();
+      if(fieldName == null || criteria.getOperator() == null || StringUtils.hasContent(criteria.getOtherFieldName()) || criteria.hasOption(CriteriaOption.CASE_INSENSITIVE))
+      {
+         return (null);
+      }
+
+      if(fieldName.contains("."))
+      {
+         //////////////////////////////////////////////////////////////////////////////
+         // a "table.field" is for this table - unless this table is also joined in //
+         // (without an alias), in which case it could be for that join instead.    //
+         //////////////////////////////////////////////////////////////////////////////
+         String[] parts = fieldName.split("\\.");
+         if(parts.length != 2 || !parts[0].equals(table.getName()) || joinTableNamesAndAliases.contains(table.getName()))
+         {
+            return (null);
+         }
+         fieldName = parts[1];
+      }
+
+      return (table.getFields().containsKey(fieldName) ? fieldName : null);
+   }
+
+
+
+   /***************************************************************************
+    ** get a criteria's values, converted to its field's type - or null if the
+    ** criteria can't be used with an index.
+    ***************************************************************************/
+   private static List<Serializable> getCriteriaValues(QFieldMetaData field, QFilterCriteria criteria)
+   {
+      List<Serializable> criteriaValues = criteria.getValues();
+      int                expectedCount  = switch(criteria.getOperator())
+      {
+         case EQUALS, GREATER_THAN, GREATER_THAN_OR_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS -> 1;
+         case BETWEEN -> 2;
+         case IN -> CollectionUtils.nullSafeSize(criteriaValues);
+         default -> 0;
+      };
+
+      if(expectedCount == 0 || CollectionUtils.nullSafeSize(criteriaValues) < expectedCount)
+      {
+         return (null);
+      }
+
+      boolean            isRange = !QCriteriaOperator.EQUALS.equals(criteria.getOperator()) && !QCriteriaOperator.IN.equals(criteria.getOperator());
+      List<Serializable> values  = new ArrayList<>();
+      for(Serializable criteriaValue : criteriaValues.subList(0, expectedCount))
+      {
+         if(criteriaValue == null || criteriaValue instanceof AbstractFilterExpression<?>)
+         {
+            return (null);
+         }
+
+         try
+         {
+            Serializable value = ValueUtils.getValueAsFieldType(field.getType(), criteriaValue);
+            if(value == null)
+            {
+               return (null);
+            }
+
+            /////////////////////////////////////////////////////////////////////////////
+            // filters compare a number to a string numerically, so a range on a string //
+            // field can only use its (lexically sorted) index for a string criteria.   //
+            /////////////////////////////////////////////////////////////////////////////
+            if(isRange && value instanceof String && !(criteriaValue instanceof String))
+            {
+               return (null);
+            }
+
+            values.add(value);
+         }
+         catch(Exception e)
+         {
+            return (null);
+         }
+      }
+
+      return (values);
+   }
+
+
+
+   /***************************************************************************
+    ** one index - a map from a field's value (or, for a multi-field index, a
+    ** list of the fields' values) to the primary keys of records with it.
+    ***************************************************************************/
+   private static class RecordIndex
+   {
+      private final List<String>           fieldNames;
+      private final MemoryTableIndex.Type  type;
+      private final Class<?>[]             valueClasses;
+      private Map<Object, Set<Serializable>> entries;
+
+      //////////////////////////////////////////////////////////////////////
+      // filters consider null to be LESS_THAN any value, so a SORTED index //
+      // keeps track of the records with a null value too.                  //
+      //////////////////////////////////////////////////////////////////////
+      private Set<Serializable> nullValuePrimaryKeys = new LinkedHashSet<>();
+
+      private boolean usable = true;
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      RecordIndex(List<String> fieldNames, MemoryTableIndex.Type type)
+      {
+         this.fieldNames = fieldNames;
+         this.type = type;
+         this.valueClasses = new Class<?>[fieldNames.size()];
+         this.entries = MemoryTableIndex.Type.SORTED.equals(type) ? new TreeMap<>() : new HashMap<>();
+      }
+
+
+
+      /***************************************************************************
+       ** the key for a record in this index - or null if any of its values are null.
+       ***************************************************************************/
+      private Object getKey(QRecord record)
+      {
+         if(fieldNames.size() == 1)
+         {
+            return (record.getValue(fieldNames.get(0)));
+         }
+
+         List<Serializable> key = new ArrayList<>(fieldNames.size());
+         for(String fieldName : fieldNames)
+         {
+            Serializable value = record.getValue(fieldName);
+            if(value == null)
+            {
+               return (null);
+            }
+            key.add(value);
+         }
+         return (key);
+      }
+
+
+
+      /***************************************************************************
+       ** check if a key's values are of the types already in the index.
+       ***************************************************************************/
+      private boolean keyHasIndexedClasses(Object key)
+      {
+         if(fieldNames.size() == 1)
+         {
+            return (valueClasses[0] == null || valueClasses[0].equals(key.getClass()));
+         }
+
+         List<?> keyParts = (List<?>) key;
+         for(int i = 0; i < valueClasses.length; i++)
+         {
+            if(valueClasses[i] != null && !valueClasses[i].equals(keyParts.get(i).getClass()))
+            {
+               return (false);
+            }
+         }
+         return (true);
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      void add(Serializable primaryKey, QRecord record)
+      {
+         if(!usable)
+         {
+            return;
+         }
+
+         Object key = getKey(record);
+         if(key == null)
+         {
+            if(MemoryTableIndex.Type.SORTED.equals(type))
+            {
+               nullValuePrimaryKeys.add(primaryKey);
+            }
+            return;
+         }
+
+         //////////////////////////////////////////////////////////////////////////
+         // if records have values of different types (e.g., ones that couldn't  //
+         // be converted to their field's type), then give up on this index.     //
+         //////////////////////////////////////////////////////////////////////////
+         if(!keyHasIndexedClasses(key) || (MemoryTableIndex.Type.SORTED.equals(type) && !SORTABLE_CLASSES.contains(key.getClass())))
+         {
+            usable = false;
+            entries = null;
+            nullValuePrimaryKeys = null;
+            return;
+         }
+
+         if(fieldNames.size() == 1)
+         {
+            valueClasses[0] = key.getClass();
+         }
+         else
+         {
+            List<?> keyParts = (List<?>) key;
+            for(int i = 0; i < valueClasses.length; i++)
+            {
+               valueClasses[i] = keyParts.get(i).getClass();
+            }
+         }
+
+         entries.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(primaryKey);
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      void remove(Serializable primaryKey, QRecord record)
+      {
+         if(!usable)
+         {
+            return;
+         }
+
+         Object key = getKey(record);
+         if(key == null)
+         {
+            if(MemoryTableIndex.Type.SORTED.equals(type))
+            {
+               nullValuePrimaryKeys.remove(primaryKey);
+            }
+            return;
+         }
+
+         if(!keyHasIndexedClasses(key))
+         {
+            return;
+         }
+
+         Set<Serializable> primaryKeys = entries.get(key);
+         if(primaryKeys != null)
+         {
+            primaryKeys.remove(primaryKey);
+            if(primaryKeys.isEmpty())
+            {
+               entries.remove(key);
+            }
+         }
+      }
+
+
+
+      /***************************************************************************
+       ** primary keys of records with the given values (one per field) - or null
+       ** if the index can't be used for them.
+       ***************************************************************************/
+      Collection<Serializable> getPrimaryKeysForValues(List<Serializable> values)
+      {
+         if(!usable)
+         {
+            return (null);
+         }
+
+         Object key = fieldNames.size() == 1 ? values.get(0) : values;
+         if(!keyHasIndexedClasses(key))
+         {
+            return (null);
+         }
+
+         if(valueClasses[0] == null)
+         {
+            ///////////////////////////////////////////////////
+            // no records with values - so, nothing matches. //
+            ///////////////////////////////////////////////////
+            return (Collections.emptySet());
+         }
+
+         Set<Serializable> primaryKeys = entries.get(key);
+         return (primaryKeys == null ? Collections.emptySet() : primaryKeys);
+      }
+
+
+
+      /***************************************************************************
+       ** for a single-field index - primary keys of records with any of the values.
+       ***************************************************************************/
+      Collection<Serializable> getPrimaryKeysForEqualsOrIn(List<Serializable> values)
+      {
+         if(values.size() == 1)
+         {
+            return (getPrimaryKeysForValues(values));
+         }
+
+         Set<Serializable> primaryKeys = new LinkedHashSet<>();
+         for(Serializable value : values)
+         {
+            Collection<Serializable> primaryKeysForValue = getPrimaryKeysForValues(List.of(value));
+            if(primaryKeysForValue == null)
+            {
+               return (null);
+            }
+            primaryKeys.addAll(primaryKeysForValue);
+         }
+         return (primaryKeys);
+      }
+
+
+
+      /***************************************************************************
+       ** for a SORTED index - primary keys of records with values in a range.  to
+       ** be safe, bounds are always inclusive (any extras get filtered out later).
+       **
+       ** @param from lower bound, or null for none
+       ** @param to upper bound, or null for none
+       ** @param includeNulls whether records with a null value should be included
+       ***************************************************************************/
+      @SuppressWarnings("unchecked")
+      Collection<Serializable> getPrimaryKeysForRange(Serializable from, Serializable to, boolean includeNulls)
+      {
+         if(!usable || (from != null && !keyHasIndexedClasses(from)) || (to != null && !keyHasIndexedClasses(to)))
+         {
+            return (null);
+         }
+
+         Set<Serializable> primaryKeys = new LinkedHashSet<>();
+         if(includeNulls)
+         {
+            primaryKeys.addAll(nullValuePrimaryKeys);
+         }
+
+         if(valueClasses[0] == null)
+         {
+            return (primaryKeys);
+         }
+
+         NavigableMap<Object, Set<Serializable>> sortedEntries = (NavigableMap<Object, Set<Serializable>>) entries;
+         NavigableMap<Object, Set<Serializable>> range;
+         if(from != null && to != null)
+         {
+            if(((Comparable<Object>) from).compareTo(to) > 0)
+            {
+               return (primaryKeys);
+            }
+            range = sortedEntries.subMap(from, true, to, true);
+         }
+         else if(from != null)
+         {
+            range = sortedEntries.tailMap(from, true);
+         }
+         else
+         {
+            range = sortedEntries.headMap(to, true);
+         }
+
+         for(Set<Serializable> primaryKeysForValue : range.values())
+         {
+            primaryKeys.addAll(primaryKeysForValue);
+         }
+         return (primaryKeys);
+      }
+   }
+
+}
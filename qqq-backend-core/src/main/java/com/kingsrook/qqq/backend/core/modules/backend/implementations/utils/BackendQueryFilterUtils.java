@@ -26,14 +26,13 @@ import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
@@ -43,7 +42,6 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryJoin;
-import com.kingsrook.qqq.backend.core.model.actions.tables.query.expressions.AbstractFilterExpression;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.FieldAndJoinTable;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
@@ -53,7 +51,6 @@ import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
 import com.kingsrook.qqq.backend.core.utils.ValueUtils;
 import org.apache.commons.lang3.NotImplementedException;
-import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
 
 /*******************************************************************************
@@ -92,196 +89,29 @@ public class BackendQueryFilterUtils
          return (true);
       }
 
-      //////////////////////////////////////////////////////////////////////////////////////
-      // for an AND query, default to a TRUE answer, and we'll &= each criterion's value. //
-      // for an OR query, default to FALSE, and |= each criterion's value.                //
-      //////////////////////////////////////////////////////////////////////////////////////
-      AtomicBoolean recordMatches = new AtomicBoolean(filter.getBooleanOperator().equals(QQueryFilter.BooleanOperator.AND) ? true : false);
-
-      ///////////////////////////////////////
-      // if there are criteria, apply them //
-      ///////////////////////////////////////
-      for(QFilterCriteria criterion : CollectionUtils.nonNullList(filter.getCriteria()))
-      {
-         String       fieldName = criterion.getFieldName();
-         Serializable value     = qRecord.getValue(fieldName);
-         if(value == null)
-         {
-            ///////////////////////////////////////////////////////////////////////////////////////////////////
-            // if the value isn't in the record - check, if it looks like a table.fieldName, but none of the //
-            // field names in the record are fully qualified - OR - the table name portion of the field name //
-            // matches the record's field name, then just use the field-name portion...                      //
-            ///////////////////////////////////////////////////////////////////////////////////////////////////
-            if(fieldName.contains("."))
-            {
-               String[]                  parts  = fieldName.split("\\.");
-               Map<String, Serializable> values = qRecord.getValues();
-               if(values.keySet().stream().noneMatch(n -> n.contains(".")) || parts[0].equals(qRecord.getTableName()))
-               {
-                  value = qRecord.getValue(parts[1]);
-               }
-            }
-         }
-
-         ///////////////////////////////////////////////////////////////////////////////////////////////
-         // Test if this criteria(on) matches the record.                                             //
-         // As criteria have become more sophisticated over time, we would like to be able to know    //
-         // what field they are for. In general, we'll try to get that from the query's JoinsContext. //
-         // But, in some scenarios, that isn't available - so - be safe and defer to simpler methods  //
-         // that might not have the full field, when necessary.                                       //
-         ///////////////////////////////////////////////////////////////////////////////////////////////
-         Boolean criterionMatches = null;
-         if(joinsContext != null)
-         {
-            JoinsContext.FieldAndTableNameOrAlias fieldAndTableNameOrAlias = null;
-            try
-            {
-               fieldAndTableNameOrAlias = joinsContext.getFieldAndTableNameOrAlias(criterion.getFieldName());
-            }
-            catch(Exception e)
-            {
-               LOG.debug("Exception getting field from joinsContext", e, logPair("fieldName", criterion.getFieldName()));
-            }
-
-            if(fieldAndTableNameOrAlias != null)
-            {
-               criterionMatches = doesCriteriaMatch(criterion, fieldAndTableNameOrAlias.field(), value);
-            }
-         }
-
-         if(criterionMatches == null)
-         {
-            criterionMatches = doesCriteriaMatch(criterion, criterion.getFieldName(), value);
-         }
-
-         ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-         // add this new value to the existing recordMatches value - and if we can short circuit the remaining checks, do so. //
-         ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-         Boolean shortCircuitValue = applyBooleanOperator(recordMatches, criterionMatches, filter.getBooleanOperator());
-         if(shortCircuitValue != null)
-         {
-            return (shortCircuitValue);
-         }
-      }
-
-      ////////////////////////////////////////
-      // apply sub-filters if there are any //
-      ////////////////////////////////////////
-      for(QQueryFilter subFilter : CollectionUtils.nonNullList(filter.getSubFilters()))
-      {
-         boolean subFilterMatches = doesRecordMatch(subFilter, qRecord);
-
-         ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-         // add this new value to the existing recordMatches value - and if we can short circuit the remaining checks, do so. //
-         ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
-         Boolean shortCircuitValue = applyBooleanOperator(recordMatches, subFilterMatches, filter.getBooleanOperator());
-         if(shortCircuitValue != null)
-         {
-            return (shortCircuitValue);
-         }
-      }
-
-      return (recordMatches.getPlain());
-   }
-
-
-
-   /***************************************************************************
-    **
-    ***************************************************************************/
-   public static boolean doesCriteriaMatch(QFilterCriteria criterion, String fieldName, Serializable value)
-   {
-      QFieldMetaData field = new QFieldMetaData(fieldName, ValueUtils.inferQFieldTypeFromValue(value, QFieldType.STRING));
-      return doesCriteriaMatch(criterion, field, value);
+      return (new CompiledQueryFilter(filter, joinsContext).test(qRecord));
    }
 
 
 
    /*******************************************************************************
-    **
+    ** Compile a filter into a predicate, for testing many records against it -
+    ** which is much faster than calling doesRecordMatch for each record.
     *******************************************************************************/
-   private static boolean doesCriteriaMatch(QFilterCriteria criterion, QFieldMetaData field, Serializable value)
+   public static Predicate<QRecord> compileFilter(QQueryFilter filter, JoinsContext joinsContext)
    {
-      String fieldName = field == null ? "__unknownField" : field.getName();
-
-      ListIterator<Serializable> valueListIterator = CollectionUtils.nonNullList(criterion.getValues()).listIterator();
-      while(valueListIterator.hasNext())
-      {
-         Serializable criteriaValue = valueListIterator.next();
-         if(criteriaValue instanceof AbstractFilterExpression<?> expression)
-         {
-            try
-            {
-               valueListIterator.set(expression.evaluate(field));
-            }
-            catch(QException qe)
-            {
-               LOG.warn("Unexpected exception caught evaluating expression", qe);
-            }
-         }
-      }
-
-      boolean criterionMatches = switch(criterion.getOperator())
-      {
-         case EQUALS -> testEquals(criterion, value);
-         case NOT_EQUALS -> !testEquals(criterion, value);
-         case NOT_EQUALS_OR_IS_NULL -> !testEquals(criterion, value) || testBlank(criterion, value);
-         case IN -> testIn(criterion, value);
-         case NOT_IN -> !testIn(criterion, value);
-         case IS_BLANK -> testBlank(criterion, value);
-         case IS_NOT_BLANK -> !testBlank(criterion, value);
-         case CONTAINS -> testContains(criterion, fieldName, value);
-         case NOT_CONTAINS -> !testContains(criterion, fieldName, value);
-         case IS_NULL_OR_IN -> testBlank(criterion, value) || testIn(criterion, value);
-         case LIKE -> testLike(criterion, fieldName, value);
-         case NOT_LIKE -> !testLike(criterion, fieldName, value);
-         case STARTS_WITH -> testStartsWith(criterion, fieldName, value);
-         case NOT_STARTS_WITH -> !testStartsWith(criterion, fieldName, value);
-         case ENDS_WITH -> testEndsWith(criterion, fieldName, value);
-         case NOT_ENDS_WITH -> !testEndsWith(criterion, fieldName, value);
-         case GREATER_THAN -> testGreaterThan(criterion, value);
-         case GREATER_THAN_OR_EQUALS -> testGreaterThan(criterion, value) || testEquals(criterion, value);
-         case LESS_THAN -> !testGreaterThan(criterion, value) && !testEquals(criterion, value);
-         case LESS_THAN_OR_EQUALS -> !testGreaterThan(criterion, value);
-         case BETWEEN ->
-         {
-            QFilterCriteria criteria0 = new QFilterCriteria().withValues(criterion.getValues());
-            QFilterCriteria criteria1 = new QFilterCriteria().withValues(new ArrayList<>(criterion.getValues()));
-            criteria1.getValues().remove(0);
-            yield (testGreaterThan(criteria0, value) || testEquals(criteria0, value)) && (!testGreaterThan(criteria1, value) || testEquals(criteria1, value));
-         }
-         case NOT_BETWEEN ->
-         {
-            QFilterCriteria criteria0 = new QFilterCriteria().withValues(criterion.getValues());
-            QFilterCriteria criteria1 = new QFilterCriteria().withValues(new ArrayList<>(criterion.getValues()));
-            criteria1.getValues().remove(0);
-            boolean between = (testGreaterThan(criteria0, value) || testEquals(criteria0, value)) && (!testGreaterThan(criteria1, value) || testEquals(criteria1, value));
-            yield !between;
-         }
-         case TRUE -> true;
-         case FALSE -> false;
-      };
-      return criterionMatches;
+      return (new CompiledQueryFilter(filter, joinsContext));
    }
 
 
 
-   /*******************************************************************************
+   /***************************************************************************
     **
-    *******************************************************************************/
-   private static boolean testLike(QFilterCriteria criterion, String fieldName, Serializable value)
+    ***************************************************************************/
+   public static boolean doesCriteriaMatch(QFilterCriteria criterion, String fieldName, Serializable value)
    {
-      String stringValue    = getStringFieldValue(value, fieldName, criterion);
-      String criterionValue = getFirstStringCriterionValue(criterion);
-
-      String regex = sqlLikeToRegex(criterionValue);
-
-      if(criterion.hasOption(CriteriaOption.CASE_INSENSITIVE))
-      {
-         return (stringValue.toLowerCase().matches(regex.toLowerCase()));
-      }
-
-      return (stringValue.matches(regex));
+      QFieldMetaData field = new QFieldMetaData(fieldName, ValueUtils.inferQFieldTypeFromValue(value, QFieldType.STRING));
+      return CompiledQueryFilter.doesCriteriaMatch(criterion, field, value);
    }
 
 
@@ -322,7 +152,7 @@ public class BackendQueryFilterUtils
    /*******************************************************************************
     **
     *******************************************************************************/
-   private static boolean testBlank(QFilterCriteria criterion, Serializable value)
+   static boolean testBlank(QFilterCriteria criterion, Serializable value)
    {
       if(value == null)
       {
@@ -342,7 +172,7 @@ public class BackendQueryFilterUtils
    /*******************************************************************************
     **
     *******************************************************************************/
-   private static boolean testGreaterThan(QFilterCriteria criterion, Serializable value)
+   static boolean testGreaterThan(QFilterCriteria criterion, Serializable value)
    {
       Serializable criterionValue = criterion.getValues().get(0);
       if(criterionValue == null)
@@ -430,46 +260,7 @@ public class BackendQueryFilterUtils
    /*******************************************************************************
     **
     *******************************************************************************/
-   private static boolean testIn(QFilterCriteria criterion, Serializable value)
-   {
-      if(CollectionUtils.nullSafeHasContents(criterion.getValues()))
-      {
-         if(criterion.getValues().get(0) instanceof String && value instanceof Number)
-         {
-            value = String.valueOf(value);
-         }
-      }
-
-      if(criterion.hasOption(CriteriaOption.CASE_INSENSITIVE))
-      {
-         if(CollectionUtils.nullSafeHasContents(criterion.getValues()))
-         {
-            if(criterion.getValues().get(0) instanceof String)
-            {
-               for(Serializable criterionValue : criterion.getValues())
-               {
-                  if(criterionValue instanceof String criterionValueString && value instanceof String valueString && criterionValueString.equalsIgnoreCase(valueString))
-                  {
-                     return (true);
-                  }
-               }
-            }
-         }
-      }
-
-      if(value == null || !criterion.getValues().contains(value))
-      {
-         return (false);
-      }
-      return (true);
-   }
-
-
-
-   /*******************************************************************************
-    **
-    *******************************************************************************/
-   private static boolean testEquals(QFilterCriteria criterion, Serializable value)
+   static boolean testEquals(QFilterCriteria criterion, Serializable value)
    {
       if(value == null)
       {
@@ -510,25 +301,24 @@ public class BackendQueryFilterUtils
    /*******************************************************************************
     **
     *******************************************************************************/
-   private static boolean testContains(QFilterCriteria criterion, String fieldName, Serializable value)
+   static String getFirstStringCriterionValue(QFilterCriteria criteria)
    {
-      String stringValue    = getStringFieldValue(value, fieldName, criterion);
-      String criterionValue = getFirstStringCriterionValue(criterion);
-
-      if(criterion.hasOption(CriteriaOption.CASE_INSENSITIVE))
+      if(CollectionUtils.nullSafeIsEmpty(criteria.getValues()))
       {
-         if(stringValue.toLowerCase().contains(criterionValue.toLowerCase()))
-         {
-            return (true);
-         }
+         throw new IllegalArgumentException("Missing value for [" + criteria.getOperator() + "] criteria on field [" + criteria.getFieldName() + "]");
+      }
+      Serializable value = criteria.getValues().get(0);
+      if(value == null)
+      {
+         return "";
       }
 
-      if(!stringValue.contains(criterionValue))
+      if(!(value instanceof String stringValue))
       {
-         return (false);
+         throw new ClassCastException("Value [" + value + "] for criteria [" + criteria.getFieldName() + "] is not a String, which is required for the [" + criteria.getOperator() + "] operator.");
       }
 
-      return (true);
+      return (stringValue);
    }
 
 
@@ -536,132 +326,103 @@ public class BackendQueryFilterUtils
    /*******************************************************************************
     **
     *******************************************************************************/
-   private static boolean testStartsWith(QFilterCriteria criterion, String fieldName, Serializable value)
+   static String getStringFieldValue(Serializable value, String fieldName, QFilterCriteria criterion)
    {
-      String stringValue    = getStringFieldValue(value, fieldName, criterion);
-      String criterionValue = getFirstStringCriterionValue(criterion);
-
-      if(criterion.hasOption(CriteriaOption.CASE_INSENSITIVE))
+      if(value == null)
       {
-         if(stringValue.toLowerCase().startsWith(criterionValue.toLowerCase()))
-         {
-            return (true);
-         }
+         return "";
       }
 
-      if(!stringValue.startsWith(criterionValue))
+      if(!(value instanceof String stringValue))
       {
-         return (false);
+         throw new ClassCastException("Value [" + value + "] in field [" + fieldName + "] is not a String, which is required for the [" + criterion.getOperator() + "] operator.");
       }
 
-      return (true);
+      return (stringValue);
    }
 
 
 
    /*******************************************************************************
-    **
+    ** Sort list of records based on filter.
     *******************************************************************************/
-   private static boolean testEndsWith(QFilterCriteria criterion, String fieldName, Serializable value)
+   public static void sortRecordList(QQueryFilter filter, List<QRecord> recordList)
    {
-      String stringValue    = getStringFieldValue(value, fieldName, criterion);
-      String criterionValue = getFirstStringCriterionValue(criterion);
-
-      if(criterion.hasOption(CriteriaOption.CASE_INSENSITIVE))
+      Comparator<QRecord> comparator = getOrderByComparator(filter);
+      if(comparator != null)
       {
-         if(stringValue.toLowerCase().endsWith(criterionValue.toLowerCase()))
-         {
-            return (true);
-         }
-      }
-
-      if(!stringValue.endsWith(criterionValue))
-      {
-         return (false);
+         recordList.sort(comparator);
       }
-
-      return (true);
    }
 
 
 
    /*******************************************************************************
-    **
+    ** Build a comparator for records, from a filter's order-bys - or return null
+    ** if the filter doesn't have any order-bys.
     *******************************************************************************/
-   private static String getFirstStringCriterionValue(QFilterCriteria criteria)
+   public static Comparator<QRecord> getOrderByComparator(QQueryFilter filter)
    {
-      if(CollectionUtils.nullSafeIsEmpty(criteria.getValues()))
-      {
-         throw new IllegalArgumentException("Missing value for [" + criteria.getOperator() + "] criteria on field [" + criteria.getFieldName() + "]");
-      }
-      Serializable value = criteria.getValues().get(0);
-      if(value == null)
+      if(filter == null || CollectionUtils.nullSafeIsEmpty(filter.getOrderBys()))
       {
-         return "";
+         return (null);
       }
 
-      if(!(value instanceof String stringValue))
+      Comparator<QRecord> comparator = null;
+      for(QFilterOrderBy orderBy : filter.getOrderBys())
       {
-         throw new ClassCastException("Value [" + value + "] for criteria [" + criteria.getFieldName() + "] is not a String, which is required for the [" + criteria.getOperator() + "] operator.");
+         String              fieldName         = orderBy.getFieldName();
+         Comparator<QRecord> orderByComparator = (a, b) -> compareValuesForSort(a.getValue(fieldName), b.getValue(fieldName));
+         if(!orderBy.getIsAscending())
+         {
+            orderByComparator = orderByComparator.reversed();
+         }
+
+         comparator = (comparator == null) ? orderByComparator : comparator.thenComparing(orderByComparator);
       }
 
-      return (stringValue);
+      return (comparator);
    }
 
 
 
    /*******************************************************************************
-    **
+    ** compare two values, for sorting in ascending order.  common cases of two
+    ** values of the same type are compared directly; anything else goes through
+    ** the (more lenient, but slower) isGreaterThan.
     *******************************************************************************/
-   private static String getStringFieldValue(Serializable value, String fieldName, QFilterCriteria criterion)
+   static int compareValuesForSort(Serializable a, Serializable b)
    {
-      if(value == null)
+      if(a instanceof String stringA && b instanceof String stringB)
       {
-         return "";
+         return (stringA.compareTo(stringB));
       }
-
-      if(!(value instanceof String stringValue))
+      else if(a instanceof Integer integerA && b instanceof Integer integerB)
       {
-         throw new ClassCastException("Value [" + value + "] in field [" + fieldName + "] is not a String, which is required for the [" + criterion.getOperator() + "] operator.");
+         return (integerA.compareTo(integerB));
       }
-
-      return (stringValue);
-   }
-
-
-
-   /*******************************************************************************
-    ** Sort list of records based on filter.
-    *******************************************************************************/
-   public static void sortRecordList(QQueryFilter filter, List<QRecord> recordList)
-   {
-      if(filter == null || CollectionUtils.nullSafeIsEmpty(filter.getOrderBys()))
+      else if(a instanceof Number numberA && b instanceof Number numberB)
       {
-         return;
+         return (Double.compare(numberA.doubleValue(), numberB.doubleValue()));
       }
-
-      recordList.sort((a, b) ->
+      else if(a instanceof LocalDate localDateA && b instanceof LocalDate localDateB)
       {
-         for(QFilterOrderBy orderBy : filter.getOrderBys())
-         {
-            Serializable valueA = a.getValue(orderBy.getFieldName());
-            Serializable valueB = b.getValue(orderBy.getFieldName());
-            if(Objects.equals(valueA, valueB))
-            {
-               continue;
-            }
-            else if(isGreaterThan(valueA, valueB))
-            {
-               return (orderBy.getIsAscending() ? -1 : 1);
-            }
-            else // Less Than
-            {
-               return (orderBy.getIsAscending() ? 1 : -1);
-            }
-         }
+         return (localDateA.compareTo(localDateB));
+      }
+      else if(a instanceof Instant instantA && b instanceof Instant instantB)
+      {
+         return (instantA.compareTo(instantB));
+      }
 
+      if(Objects.equals(a, b))
+      {
          return (0);
-      });
+      }
+
+      //////////////////////////////////////////////////////////////
+      // note, isGreaterThan(a, b) means b is greater (so a < b). //
+      //////////////////////////////////////////////////////////////
+      return (isGreaterThan(a, b) ? -1 : 1);
    }
 
 
@@ -0,0 +1,589 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.modules.backend.implementations.utils;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.CriteriaOption;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.JoinsContext;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.expressions.AbstractFilterExpression;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.ValueUtils;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** A QQueryFilter, "compiled" into a Predicate that can be efficiently tested
+ ** against many records - e.g., by backends that filter records in memory.
+ **
+ ** Anything that doesn't depend on the record being tested is worked out once,
+ ** instead of for every record: fields are looked up in the JoinsContext,
+ ** expression values (e.g., NOW) are evaluated, LIKE patterns are compiled to
+ ** regular expressions, IN lists are hashed, etc.  That per-criteria work is
+ ** done on the first call to test (rather than at construction), so any errors
+ ** it may raise (e.g., a missing criteria value) still come from testing a
+ ** record, as they always have.
+ **
+ ** Matching rules are exactly those of BackendQueryFilterUtils.doesRecordMatch
+ ** (which is now implemented by compiling a filter and testing one record).
+ **
+ ** Instances are safe to share across threads.
+ *******************************************************************************/
+public class CompiledQueryFilter implements Predicate<QRecord>
+{
+   private static final QLogger LOG = QLogger.getLogger(CompiledQueryFilter.class);
+
+   private final boolean                       matchesEverything;
+   private final QQueryFilter.BooleanOperator  booleanOperator;
+   private final List<Predicate<QRecord>>      criteria   = new ArrayList<>();
+   private final List<Predicate<QRecord>>      subFilters = new ArrayList<>();
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    ** @param filter the filter to compile - null or empty means to match all records.
+    ** @param joinsContext (optional) context from the query being executed, used
+    ** to find the fields that criteria are for.
+    *******************************************************************************/
+   public CompiledQueryFilter(QQueryFilter filter, JoinsContext joinsContext)
+   {
+      this.matchesEverything = (filter == null || !filter.hasAnyCriteria());
+      this.booleanOperator = matchesEverything ? QQueryFilter.BooleanOperator.AND : filter.getBooleanOperator();
+      if(matchesEverything)
+      {
+         return;
+      }
+
+      for(QFilterCriteria criterion : CollectionUtils.nonNullList(filter.getCriteria()))
+      {
+         if(QCriteriaOperator.TUPLE_IN.equals(criterion.getOperator()) && criterion.getTupleFieldNames() != null)
+         {
+            criteria.add(new CompiledTupleInCriterion(criterion, joinsContext));
+         }
+         else
+         {
+            criteria.add(new CompiledCriterion(criterion, findField(joinsContext, criterion.getFieldName())));
+         }
+      }
+
+      for(QQueryFilter subFilter : CollectionUtils.nonNullList(filter.getSubFilters()))
+      {
+         ////////////////////////////////////////////////////////////////////////////////
+         // note, sub-filters are (and historically have been) matched without a joins //
+         // context - so their fields are always inferred from the records' values.    //
+         ////////////////////////////////////////////////////////////////////////////////
+         subFilters.add(new CompiledQueryFilter(subFilter, null));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Test if a record matches the filter.
+    *******************************************************************************/
+   @Override
+   public boolean test(QRecord qRecord)
+   {
+      if(matchesEverything)
+      {
+         return (true);
+      }
+
+      //////////////////////////////////////////////////////////////////////////////
+      // for an AND filter, the first non-match is the answer (false); for an OR  //
+      // filter, the first match is (true).  if we get through all the criteria & //
+      // sub-filters without such a short-circuit, then AND is true and OR false. //
+      //////////////////////////////////////////////////////////////////////////////
+      boolean isAnd = booleanOperator.equals(QQueryFilter.BooleanOperator.AND);
+      for(Predicate<QRecord> criterion : criteria)
+      {
+         if(criterion.test(qRecord) != isAnd)
+         {
+            return (!isAnd);
+         }
+      }
+
+      for(Predicate<QRecord> subFilter : subFilters)
+      {
+         if(subFilter.test(qRecord) != isAnd)
+         {
+            return (!isAnd);
+         }
+      }
+
+      return (isAnd);
+   }
+
+
+
+   /*******************************************************************************
+    ** Test if a single value matches a single criteria.
+    **
+    ** @param field the field the value is from - if null, a field is inferred
+    ** from the value (which can matter for evaluating expressions in the criteria).
+    *******************************************************************************/
+   static boolean doesCriteriaMatch(QFilterCriteria criterion, QFieldMetaData field, Serializable value)
+   {
+      return (new CompiledCriterion(criterion, field).testValue(value));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static QFieldMetaData findField(JoinsContext joinsContext, String fieldName)
+   {
+      if(joinsContext == null)
+      {
+         return (null);
+      }
+
+      try
+      {
+         JoinsContext.FieldAndTableNameOrAlias fieldAndTableNameOrAlias = joinsContext.getFieldAndTableNameOrAlias(fieldName);
+         return (fieldAndTableNameOrAlias == null ? null : fieldAndTableNameOrAlias.field());
+      }
+      catch(Exception e)
+      {
+         LOG.debug("Exception getting field from joinsContext", e, logPair("fieldName", fieldName));
+         return (null);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** get a criteria field's value out of a record.
+    **
+    ** @param fieldNameParts the field name split on "." - or null if it has no dot.
+    *******************************************************************************/
+   private static Serializable getRecordValue(QRecord qRecord, String fieldName, String[] fieldNameParts)
+   {
+      Serializable value = qRecord.getValue(fieldName);
+      if(value == null && fieldNameParts != null)
+      {
+         ///////////////////////////////////////////////////////////////////////////////////////////////////
+         // if the value isn't in the record - check, if it looks like a table.fieldName, but none of the //
+         // field names in the record are fully qualified - OR - the table name portion of the field name //
+         // matches the record's field name, then just use the field-name portion...                      //
+         ///////////////////////////////////////////////////////////////////////////////////////////////////
+         Map<String, Serializable> values = qRecord.getValues();
+         if(fieldNameParts[0].equals(qRecord.getTableName()) || values.keySet().stream().noneMatch(n -> n.contains(".")))
+         {
+            value = qRecord.getValue(fieldNameParts[1]);
+         }
+      }
+      return (value);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static String[] splitFieldName(String fieldName)
+   {
+      return ((fieldName != null && fieldName.contains(".")) ? fieldName.split("\\.") : null);
+   }
+
+
+
+   /***************************************************************************
+    ** one criteria from the filter - knows how to get its value out of a
+    ** record, and, once resolved, how to test that value.
+    ***************************************************************************/
+   private static class CompiledCriterion implements Predicate<QRecord>
+   {
+      private final QFilterCriteria criterion;
+      private final QFieldMetaData  field;
+      private final String          fieldName;
+      private final String[]        fieldNameParts;
+
+      private volatile Predicate<Serializable> valueTester;
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      CompiledCriterion(QFilterCriteria criterion, QFieldMetaData field)
+      {
+         this.criterion = criterion;
+         this.field = field;
+         this.fieldName = criterion.getFieldName();
+         this.fieldNameParts = splitFieldName(fieldName);
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public boolean test(QRecord qRecord)
+      {
+         return (testValue(getRecordValue(qRecord, fieldName, fieldNameParts)));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      boolean testValue(Serializable value)
+      {
+         Predicate<Serializable> tester = valueTester;
+         if(tester == null)
+         {
+            //////////////////////////////////////////////////////////////////////////////
+            // without a known field, infer one from the (first) value - which is what  //
+            // any expressions in the criteria get evaluated against.  racing threads   //
+            // may each build a tester here, but they're equivalent, so last one wins.  //
+            //////////////////////////////////////////////////////////////////////////////
+            QFieldMetaData fieldForResolving = field != null ? field : new QFieldMetaData(fieldName, ValueUtils.inferQFieldTypeFromValue(value, QFieldType.STRING));
+            tester = buildValueTester(fieldForResolving);
+            valueTester = tester;
+         }
+         return (tester.test(value));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      private Predicate<Serializable> buildValueTester(QFieldMetaData field)
+      {
+         String          testFieldName = field == null ? "__unknownField" : field.getName();
+         QFilterCriteria resolved      = resolveExpressions(field);
+
+         return switch(criterion.getOperator())
+         {
+            case EQUALS -> value -> BackendQueryFilterUtils.testEquals(resolved, value);
+            case NOT_EQUALS -> value -> !BackendQueryFilterUtils.testEquals(resolved, value);
+            case NOT_EQUALS_OR_IS_NULL -> value -> !BackendQueryFilterUtils.testEquals(resolved, value) || BackendQueryFilterUtils.testBlank(resolved, value);
+            case IN -> buildInTester(resolved);
+            case NOT_IN -> buildInTester(resolved).negate();
+            case IS_NULL_OR_IN ->
+            {
+               Predicate<Serializable> in = buildInTester(resolved);
+               yield (value -> BackendQueryFilterUtils.testBlank(resolved, value) || in.test(value));
+            }
+            case IS_BLANK -> value -> BackendQueryFilterUtils.testBlank(resolved, value);
+            case IS_NOT_BLANK -> value -> !BackendQueryFilterUtils.testBlank(resolved, value);
+            case CONTAINS -> buildStringTester(resolved, testFieldName, String::contains);
+            case NOT_CONTAINS -> buildStringTester(resolved, testFieldName, String::contains).negate();
+            case STARTS_WITH -> buildStringTester(resolved, testFieldName, String::startsWith);
+            case NOT_STARTS_WITH -> buildStringTester(resolved, testFieldName, String::startsWith).negate();
+            case ENDS_WITH -> buildStringTester(resolved, testFieldName, String::endsWith);
+            case NOT_ENDS_WITH -> buildStringTester(resolved, testFieldName, String::endsWith).negate();
+            case LIKE -> buildLikeTester(resolved, testFieldName);
+            case NOT_LIKE -> buildLikeTester(resolved, testFieldName).negate();
+            case GREATER_THAN -> value -> BackendQueryFilterUtils.testGreaterThan(resolved, value);
+            case GREATER_THAN_OR_EQUALS -> value -> BackendQueryFilterUtils.testGreaterThan(resolved, value) || BackendQueryFilterUtils.testEquals(resolved, value);
+            case LESS_THAN -> value -> !BackendQueryFilterUtils.testGreaterThan(resolved, value) && !BackendQueryFilterUtils.testEquals(resolved, value);
+            case LESS_THAN_OR_EQUALS -> value -> !BackendQueryFilterUtils.testGreaterThan(resolved, value);
+            case BETWEEN -> buildBetweenTester(resolved);
+            case NOT_BETWEEN -> buildBetweenTester(resolved).negate();
+            case TRUE -> value -> true;
+            case FALSE -> value -> false;
+            case TUPLE_IN -> throw (new IllegalArgumentException("A TUPLE_IN criteria can only be tested against a whole record, not a single value"));
+         };
+      }
+
+
+
+      /***************************************************************************
+       ** make a copy of the criteria, with any expression values evaluated.
+       ***************************************************************************/
+      private QFilterCriteria resolveExpressions(QFieldMetaData field)
+      {
+         QFilterCriteria resolved = criterion.clone();
+         if(resolved.getValues() == null)
+         {
+            resolved.setValues(new ArrayList<>());
+         }
+
+         ListIterator<Serializable> valueListIterator = resolved.getValues().listIterator();
+         while(valueListIterator.hasNext())
+         {
+            Serializable criteriaValue = valueListIterator.next();
+            if(criteriaValue instanceof AbstractFilterExpression<?> expression)
+            {
+               try
+               {
+                  valueListIterator.set(expression.evaluate(field));
+               }
+               catch(QException qe)
+               {
+                  LOG.warn("Unexpected exception caught evaluating expression", qe);
+               }
+            }
+         }
+
+         return (resolved);
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      private static Predicate<Serializable> buildInTester(QFilterCriteria resolved)
+      {
+         List<Serializable> criteriaValues  = resolved.getValues();
+         boolean            firstIsString   = !criteriaValues.isEmpty() && criteriaValues.get(0) instanceof String;
+         boolean            caseInsensitive = firstIsString && resolved.hasOption(CriteriaOption.CASE_INSENSITIVE);
+         Set<Serializable>  valueSet        = new HashSet<>(criteriaValues);
+
+         return (value ->
+         {
+            if(firstIsString && value instanceof Number)
+            {
+               value = String.valueOf(value);
+            }
+
+            if(caseInsensitive && value instanceof String valueString)
+            {
+               for(Serializable criteriaValue : criteriaValues)
+               {
+                  if(criteriaValue instanceof String criteriaValueString && criteriaValueString.equalsIgnoreCase(valueString))
+                  {
+                     return (true);
+                  }
+               }
+            }
+
+            return (value != null && valueSet.contains(value));
+         });
+      }
+
+
+
+      /***************************************************************************
+       ** for CONTAINS, STARTS_WITH, ENDS_WITH
+       ***************************************************************************/
+      private static Predicate<Serializable> buildStringTester(QFilterCriteria resolved, String fieldName, StringMatcher matcher)
+      {
+         String  criteriaValue          = BackendQueryFilterUtils.getFirstStringCriterionValue(resolved);
+         String  lowerCaseCriteriaValue = criteriaValue.toLowerCase();
+         boolean caseInsensitive        = resolved.hasOption(CriteriaOption.CASE_INSENSITIVE);
+
+         return (value ->
+         {
+            String stringValue = BackendQueryFilterUtils.getStringFieldValue(value, fieldName, resolved);
+            if(caseInsensitive && matcher.matches(stringValue.toLowerCase(), lowerCaseCriteriaValue))
+            {
+               return (true);
+            }
+            return (matcher.matches(stringValue, criteriaValue));
+         });
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      private static Predicate<Serializable> buildLikeTester(QFilterCriteria resolved, String fieldName)
+      {
+         String  regex           = BackendQueryFilterUtils.sqlLikeToRegex(BackendQueryFilterUtils.getFirstStringCriterionValue(resolved));
+         boolean caseInsensitive = resolved.hasOption(CriteriaOption.CASE_INSENSITIVE);
+         Pattern pattern         = Pattern.compile(caseInsensitive ? regex.toLowerCase() : regex);
+
+         return (value ->
+         {
+            String stringValue = BackendQueryFilterUtils.getStringFieldValue(value, fieldName, resolved);
+            return (pattern.matcher(caseInsensitive ? stringValue.toLowerCase() : stringValue).matches());
+         });
+      }
+
+
+
+      /***************************************************************************
+       ** note - the bounds are compared without the criteria's options (e.g.,
+       ** case-insensitivity), as they always have been.
+       ***************************************************************************/
+      private static Predicate<Serializable> buildBetweenTester(QFilterCriteria resolved)
+      {
+         QFilterCriteria lowerBound = new QFilterCriteria().withValues(resolved.getValues());
+         QFilterCriteria upperBound = new QFilterCriteria().withValues(new ArrayList<>(resolved.getValues()));
+         upperBound.getValues().remove(0);
+
+         return (value -> (BackendQueryFilterUtils.testGreaterThan(lowerBound, value) || BackendQueryFilterUtils.testEquals(lowerBound, value))
+            && (!BackendQueryFilterUtils.testGreaterThan(upperBound, value) || BackendQueryFilterUtils.testEquals(upperBound, value)));
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** a TUPLE_IN criteria - its tuples are hashed once, with each value converted
+    ** to its field's type (where the field is known), so testing a record is one
+    ** set lookup.  As in SQL, tuples (or records) with a null value never match.
+    ***************************************************************************/
+   private static class CompiledTupleInCriterion implements Predicate<QRecord>
+   {
+      private final List<String>         fieldNames;
+      private final List<String[]>       fieldNamesParts = new ArrayList<>();
+      private final List<QFieldMetaData> fields          = new ArrayList<>();
+      private final boolean[]            stringPositions;
+
+      private final Set<List<Serializable>> tuples = new HashSet<>();
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      CompiledTupleInCriterion(QFilterCriteria criterion, JoinsContext joinsContext)
+      {
+         this.fieldNames = criterion.getTupleFieldNames();
+         for(String fieldName : fieldNames)
+         {
+            fieldNamesParts.add(splitFieldName(fieldName));
+            fields.add(findField(joinsContext, fieldName));
+         }
+
+         ////////////////////////////////////////////////////////////////////////////
+         // as in an IN, where a field is unknown, numbers in records are compared //
+         // as strings, if the criteria's (first) value at that position is one.   //
+         ////////////////////////////////////////////////////////////////////////////
+         stringPositions = new boolean[fieldNames.size()];
+         List<Serializable> criteriaValues = CollectionUtils.nonNullList(criterion.getValues());
+         if(!criteriaValues.isEmpty() && criteriaValues.get(0) instanceof List<?> firstTuple)
+         {
+            for(int i = 0; i < stringPositions.length && i < firstTuple.size(); i++)
+            {
+               stringPositions[i] = fields.get(i) == null && firstTuple.get(i) instanceof String;
+            }
+         }
+
+         for(Serializable criteriaValue : criteriaValues)
+         {
+            if(criteriaValue instanceof List<?> tuple && tuple.size() == fieldNames.size())
+            {
+               List<Serializable> normalized = new ArrayList<>(tuple.size());
+               for(int i = 0; i < tuple.size(); i++)
+               {
+                  normalized.add(normalize(i, (Serializable) tuple.get(i)));
+               }
+
+               if(!normalized.contains(null))
+               {
+                  tuples.add(normalized);
+               }
+            }
+         }
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public boolean test(QRecord qRecord)
+      {
+         List<Serializable> recordTuple = new ArrayList<>(fieldNames.size());
+         for(int i = 0; i < fieldNames.size(); i++)
+         {
+            Serializable value = normalize(i, getRecordValue(qRecord, fieldNames.get(i), fieldNamesParts.get(i)));
+            if(value == null)
+            {
+               return (false);
+            }
+            recordTuple.add(value);
+         }
+
+         return (tuples.contains(recordTuple));
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      private Serializable normalize(int position, Serializable value)
+      {
+         if(value == null)
+         {
+            return (null);
+         }
+
+         QFieldMetaData field = fields.get(position);
+         if(field != null)
+         {
+            try
+            {
+               return (ValueUtils.getValueAsFieldType(field.getType(), value));
+            }
+            catch(Exception e)
+            {
+               return (value);
+            }
+         }
+
+         if(stringPositions[position] && value instanceof Number)
+         {
+            return (String.valueOf(value));
+         }
+
+         return (value);
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** e.g., String::contains
+    ***************************************************************************/
+   @FunctionalInterface
+   private interface StringMatcher
+   {
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      boolean matches(String value, String criteriaValue);
+   }
+
+}
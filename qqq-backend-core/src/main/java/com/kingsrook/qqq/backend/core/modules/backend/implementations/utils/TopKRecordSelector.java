@@ -0,0 +1,190 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.modules.backend.implementations.utils;
+
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+
+
+/*******************************************************************************
+ ** Collects the records for a query that's being filtered in memory, and gives
+ ** back the ones the query's skip, limit and order-bys call for - the same list
+ ** that sortRecordList followed by applySkipAndLimit would produce.
+ **
+ ** But, if the filter has a limit, then instead of holding (and fully sorting)
+ ** every record that's added, only the best (skip + limit) records seen so far
+ ** are kept (in a bounded heap), so other records can be garbage collected right
+ ** away, and the work is O(n log k) rather than O(n log n).  And if the filter
+ ** has a limit but no order-bys, then as soon as enough records have been added,
+ ** isSatisfied() tells the caller it can stop producing records.
+ **
+ ** Records that compare as equal keep the order in which they were added (just
+ ** like the stable sort in sortRecordList).
+ *******************************************************************************/
+public class TopKRecordSelector
+{
+   private final QQueryFilter        filter;
+   private final Comparator<QRecord> comparator;
+   private final Integer             capacity;
+
+   private final List<QRecord>            records;
+   private final PriorityQueue<Candidate> heap;
+   private long                           sequence = 0;
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   public TopKRecordSelector(QQueryFilter filter)
+   {
+      this.filter = filter;
+      this.comparator = BackendQueryFilterUtils.getOrderByComparator(filter);
+      this.capacity = getCapacity(filter);
+
+      if(comparator != null && capacity != null)
+      {
+         /////////////////////////////////////////////////////////////////////////////
+         // worst candidate at the head of the heap - that is, the one that sorts   //
+         // last, or, among equals, the one that was added last (to keep stability) //
+         /////////////////////////////////////////////////////////////////////////////
+         Comparator<Candidate> candidateComparator = Comparator.<Candidate, QRecord>comparing(c -> c.record(), comparator).thenComparingLong(Candidate::sequence);
+         this.heap = new PriorityQueue<>(Math.min(capacity, 1024) + 1, candidateComparator.reversed());
+         this.records = null;
+      }
+      else
+      {
+         this.heap = null;
+         this.records = new ArrayList<>();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** the number of records that need to be kept to produce the output - e.g., skip
+    ** plus limit - or null if all records need to be kept (no limit).
+    *******************************************************************************/
+   private static Integer getCapacity(QQueryFilter filter)
+   {
+      if(filter == null || filter.getLimit() == null || filter.getLimit() < 0)
+      {
+         return (null);
+      }
+
+      long skip     = (filter.getSkip() == null || filter.getSkip() < 0) ? 0 : filter.getSkip();
+      long capacity = skip + filter.getLimit();
+      return (capacity > Integer.MAX_VALUE - 8 ? null : (int) capacity);
+   }
+
+
+
+   /*******************************************************************************
+    ** Add a record - which will either be kept as a candidate for the output, or,
+    ** if it can't be in the output, dropped.
+    *******************************************************************************/
+   public void add(QRecord record)
+   {
+      if(heap != null)
+      {
+         if(capacity == 0)
+         {
+            return;
+         }
+
+         Candidate candidate = new Candidate(record, sequence++);
+         if(heap.size() < capacity)
+         {
+            heap.add(candidate);
+         }
+         else if(heap.comparator().compare(candidate, heap.peek()) > 0)
+         {
+            ///////////////////////////////////////////////////////////////////////////
+            // the heap is ordered worst-first; so "greater" in its comparator means //
+            // this record sorts before the current worst candidate - swap them.     //
+            ///////////////////////////////////////////////////////////////////////////
+            heap.poll();
+            heap.add(candidate);
+         }
+      }
+      else if(!isSatisfied())
+      {
+         records.add(record);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if no more records can change the output - which is only the case
+    ** when there's a limit and no order-bys, and enough records have been added
+    ** to fill it.  Callers can use this to stop producing records.
+    *******************************************************************************/
+   public boolean isSatisfied()
+   {
+      return (heap == null && capacity != null && records.size() >= capacity);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the output records - in order, with skip and limit applied.
+    *******************************************************************************/
+   public List<QRecord> getRecords()
+   {
+      if(heap != null)
+      {
+         List<Candidate> candidates = new ArrayList<>(heap);
+         candidates.sort(heap.comparator().reversed());
+
+         List<QRecord> sortedRecords = new ArrayList<>(candidates.size());
+         for(Candidate candidate : candidates)
+         {
+            sortedRecords.add(candidate.record());
+         }
+         return (BackendQueryFilterUtils.applySkipAndLimit(filter, sortedRecords));
+      }
+
+      if(comparator != null)
+      {
+         records.sort(comparator);
+      }
+      return (BackendQueryFilterUtils.applySkipAndLimit(filter, records));
+   }
+
+
+
+   /***************************************************************************
+    ** a record in the heap, with the sequence number it was added with.
+    ***************************************************************************/
+   private record Candidate(QRecord record, long sequence)
+   {
+   }
+
+}
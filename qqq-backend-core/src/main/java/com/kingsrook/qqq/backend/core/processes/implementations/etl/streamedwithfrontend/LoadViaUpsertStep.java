@@ -0,0 +1,106 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwithfrontend;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import com.kingsrook.qqq.backend.core.actions.tables.UpsertAction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepInput;
+import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+
+
+/*******************************************************************************
+ ** Generic implementation of a LoadStep - that runs an Upsert action for the
+ ** destination table, for records without a primary key (and, same as its
+ ** parent class, an Update action for records that have one).  So, a transform
+ ** step doesn't need to query the destination table to find out which records
+ ** already exist - the backend works that out, by the upsert's unique key.
+ **
+ ** The unique key comes from the (comma-separated) upsertKeyFields process
+ ** value, if set - else, the destination table's first unique key.
+ *******************************************************************************/
+public class LoadViaUpsertStep extends LoadViaInsertOrUpdateStep
+{
+   public static final String FIELD_UPSERT_KEY_FIELDS = "upsertKeyFields";
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public void insertAndUpdateRecords(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput) throws QException
+   {
+      QTableMetaData tableMetaData = QContext.getQInstance().getTable(runBackendStepInput.getValueString(FIELD_DESTINATION_TABLE));
+
+      if(CollectionUtils.nullSafeHasContents(recordsToInsert))
+      {
+         UpsertInput upsertInput = new UpsertInput();
+         upsertInput.setInputSource(getInputSource());
+         upsertInput.setTableName(tableMetaData.getName());
+         upsertInput.setRecords(recordsToInsert);
+         upsertInput.setKey(getUpsertKey(runBackendStepInput, tableMetaData));
+         getTransaction().ifPresent(upsertInput::setTransaction);
+         upsertInput.setAsyncJobCallback(runBackendStepInput.getAsyncJobCallback());
+
+         UpsertOutput upsertOutput = new UpsertAction().execute(upsertInput);
+         runBackendStepOutput.getRecords().addAll(upsertOutput.getRecords());
+      }
+
+      //////////////////////////////////////////////////////////////////
+      // let the parent do the updates (only) - for records that were //
+      // already known to exist (e.g., had their primary key set)     //
+      //////////////////////////////////////////////////////////////////
+      recordsToInsert = new ArrayList<>();
+      super.insertAndUpdateRecords(runBackendStepInput, runBackendStepOutput);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   protected UniqueKey getUpsertKey(RunBackendStepInput runBackendStepInput, QTableMetaData tableMetaData) throws QException
+   {
+      String keyFields = runBackendStepInput.getValueString(FIELD_UPSERT_KEY_FIELDS);
+      if(StringUtils.hasContent(keyFields))
+      {
+         return (new UniqueKey(Arrays.stream(keyFields.split(",")).map(String::trim).toList()));
+      }
+
+      if(CollectionUtils.nullSafeHasContents(tableMetaData.getUniqueKeys()))
+      {
+         return (tableMetaData.getUniqueKeys().get(0));
+      }
+
+      throw (new QException("No upsert key fields were given, and table " + tableMetaData.getName() + " does not have a unique key."));
+   }
+}
@@ -0,0 +1,481 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwithfrontend;
+
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import com.kingsrook.qqq.backend.core.context.CapturedContext;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepInput;
+import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeConsumer;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Runs the transform step of a streamed ETL process on several worker threads,
+ ** with the load stage pipelined behind them, on the calling thread - used by
+ ** StreamedETLExecuteStep when its transformWorkers input is more than 1.
+ **
+ ** Each worker uses its own instance of the transform step, so their state
+ ** (e.g., process summary lines) is never shared between threads - see
+ ** ProcessSummaryProviderInterface.mergeProcessSummaries for combining them.
+ ** Each page is also transformed with its own copy of the process's values -
+ ** and, before the page is loaded (on the calling thread), the values that its
+ ** transform changed are merged back into the process's values:  for numbers,
+ ** by adding the change (so read-modify-write counters, e.g., "records loaded
+ ** so far", add up right) - else, the value from the page replaces the
+ ** process's.  The copy is shallow, so transforms must not mutate objects held
+ ** in the values in place (e.g., adding to a list).
+ ** Pages given to submitPage are transformed by whichever worker is free, and
+ ** passed to the loader (always on the calling thread) either in the order they
+ ** were submitted (if preserveLoadOrder), or in the order their transforms
+ ** finish.  At most 2 pages per worker are in flight, so when the transforms or
+ ** the load can't keep up, submitPage blocks - which back-pressures the pipe.
+ **
+ ** Workers run with the caller's QInstance and QSession, but not its backend
+ ** transaction - the load stage is the only user of that.
+ *******************************************************************************/
+public class ParallelTransformPipeline implements AutoCloseable
+{
+   private static final QLogger LOG = QLogger.getLogger(ParallelTransformPipeline.class);
+
+   private final RunBackendStepInput                         runBackendStepInput;
+   private final RunBackendStepOutput                        runBackendStepOutput;
+   private final UnsafeConsumer<TransformedPage, QException> loader;
+   private final boolean                                     preserveLoadOrder;
+   private final int                                         noOfWorkers;
+   private final int                                         maxPagesInFlight;
+
+   private final BlockingQueue<AbstractTransformStep> idleTransformSteps = new LinkedBlockingQueue<>();
+   private final ExecutorService                      executorService;
+   private final CompletionService<TransformedPage>   completionService;
+   private final Deque<Future<TransformedPage>>       pagesInFlight      = new ArrayDeque<>();
+   private final CapturedContext                      capturedContext;
+
+   /////////////////////////////////////////////////////////////////////
+   // per-stage metrics.  transform nanos are summed over all workers //
+   /////////////////////////////////////////////////////////////////////
+   private final long       startNanos               = System.nanoTime();
+   private final AtomicLong transformedRecords       = new AtomicLong();
+   private final AtomicLong transformNanos           = new AtomicLong();
+   private long             loadedRecords            = 0;
+   private long             loadNanos                = 0;
+   private long             waitingOnTransformsNanos = 0;
+   private long             finishedNanos            = 0;
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    ** @param transformSteps one instance per worker - each must already have had
+    ** its preRun called.
+    ** @param loader called (on this object's calling thread) for each transformed
+    ** page.
+    *******************************************************************************/
+   public ParallelTransformPipeline(List<AbstractTransformStep> transformSteps, boolean preserveLoadOrder, RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput, UnsafeConsumer<TransformedPage, QException> loader)
+   {
+      this.runBackendStepInput = runBackendStepInput;
+      this.runBackendStepOutput = runBackendStepOutput;
+      this.loader = loader;
+      this.preserveLoadOrder = preserveLoadOrder;
+      this.noOfWorkers = transformSteps.size();
+      this.maxPagesInFlight = 2 * noOfWorkers;
+
+      this.idleTransformSteps.addAll(transformSteps);
+      this.executorService = Executors.newFixedThreadPool(noOfWorkers, new PrefixedDefaultThreadFactory(ParallelTransformPipeline.class));
+      this.completionService = new ExecutorCompletionService<>(executorService);
+      this.capturedContext = new CapturedContext(QContext.getQInstance(), QContext.getQSession());
+   }
+
+
+
+   /*******************************************************************************
+    ** Queue a page of records to be transformed - loading any pages whose
+    ** transforms are done along the way, and first waiting for (and loading) the
+    ** next page, if the maximum number are in flight.
+    **
+    ** @return the number of records in the page.
+    *******************************************************************************/
+   public int submitPage(List<QRecord> records) throws QException
+   {
+      while(pagesInFlight.size() >= maxPagesInFlight)
+      {
+         loadNextPage(true);
+      }
+
+      ///////////////////////////////////////////////////////////////////////
+      // snapshot the process's values here, on the calling thread - where //
+      // pages' changes are merged back - so workers never read the map    //
+      // while it's being written.                                         //
+      ///////////////////////////////////////////////////////////////////////
+      Map<String, Serializable> valuesBeforeTransform = new HashMap<>(runBackendStepOutput.getValues());
+
+      Future<TransformedPage> future;
+      if(preserveLoadOrder)
+      {
+         future = executorService.submit(() -> transformPage(records, valuesBeforeTransform));
+      }
+      else
+      {
+         future = completionService.submit(() -> transformPage(records, valuesBeforeTransform));
+      }
+      pagesInFlight.add(future);
+
+      while(!pagesInFlight.isEmpty() && loadNextPage(false))
+      {
+         /////////////////////////////////////////////////////////////////////
+         // noop - load as many pages as are done, without waiting for more //
+         /////////////////////////////////////////////////////////////////////
+      }
+
+      return (records.size());
+   }
+
+
+
+   /*******************************************************************************
+    ** Wait for all pages in flight to be transformed and loaded.
+    *******************************************************************************/
+   public void finish() throws QException
+   {
+      while(!pagesInFlight.isEmpty())
+      {
+         loadNextPage(true);
+      }
+
+      finishedNanos = System.nanoTime();
+   }
+
+
+
+   /*******************************************************************************
+    ** Stop the workers - cancelling any pages still in flight (e.g., after an
+    ** error).
+    *******************************************************************************/
+   @Override
+   public void close()
+   {
+      for(Future<TransformedPage> future : pagesInFlight)
+      {
+         future.cancel(true);
+      }
+      pagesInFlight.clear();
+      executorService.shutdownNow();
+   }
+
+
+
+   /*******************************************************************************
+    ** run one page through a transform step - on a worker thread, with its own
+    ** copy of the process's values.
+    *******************************************************************************/
+   private TransformedPage transformPage(List<QRecord> records, Map<String, Serializable> valuesBeforeTransform) throws Exception
+   {
+      AbstractTransformStep transformStep = idleTransformSteps.take();
+      long                  start         = System.nanoTime();
+      try
+      {
+         QContext.init(capturedContext);
+
+         Map<String, Serializable> pageValues                = new HashMap<>(valuesBeforeTransform);
+         StreamedBackendStepInput  streamedBackendStepInput  = new StreamedBackendStepInput(runBackendStepInput, records);
+         StreamedBackendStepOutput streamedBackendStepOutput = new StreamedBackendStepOutput(runBackendStepOutput);
+         streamedBackendStepInput.setValues(pageValues);
+         streamedBackendStepOutput.setValues(pageValues);
+         transformStep.runOnePage(streamedBackendStepInput, streamedBackendStepOutput);
+
+         transformedRecords.addAndGet(records.size());
+         return (new TransformedPage(records, streamedBackendStepOutput, valuesBeforeTransform));
+      }
+      finally
+      {
+         transformNanos.addAndGet(System.nanoTime() - start);
+         QContext.clear();
+         idleTransformSteps.add(transformStep);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** load the next transformed page - either the oldest one in flight (if
+    ** preserving order), else any one that's done.
+    **
+    ** @param wait if false, only load a page if its transform is already done.
+    ** @return whether a page was loaded.
+    *******************************************************************************/
+   private boolean loadNextPage(boolean wait) throws QException
+   {
+      Future<TransformedPage> future;
+      long                    waitStart = System.nanoTime();
+      try
+      {
+         if(preserveLoadOrder)
+         {
+            if(!wait && !pagesInFlight.peekFirst().isDone())
+            {
+               return (false);
+            }
+            future = pagesInFlight.removeFirst();
+         }
+         else
+         {
+            future = wait ? completionService.take() : completionService.poll();
+            if(future == null)
+            {
+               return (false);
+            }
+            pagesInFlight.remove(future);
+         }
+
+         TransformedPage transformedPage = future.get();
+         waitingOnTransformsNanos += System.nanoTime() - waitStart;
+
+         long loadStart = System.nanoTime();
+         mergeValuesFromTransform(transformedPage);
+         loader.run(transformedPage);
+         loadNanos += System.nanoTime() - loadStart;
+         loadedRecords += transformedPage.inputRecords().size();
+         return (true);
+      }
+      catch(InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw (new QException("Interrupted waiting for records to be transformed", e));
+      }
+      catch(ExecutionException e)
+      {
+         if(e.getCause() instanceof QException qException)
+         {
+            throw (qException);
+         }
+         throw (new QException("Error transforming records", e.getCause()));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** merge the values that a page's transform changed back into the process's
+    ** values - on the calling thread.
+    *******************************************************************************/
+   private void mergeValuesFromTransform(TransformedPage transformedPage)
+   {
+      Map<String, Serializable> processValues         = runBackendStepOutput.getValues();
+      Map<String, Serializable> valuesBeforeTransform = transformedPage.valuesBeforeTransform();
+      Map<String, Serializable> valuesAfterTransform  = transformedPage.transformOutput().getValues();
+
+      for(Map.Entry<String, Serializable> entry : valuesAfterTransform.entrySet())
+      {
+         String       fieldName   = entry.getKey();
+         Serializable valueBefore = valuesBeforeTransform.get(fieldName);
+         if(valuesBeforeTransform.containsKey(fieldName) && Objects.equals(valueBefore, entry.getValue()))
+         {
+            continue;
+         }
+
+         processValues.put(fieldName, mergeValue(processValues.get(fieldName), valueBefore, entry.getValue()));
+      }
+
+      for(String fieldName : valuesBeforeTransform.keySet())
+      {
+         if(!valuesAfterTransform.containsKey(fieldName))
+         {
+            processValues.remove(fieldName);
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** merge one value that a transform changed from valueBefore to valueAfter,
+    ** into the process's current value - adding the change, for numbers of the
+    ** same type - else, taking the transform's value.
+    **
+    ** A counter that transforms create as they go (e.g., from a null, to 0 plus
+    ** the page's count) isn't in the values of pages submitted before the first
+    ** of them is merged - so a null (or absent) valueBefore counts as 0, as
+    ** does a null currentValue, in that case.
+    *******************************************************************************/
+   static Serializable mergeValue(Serializable currentValue, Serializable valueBefore, Serializable valueAfter)
+   {
+      if(valueBefore == null)
+      {
+         valueBefore = getZeroOfSameType(valueAfter);
+         if(currentValue == null)
+         {
+            currentValue = valueBefore;
+         }
+      }
+
+      if(currentValue instanceof Integer current && valueBefore instanceof Integer before && valueAfter instanceof Integer after)
+      {
+         return (current + (after - before));
+      }
+      else if(currentValue instanceof Long current && valueBefore instanceof Long before && valueAfter instanceof Long after)
+      {
+         return (current + (after - before));
+      }
+      else if(currentValue instanceof BigDecimal current && valueBefore instanceof BigDecimal before && valueAfter instanceof BigDecimal after)
+      {
+         return (current.add(after.subtract(before)));
+      }
+
+      return (valueAfter);
+   }
+
+
+
+   /*******************************************************************************
+    ** zero, as the same type of number as the value - or null, if it isn't one
+    ** of the types that mergeValue adds.
+    *******************************************************************************/
+   private static Serializable getZeroOfSameType(Serializable value)
+   {
+      if(value instanceof Integer)
+      {
+         return (0);
+      }
+      else if(value instanceof Long)
+      {
+         return (0L);
+      }
+      else if(value instanceof BigDecimal)
+      {
+         return (BigDecimal.ZERO);
+      }
+      return (null);
+   }
+
+
+
+   /*******************************************************************************
+    ** log throughput metrics for the transform and load stages.
+    *******************************************************************************/
+   public void logMetrics(String processName)
+   {
+      long   elapsedNanos  = (finishedNanos == 0 ? System.nanoTime() : finishedNanos) - startNanos;
+      double elapsedSecond = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+
+      LOG.info("Parallel transform pipeline metrics",
+         logPair("processName", processName),
+         logPair("workers", noOfWorkers),
+         logPair("preserveLoadOrder", preserveLoadOrder),
+         logPair("elapsedMillis", elapsedNanos / 1_000_000),
+         logPair("transformedRecords", transformedRecords.get()),
+         logPair("transformBusyMillis", transformNanos.get() / 1_000_000),
+         logPair("transformRecordsPerSecond", Math.round(transformedRecords.get() / elapsedSecond)),
+         logPair("loadedRecords", loadedRecords),
+         logPair("loadBusyMillis", loadNanos / 1_000_000),
+         logPair("loadWaitingOnTransformsMillis", waitingOnTransformsNanos / 1_000_000),
+         logPair("loadRecordsPerSecond", Math.round(loadedRecords / elapsedSecond)));
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for transformedRecords
+    *******************************************************************************/
+   public long getTransformedRecords()
+   {
+      return (transformedRecords.get());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for loadedRecords
+    *******************************************************************************/
+   public long getLoadedRecords()
+   {
+      return (loadedRecords);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for transformNanos - summed over all workers.
+    *******************************************************************************/
+   public long getTransformNanos()
+   {
+      return (transformNanos.get());
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for loadNanos
+    *******************************************************************************/
+   public long getLoadNanos()
+   {
+      return (loadNanos);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for waitingOnTransformsNanos - time the load stage spent waiting for
+    ** transforms to finish.
+    *******************************************************************************/
+   public long getWaitingOnTransformsNanos()
+   {
+      return (waitingOnTransformsNanos);
+   }
+
+
+
+   /***************************************************************************
+    ** a page of records, after it's been through the transform step.
+    **
+    ** @param inputRecords the records as they came from the extract step
+    ** @param transformOutput the output of the transform step (with its records,
+    ** audits, any process meta-data adjustment, and its copy of the values).
+    ** @param valuesBeforeTransform the process's values when the page was
+    ** submitted - to find which ones the transform changed.
+    ***************************************************************************/
+   public record TransformedPage(List<QRecord> inputRecords, StreamedBackendStepOutput transformOutput, Map<String, Serializable> valuesBeforeTransform)
+   {
+   }
+}
@@ -22,7 +22,13 @@
 package com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwithfrontend;
 
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.kingsrook.qqq.backend.core.model.actions.processes.ProcessSummaryLine;
 import com.kingsrook.qqq.backend.core.model.actions.processes.ProcessSummaryLineInterface;
 import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepOutput;
 
@@ -60,4 +66,91 @@ public interface ProcessSummaryProviderInterface
       return (processSummary);
    }
 
+
+
+   /*******************************************************************************
+    ** Merge the process summaries of several instances of this provider - e.g., of
+    ** the transform step instances used by each worker, when a streamed ETL process
+    ** runs its transforms in parallel - into one summary.
+    **
+    ** The default implementation combines ProcessSummaryLines (of exactly that
+    ** class) which have the same status and messages - summing their counts, and
+    ** concatenating their primary keys - and keeps any other lines as they are
+    ** (dropping ones that are equal to a line already kept).  Override this if a
+    ** provider's lines can't be merged that way (e.g., if a message includes a
+    ** count, or if a subclass of ProcessSummaryLine is used).
+    *******************************************************************************/
+   default ArrayList<ProcessSummaryLineInterface> mergeProcessSummaries(List<ArrayList<ProcessSummaryLineInterface>> processSummaries)
+   {
+      Map<Object, ProcessSummaryLineInterface> mergedLines = new LinkedHashMap<>();
+      for(ArrayList<ProcessSummaryLineInterface> processSummary : processSummaries)
+      {
+         if(processSummary == null)
+         {
+            continue;
+         }
+
+         for(ProcessSummaryLineInterface line : processSummary)
+         {
+            if(line != null && line.getClass().equals(ProcessSummaryLine.class))
+            {
+               ProcessSummaryLine processSummaryLine = (ProcessSummaryLine) line;
+               List<Object> key = Arrays.asList(processSummaryLine.getStatus(), processSummaryLine.getMessage(), processSummaryLine.getMessageSuffix(),
+                  processSummaryLine.getSingularFutureMessage(), processSummaryLine.getPluralFutureMessage(), processSummaryLine.getSingularPastMessage(), processSummaryLine.getPluralPastMessage(),
+                  processSummaryLine.getBulletsOfText());
+
+               ProcessSummaryLine mergedLine = (ProcessSummaryLine) mergedLines.computeIfAbsent(key, k -> new ProcessSummaryLine(processSummaryLine.getStatus(), 0, processSummaryLine.getMessage())
+                  .withMessageSuffix(processSummaryLine.getMessageSuffix())
+                  .withSingularFutureMessage(processSummaryLine.getSingularFutureMessage())
+                  .withPluralFutureMessage(processSummaryLine.getPluralFutureMessage())
+                  .withSingularPastMessage(processSummaryLine.getSingularPastMessage())
+                  .withPluralPastMessage(processSummaryLine.getPluralPastMessage())
+                  .withBulletsOfText(processSummaryLine.getBulletsOfText()));
+
+               if(processSummaryLine.getCount() != null)
+               {
+                  mergedLine.incrementCount(processSummaryLine.getCount());
+               }
+
+               if(processSummaryLine.getPrimaryKeys() != null)
+               {
+                  ArrayList<Serializable> primaryKeys = mergedLine.getPrimaryKeys() == null ? new ArrayList<>() : new ArrayList<>(mergedLine.getPrimaryKeys());
+                  primaryKeys.addAll(processSummaryLine.getPrimaryKeys());
+                  mergedLine.setPrimaryKeys(primaryKeys);
+               }
+            }
+            else
+            {
+               mergedLines.putIfAbsent(line, line);
+            }
+         }
+      }
+
+      return (new ArrayList<>(mergedLines.values()));
+   }
+
+
+
+   /*******************************************************************************
+    ** not meant to be overridden - meant to be called by framework - like
+    ** doGetProcessSummary, but for several instances of this provider, whose
+    ** summaries are merged (see mergeProcessSummaries).
+    *******************************************************************************/
+   default ArrayList<ProcessSummaryLineInterface> doGetMergedProcessSummary(List<? extends ProcessSummaryProviderInterface> providers, RunBackendStepOutput runBackendStepOutput, boolean isForResultScreen)
+   {
+      List<ArrayList<ProcessSummaryLineInterface>> processSummaries = new ArrayList<>();
+      for(ProcessSummaryProviderInterface provider : providers)
+      {
+         processSummaries.add(provider.getProcessSummary(runBackendStepOutput, isForResultScreen));
+      }
+
+      ArrayList<ProcessSummaryLineInterface> processSummary = mergeProcessSummaries(processSummaries);
+      for(ProcessSummaryLineInterface processSummaryLine : processSummary)
+      {
+         processSummaryLine.prepareForFrontend(isForResultScreen);
+      }
+
+      return (processSummary);
+   }
+
 }
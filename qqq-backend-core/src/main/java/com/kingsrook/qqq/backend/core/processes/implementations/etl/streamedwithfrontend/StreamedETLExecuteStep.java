@@ -117,6 +117,20 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          transformStep.preRun(runBackendStepInput, runBackendStepOutput);
          loadStep.preRun(runBackendStepInput, runBackendStepOutput);
 
+         ///////////////////////////////////////////////////////////////////////////////
+         // if the process asks for transform workers, each one gets its own instance //
+         // of the transform step (the first being the one the load step knows about) //
+         ///////////////////////////////////////////////////////////////////////////////
+         List<AbstractTransformStep> transformSteps   = new ArrayList<>(List.of(transformStep));
+         Integer                     transformWorkers = runBackendStepInput.getValueInteger(StreamedETLWithFrontendProcess.FIELD_TRANSFORM_WORKERS);
+         for(int i = 1; transformWorkers != null && i < transformWorkers; i++)
+         {
+            AbstractTransformStep workerTransformStep = getTransformStep(runBackendStepInput);
+            workerTransformStep.preRun(runBackendStepInput, runBackendStepOutput);
+            transformSteps.add(workerTransformStep);
+         }
+         boolean useParallelTransforms = transformSteps.size() > 1;
+
          /////////////////////////////////////////////////////////////////////////////
          // open a transaction for the whole process, if that's the requested level //
          /////////////////////////////////////////////////////////////////////////////
@@ -125,7 +139,15 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          {
             transaction = loadStep.openTransaction(runBackendStepInput);
             loadStep.setTransaction(transaction);
-            transformStep.setTransaction(transaction);
+
+            //////////////////////////////////////////////////////////////////////////////
+            // a transaction can only be used by one thread at a time - so when running //
+            // parallel transforms, only the load stage (on this thread) gets it.       //
+            //////////////////////////////////////////////////////////////////////////////
+            if(!useParallelTransforms)
+            {
+               transformStep.setTransaction(transaction);
+            }
          }
 
          List<QRecord>       loadedRecordList    = new ArrayList<>();
@@ -135,13 +157,21 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
             asyncRecordPipeLoop.setMinRecordsToConsume(overrideRecordPipeCapacity);
          }
 
-         int recordCount = asyncRecordPipeLoop.run("StreamedETLExecute>Extract>" + runBackendStepInput.getProcessName(), null, recordPipe, (status) ->
-            {
-               extractStep.run(runBackendStepInput, runBackendStepOutput);
-               return (runBackendStepOutput);
-            },
-            () -> (consumeRecordsFromPipe(recordPipe, transformStep, loadStep, runBackendStepInput, runBackendStepOutput, loadedRecordList))
-         );
+         int recordCount;
+         if(useParallelTransforms)
+         {
+            recordCount = runWithParallelTransforms(asyncRecordPipeLoop, recordPipe, extractStep, transformSteps, loadStep, runBackendStepInput, runBackendStepOutput, loadedRecordList);
+         }
+         else
+         {
+            recordCount = asyncRecordPipeLoop.run("StreamedETLExecute>Extract>" + runBackendStepInput.getProcessName(), null, recordPipe, (status) ->
+               {
+                  extractStep.run(runBackendStepInput, runBackendStepOutput);
+                  return (runBackendStepOutput);
+               },
+               () -> (consumeRecordsFromPipe(recordPipe, transformStep, loadStep, runBackendStepInput, runBackendStepOutput, loadedRecordList))
+            );
+         }
 
          runBackendStepOutput.addValue(StreamedETLWithFrontendProcess.FIELD_RECORD_COUNT, recordCount);
 
@@ -160,7 +190,9 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
 
          if(CollectionUtils.nullSafeIsEmpty(processSummaryLines))
          {
-            processSummaryLines = transformStep.doGetProcessSummary(runBackendStepOutput, true);
+            processSummaryLines = useParallelTransforms
+               ? transformStep.doGetMergedProcessSummary(transformSteps, runBackendStepOutput, true)
+               : transformStep.doGetProcessSummary(runBackendStepOutput, true);
             runBackendStepOutput.addValue(StreamedETLWithFrontendProcess.FIELD_PROCESS_SUMMARY, processSummaryLines);
          }
 
@@ -170,7 +202,10 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
          BackendStepPostRunOutput postRunOutput = new BackendStepPostRunOutput(runBackendStepOutput);
          BackendStepPostRunInput  postRunInput  = new BackendStepPostRunInput(runBackendStepInput);
-         transformStep.postRun(postRunInput, postRunOutput);
+         for(AbstractTransformStep eachTransformStep : transformSteps)
+         {
+            eachTransformStep.postRun(postRunInput, postRunOutput);
+         }
          loadStep.postRun(postRunInput, postRunOutput);
 
          //////////////////////////////////////////////////////////////////////
@@ -276,65 +311,99 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
          // pass the records through the transform function //
          /////////////////////////////////////////////////////
          transformStep.runOnePage(streamedBackendStepInput, streamedBackendStepOutput);
-         List<AuditInput> auditInputListFromTransform = streamedBackendStepOutput.getAuditInputList();
-
-         //////////////////////////////////////////////////////////////////////
-         // propagate data from inner-step state to process-level step state //
-         //////////////////////////////////////////////////////////////////////
-         if(streamedBackendStepOutput.getProcessMetaDataAdjustment() != null)
-         {
-            runBackendStepOutput.getProcessState().setStepList(streamedBackendStepOutput.getProcessState().getStepList());
-            runBackendStepOutput.getProcessState().setProcessMetaDataAdjustment(streamedBackendStepOutput.getProcessMetaDataAdjustment());
-         }
+         propagateProcessMetaDataAdjustment(streamedBackendStepOutput, runBackendStepOutput);
 
          ////////////////////////////////////////////////
          // pass the records through the load function //
          ////////////////////////////////////////////////
-         streamedBackendStepInput = new StreamedBackendStepInput(runBackendStepInput, streamedBackendStepOutput.getRecords());
-         streamedBackendStepOutput = new StreamedBackendStepOutput(runBackendStepOutput);
-
-         loadStep.runOnePage(streamedBackendStepInput, streamedBackendStepOutput);
-         List<AuditInput> auditInputListFromLoad = streamedBackendStepOutput.getAuditInputList();
+         loadPage(loadStep, streamedBackendStepOutput, runBackendStepInput, runBackendStepOutput, loadedRecordList);
 
-         //////////////////////////////////////////////////////////////////////
-         // propagate data from inner-step state to process-level step state //
-         //////////////////////////////////////////////////////////////////////
-         if(streamedBackendStepOutput.getProcessMetaDataAdjustment() != null)
+         if(doPageLevelTransaction && transaction.isPresent())
          {
-            runBackendStepOutput.getProcessState().setStepList(streamedBackendStepOutput.getProcessState().getStepList());
-            runBackendStepOutput.getProcessState().setProcessMetaDataAdjustment(streamedBackendStepOutput.getProcessMetaDataAdjustment());
+            transaction.get().commit();
          }
 
-         ///////////////////////////////////////////////////////
-         // copy a small number of records to the output list //
-         ///////////////////////////////////////////////////////
-         int i = 0;
-         while(loadedRecordList.size() < PROCESS_OUTPUT_RECORD_LIST_LIMIT && i < streamedBackendStepOutput.getRecords().size())
+         currentRowCount += qRecords.size();
+         return (qRecords.size());
+      }
+      catch(Exception e)
+      {
+         if(doPageLevelTransaction && transaction.isPresent())
          {
-            loadedRecordList.add(streamedBackendStepOutput.getRecords().get(i++));
+            LOG.warn("Caught page-level process exception - rolling back transaction", e);
+            transaction.get().rollback();
          }
-
-         //////////////////////////////////////////////////////
-         // if we have a batch of audit inputs, execute them //
-         //////////////////////////////////////////////////////
-         List<AuditInput> mergedAuditInputList = CollectionUtils.mergeLists(auditInputListFromTransform, auditInputListFromLoad);
-         if(CollectionUtils.nullSafeHasContents(mergedAuditInputList))
+         throw (e);
+      }
+      finally
+      {
+         if(doPageLevelTransaction && transaction.isPresent())
          {
-            AuditAction auditAction = new AuditAction();
-            for(AuditInput auditInput : mergedAuditInputList)
+            transaction.get().close();
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** run the extract into the pipe, with pages from the pipe going through a
+    ** ParallelTransformPipeline - whose load stage runs on this thread.
+    *******************************************************************************/
+   private int runWithParallelTransforms(AsyncRecordPipeLoop asyncRecordPipeLoop, RecordPipe recordPipe, AbstractExtractStep extractStep, List<AbstractTransformStep> transformSteps, AbstractLoadStep loadStep, RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput, List<QRecord> loadedRecordList) throws QException
+   {
+      boolean preserveLoadOrder = !Boolean.FALSE.equals(runBackendStepInput.getValueBoolean(StreamedETLWithFrontendProcess.FIELD_PRESERVE_LOAD_ORDER));
+
+      try(ParallelTransformPipeline pipeline = new ParallelTransformPipeline(transformSteps, preserveLoadOrder, runBackendStepInput, runBackendStepOutput,
+         (transformedPage) -> loadTransformedPage(transformedPage, loadStep, runBackendStepInput, runBackendStepOutput, loadedRecordList)))
+      {
+         int recordCount = asyncRecordPipeLoop.run("StreamedETLExecute>Extract>" + runBackendStepInput.getProcessName(), null, recordPipe, (status) ->
             {
-               auditAction.execute(auditInput);
-            }
+               extractStep.run(runBackendStepInput, runBackendStepOutput);
+               return (runBackendStepOutput);
+            },
+            () -> (pipeline.submitPage(recordPipe.consumeAvailableRecords()))
+         );
+
+         pipeline.finish();
+         pipeline.logMetrics(runBackendStepInput.getProcessName());
+         return (recordCount);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** load stage of a ParallelTransformPipeline - loads one transformed page,
+    ** within a page-level transaction, if that's the requested level.
+    *******************************************************************************/
+   private void loadTransformedPage(ParallelTransformPipeline.TransformedPage transformedPage, AbstractLoadStep loadStep, RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput, List<QRecord> loadedRecordList) throws QException
+   {
+      Optional<QBackendTransaction> transaction            = Optional.empty();
+      boolean                       doPageLevelTransaction = StreamedETLWithFrontendProcess.TRANSACTION_LEVEL_PAGE.equals(runBackendStepInput.getValueString(StreamedETLWithFrontendProcess.FIELD_TRANSACTION_LEVEL));
+      if(doPageLevelTransaction)
+      {
+         transaction = loadStep.openTransaction(runBackendStepInput);
+         loadStep.setTransaction(transaction);
+      }
+
+      try
+      {
+         Integer totalRows = runBackendStepInput.getValueInteger(StreamedETLWithFrontendProcess.FIELD_RECORD_COUNT);
+         if(totalRows != null)
+         {
+            runBackendStepInput.getAsyncJobCallback().updateStatus(currentRowCount, totalRows);
          }
-         runBackendStepOutput.setAuditInputList(null);
+
+         propagateProcessMetaDataAdjustment(transformedPage.transformOutput(), runBackendStepOutput);
+         loadPage(loadStep, transformedPage.transformOutput(), runBackendStepInput, runBackendStepOutput, loadedRecordList);
 
          if(doPageLevelTransaction && transaction.isPresent())
          {
             transaction.get().commit();
          }
 
-         currentRowCount += qRecords.size();
-         return (qRecords.size());
+         currentRowCount += transformedPage.inputRecords().size();
       }
       catch(Exception e)
       {
@@ -354,4 +423,59 @@ public class StreamedETLExecuteStep extends BaseStreamedETLStep implements Backe
       }
    }
 
+
+
+   /*******************************************************************************
+    ** pass a page of transformed records through the load step, then run any
+    ** audits from the transform & load, and keep a few records for the output.
+    *******************************************************************************/
+   private void loadPage(AbstractLoadStep loadStep, StreamedBackendStepOutput transformOutput, RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput, List<QRecord> loadedRecordList) throws QException
+   {
+      List<AuditInput> auditInputListFromTransform = transformOutput.getAuditInputList();
+
+      StreamedBackendStepInput  streamedBackendStepInput  = new StreamedBackendStepInput(runBackendStepInput, transformOutput.getRecords());
+      StreamedBackendStepOutput streamedBackendStepOutput = new StreamedBackendStepOutput(runBackendStepOutput);
+
+      loadStep.runOnePage(streamedBackendStepInput, streamedBackendStepOutput);
+      List<AuditInput> auditInputListFromLoad = streamedBackendStepOutput.getAuditInputList();
+      propagateProcessMetaDataAdjustment(streamedBackendStepOutput, runBackendStepOutput);
+
+      ///////////////////////////////////////////////////////
+      // copy a small number of records to the output list //
+      ///////////////////////////////////////////////////////
+      int i = 0;
+      while(loadedRecordList.size() < PROCESS_OUTPUT_RECORD_LIST_LIMIT && i < streamedBackendStepOutput.getRecords().size())
+      {
+         loadedRecordList.add(streamedBackendStepOutput.getRecords().get(i++));
+      }
+
+      //////////////////////////////////////////////////////
+      // if we have a batch of audit inputs, execute them //
+      //////////////////////////////////////////////////////
+      List<AuditInput> mergedAuditInputList = CollectionUtils.mergeLists(auditInputListFromTransform, auditInputListFromLoad);
+      if(CollectionUtils.nullSafeHasContents(mergedAuditInputList))
+      {
+         AuditAction auditAction = new AuditAction();
+         for(AuditInput auditInput : mergedAuditInputList)
+         {
+            auditAction.execute(auditInput);
+         }
+      }
+      runBackendStepOutput.setAuditInputList(null);
+   }
+
+
+
+   /*******************************************************************************
+    ** propagate data from inner-step state to process-level step state
+    *******************************************************************************/
+   private void propagateProcessMetaDataAdjustment(StreamedBackendStepOutput streamedBackendStepOutput, RunBackendStepOutput runBackendStepOutput)
+   {
+      if(streamedBackendStepOutput.getProcessMetaDataAdjustment() != null)
+      {
+         runBackendStepOutput.getProcessState().setStepList(streamedBackendStepOutput.getProcessState().getStepList());
+         runBackendStepOutput.getProcessState().setProcessMetaDataAdjustment(streamedBackendStepOutput.getProcessMetaDataAdjustment());
+      }
+   }
+
 }
@@ -109,6 +109,9 @@ public class StreamedETLWithFrontendProcess
    public static final String TRANSACTION_LEVEL_PAGE        = "page";
    public static final String TRANSACTION_LEVEL_PROCESS     = "process";
 
+   public static final String FIELD_TRANSFORM_WORKERS   = "transformWorkers"; // Integer - if > 1, execute step runs transforms in parallel (see ParallelTransformPipeline)
+   public static final String FIELD_PRESERVE_LOAD_ORDER = "preserveLoadOrder"; // Boolean - with transformWorkers, load pages in extract order (default true)
+
 
 
    /*******************************************************************************
@@ -139,6 +142,8 @@ public class StreamedETLWithFrontendProcess
     ** - FIELD_DEFAULT_QUERY_FILTER
     ** - FIELD_DO_FULL_VALIDATION
     ** - FIELD_PREVIEW_MESSAGE
+    ** - FIELD_TRANSFORM_WORKERS
+    ** - FIELD_PRESERVE_LOAD_ORDER
     *******************************************************************************/
    public static QProcessMetaData defineProcessMetaData(
       Class<? extends AbstractExtractStep> extractStepClass,
@@ -181,7 +186,9 @@ public class StreamedETLWithFrontendProcess
          .withCode(new QCodeReference(StreamedETLExecuteStep.class))
          .withInputData(new QFunctionInputMetaData()
             .withField(new QFieldMetaData(FIELD_LOAD_CODE, QFieldType.STRING).withDefaultValue(loadStepClass == null ? null : new QCodeReference(loadStepClass)))
-            .withField(new QFieldMetaData(FIELD_LOAD_CODE + "_expectedType", QFieldType.STRING).withDefaultValue(AbstractLoadStep.class.getName())))
+            .withField(new QFieldMetaData(FIELD_LOAD_CODE + "_expectedType", QFieldType.STRING).withDefaultValue(AbstractLoadStep.class.getName()))
+            .withField(new QFieldMetaData(FIELD_TRANSFORM_WORKERS, QFieldType.INTEGER).withDefaultValue(defaultFieldValues.get(FIELD_TRANSFORM_WORKERS)))
+            .withField(new QFieldMetaData(FIELD_PRESERVE_LOAD_ORDER, QFieldType.BOOLEAN).withDefaultValue(defaultFieldValues.getOrDefault(FIELD_PRESERVE_LOAD_ORDER, true))))
          .withOutputMetaData(new QFunctionOutputMetaData()
             .withField(new QFieldMetaData(FIELD_PROCESS_SUMMARY, QFieldType.STRING))
          );
@@ -357,6 +364,34 @@ public class StreamedETLWithFrontendProcess
 
 
 
+      /*******************************************************************************
+       ** Fluent setter for transformWorkers - if more than 1, the execute step runs
+       ** its transforms on that many worker threads (each with its own instance of
+       ** the transform step), with the load pipelined behind them.
+       **
+       *******************************************************************************/
+      public Builder withTransformWorkers(Integer transformWorkers)
+      {
+         setInputFieldDefaultValue(FIELD_TRANSFORM_WORKERS, transformWorkers);
+         return (this);
+      }
+
+
+
+      /*******************************************************************************
+       ** Fluent setter for preserveLoadOrder - when running with transformWorkers,
+       ** whether pages are loaded in the order they were extracted (the default), or
+       ** in the order their transforms finish.
+       **
+       *******************************************************************************/
+      public Builder withPreserveLoadOrder(Boolean preserveLoadOrder)
+      {
+         setInputFieldDefaultValue(FIELD_PRESERVE_LOAD_ORDER, preserveLoadOrder);
+         return (this);
+      }
+
+
+
       /*******************************************************************************
        ** Fluent setter for doFullValidation
        **
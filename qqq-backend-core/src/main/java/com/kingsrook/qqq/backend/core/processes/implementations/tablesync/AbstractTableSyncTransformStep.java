@@ -59,6 +59,7 @@ import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.session.QSession;
 import com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwithfrontend.AbstractTransformStep;
+import com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwithfrontend.LoadViaUpsertStep;
 import com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwithfrontend.StreamedETLWithFrontendProcess;
 import com.kingsrook.qqq.backend.core.processes.implementations.general.StandardProcessSummaryLineProducer;
 import com.kingsrook.qqq.backend.core.processes.utils.RecordLookupHelper;
@@ -82,6 +83,13 @@ public abstract class AbstractTableSyncTransformStep extends AbstractTransformSt
    protected ProcessSummaryLine okToInsert = StandardProcessSummaryLineProducer.getOkToInsertLine();
    protected ProcessSummaryLine okToUpdate = StandardProcessSummaryLineProducer.getOkToUpdateLine();
 
+   protected ProcessSummaryLine okToUpsert = new ProcessSummaryLine(Status.OK)
+      .withMessageSuffix(" inserted or updated")
+      .withSingularFutureMessage("will be")
+      .withPluralFutureMessage("will be")
+      .withSingularPastMessage("was")
+      .withPluralPastMessage("were");
+
    protected ProcessSummaryLine willNotInsert = new ProcessSummaryLine(Status.INFO)
       .withMessageSuffix("because this process is not configured to insert records.")
       .withSingularFutureMessage("will not be inserted ")
@@ -128,7 +136,7 @@ public abstract class AbstractTableSyncTransformStep extends AbstractTransformSt
    @Override
    public ArrayList<ProcessSummaryLineInterface> getProcessSummary(RunBackendStepOutput runBackendStepOutput, boolean isForResultScreen)
    {
-      return StandardProcessSummaryLineProducer.toArrayList(okToInsert, okToUpdate, errorMissingKeyField, unspecifiedError, willNotInsert, willNotUpdate);
+      return StandardProcessSummaryLineProducer.toArrayList(okToInsert, okToUpdate, okToUpsert, errorMissingKeyField, unspecifiedError, willNotInsert, willNotUpdate);
    }
 
 
@@ -199,6 +207,23 @@ public abstract class AbstractTableSyncTransformStep extends AbstractTransformSt
 
 
 
+   /*******************************************************************************
+    ** Opt-in for subclasses:  instead of querying the destination table for
+    ** existing records (to decide insert vs. update), build every record to store
+    ** as a new record, and leave it to the load step to upsert them, keyed on the
+    ** destinationTableForeignKey (which needs a unique key in the destination).
+    ** Requires the process to use LoadViaUpsertStep as its load step.
+    **
+    ** Only applies when the config performs both inserts and updates - and only
+    ** suits a populateRecordToStore that doesn't need the existing record's values.
+    *******************************************************************************/
+   protected boolean useUpsertInsteadOfExistingRecordQuery()
+   {
+      return (false);
+   }
+
+
+
    /*******************************************************************************
     ** Record to store the config for this process - e.g., what fields & tables are used.
     *******************************************************************************/
@@ -298,8 +323,20 @@ public abstract class AbstractTableSyncTransformStep extends AbstractTransformSt
 
       ///////////////////////////////////////////////////////////////////////////////////////////////////
       // query to see if we already have those records in the destination (to determine insert/update) //
+      // - unless we're upserting, in which case, every record is built as new, and the load step's   //
+      // upsert (on the destination foreign key) works out which ones are updates.                     //
       ///////////////////////////////////////////////////////////////////////////////////////////////////
-      Map<Pair<String, Serializable>, QRecord> existingRecordsByForeignKey = getExistingRecordsByForeignKey(runBackendStepInput, destinationTableForeignKeyField, destinationTableName, sourceKeyList);
+      boolean                                  useUpsert                   = useUpsertInsteadOfExistingRecordQuery() && config.performInserts && config.performUpdates;
+      Map<Pair<String, Serializable>, QRecord> existingRecordsByForeignKey;
+      if(useUpsert)
+      {
+         existingRecordsByForeignKey = Collections.emptyMap();
+         runBackendStepOutput.addValue(LoadViaUpsertStep.FIELD_UPSERT_KEY_FIELDS, destinationTableForeignKeyField);
+      }
+      else
+      {
+         existingRecordsByForeignKey = getExistingRecordsByForeignKey(runBackendStepInput, destinationTableForeignKeyField, destinationTableName, sourceKeyList);
+      }
 
       /////////////////////////////////////////////////////////////////
       // foreach source record, build the record we'll insert/update //
@@ -373,7 +410,18 @@ public abstract class AbstractTableSyncTransformStep extends AbstractTransformSt
             recordToStore = populateRecordToStore(runBackendStepInput, recordToStore, sourceRecord);
             if(recordToStore != null)
             {
-               if(existingRecord != null)
+               if(useUpsert)
+               {
+                  ////////////////////////////////////////////////////////////////////
+                  // the upsert is keyed on the foreign key - so make sure it's set //
+                  ////////////////////////////////////////////////////////////////////
+                  if(recordToStore.getValue(destinationTableForeignKeyField) == null)
+                  {
+                     recordToStore.setValue(destinationTableForeignKeyField, ValueUtils.getValueAsFieldType(destinationForeignKeyField.getType(), sourceKeyValue));
+                  }
+                  okToUpsert.incrementCountAndAddPrimaryKey(sourcePrimaryKey);
+               }
+               else if(existingRecord != null)
                {
                   okToUpdate.incrementCountAndAddPrimaryKey(sourcePrimaryKey);
                }
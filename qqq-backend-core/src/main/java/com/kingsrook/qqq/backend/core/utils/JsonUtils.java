@@ -23,17 +23,22 @@ package com.kingsrook.qqq.backend.core.utils;
 
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
@@ -53,6 +58,14 @@ import org.json.JSONObject;
  **
  ** See: https://www.baeldung.com/jackson-vs-gson
  **
+ ** Jackson mappers are expensive to build (and each one owns its own cache of
+ ** serializers/deserializers), but are thread-safe once configured - so the
+ ** standard mapper (and the writers & readers made from it) are built once and
+ ** shared.  Mappers made with a customizer are also built once and shared, per
+ ** customizer class - but only if that class holds no state (e.g., a lambda
+ ** that doesn't capture any variables) - so customizers are assumed to apply
+ ** the same configuration every time they are called.
+ **
  *******************************************************************************/
 public class JsonUtils
 {
@@ -63,6 +76,15 @@ public class JsonUtils
    //////////////////////////////////////////////////////////////////////
    public static NullKeyToEmptyStringSerializer nullKeyToEmptyStringSerializer = new NullKeyToEmptyStringSerializer();
 
+   private static final ObjectMapper STANDARD_MAPPER        = newObjectMapper();
+   private static final ObjectWriter STANDARD_WRITER        = STANDARD_MAPPER.writer();
+   private static final ObjectWriter STANDARD_PRETTY_WRITER = STANDARD_MAPPER.writerWithDefaultPrettyPrinter();
+   private static final ObjectReader STANDARD_READER        = STANDARD_MAPPER.reader();
+
+   private static final Map<Class<?>, Boolean>      statelessCustomizerClasses = new ConcurrentHashMap<>();
+   private static final Map<Class<?>, ObjectMapper> customizedObjectMappers    = new ConcurrentHashMap<>();
+   private static final Map<Class<?>, ObjectMapper> customizedJsonMappers      = new ConcurrentHashMap<>();
+
 
 
    /*******************************************************************************
@@ -73,7 +95,30 @@ public class JsonUtils
     *******************************************************************************/
    public static String toJson(Object object)
    {
-      return (toJson(object, null));
+      try
+      {
+         return (STANDARD_WRITER.writeValueAsString(object));
+      }
+      catch(JsonProcessingException e)
+      {
+         LOG.error("Error serializing object of type [" + object.getClass().getSimpleName() + "] to json", e);
+         throw new IllegalArgumentException("Error in JSON Serialization", e);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Serialize any object as JSON, streaming it into the given outputStream
+    ** (rather than building it up as a String in memory first).  The stream is
+    ** flushed, but not closed.
+    **
+    ** Internally using jackson - so jackson annotations apply!
+    **
+    *******************************************************************************/
+   public static void toJson(Object object, OutputStream outputStream) throws IOException
+   {
+      STANDARD_WRITER.writeValue(outputStream, object);
    }
 
 
@@ -90,12 +135,8 @@ public class JsonUtils
    {
       try
       {
-         ObjectMapper mapper = newObjectMapper();
-         if(objectMapperCustomizer != null)
-         {
-            objectMapperCustomizer.accept(mapper);
-         }
-         String jsonResult = mapper.writeValueAsString(object);
+         ObjectMapper mapper     = getObjectMapper(objectMapperCustomizer);
+         String       jsonResult = mapper.writeValueAsString(object);
          return (jsonResult);
       }
       catch(JsonProcessingException e)
@@ -118,12 +159,8 @@ public class JsonUtils
    {
       try
       {
-         JsonMapper.Builder jsonMapperBuilder = newJsonMapperBuilder();
-         if(jsonMapperCustomizer != null)
-         {
-            jsonMapperCustomizer.accept(jsonMapperBuilder);
-         }
-         String jsonResult = jsonMapperBuilder.build().writeValueAsString(object);
+         ObjectMapper mapper     = getJsonMapper(jsonMapperCustomizer);
+         String       jsonResult = mapper.writeValueAsString(object);
          return (jsonResult);
       }
       catch(JsonProcessingException e)
@@ -145,9 +182,7 @@ public class JsonUtils
    {
       try
       {
-         ObjectMapper mapper       = newObjectMapper();
-         ObjectWriter objectWriter = mapper.writerWithDefaultPrettyPrinter();
-         String       jsonResult   = objectWriter.writeValueAsString(object);
+         String jsonResult = STANDARD_PRETTY_WRITER.writeValueAsString(object);
          return (jsonResult);
       }
       catch(JsonProcessingException e)
@@ -167,10 +202,8 @@ public class JsonUtils
    {
       try
       {
-         ObjectMapper mapper       = newObjectMapper();
-         Object       object       = mapper.reader().readValue(json, Map.class);
-         ObjectWriter objectWriter = mapper.writerWithDefaultPrettyPrinter();
-         String       jsonResult   = objectWriter.writeValueAsString(object);
+         Object object     = STANDARD_READER.readValue(json, Map.class);
+         String jsonResult = STANDARD_PRETTY_WRITER.writeValueAsString(object);
          return (jsonResult);
       }
       catch(Exception e)
@@ -190,7 +223,7 @@ public class JsonUtils
     *******************************************************************************/
    public static <T> T toObject(String json, Class<T> targetClass) throws IOException
    {
-      return (toObject(json, targetClass, null));
+      return (STANDARD_READER.readValue(json, targetClass));
    }
 
 
@@ -204,11 +237,7 @@ public class JsonUtils
     *******************************************************************************/
    public static <T> T toObject(String json, Class<T> targetClass, Consumer<ObjectMapper> objectMapperCustomizer) throws IOException
    {
-      ObjectMapper objectMapper = newObjectMapper();
-      if(objectMapperCustomizer != null)
-      {
-         objectMapperCustomizer.accept(objectMapper);
-      }
+      ObjectMapper objectMapper = getObjectMapper(objectMapperCustomizer);
       return objectMapper.reader().readValue(json, targetClass);
    }
 
@@ -222,8 +251,7 @@ public class JsonUtils
     *******************************************************************************/
    public static <T> T toObject(String json, TypeReference<T> typeReference) throws IOException
    {
-      ObjectMapper objectMapper = newObjectMapper();
-      return objectMapper.readValue(json, typeReference);
+      return STANDARD_MAPPER.readValue(json, typeReference);
    }
 
 
@@ -237,11 +265,7 @@ public class JsonUtils
     *******************************************************************************/
    public static <T> T toObject(String json, TypeReference<T> typeReference, Consumer<ObjectMapper> objectMapperCustomizer) throws IOException
    {
-      ObjectMapper objectMapper = newObjectMapper();
-      if(objectMapperCustomizer != null)
-      {
-         objectMapperCustomizer.accept(objectMapper);
-      }
+      ObjectMapper objectMapper = getObjectMapper(objectMapperCustomizer);
       return objectMapper.readValue(json, typeReference);
    }
 
@@ -288,6 +312,106 @@ public class JsonUtils
    }
 
 
+
+   /*******************************************************************************
+    ** Get the (shared) ObjectMapper to use for a Consumer<ObjectMapper> customizer -
+    ** either the standard one (for a null customizer), or one built & customized
+    ** once per stateless customizer class - or, for a customizer that holds state,
+    ** a new one built & customized just for this call.
+    **
+    *******************************************************************************/
+   private static ObjectMapper getObjectMapper(Consumer<ObjectMapper> objectMapperCustomizer)
+   {
+      if(objectMapperCustomizer == null)
+      {
+         return (STANDARD_MAPPER);
+      }
+
+      if(isStatelessCustomizer(objectMapperCustomizer))
+      {
+         return (customizedObjectMappers.computeIfAbsent(objectMapperCustomizer.getClass(), c -> buildCustomizedObjectMapper(objectMapperCustomizer)));
+      }
+
+      return (buildCustomizedObjectMapper(objectMapperCustomizer));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static ObjectMapper buildCustomizedObjectMapper(Consumer<ObjectMapper> objectMapperCustomizer)
+   {
+      ObjectMapper mapper = newObjectMapper();
+      objectMapperCustomizer.accept(mapper);
+      return (mapper);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the (shared) JsonMapper to use for a Consumer<JsonMapper.Builder>
+    ** customizer - following the same rules as getObjectMapper.
+    **
+    *******************************************************************************/
+   private static ObjectMapper getJsonMapper(Consumer<JsonMapper.Builder> jsonMapperCustomizer)
+   {
+      if(jsonMapperCustomizer == null)
+      {
+         return (STANDARD_MAPPER);
+      }
+
+      if(isStatelessCustomizer(jsonMapperCustomizer))
+      {
+         return (customizedJsonMappers.computeIfAbsent(jsonMapperCustomizer.getClass(), c -> buildCustomizedJsonMapper(jsonMapperCustomizer)));
+      }
+
+      return (buildCustomizedJsonMapper(jsonMapperCustomizer));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static ObjectMapper buildCustomizedJsonMapper(Consumer<JsonMapper.Builder> jsonMapperCustomizer)
+   {
+      JsonMapper.Builder jsonMapperBuilder = newJsonMapperBuilder();
+      jsonMapperCustomizer.accept(jsonMapperBuilder);
+      return (jsonMapperBuilder.build());
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if a customizer's class (or any of its super classes) declares any
+    ** instance fields.  If it does not (e.g., it's a lambda that doesn't capture
+    ** any variables), then every instance of it should customize a mapper the
+    ** same way, so the mapper it makes can be shared.  A lambda that does capture
+    ** variables gets them as fields - and, as it may customize differently based
+    ** on their values, its mapper is not shared.
+    **
+    *******************************************************************************/
+   private static boolean isStatelessCustomizer(Object customizer)
+   {
+      return (statelessCustomizerClasses.computeIfAbsent(customizer.getClass(), c ->
+      {
+         for(Class<?> clazz = c; clazz != null && !Object.class.equals(clazz); clazz = clazz.getSuperclass())
+         {
+            for(Field field : clazz.getDeclaredFields())
+            {
+               if(!Modifier.isStatic(field.getModifiers()))
+               {
+                  return (false);
+               }
+            }
+         }
+         return (true);
+      }));
+   }
+
+
+
    /*******************************************************************************
     ** Standard private method to build jackson ObjectMapper with standard features.
     **
@@ -299,7 +423,8 @@ public class JsonUtils
          .setSerializationInclusion(JsonInclude.Include.NON_NULL)
          .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
          .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
-         .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+         .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+         .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
 
       /* todo - some future version we may need to do inclusion/exclusion lists like this:
       // this is what we'd put on the class or member we wanted to 'filter':  @JsonFilter("secretsFilter")
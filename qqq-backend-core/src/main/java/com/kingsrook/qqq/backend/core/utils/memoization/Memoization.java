@@ -23,12 +23,16 @@ package com.kingsrook.qqq.backend.core.utils.memoization;
 
 
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeFunction;
 
@@ -36,17 +40,57 @@ import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeFunction;
 /*******************************************************************************
  ** Basic memoization functionality - with result timeouts (only when doing a get -
  ** there's no cleanup thread), and max-size.
+ **
+ ** Thread safe, without a global lock:
+ ** - results are in a ConcurrentHashMap, so gets don't block each other.
+ ** - when the map grows past its max-size, the least-recently-used results are
+ **   evicted (recency is tracked with a logical clock that only ticks when a
+ **   result is stored - so a hot key's gets don't each write to shared memory).
+ **   Eviction scans the whole map, so it takes the map down to 90% of its
+ **   max-size (for a max-size of 10 or more) - so that it runs once per that
+ **   many stores, rather than on every store at the max.
+ ** - concurrent gets for the same missing key only run the lookup function once
+ **   (in the first thread) - other threads wait for, and share, its result.
+ ** - optionally, a result can be refreshed (by the first get to see it) when it
+ **   is within a "refreshAhead" duration of expiring - while other gets keep
+ **   using the current result - so that a popular key doesn't ever expire.
+ **
+ ** Hit, miss, eviction and load counts (and load time) are kept, for metrics -
+ ** see getStatistics().
  *******************************************************************************/
 public class Memoization<K, V>
 {
    private static final QLogger LOG = QLogger.getLogger(Memoization.class);
 
-   private final Map<K, MemoizedResult<V>> map = Collections.synchronizedMap(new LinkedHashMap<>());
+   ////////////////////////////////////////////////////////////////////////////
+   // a ConcurrentHashMap can't hold a null key - so a null key is this one. //
+   ////////////////////////////////////////////////////////////////////////////
+   private static final Object NULL_KEY = new Object();
+
+   private final Map<Object, MemoizedResult<V>> map   = new ConcurrentHashMap<>();
+   private final Map<Object, Load<V>>           loads = new ConcurrentHashMap<>();
+
+   private final AtomicLong    clock        = new AtomicLong();
+   private final ReentrantLock evictionLock = new ReentrantLock();
+
+   private final LongAdder hitCount         = new LongAdder();
+   private final LongAdder missCount        = new LongAdder();
+   private final LongAdder evictionCount    = new LongAdder();
+   private final LongAdder loadCount        = new LongAdder();
+   private final LongAdder loadFailureCount = new LongAdder();
+   private final LongAdder loadTimeNanos    = new LongAdder();
 
    private Duration timeout            = Duration.ofSeconds(600);
+   private Duration refreshAhead       = null;
    private Integer  maxSize            = 1000;
    private boolean  mayStoreNullValues = true;
 
+   ////////////////////////////////////////////////////////////////////////
+   // the timeout & refreshAhead durations, as nanos, for cheap checking //
+   ////////////////////////////////////////////////////////////////////////
+   private volatile long timeoutNanos      = toNanos(timeout);
+   private volatile long refreshAheadNanos = 0;
+
 
 
    /*******************************************************************************
@@ -76,7 +120,7 @@ public class Memoization<K, V>
     *******************************************************************************/
    public Memoization(Duration timeout)
    {
-      this.timeout = timeout;
+      setTimeout(timeout);
    }
 
 
@@ -87,7 +131,7 @@ public class Memoization<K, V>
     *******************************************************************************/
    public Memoization(Duration timeout, Integer maxSize)
    {
-      this.timeout = timeout;
+      setTimeout(timeout);
       this.maxSize = maxSize;
    }
 
@@ -103,17 +147,21 @@ public class Memoization<K, V>
     *******************************************************************************/
    public <E extends Exception> Optional<V> getResultThrowing(K key, UnsafeFunction<K, V, E> lookupFunction) throws E
    {
-      MemoizedResult<V> result = map.get(key);
+      Object            mapKey = toMapKey(key);
+      MemoizedResult<V> result = getLiveResult(mapKey);
       if(result != null)
       {
-         if(result.getTime().isAfter(Instant.now().minus(timeout)))
+         hitCount.increment();
+         if(refreshAheadNanos > 0 && System.nanoTime() - result.getCreatedNanos() > timeoutNanos - refreshAheadNanos)
          {
-            //////////////////////////////////////////////////////////////////////////////
-            // ok, we have a memoized value, and it's not expired, so we can return it. //
-            // of course, it might be a memoized null, so we use .ofNullable.           //
-            //////////////////////////////////////////////////////////////////////////////
-            return (Optional.ofNullable(result.getResult()));
+            refreshAhead(key, mapKey, lookupFunction);
          }
+
+         //////////////////////////////////////////////////////////////////////////////
+         // ok, we have a memoized value, and it's not expired, so we can return it. //
+         // of course, it might be a memoized null, so we use .ofNullable.           //
+         //////////////////////////////////////////////////////////////////////////////
+         return (Optional.ofNullable(result.getResult()));
       }
 
       /////////////////////////////////////////////////////////////////////////////////////////////
@@ -121,9 +169,8 @@ public class Memoization<K, V>
       // store the result, and then return the value (in an Optional.ofNullable)                 //
       // and if the lookup function throws - then we let it throw.                               //
       /////////////////////////////////////////////////////////////////////////////////////////////
-      V value = lookupFunction.apply(key);
-      storeResult(key, value);
-      return (Optional.ofNullable(value));
+      missCount.increment();
+      return (Optional.ofNullable(load(key, mapKey, lookupFunction)));
    }
 
 
@@ -169,15 +216,14 @@ public class Memoization<K, V>
     *******************************************************************************/
    public Optional<MemoizedResult<V>> getMemoizedResult(K key)
    {
-      MemoizedResult<V> result = map.get(key);
+      MemoizedResult<V> result = getLiveResult(toMapKey(key));
       if(result != null)
       {
-         if(result.getTime().isAfter(Instant.now().minus(timeout)))
-         {
-            return (Optional.of(result));
-         }
+         hitCount.increment();
+         return (Optional.of(result));
       }
 
+      missCount.increment();
       return (Optional.empty());
    }
 
@@ -196,43 +242,264 @@ public class Memoization<K, V>
          return;
       }
 
-      map.put(key, new MemoizedResult<>(value));
+      MemoizedResult<V> result = new MemoizedResult<>(value);
+      result.setLastAccessTick(clock.incrementAndGet());
+      map.put(toMapKey(key), result);
 
       //////////////////////////////////////
       // make sure map didn't get too big //
-      // do this thread safely, please    //
       //////////////////////////////////////
+      if(map.size() > maxSize)
+      {
+         evictLeastRecentlyUsed();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** get the (non-expired) result for a key from the map (removing it if it has
+    ** expired), noting that it was used (for least-recently-used eviction).
+    *******************************************************************************/
+   private MemoizedResult<V> getLiveResult(Object mapKey)
+   {
+      MemoizedResult<V> result = map.get(mapKey);
+      if(result == null)
+      {
+         return (null);
+      }
+
+      if(System.nanoTime() - result.getCreatedNanos() >= timeoutNanos)
+      {
+         map.remove(mapKey, result);
+         return (null);
+      }
+
+      ////////////////////////////////////////////////////////////////////////////
+      // only write the access tick if it's changed (i.e., if a result has been //
+      // stored since this one was last used), to keep hot gets from writing.   //
+      ////////////////////////////////////////////////////////////////////////////
+      long tick = clock.get();
+      if(result.getLastAccessTick() != tick)
+      {
+         result.setLastAccessTick(tick);
+      }
+
+      return (result);
+   }
+
+
+
+   /*******************************************************************************
+    ** run the lookup function for a key & store its result - unless another thread
+    ** is already doing so, in which case, wait for, and use, its result.
+    *******************************************************************************/
+   private <E extends Exception> V load(K key, Object mapKey, UnsafeFunction<K, V, E> lookupFunction) throws E
+   {
+      Load<V> load         = new Load<>();
+      Load<V> existingLoad = loads.putIfAbsent(mapKey, load);
+      if(existingLoad != null)
+      {
+         if(existingLoad.owner != Thread.currentThread())
+         {
+            try
+            {
+               return (existingLoad.future.get());
+            }
+            catch(InterruptedException e)
+            {
+               Thread.currentThread().interrupt();
+            }
+            catch(ExecutionException e)
+            {
+               //////////////////////////////////////////////////////////////////////////////
+               // the other thread's lookup failed - fall through to do our own lookup, so //
+               // that any exception we throw is from our own lookup function.             //
+               //////////////////////////////////////////////////////////////////////////////
+            }
+         }
+
+         ////////////////////////////////////////////////////////////////////////////////
+         // if we're here, the lookup function is (recursively) looking up its own key //
+         // (or the other thread's lookup failed) - so just do the lookup ourselves.   //
+         ////////////////////////////////////////////////////////////////////////////////
+         V value = runLookupFunction(key, lookupFunction);
+         storeResult(key, value);
+         return (value);
+      }
+
       try
       {
-         if(map.size() > maxSize)
+         ///////////////////////////////////////////////////////////////////////////////
+         // another thread may have finished loading this key after we looked for it, //
+         // but before we registered our load - if so, use its result.                //
+         ///////////////////////////////////////////////////////////////////////////////
+         MemoizedResult<V> result = getLiveResult(mapKey);
+         if(result != null)
          {
-            synchronized(map)
+            load.future.complete(result.getResult());
+            return (result.getResult());
+         }
+
+         V value = runLookupFunction(key, lookupFunction);
+         storeResult(key, value);
+         load.future.complete(value);
+         return (value);
+      }
+      finally
+      {
+         if(!load.future.isDone())
+         {
+            load.future.completeExceptionally(new IllegalStateException("Memoization lookup function failed"));
+         }
+         loads.remove(mapKey, load);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** re-load a result that is about to expire - unless another thread is already
+    ** loading it.  errors are logged, and the current result left in place.
+    *******************************************************************************/
+   private <E extends Exception> void refreshAhead(K key, Object mapKey, UnsafeFunction<K, V, E> lookupFunction)
+   {
+      Load<V> load = new Load<>();
+      if(loads.putIfAbsent(mapKey, load) != null)
+      {
+         return;
+      }
+
+      try
+      {
+         V value = runLookupFunction(key, lookupFunction);
+         storeResult(key, value);
+         load.future.complete(value);
+      }
+      catch(Exception e)
+      {
+         LOG.info("Exception refreshing a Memoization result - will keep using the current result until it expires", e);
+      }
+      finally
+      {
+         if(!load.future.isDone())
+         {
+            load.future.completeExceptionally(new IllegalStateException("Memoization lookup function failed"));
+         }
+         loads.remove(mapKey, load);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** run the lookup function, counting & timing it.
+    *******************************************************************************/
+   private <E extends Exception> V runLookupFunction(K key, UnsafeFunction<K, V, E> lookupFunction) throws E
+   {
+      long start = System.nanoTime();
+      try
+      {
+         return (lookupFunction.apply(key));
+      }
+      catch(Exception e)
+      {
+         loadFailureCount.increment();
+         throw (e);
+      }
+      finally
+      {
+         loadCount.increment();
+         loadTimeNanos.add(System.nanoTime() - start);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** remove the least-recently-used results, to get the map down to 90% of its
+    ** max size.  if another thread is already doing this, just let it.
+    *******************************************************************************/
+   private void evictLeastRecentlyUsed()
+   {
+      if(!evictionLock.tryLock())
+      {
+         return;
+      }
+
+      try
+      {
+         int targetSize = maxSize - maxSize / 10;
+         int excess     = map.size() - targetSize;
+         while(excess > 0)
+         {
+            ////////////////////////////////////////////////////////////////////////////
+            // find the least-recently-used results, in a heap with the most-recently //
+            // used of them on top (to be replaced when an older result is found)     //
+            ////////////////////////////////////////////////////////////////////////////
+            PriorityQueue<Map.Entry<Object, MemoizedResult<V>>> oldest = new PriorityQueue<>(excess, Comparator.comparingLong((Map.Entry<Object, MemoizedResult<V>> e) -> e.getValue().getLastAccessTick()).reversed());
+            for(Map.Entry<Object, MemoizedResult<V>> entry : map.entrySet())
             {
-               Iterator<Map.Entry<K, MemoizedResult<V>>> iterator = null;
-               while(map.size() > maxSize)
+               if(oldest.size() < excess)
                {
-                  if(iterator == null)
-                  {
-                     iterator = map.entrySet().iterator();
-                  }
-
-                  if(iterator.hasNext())
-                  {
-                     iterator.next();
-                     iterator.remove();
-                  }
-                  else
-                  {
-                     break;
-                  }
+                  oldest.add(entry);
+               }
+               else if(entry.getValue().getLastAccessTick() < oldest.peek().getValue().getLastAccessTick())
+               {
+                  oldest.poll();
+                  oldest.add(entry);
                }
             }
+
+            boolean removedAny = false;
+            for(Map.Entry<Object, MemoizedResult<V>> entry : oldest)
+            {
+               if(map.remove(entry.getKey(), entry.getValue()))
+               {
+                  evictionCount.increment();
+                  removedAny = true;
+               }
+            }
+
+            excess = removedAny && map.size() > maxSize ? map.size() - targetSize : 0;
          }
       }
       catch(Exception e)
       {
          LOG.error("Error managing size of a Memoization", e);
       }
+      finally
+      {
+         evictionLock.unlock();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Object toMapKey(Object key)
+   {
+      return (key == null ? NULL_KEY : key);
+   }
+
+
+
+   /*******************************************************************************
+    ** convert a duration to nanos - capping at Long.MAX_VALUE (for durations that
+    ** are effectively forever).
+    *******************************************************************************/
+   private static long toNanos(Duration duration)
+   {
+      try
+      {
+         return (duration.toNanos());
+      }
+      catch(ArithmeticException e)
+      {
+         return (Long.MAX_VALUE);
+      }
    }
 
 
@@ -252,40 +519,56 @@ public class Memoization<K, V>
     *******************************************************************************/
    public void clearKey(K key)
    {
-      this.map.remove(key);
+      this.map.remove(toMapKey(key));
    }
 
 
 
    /*******************************************************************************
-    ** Setter for timeoutSeconds
-    **
+    ** get a snapshot of this memoization's hit, miss, eviction & load counts (since
+    ** it was created, or since resetStatistics was called).
     *******************************************************************************/
-   public void setTimeout(Duration timeout)
+   public MemoizationStatistics getStatistics()
    {
-      this.timeout = timeout;
+      return (new MemoizationStatistics(hitCount.sum(), missCount.sum(), evictionCount.sum(), loadCount.sum(), loadFailureCount.sum(), loadTimeNanos.sum(), map.size()));
    }
 
 
 
    /*******************************************************************************
-    ** Setter for maxSize
+    ** zero-out this memoization's hit, miss, eviction & load counts.
+    *******************************************************************************/
+   public void resetStatistics()
+   {
+      hitCount.reset();
+      missCount.reset();
+      evictionCount.reset();
+      loadCount.reset();
+      loadFailureCount.reset();
+      loadTimeNanos.reset();
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for timeoutSeconds
     **
     *******************************************************************************/
-   public void setMaxSize(Integer maxSize)
+   public void setTimeout(Duration timeout)
    {
-      this.maxSize = maxSize;
+      this.timeout = timeout;
+      this.timeoutNanos = toNanos(timeout);
    }
 
 
 
    /*******************************************************************************
-    ** package-private - for tests to look at the map.
+    ** Setter for maxSize
     **
     *******************************************************************************/
-   Map<K, MemoizedResult<V>> getMap()
+   public void setMaxSize(Integer maxSize)
    {
-      return map;
+      this.maxSize = maxSize;
    }
 
 
@@ -305,7 +588,7 @@ public class Memoization<K, V>
     *******************************************************************************/
    public Memoization<K, V> withTimeout(Duration timeout)
    {
-      this.timeout = timeout;
+      setTimeout(timeout);
       return (this);
    }
 
@@ -361,4 +644,51 @@ public class Memoization<K, V>
       return (this);
    }
 
+
+
+   /*******************************************************************************
+    ** Getter for refreshAhead
+    *******************************************************************************/
+   public Duration getRefreshAhead()
+   {
+      return (this.refreshAhead);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for refreshAhead - if set, then when a get finds a result that will
+    ** expire within this duration, it refreshes the result (by running the lookup
+    ** function) - while other gets continue to use the current result.  Only
+    ** applies to getResult & getResultThrowing (which have a lookup function).
+    *******************************************************************************/
+   public void setRefreshAhead(Duration refreshAhead)
+   {
+      this.refreshAhead = refreshAhead;
+      this.refreshAheadNanos = refreshAhead == null ? 0 : toNanos(refreshAhead);
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for refreshAhead
+    *******************************************************************************/
+   public Memoization<K, V> withRefreshAhead(Duration refreshAhead)
+   {
+      setRefreshAhead(refreshAhead);
+      return (this);
+   }
+
+
+
+   /***************************************************************************
+    ** an in-progress run of the lookup function for a key - which other threads
+    ** looking up the same key wait on.
+    ***************************************************************************/
+   private static class Load<V>
+   {
+      private final Thread               owner  = Thread.currentThread();
+      private final CompletableFuture<V> future = new CompletableFuture<>();
+   }
+
 }
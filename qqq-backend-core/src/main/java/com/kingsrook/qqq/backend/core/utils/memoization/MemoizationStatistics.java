@@ -0,0 +1,53 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.utils.memoization;
+
+
+/*******************************************************************************
+ ** Snapshot of the counters kept by a Memoization - e.g., for reporting as
+ ** metrics.  Note that the load counts include failed loads, and that loads can
+ ** happen without a miss (when a result is refreshed ahead of its expiration).
+ *******************************************************************************/
+public record MemoizationStatistics(long hitCount, long missCount, long evictionCount, long loadCount, long loadFailureCount, long totalLoadTimeNanos, int size)
+{
+
+   /*******************************************************************************
+    ** fraction of gets that were hits (or 0, if there haven't been any gets).
+    *******************************************************************************/
+   public double hitRate()
+   {
+      long requestCount = hitCount + missCount;
+      return (requestCount == 0 ? 0 : (double) hitCount / requestCount);
+   }
+
+
+
+   /*******************************************************************************
+    ** average time spent per run of the lookup function, in nanos (or 0, if there
+    ** haven't been any).
+    *******************************************************************************/
+   public double averageLoadTimeNanos()
+   {
+      return (loadCount == 0 ? 0 : (double) totalLoadTimeNanos / loadCount);
+   }
+
+}
@@ -34,6 +34,13 @@ public class MemoizedResult<T>
    private T       result;
    private Instant time;
 
+   ///////////////////////////////////////////////////////////////////////////
+   // for the Memoization - a monotonic creation time (for cheap expiration //
+   // checks), and the value of its clock when this result was last used.   //
+   ///////////////////////////////////////////////////////////////////////////
+   private final    long createdNanos;
+   private volatile long lastAccessTick;
+
 
 
    /*******************************************************************************
@@ -44,6 +51,7 @@ public class MemoizedResult<T>
    {
       this.result = result;
       this.time = Instant.now();
+      this.createdNanos = System.nanoTime();
    }
 
 
@@ -67,4 +75,37 @@ public class MemoizedResult<T>
    {
       return time;
    }
+
+
+
+   /*******************************************************************************
+    ** Getter for createdNanos (a System.nanoTime value)
+    **
+    *******************************************************************************/
+   long getCreatedNanos()
+   {
+      return createdNanos;
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for lastAccessTick
+    **
+    *******************************************************************************/
+   long getLastAccessTick()
+   {
+      return lastAccessTick;
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for lastAccessTick
+    **
+    *******************************************************************************/
+   void setLastAccessTick(long lastAccessTick)
+   {
+      this.lastAccessTick = lastAccessTick;
+   }
 }
@@ -27,6 +27,7 @@ import java.lang.reflect.Field;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import com.kingsrook.qqq.backend.core.BaseTest;
 import com.kingsrook.qqq.backend.core.actions.reporting.BufferedRecordPipe;
@@ -38,6 +39,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /*******************************************************************************
@@ -127,6 +129,67 @@ class AsyncRecordPipeLoopTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** with a pipe in blocking hand-off mode, make sure all records make it through,
+    ** including when the pipe is smaller than what the supplier writes at once.
+    *******************************************************************************/
+   @Test
+   void testBlockingHandOffPipe() throws Exception
+   {
+      for(Integer capacity : List.of(5, 1_000))
+      {
+         Integer       rowsToSupply = 2_501;
+         RecordPipe    recordPipe   = new RecordPipe(capacity).withUseBlockingHandOff(true);
+         AtomicInteger rowsConsumed = new AtomicInteger(0);
+
+         int count = new AsyncRecordPipeLoop().run("Test", null, recordPipe, (c) -> supplier(recordPipe, rowsToSupply), () -> consumer(recordPipe, rowsConsumed));
+
+         assertEquals(rowsToSupply, count);
+         assertEquals(rowsToSupply, rowsConsumed.get());
+         assertTrue(recordPipe.isProducerFinished());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** with a pipe in blocking hand-off mode, if the producer finishes (but its job
+    ** is still RUNNING) with fewer than minRecordsToConsume records in the pipe,
+    ** make sure the loop consumes them, rather than spinning until the job ends.
+    *******************************************************************************/
+   @Test
+   void testBlockingHandOffConsumesRemainderOnceProducerFinished() throws Exception
+   {
+      Integer       rowsToSupply         = 3;
+      RecordPipe    recordPipe           = new RecordPipe().withUseBlockingHandOff(true);
+      AtomicInteger rowsConsumed         = new AtomicInteger(0);
+      AtomicBoolean consumedWhileRunning = new AtomicBoolean(false);
+
+      int count = new AsyncRecordPipeLoop().run("Test", null, recordPipe, (c) ->
+      {
+         supplier(recordPipe, rowsToSupply);
+         recordPipe.markProducerFinished();
+
+         ///////////////////////////////////////////////////////////////////////////
+         // keep the job RUNNING until the loop has consumed the records (or give //
+         // up after a while, in which case the assertion below will fail).       //
+         ///////////////////////////////////////////////////////////////////////////
+         long start = System.currentTimeMillis();
+         while(rowsConsumed.get() < rowsToSupply && System.currentTimeMillis() - start < 2_000)
+         {
+            SleepUtils.sleep(5, TimeUnit.MILLISECONDS);
+         }
+         consumedWhileRunning.set(rowsConsumed.get() == rowsToSupply);
+         return (true);
+      }, () -> consumer(recordPipe, rowsConsumed));
+
+      assertEquals(rowsToSupply, count);
+      assertEquals(rowsToSupply, rowsConsumed.get());
+      assertTrue(consumedWhileRunning.get());
+   }
+
+
+
    /***************************************************************************
     *
     ***************************************************************************/
@@ -22,12 +22,26 @@
 package com.kingsrook.qqq.backend.core.actions.reporting;
 
 
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import com.kingsrook.qqq.backend.core.BaseTest;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /*******************************************************************************
@@ -78,4 +92,191 @@ class DistinctFilteringRecordPipeTest extends BaseTest
       assertEquals(1, pipe.consumeAvailableRecords().size());
    }
 
-}
\ No newline at end of file
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSpillingToDisk() throws QException
+   {
+      for(boolean useBloomFilter : List.of(true, false))
+      {
+         //////////////////////////////////////////////////////////////////////
+         // with a tiny memory limit, adding 1000 distinct keys (then all of //
+         // them again, plus 500 new ones) must spill, yet stay distinct.    //
+         //////////////////////////////////////////////////////////////////////
+         DistinctFilteringRecordPipe pipe = new DistinctFilteringRecordPipe(new UniqueKey("type", "name"), 10_000)
+            .withMaxMemoryBytes(4096)
+            .withUseBloomFilter(useBloomFilter);
+
+         for(int i = 0; i < 1000; i++)
+         {
+            pipe.addRecord(new QRecord().withValue("type", i % 7).withValue("name", "Name " + i));
+         }
+         assertEquals(1000, pipe.consumeAvailableRecords().size());
+
+         for(int i = 0; i < 1500; i++)
+         {
+            pipe.addRecord(new QRecord().withValue("type", i % 7).withValue("name", "Name " + i));
+         }
+         assertEquals(500, pipe.consumeAvailableRecords().size());
+
+         SpillingDistinctKeySet seenValues = pipe.getSeenValues();
+         assertTrue(seenValues.getNoOfSpills() > 0);
+         assertTrue(seenValues.getNoOfDiskLookups() > 0);
+         assertEquals(1500, seenValues.getSize());
+
+         ////////////////////////////////////////////////////////////////////
+         // finishing the producer should clean up the spill files on disk //
+         ////////////////////////////////////////////////////////////////////
+         Path spillDirectory = seenValues.getSpillDirectory();
+         assertNotNull(spillDirectory);
+         assertTrue(Files.exists(spillDirectory));
+         pipe.markProducerFinished();
+         assertFalse(Files.exists(spillDirectory));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSpillingMixedValueTypes() throws QException
+   {
+      DistinctFilteringRecordPipe pipe = new DistinctFilteringRecordPipe(new UniqueKey("id"), 10_000).withMaxMemoryBytes(512);
+
+      ////////////////////////////////////////////////////////////////////////
+      // nulls, and values that print the same but differ in type, are kept //
+      // distinct from each other, through spills                           //
+      ////////////////////////////////////////////////////////////////////////
+      List<Serializable> values = List.of(1, 1L, "1", new BigDecimal("1.0"), new BigDecimal("1.00"), LocalDate.of(2026, 1, 1), "2026-01-01");
+      for(int pass = 0; pass < 3; pass++)
+      {
+         pipe.addRecord(new QRecord().withValue("id", null));
+         for(Serializable value : values)
+         {
+            pipe.addRecord(new QRecord().withValue("id", value));
+         }
+         for(int i = 0; i < 100; i++)
+         {
+            pipe.addRecord(new QRecord().withValue("id", "filler-" + i));
+         }
+      }
+
+      assertEquals(1 + values.size() + 100, pipe.consumeAvailableRecords().size());
+      assertTrue(pipe.getSeenValues().getNoOfSpills() > 0);
+      pipe.terminate();
+   }
+
+
+
+   /*******************************************************************************
+    ** many spills (so, many index runs per partition, merged along the way), with
+    ** duplicates of keys from all of them - checked against a HashSet.
+    *******************************************************************************/
+   @Test
+   void testManySpillsWithDuplicates() throws QException
+   {
+      for(boolean useBloomFilter : List.of(true, false))
+      {
+         SpillingDistinctKeySet seenValues = new SpillingDistinctKeySet(16 * 1024, useBloomFilter);
+         Set<Serializable>      expected   = new HashSet<>();
+         Random                 random     = new Random(47);
+         for(int i = 0; i < 20_000; i++)
+         {
+            String key = "Key " + random.nextInt(5000);
+            assertEquals(expected.add(key), seenValues.add(key), "Key " + key + " at add " + i);
+         }
+
+         assertTrue(seenValues.getNoOfSpills() > 10);
+         assertTrue(seenValues.getNoOfDiskLookups() > 0);
+         assertEquals(expected.size(), seenValues.getSize());
+         seenValues.close();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** the Bloom filter's memory counts toward the max (and is capped within it).
+    *******************************************************************************/
+   @Test
+   void testBloomFilterCountsTowardMaxMemory() throws QException
+   {
+      long                   maxMemoryBytes = 8 * 1024;
+      SpillingDistinctKeySet seenValues     = new SpillingDistinctKeySet(maxMemoryBytes, true);
+      for(int i = 0; i < 10_000; i++)
+      {
+         seenValues.add(i);
+         assertThat(seenValues.getEstimatedMemoryBytes()).isLessThanOrEqualTo(maxMemoryBytes);
+      }
+
+      //////////////////////////////////////////////////////////////////////
+      // right after a spill, the keys in memory are gone - but the Bloom //
+      // filter is still counted.                                         //
+      //////////////////////////////////////////////////////////////////////
+      int noOfSpills = seenValues.getNoOfSpills();
+      for(int i = 10_000; seenValues.getNoOfSpills() == noOfSpills; i++)
+      {
+         seenValues.add(i);
+      }
+      assertThat(seenValues.getEstimatedMemoryBytes()).isGreaterThan(0).isLessThanOrEqualTo(maxMemoryBytes / 2);
+      seenValues.close();
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during memory-capped distinct filtering change")
+   void testPerformance() throws QException
+   {
+      int noOfRecords = 2_000_000;
+
+      //////////////////////////////////////////////////////////////////////////
+      // baseline - the all-in-memory HashSet that this pipe used to be using //
+      //////////////////////////////////////////////////////////////////////////
+      System.gc();
+      long        heapBefore = usedHeap();
+      long        start      = System.currentTimeMillis();
+      Set<Object> hashSet    = new HashSet<>();
+      for(int i = 0; i < noOfRecords; i++)
+      {
+         hashSet.add(List.of(i % 1000, "Name " + i));
+      }
+      System.out.printf("HashSet:                %,d ms, %,d MB heap%n", System.currentTimeMillis() - start, (usedHeap() - heapBefore) / 1024 / 1024);
+      hashSet = null;
+
+      for(long maxMegabytes : List.of(256L, 16L))
+      {
+         System.gc();
+         heapBefore = usedHeap();
+         start = System.currentTimeMillis();
+         DistinctFilteringRecordPipe pipe = new DistinctFilteringRecordPipe(new UniqueKey("type", "name"), noOfRecords + 1).withMaxMemoryBytes(maxMegabytes * 1024 * 1024);
+         for(int i = 0; i < noOfRecords; i++)
+         {
+            pipe.addRecord(new QRecord().withValue("type", i % 1000).withValue("name", "Name " + i));
+         }
+         long heapUsed = usedHeap() - heapBefore;
+         pipe.consumeAvailableRecords();
+         System.out.printf("Spilling (%3d MB limit): %,d ms, %,d MB heap (incl. pipe), %d spills%n", maxMegabytes, System.currentTimeMillis() - start, heapUsed / 1024 / 1024, pipe.getSeenValues().getNoOfSpills());
+         pipe.markProducerFinished();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static long usedHeap()
+   {
+      return (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+   }
+
+}
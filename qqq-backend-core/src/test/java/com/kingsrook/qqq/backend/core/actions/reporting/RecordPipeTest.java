@@ -22,13 +22,23 @@
 package com.kingsrook.qqq.backend.core.actions.reporting;
 
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.actions.async.AsyncRecordPipeLoop;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.utils.SleepUtils;
+import com.kingsrook.qqq.backend.core.utils.Timer;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /*******************************************************************************
@@ -61,6 +71,218 @@ class RecordPipeTest extends BaseTest
       }
 
       sendRecordsThroughPipeAndAssertCount(new DistinctFilteringRecordPipe(new UniqueKey("id")));
+
+      /////////////////////////////////////
+      // pipes in blocking hand-off mode //
+      /////////////////////////////////////
+      sendRecordsThroughPipeAndAssertCount(new RecordPipe().withUseBlockingHandOff(true));
+      sendRecordsThroughPipeAndAssertCount(new BufferedRecordPipe(2).withUseBlockingHandOff(true));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testConsumeIntoCallerSuppliedList() throws QException
+   {
+      RecordPipe recordPipe = new RecordPipe();
+      recordPipe.addRecords(new ArrayList<>(List.of(new QRecord().withValue("id", 1), new QRecord().withValue("id", 2))));
+
+      List<QRecord> records = new ArrayList<>();
+      assertEquals(2, recordPipe.consumeAvailableRecords(records));
+      assertEquals(2, records.size());
+
+      recordPipe.addRecord(new QRecord().withValue("id", 3));
+      assertEquals(1, recordPipe.consumeAvailableRecords(records));
+      assertEquals(3, records.size());
+      assertEquals(3, records.get(2).getValue("id"));
+
+      recordPipe.addRecord(new QRecord().withValue("id", 4));
+      recordPipe.terminate();
+      assertEquals(0, recordPipe.consumeAvailableRecords(records));
+   }
+
+
+
+   /*******************************************************************************
+    ** a producer blocked on a full pipe (in blocking hand-off mode) should be
+    ** released as soon as a consumer drains the pipe.
+    *******************************************************************************/
+   @Test
+   void testBlockingHandOffProducerWaitsForConsumer() throws Exception
+   {
+      RecordPipe recordPipe = new RecordPipe(2).withUseBlockingHandOff(true);
+
+      CompletableFuture<Void> producer = CompletableFuture.runAsync(() ->
+      {
+         for(int i = 0; i < 5; i++)
+         {
+            try
+            {
+               recordPipe.addRecord(new QRecord().withValue("id", i));
+            }
+            catch(QException e)
+            {
+               throw (new RuntimeException(e));
+            }
+         }
+      });
+
+      List<QRecord> records = new ArrayList<>();
+      while(records.size() < 5)
+      {
+         recordPipe.awaitAvailableRecords(1, 1, TimeUnit.SECONDS);
+         recordPipe.consumeAvailableRecords(records);
+      }
+
+      producer.get(5, TimeUnit.SECONDS);
+      assertEquals(5, records.size());
+      for(int i = 0; i < 5; i++)
+      {
+         assertEquals(i, records.get(i).getValue("id"));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testAwaitAvailableRecords() throws Exception
+   {
+      RecordPipe recordPipe = new RecordPipe().withUseBlockingHandOff(true);
+
+      ///////////////////////////////////////////////////
+      // nothing in the pipe - should time out (false) //
+      ///////////////////////////////////////////////////
+      assertFalse(recordPipe.awaitAvailableRecords(1, 1, TimeUnit.MILLISECONDS));
+
+      ////////////////////////////////////////////////////////////////////////////
+      // a producer on another thread should wake us up well before the timeout //
+      ////////////////////////////////////////////////////////////////////////////
+      CompletableFuture.runAsync(() ->
+      {
+         SleepUtils.sleep(10, TimeUnit.MILLISECONDS);
+         try
+         {
+            recordPipe.addRecords(new ArrayList<>(Collections.nCopies(3, new QRecord())));
+         }
+         catch(QException e)
+         {
+            throw (new RuntimeException(e));
+         }
+      });
+
+      long start = System.currentTimeMillis();
+      assertTrue(recordPipe.awaitAvailableRecords(3, 30, TimeUnit.SECONDS));
+      assertTrue(System.currentTimeMillis() - start < 10_000);
+
+      /////////////////////////////////////////////////////////////////////////////////////
+      // once the producer is finished, waiting for more should return right away, false //
+      /////////////////////////////////////////////////////////////////////////////////////
+      recordPipe.markProducerFinished();
+      assertFalse(recordPipe.awaitAvailableRecords(5, 30, TimeUnit.SECONDS));
+      assertEquals(3, recordPipe.consumeAvailableRecords().size());
+
+      //////////////////////////////////////////////////
+      // a terminated pipe also shouldn't make a wait //
+      //////////////////////////////////////////////////
+      RecordPipe terminatedPipe = new RecordPipe().withUseBlockingHandOff(true);
+      terminatedPipe.terminate();
+      assertFalse(terminatedPipe.awaitAvailableRecords(1, 30, TimeUnit.SECONDS));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testTerminateReleasesBlockedProducer() throws Exception
+   {
+      RecordPipe recordPipe = new RecordPipe(1).withUseBlockingHandOff(true);
+      recordPipe.addRecord(new QRecord());
+
+      CompletableFuture<Void> producer = CompletableFuture.runAsync(() ->
+      {
+         try
+         {
+            recordPipe.addRecord(new QRecord());
+            recordPipe.addRecord(new QRecord());
+         }
+         catch(QException e)
+         {
+            throw (new RuntimeException(e));
+         }
+      });
+
+      SleepUtils.sleep(10, TimeUnit.MILLISECONDS);
+      recordPipe.terminate();
+      producer.get(5, TimeUnit.SECONDS);
+      assertEquals(0, recordPipe.countAvailableRecords());
+   }
+
+
+
+   /*******************************************************************************
+    ** compare throughput (records/sec) and p99 hand-off latency (time from a record
+    ** being added by the producer to it being taken by the consumer) between the
+    ** sleep-polling and blocking hand-off modes, through an AsyncRecordPipeLoop.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during blocking hand-off change")
+   void testHandOffPerformance() throws QException
+   {
+      for(int i = 0; i < 3; i++)
+      {
+         for(boolean useBlockingHandOff : List.of(false, true))
+         {
+            runHandOffPerformance(useBlockingHandOff, 100_000, 1_000);
+            runHandOffPerformance(useBlockingHandOff, 2_000, 10);
+         }
+      }
+   }
+
+
+
+   /***************************************************************************
+    *
+    ***************************************************************************/
+   private void runHandOffPerformance(boolean useBlockingHandOff, int recordCount, int pageSize) throws QException
+   {
+      RecordPipe    recordPipe = new RecordPipe(pageSize).withUseBlockingHandOff(useBlockingHandOff);
+      List<Long>    latencies  = new ArrayList<>();
+      List<QRecord> page       = new ArrayList<>();
+
+      Timer timer = new Timer("handOff[blocking=" + useBlockingHandOff + ",records=" + recordCount + ",pageSize=" + pageSize + "]");
+      long  start = System.nanoTime();
+
+      new AsyncRecordPipeLoop().run("Test", null, recordPipe, (callback) ->
+      {
+         for(int i = 0; i < recordCount; i++)
+         {
+            recordPipe.addRecord(new QRecord().withValue("addedAt", System.nanoTime()));
+         }
+         return (true);
+      }, () ->
+      {
+         page.clear();
+         recordPipe.consumeAvailableRecords(page);
+         long now = System.nanoTime();
+         for(QRecord record : page)
+         {
+            latencies.add(now - record.getValueLong("addedAt"));
+         }
+         return (page.size());
+      });
+
+      double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+      Collections.sort(latencies);
+      long p99Micros = latencies.get((int) (latencies.size() * .99)) / 1_000;
+      timer.mark(String.format("%,.0f records/sec, p99 hand-off latency %,d micros", recordCount / seconds, p99Micros));
    }
 
 
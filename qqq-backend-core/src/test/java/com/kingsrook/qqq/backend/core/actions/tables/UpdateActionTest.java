@@ -881,7 +881,7 @@ class UpdateActionTest extends BaseTest
       ///////////////////////////////////////////////////////////////
       QContext.getQSession().getUser().setIdReference(userWithoutPesonalizedTable);
       new UpdateAction().execute(new UpdateInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecord(new QRecord().withValue("id", id).withValue("lastName", "Simpson")).withInputSource(QInputSource.USER));
-      assertEquals("Simpson", insertOutput.getRecords().get(0).getValueString("lastName"));
+      assertEquals("Simpson", new GetAction().executeForRecord(new GetInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withPrimaryKey(id)).getValueString("lastName"));
 
       //////////////////////////////////////////////////////////////////////////////
       // now as personalized user - first get an error for missing required value //
@@ -895,7 +895,7 @@ class UpdateActionTest extends BaseTest
       ///////////////////////////////////////////////////////
       updateOutput = new UpdateAction().execute(new UpdateInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecord(new QRecord().withValue("id", id).withValue("lastName", "Jefferson").withValue("noOfShoes", 3)).withInputSource(QInputSource.USER));
       assertThat(updateOutput.getRecords().get(0).getErrors()).isNullOrEmpty();
-      assertEquals("Jef...", insertOutput.getRecords().get(0).getValueString("lastName"));
+      assertEquals("Jef...", new GetAction().executeForRecord(new GetInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withPrimaryKey(id)).getValueString("lastName"));
 
       //////////////////////////////////////////////////////////////////////////////////////////////////////////
       // now remove a field from the table for that user - then make sure values in that field don't get set. //
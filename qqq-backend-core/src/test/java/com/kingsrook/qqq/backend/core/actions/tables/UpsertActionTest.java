@@ -0,0 +1,220 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.actions.tables;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.count.CountInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.get.GetInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.DynamicDefaultValueBehavior;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.utils.TestUtils;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+
+/*******************************************************************************
+ ** Unit test for UpsertAction
+ *******************************************************************************/
+class UpsertActionTest extends BaseTest
+{
+
+   /*******************************************************************************
+    ** the memory backend doesn't have a native upsert - so this covers the
+    ** query + insert + update fallback.
+    *******************************************************************************/
+   @Test
+   void testFallbackInsertsAndUpdates() throws QException
+   {
+      String tableName = TestUtils.TABLE_NAME_PERSON_MEMORY;
+
+      new InsertAction().execute(new InsertInput(tableName).withRecords(List.of(
+         new QRecord().withValue("firstName", "Homer").withValue("lastName", "Simpson").withValue("noOfShoes", 1),
+         new QRecord().withValue("firstName", "Mr.").withValue("lastName", "Burns").withValue("noOfShoes", 2)
+      )));
+
+      UpsertOutput upsertOutput = new UpsertAction().execute(new UpsertInput(tableName)
+         .withKey(new UniqueKey("firstName", "lastName"))
+         .withOmitDmlAudit(true)
+         .withRecords(List.of(
+            new QRecord().withValue("firstName", "Homer").withValue("lastName", "Simpson").withValue("noOfShoes", 3),
+            new QRecord().withValue("firstName", "Ned").withValue("lastName", "Flanders").withValue("noOfShoes", 4)
+         )));
+
+      assertEquals(2, upsertOutput.getRecords().size());
+      assertThat(upsertOutput.getRecords()).allSatisfy(r -> assertNotNull(r.getValue("id")));
+
+      assertEquals(1, countByFirstName("Homer"));
+      assertEquals(3, getNoOfShoes("Homer", "Simpson"));
+      assertEquals(2, getNoOfShoes("Mr.", "Burns"));
+      assertEquals(1, countByFirstName("Ned"));
+      assertEquals(4, getNoOfShoes("Ned", "Flanders"));
+   }
+
+
+
+   /*******************************************************************************
+    ** the fallback inserts all of its new records before updating the existing
+    ** ones - but its output should still line up with its input.
+    *******************************************************************************/
+   @Test
+   void testFallbackKeepsInputOrder() throws QException
+   {
+      String tableName = TestUtils.TABLE_NAME_PERSON_MEMORY;
+
+      new InsertAction().execute(new InsertInput(tableName).withRecords(List.of(
+         new QRecord().withValue("firstName", "Homer").withValue("lastName", "Simpson").withValue("noOfShoes", 1),
+         new QRecord().withValue("firstName", "Mr.").withValue("lastName", "Burns").withValue("noOfShoes", 2)
+      )));
+
+      UpsertOutput upsertOutput = new UpsertAction().execute(new UpsertInput(tableName)
+         .withKey(new UniqueKey("firstName", "lastName"))
+         .withOmitDmlAudit(true)
+         .withRecords(List.of(
+            new QRecord().withValue("firstName", "Ned").withValue("lastName", "Flanders").withValue("noOfShoes", 3),
+            new QRecord().withValue("firstName", "Homer").withValue("lastName", "Simpson").withValue("noOfShoes", 4),
+            new QRecord().withValue("firstName", "Moe").withValue("lastName", "Szyslak").withValue("noOfShoes", 5),
+            new QRecord().withValue("firstName", "Mr.").withValue("lastName", "Burns").withValue("noOfShoes", 6)
+         )));
+
+      assertThat(upsertOutput.getRecords()).extracting(r -> r.getValueString("firstName")).containsExactly("Ned", "Homer", "Moe", "Mr.");
+      assertThat(upsertOutput.getRecords()).extracting(r -> r.getValueInteger("noOfShoes")).containsExactly(3, 4, 5, 6);
+      assertEquals(1, upsertOutput.getRecords().get(1).getValueInteger("id"));
+      assertEquals(2, upsertOutput.getRecords().get(3).getValueInteger("id"));
+   }
+
+
+
+   /*******************************************************************************
+    ** two records with the same new key, in one call, should give one row (with
+    ** the later record's values), rather than two rows, or a duplicate error.
+    *******************************************************************************/
+   @Test
+   void testFallbackRepeatedNewKey() throws QException
+   {
+      String tableName = TestUtils.TABLE_NAME_PERSON_MEMORY;
+
+      UpsertOutput upsertOutput = new UpsertAction().execute(new UpsertInput(tableName)
+         .withKey(new UniqueKey("firstName", "lastName"))
+         .withOmitDmlAudit(true)
+         .withRecords(List.of(
+            new QRecord().withValue("firstName", "Ned").withValue("lastName", "Flanders").withValue("noOfShoes", 1),
+            new QRecord().withValue("firstName", "Homer").withValue("lastName", "Simpson").withValue("noOfShoes", 2),
+            new QRecord().withValue("firstName", "Ned").withValue("lastName", "Flanders").withValue("noOfShoes", 3)
+         )));
+
+      assertEquals(3, upsertOutput.getRecords().size());
+      assertThat(upsertOutput.getRecords()).allSatisfy(r -> assertThat(r.getErrors()).isNullOrEmpty());
+      assertEquals(upsertOutput.getRecords().get(0).getValue("id"), upsertOutput.getRecords().get(2).getValue("id"));
+      assertEquals(3, upsertOutput.getRecords().get(2).getValueInteger("noOfShoes"));
+
+      assertEquals(1, countByFirstName("Ned"));
+      assertEquals(3, getNoOfShoes("Ned", "Flanders"));
+      assertEquals(1, countByFirstName("Homer"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testNoRecordsAndNoKey() throws QException
+   {
+      String tableName = TestUtils.TABLE_NAME_PERSON_MEMORY;
+
+      UpsertOutput upsertOutput = new UpsertAction().execute(new UpsertInput(tableName).withKey(new UniqueKey("firstName", "lastName")).withRecords(List.of()));
+      assertEquals(0, upsertOutput.getRecords().size());
+
+      assertThatThrownBy(() -> new UpsertAction().execute(new UpsertInput(tableName).withRecords(List.of(new QRecord()))))
+         .isInstanceOf(QException.class)
+         .hasMessageContaining("unique key was not specified");
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testGetDefaultFieldNamesToUpdate()
+   {
+      QTableMetaData table = new QTableMetaData()
+         .withName("test")
+         .withPrimaryKeyField("id")
+         .withField(new QFieldMetaData("id", QFieldType.INTEGER))
+         .withField(new QFieldMetaData("code", QFieldType.STRING))
+         .withField(new QFieldMetaData("name", QFieldType.STRING))
+         .withField(new QFieldMetaData("notes", QFieldType.STRING))
+         .withField(new QFieldMetaData("createDate", QFieldType.DATE_TIME).withBehavior(DynamicDefaultValueBehavior.CREATE_DATE))
+         .withField(new QFieldMetaData("modifyDate", QFieldType.DATE_TIME).withBehavior(DynamicDefaultValueBehavior.MODIFY_DATE));
+
+      List<QRecord> records = List.of(
+         new QRecord().withValue("id", 1).withValue("code", "A").withValue("name", "Alpha").withValue("createDate", null),
+         new QRecord().withValue("code", "B").withValue("notAField", "x"));
+
+      ///////////////////////////////////////////////////////////////////////////
+      // only fields given in the records (plus modifyDate) - and never the    //
+      // primary key, the key's fields, the create-date, or non-table fields   //
+      ///////////////////////////////////////////////////////////////////////////
+      Set<String> fieldNames = UpsertAction.getDefaultFieldNamesToUpdate(table, new UniqueKey("code"), records);
+      assertEquals(Set.of("name", "modifyDate"), fieldNames);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Integer countByFirstName(String firstName) throws QException
+   {
+      return new CountAction().execute(new CountInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withFilter(new QQueryFilter(new QFilterCriteria("firstName", QCriteriaOperator.EQUALS, firstName)))).getCount();
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static Integer getNoOfShoes(String firstName, String lastName) throws QException
+   {
+      return new GetAction().executeForRecord(new GetInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withUniqueKey(Map.of("firstName", firstName, "lastName", lastName))).getValueInteger("noOfShoes");
+   }
+
+}
@@ -0,0 +1,349 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.actions.tables.helpers;
+
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
+import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.exceptions.QUserFacingException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.utils.TestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/*******************************************************************************
+ ** Unit test for KeysetPaginationHelper
+ *******************************************************************************/
+class KeysetPaginationHelperTest extends BaseTest
+{
+
+   /*******************************************************************************
+    ** insert 23 people - with only a few distinct birthDates, so there are plenty
+    ** of ties in that field for the primary key to break.
+    *******************************************************************************/
+   @BeforeEach
+   void beforeEach() throws QException
+   {
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < 23; i++)
+      {
+         records.add(new QRecord()
+            .withValue("firstName", "First" + (i % 3))
+            .withValue("lastName", "Last" + i)
+            .withValue("birthDate", LocalDate.of(1980, 1, 1).plusDays(i % 4)));
+      }
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecords(records));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testPagingWithContinuationTokens() throws QException
+   {
+      makeFieldsRequired("birthDate", "firstName");
+
+      QQueryFilter filter = new QQueryFilter()
+         .withCriteria(new QFilterCriteria("firstName", QCriteriaOperator.NOT_EQUALS, "First1"))
+         .withOrderBy(new QFilterOrderBy("birthDate", false))
+         .withOrderBy(new QFilterOrderBy("firstName", true));
+
+      ///////////////////////////////////////////////////////////////////////////////
+      // get all the records in one query, with the same ordering keyset pages use //
+      ///////////////////////////////////////////////////////////////////////////////
+      QQueryFilter allFilter = filter.clone().withOrderBy(new QFilterOrderBy("id"));
+      List<Serializable> expectedIds = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withFilter(allFilter))
+         .getRecords().stream().map(r -> r.getValue("id")).toList();
+      assertEquals(15, expectedIds.size());
+
+      List<Serializable> pagedIds          = new ArrayList<>();
+      String             continuationToken = null;
+      int                pageCount         = 0;
+      do
+      {
+         QueryInput queryInput = new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY)
+            .withFilter(filter.clone().withLimit(4))
+            .withContinuationToken(continuationToken)
+            .withShouldGenerateContinuationToken(true);
+         QueryOutput queryOutput = new QueryAction().execute(queryInput);
+
+         queryOutput.getRecords().forEach(r -> pagedIds.add(r.getValue("id")));
+         continuationToken = queryOutput.getContinuationToken();
+         pageCount++;
+      }
+      while(continuationToken != null);
+
+      assertEquals(4, pageCount);
+      assertEquals(expectedIds, pagedIds);
+
+      //////////////////////////////////////////////////////
+      // make sure the caller's filter wasn't manipulated //
+      //////////////////////////////////////////////////////
+      assertEquals(2, filter.getOrderBys().size());
+      assertNull(filter.getContinueAfterValues());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testContinueAfterValuesInFilter() throws QException
+   {
+      makeFieldsRequired("birthDate");
+
+      QueryOutput queryOutput = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withFilter(new QQueryFilter()
+         .withOrderBy(new QFilterOrderBy("id", false))
+         .withContinueAfterValues(List.of(10))
+         .withLimit(3)));
+      assertThat(queryOutput.getRecords()).extracting(r -> r.getValueInteger("id")).containsExactly(9, 8, 7);
+      assertNull(queryOutput.getContinuationToken());
+
+      //////////////////////////////////////////////////////////////////////////////////////
+      // fewer values than orderBys - only the leading orderBy(s) are used to continue by //
+      //////////////////////////////////////////////////////////////////////////////////////
+      queryOutput = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withFilter(new QQueryFilter()
+         .withOrderBy(new QFilterOrderBy("birthDate"))
+         .withContinueAfterValues(List.of(LocalDate.of(1980, 1, 3)))));
+      assertThat(queryOutput.getRecords()).hasSize(5).allMatch(r -> r.getValueLocalDate("birthDate").equals(LocalDate.of(1980, 1, 4)));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testPagingWithNullableOrderBy() throws QException
+   {
+      ///////////////////////////////////////////////////////////////////////////
+      // give some people null birthDates - including the ones that would come //
+      // last in a page (where a token of values couldn't be made) and ones    //
+      // that greater/less-than criteria (seeking after a value) would exclude //
+      ///////////////////////////////////////////////////////////////////////////
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < 6; i++)
+      {
+         records.add(new QRecord().withValue("firstName", "NoBirthDate").withValue("lastName", "Last" + i));
+      }
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecords(records));
+
+      for(boolean isAscending : List.of(true, false))
+      {
+         QQueryFilter filter = new QQueryFilter().withOrderBy(new QFilterOrderBy("birthDate", isAscending));
+
+         QQueryFilter allFilter = filter.clone().withOrderBy(new QFilterOrderBy("id"));
+         List<Serializable> expectedIds = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withFilter(allFilter))
+            .getRecords().stream().map(r -> r.getValue("id")).toList();
+         assertEquals(29, expectedIds.size());
+
+         List<Serializable> pagedIds          = new ArrayList<>();
+         String             continuationToken = null;
+         int                pageCount         = 0;
+         do
+         {
+            QueryInput queryInput = new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY)
+               .withFilter(filter.clone().withLimit(5))
+               .withContinuationToken(continuationToken)
+               .withShouldGenerateContinuationToken(true);
+            QueryOutput queryOutput = new QueryAction().execute(queryInput);
+
+            queryOutput.getRecords().forEach(r -> pagedIds.add(r.getValue("id")));
+            continuationToken = queryOutput.getContinuationToken();
+            pageCount++;
+
+            /////////////////////////////////////////////////////////////////////////
+            // with a nullable orderBy, the token holds an offset, not values, and //
+            // no criteria (which would exclude the nulls) are added to the query  //
+            /////////////////////////////////////////////////////////////////////////
+            if(continuationToken != null)
+            {
+               QTableMetaData table = QContext.getQInstance().getTable(TestUtils.TABLE_NAME_PERSON_MEMORY);
+               assertNull(KeysetPaginationHelper.parseContinuationToken(table, queryInput.getFilter(), continuationToken));
+            }
+            assertThat(queryInput.getFilter().getCriteria()).isEmpty();
+         }
+         while(continuationToken != null);
+
+         assertEquals(6, pageCount);
+         assertEquals(expectedIds, pagedIds);
+      }
+
+      ///////////////////////////////////////////////////////////////////////
+      // continue-after values can't be given for a nullable orderBy field //
+      ///////////////////////////////////////////////////////////////////////
+      assertThatThrownBy(() -> new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withFilter(new QQueryFilter()
+         .withOrderBy(new QFilterOrderBy("birthDate"))
+         .withContinueAfterValues(List.of(LocalDate.of(1980, 1, 3))))))
+         .isInstanceOf(QUserFacingException.class)
+         .hasMessageContaining("may be null");
+
+      /////////////////////////////////////////////////////////////////////////////
+      // but they can be for leading non-nullable orderBys before a nullable one //
+      /////////////////////////////////////////////////////////////////////////////
+      QueryOutput queryOutput = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withFilter(new QQueryFilter()
+         .withOrderBy(new QFilterOrderBy("id"))
+         .withOrderBy(new QFilterOrderBy("birthDate"))
+         .withContinueAfterValues(List.of(26))));
+      assertThat(queryOutput.getRecords()).extracting(r -> r.getValueInteger("id")).containsExactly(27, 28, 29);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testMakeFilterWithContinueAfterCriteria() throws QException
+   {
+      QQueryFilter filter = KeysetPaginationHelper.makeFilterWithContinueAfterCriteria(new QQueryFilter()
+         .withCriteria(new QFilterCriteria("lastName", QCriteriaOperator.IS_NOT_BLANK))
+         .withOrderBy(new QFilterOrderBy("birthDate", true))
+         .withOrderBy(new QFilterOrderBy("id", false))
+         .withContinueAfterValues(List.of(LocalDate.of(1980, 1, 2), 7))
+         .withSkip(1)
+         .withLimit(10));
+
+      assertEquals(2, filter.getOrderBys().size());
+      assertEquals(1, filter.getSkip());
+      assertEquals(10, filter.getLimit());
+      assertNull(filter.getContinueAfterValues());
+
+      //////////////////////////////////////////////////////////////////////
+      // leading range criteria on the first orderBy (for index seeking), //
+      // then the original criteria, then the or'ed "after" criteria.     //
+      //////////////////////////////////////////////////////////////////////
+      assertEquals(new QFilterCriteria("birthDate", QCriteriaOperator.GREATER_THAN_OR_EQUALS, LocalDate.of(1980, 1, 2)), filter.getCriteria().get(0));
+      assertEquals(2, filter.getSubFilters().size());
+      assertEquals("lastName", filter.getSubFilters().get(0).getCriteria().get(0).getFieldName());
+
+      QQueryFilter afterFilter = filter.getSubFilters().get(1);
+      assertEquals(QQueryFilter.BooleanOperator.OR, afterFilter.getBooleanOperator());
+      assertEquals(List.of(new QFilterCriteria("birthDate", QCriteriaOperator.GREATER_THAN, LocalDate.of(1980, 1, 2))), afterFilter.getSubFilters().get(0).getCriteria());
+      assertEquals(List.of(new QFilterCriteria("birthDate", QCriteriaOperator.EQUALS, LocalDate.of(1980, 1, 2)), new QFilterCriteria("id", QCriteriaOperator.LESS_THAN, 7)), afterFilter.getSubFilters().get(1).getCriteria());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testContinuationTokenRoundTrip() throws QException
+   {
+      QTableMetaData table  = QContext.getQInstance().getTable(TestUtils.TABLE_NAME_PERSON_MEMORY);
+      QQueryFilter   filter = new QQueryFilter().withOrderBy(new QFilterOrderBy("birthDate")).withOrderBy(new QFilterOrderBy("id"));
+
+      ///////////////////////////////////////////////////////////////////////
+      // birthDate is nullable - so the token holds the next page's offset //
+      ///////////////////////////////////////////////////////////////////////
+      String token = KeysetPaginationHelper.makeContinuationToken(table, filter.clone().withSkip(10), List.of(new QRecord().withValue("id", 16), new QRecord().withValue("id", 17)));
+      assertNotNull(token);
+      assertNull(KeysetPaginationHelper.parseContinuationToken(table, filter, token));
+
+      QueryInput queryInput = new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withFilter(filter).withContinuationToken(token);
+      KeysetPaginationHelper.applyToQueryInput(queryInput, table);
+      assertEquals(12, queryInput.getFilter().getSkip());
+
+      makeFieldsRequired("birthDate");
+      token = KeysetPaginationHelper.makeContinuationToken(table, filter, List.of(new QRecord().withValue("id", 17).withValue("birthDate", LocalDate.of(1980, 1, 2))));
+      assertNotNull(token);
+      assertEquals(List.of(LocalDate.of(1980, 1, 2), 17), KeysetPaginationHelper.parseContinuationToken(table, filter, token));
+
+      /////////////////////////////////////////////////////////////////////////
+      // no token if the record is missing an orderBy's value, or no records //
+      /////////////////////////////////////////////////////////////////////////
+      assertNull(KeysetPaginationHelper.makeContinuationToken(table, filter, List.of(new QRecord().withValue("id", 17))));
+      assertNull(KeysetPaginationHelper.makeContinuationToken(table, filter, List.of()));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testBadInputs() throws QException
+   {
+      QTableMetaData table  = QContext.getQInstance().getTable(TestUtils.TABLE_NAME_PERSON_MEMORY);
+      QQueryFilter   filter = new QQueryFilter().withOrderBy(new QFilterOrderBy("id"));
+      String         token  = KeysetPaginationHelper.makeContinuationToken(table, filter, List.of(new QRecord().withValue("id", 17)));
+
+      assertThatThrownBy(() -> new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withContinuationToken("not-a-token")))
+         .isInstanceOf(QUserFacingException.class)
+         .hasMessageContaining("Invalid continuation token");
+
+      assertThatThrownBy(() -> new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withContinuationToken(token).withFilter(new QQueryFilter().withOrderBy(new QFilterOrderBy("lastName")))))
+         .isInstanceOf(QUserFacingException.class)
+         .hasMessageContaining("does not match");
+
+      assertThatThrownBy(() -> new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withFilter(new QQueryFilter().withOrderBy(new QFilterOrderBy("id")).withContinueAfterValues(List.of(1, 2)))))
+         .isInstanceOf(QUserFacingException.class)
+         .hasMessageContaining("Too many");
+
+      List<Serializable> nullValue = new ArrayList<>();
+      nullValue.add(null);
+      assertThatThrownBy(() -> new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withFilter(new QQueryFilter().withOrderBy(new QFilterOrderBy("id")).withContinueAfterValues(nullValue))))
+         .isInstanceOf(QUserFacingException.class)
+         .hasMessageContaining("null");
+   }
+
+
+
+   /*******************************************************************************
+    ** keyset pagination only seeks on orderBys that can't be null - so, for tests
+    ** of that, mark fields of the person table as required.
+    *******************************************************************************/
+   private void makeFieldsRequired(String... fieldNames)
+   {
+      QTableMetaData table = QContext.getQInstance().getTable(TestUtils.TABLE_NAME_PERSON_MEMORY);
+      for(String fieldName : fieldNames)
+      {
+         table.getField(fieldName).setIsRequired(true);
+      }
+   }
+
+}
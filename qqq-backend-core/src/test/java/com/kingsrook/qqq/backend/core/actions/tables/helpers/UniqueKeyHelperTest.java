@@ -23,6 +23,7 @@ package com.kingsrook.qqq.backend.core.actions.tables.helpers;
 
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import com.kingsrook.qqq.backend.core.BaseTest;
@@ -43,6 +44,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /*******************************************************************************
@@ -123,6 +125,42 @@ class UniqueKeyHelperTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** records with a null key value can't go in the TUPLE_IN criteria - make sure
+    ** they're still looked up (with their own sub-filters), along with the others.
+    *******************************************************************************/
+   @Test
+   void testUniqueKeyWithNullValues() throws QException
+   {
+      InsertInput insertInput = new InsertInput();
+      insertInput.setTableName(TestUtils.TABLE_NAME_TWO_KEYS);
+      insertInput.setRecords(List.of(
+         new QRecord().withValue("key1", 1).withValue("key2", 1),
+         new QRecord().withValue("key1", 2).withValue("key2", null)
+      ));
+      new InsertAction().execute(insertInput);
+
+      List<QRecord> records = List.of(
+         new QRecord().withValue("key1", 1).withValue("key2", 1),
+         new QRecord().withValue("key1", 1).withValue("key2", 2),
+         new QRecord().withValue("key1", 2).withValue("key2", null),
+         new QRecord().withValue("key1", 3).withValue("key2", null)
+      );
+
+      MemoryRecordStore.resetStatistics();
+      MemoryRecordStore.setCollectStatistics(true);
+
+      QTableMetaData table = QContext.getQInstance().getTable(TestUtils.TABLE_NAME_TWO_KEYS);
+      Map<List<Serializable>, Serializable> existingKeys = UniqueKeyHelper.getExistingKeys(null, table, records, table.getUniqueKeys().get(0), true);
+      assertEquals(2, existingKeys.size());
+      assertTrue(existingKeys.containsKey(List.of(1, 1)));
+      assertTrue(existingKeys.containsKey(Arrays.asList(2, null)));
+
+      assertEquals(1, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN));
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
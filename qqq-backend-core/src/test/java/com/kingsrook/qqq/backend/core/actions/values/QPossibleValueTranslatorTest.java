@@ -23,16 +23,26 @@ package com.kingsrook.qqq.backend.core.actions.values;
 
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
+import com.kingsrook.qqq.backend.core.actions.tables.DeleteAction;
+import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
+import com.kingsrook.qqq.backend.core.actions.tables.UpdateAction;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.delete.DeleteInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateInput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PVSSharedLabelCache;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PVSValueFormatAndFields;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSource;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSourceType;
@@ -40,9 +50,13 @@ import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.model.session.QSession;
 import com.kingsrook.qqq.backend.core.modules.backend.implementations.memory.MemoryRecordStore;
 import com.kingsrook.qqq.backend.core.utils.TestUtils;
+import com.kingsrook.qqq.backend.core.utils.Timer;
+import com.kingsrook.qqq.backend.core.utils.memoization.MemoizationStatistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -62,6 +76,7 @@ public class QPossibleValueTranslatorTest extends BaseTest
    {
       MemoryRecordStore.getInstance().reset();
       MemoryRecordStore.resetStatistics();
+      SharedPossibleValueLabelCache.getInstance().clear();
    }
 
 
@@ -530,4 +545,191 @@ public class QPossibleValueTranslatorTest extends BaseTest
       assertEquals(2, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN), "Should have ran 2 more queries");
    }
 
+
+
+   /*******************************************************************************
+    ** make sure that a PVS with a shared label cache uses it across translators,
+    ** and that insert, update, and delete invalidate it.
+    *******************************************************************************/
+   @Test
+   void testSharedLabelCache() throws QException
+   {
+      QInstance            qInstance           = QContext.getQInstance();
+      QFieldMetaData       shapeField          = qInstance.getTable(TestUtils.TABLE_NAME_PERSON).getField("favoriteShapeId");
+      QPossibleValueSource possibleValueSource = qInstance.getPossibleValueSource(shapeField.getPossibleValueSourceName());
+      possibleValueSource.setSharedLabelCache(new PVSSharedLabelCache());
+
+      TestUtils.insertDefaultShapes(qInstance);
+      MemoryRecordStore.setCollectStatistics(true);
+
+      ///////////////////////////////////////////////////////////////////////////////
+      // first translator runs queries - then a second one doesn't need to run any //
+      ///////////////////////////////////////////////////////////////////////////////
+      QPossibleValueTranslator possibleValueTranslator = new QPossibleValueTranslator();
+      assertEquals("Triangle", possibleValueTranslator.translatePossibleValue(shapeField, 1));
+      assertEquals("Square", possibleValueTranslator.translatePossibleValue(shapeField, 2));
+      assertNull(possibleValueTranslator.translatePossibleValue(shapeField, 4));
+      assertEquals(3, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN));
+
+      MemoryRecordStore.resetStatistics();
+      possibleValueTranslator = new QPossibleValueTranslator();
+      assertEquals("Triangle", possibleValueTranslator.translatePossibleValue(shapeField, 1));
+      assertEquals("Square", possibleValueTranslator.translatePossibleValue(shapeField, 2));
+      assertNull(possibleValueTranslator.translatePossibleValue(shapeField, 4));
+      assertNull(MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN));
+
+      ////////////////////////////////////////////////////////////////////////////
+      // priming for records also takes what it can from the shared cache, only //
+      // querying for the rest                                                  //
+      ////////////////////////////////////////////////////////////////////////////
+      possibleValueTranslator = new QPossibleValueTranslator();
+      List<QRecord> personRecords = List.of(
+         new QRecord().withValue("favoriteShapeId", 1),
+         new QRecord().withValue("favoriteShapeId", 2),
+         new QRecord().withValue("favoriteShapeId", 3));
+      possibleValueTranslator.translatePossibleValuesInRecords(qInstance.getTable(TestUtils.TABLE_NAME_PERSON), personRecords);
+      assertEquals(1, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN));
+      assertEquals(List.of("Triangle", "Square", "Circle"), personRecords.stream().map(r -> r.getDisplayValue("favoriteShapeId")).toList());
+
+      ///////////////////////////////////////////////////////////////
+      // update, insert, and delete records, and see new labels    //
+      // (and that only the changed ids needed to be re-looked-up) //
+      ///////////////////////////////////////////////////////////////
+      new UpdateAction().execute(new UpdateInput(TestUtils.TABLE_NAME_SHAPE).withRecord(new QRecord().withValue("id", 1).withValue("name", "Trapezoid")));
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_SHAPE).withRecord(new QRecord().withValue("id", 4).withValue("name", "Hexagon")));
+      new DeleteAction().execute(new DeleteInput(TestUtils.TABLE_NAME_SHAPE).withPrimaryKey(2));
+
+      MemoryRecordStore.resetStatistics();
+      possibleValueTranslator = new QPossibleValueTranslator();
+      assertEquals("Trapezoid", possibleValueTranslator.translatePossibleValue(shapeField, 1));
+      assertNull(possibleValueTranslator.translatePossibleValue(shapeField, 2));
+      assertEquals("Circle", possibleValueTranslator.translatePossibleValue(shapeField, 3));
+      assertEquals("Hexagon", possibleValueTranslator.translatePossibleValue(shapeField, 4));
+      assertEquals(3, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN));
+
+      /////////////////////////////
+      // check reported hit rate //
+      /////////////////////////////
+      MemoizationStatistics statistics = SharedPossibleValueLabelCache.getInstance().getStatistics().get(possibleValueSource.getName());
+      assertThat(statistics.hitCount()).isGreaterThan(0);
+      assertThat(statistics.missCount()).isGreaterThan(0);
+      assertThat(statistics.hitRate()).isBetween(0.0, 1.0);
+   }
+
+
+
+   /*******************************************************************************
+    ** DML in a transaction invalidates the shared label cache again when the
+    ** transaction commits - so that an old label cached by a query in between
+    ** (which, in a real backend, still sees the old row) doesn't stay stale.
+    *******************************************************************************/
+   @Test
+   void testSharedLabelCacheInvalidatedAfterCommit() throws QException
+   {
+      QInstance            qInstance           = QContext.getQInstance();
+      QFieldMetaData       shapeField          = qInstance.getTable(TestUtils.TABLE_NAME_PERSON).getField("favoriteShapeId");
+      QPossibleValueSource possibleValueSource = qInstance.getPossibleValueSource(shapeField.getPossibleValueSourceName());
+      possibleValueSource.setSharedLabelCache(new PVSSharedLabelCache());
+      TestUtils.insertDefaultShapes(qInstance);
+
+      SharedPossibleValueLabelCache sharedCache = SharedPossibleValueLabelCache.getInstance();
+      for(boolean commit : List.of(true, false))
+      {
+         assertEquals("Triangle", new QPossibleValueTranslator().translatePossibleValue(shapeField, 1));
+
+         QBackendTransaction transaction = new QBackendTransaction();
+         new UpdateAction().execute(new UpdateInput(TestUtils.TABLE_NAME_SHAPE).withTransaction(transaction).withRecord(new QRecord().withValue("id", 1).withValue("name", "Trapezoid")));
+
+         /////////////////////////////////////////////////////////////////////////
+         // as a query on another connection would, before the commit: cache    //
+         // the old label, under the generation after the update's invalidation //
+         /////////////////////////////////////////////////////////////////////////
+         sharedCache.put(possibleValueSource, sharedCache.getGeneration(possibleValueSource), 1, "Triangle");
+         assertEquals("Triangle", new QPossibleValueTranslator().translatePossibleValue(shapeField, 1));
+
+         if(commit)
+         {
+            transaction.commit();
+            assertEquals("Trapezoid", new QPossibleValueTranslator().translatePossibleValue(shapeField, 1));
+         }
+         else
+         {
+            ////////////////////////////////////////////////////////////////
+            // after a rollback (in a real backend, the old row is back), //
+            // the post-commit invalidation is dropped                    //
+            ////////////////////////////////////////////////////////////////
+            transaction.rollback();
+            transaction.commit();
+            assertEquals("Triangle", new QPossibleValueTranslator().translatePossibleValue(shapeField, 1));
+         }
+
+         new UpdateAction().execute(new UpdateInput(TestUtils.TABLE_NAME_SHAPE).withRecord(new QRecord().withValue("id", 1).withValue("name", "Triangle")));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** make sure priming with multiple pages, queried in parallel, gets the right
+    ** labels, and only runs 1 query per page.
+    *******************************************************************************/
+   @Test
+   void testPrimingParallelPages() throws QException
+   {
+      QInstance qInstance = QContext.getQInstance();
+      TestUtils.insertDefaultShapes(qInstance);
+      TestUtils.insertExtraShapes(qInstance);
+
+      List<QRecord> personRecords = new ArrayList<>();
+      for(int i = 1; i <= 7; i++)
+      {
+         personRecords.add(new QRecord().withValue("favoriteShapeId", i));
+      }
+
+      MemoryRecordStore.setCollectStatistics(true);
+      QPossibleValueTranslator possibleValueTranslator = new QPossibleValueTranslator();
+      possibleValueTranslator.setPrimingPageSize(2);
+      possibleValueTranslator.setPrimingParallelism(3);
+      possibleValueTranslator.translatePossibleValuesInRecords(qInstance.getTable(TestUtils.TABLE_NAME_PERSON), personRecords);
+
+      assertEquals(4, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN), "Should have ran 1 query per page");
+      assertEquals(Arrays.asList("Triangle", "Square", "Circle", "Rectangle", "Pentagon", "Hexagon", null), personRecords.stream().map(r -> r.getDisplayValue("favoriteShapeId")).toList());
+
+      ///////////////////////////////////////////////////////////////////////
+      // the not-found id (7) should be cached as such, so no more queries //
+      ///////////////////////////////////////////////////////////////////////
+      assertNull(possibleValueTranslator.translatePossibleValue(qInstance.getTable(TestUtils.TABLE_NAME_PERSON).getField("favoriteShapeId"), 7));
+      assertEquals(4, MemoryRecordStore.getStatistics().get(MemoryRecordStore.STAT_QUERIES_RAN));
+   }
+
+
+
+   /*******************************************************************************
+    ** compare time to prime the cache with different parallelism settings.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during PVS cache priming change")
+   void testPrimingPerformance() throws QException
+   {
+      QInstance     qInstance     = QContext.getQInstance();
+      List<QRecord> shapes        = new ArrayList<>();
+      List<QRecord> personRecords = new ArrayList<>();
+      for(int i = 1; i <= 50_000; i++)
+      {
+         shapes.add(new QRecord().withValue("id", i).withValue("name", "Shape " + i).withValue("type", "polygon").withValue("noOfSides", i % 12));
+         personRecords.add(new QRecord().withValue("favoriteShapeId", i));
+      }
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_SHAPE).withRecords(shapes));
+
+      for(int parallelism : List.of(1, 2, 4, 8, 1, 2, 4, 8))
+      {
+         QPossibleValueTranslator possibleValueTranslator = new QPossibleValueTranslator();
+         possibleValueTranslator.setPrimingParallelism(parallelism);
+
+         Timer timer = new Timer("priming");
+         possibleValueTranslator.translatePossibleValuesInRecords(qInstance.getTable(TestUtils.TABLE_NAME_PERSON), personRecords);
+         timer.mark("parallelism " + parallelism);
+      }
+   }
+
 }
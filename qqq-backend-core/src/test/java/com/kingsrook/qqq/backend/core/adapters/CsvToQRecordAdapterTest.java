@@ -22,9 +22,15 @@
 package com.kingsrook.qqq.backend.core.adapters;
 
 
+import java.io.Reader;
+import java.io.StringReader;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.actions.reporting.RecordPipe;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.shared.mapping.QIndexBasedFieldMapping;
 import com.kingsrook.qqq.backend.core.model.actions.shared.mapping.QKeyBasedFieldMapping;
@@ -33,8 +39,10 @@ import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
 import com.kingsrook.qqq.backend.core.utils.TestUtils;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -521,4 +529,205 @@ class CsvToQRecordAdapterTest extends BaseTest
       assertEquals("BASIC2", qRecord.getValue("sku 2"));
    }
 
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testBuildRecordsFromReader() throws QException
+   {
+      /////////////////////////////////////////////////////////////////////////
+      // into a list - with a byte-order marker, same as testByteOrderMarker //
+      /////////////////////////////////////////////////////////////////////////
+      CsvToQRecordAdapter csvToQRecordAdapter = new CsvToQRecordAdapter();
+      csvToQRecordAdapter.buildRecordsFromCsv(new CsvToQRecordAdapter.InputWrapper()
+         .withTable(TestUtils.defineTablePerson())
+         .withCsvReader(new StringReader("""
+            \uFEFFid,firstName,lastName
+            1,John,Doe
+            2,Jane,"Doe, Jr."
+            """)));
+
+      List<QRecord> records = csvToQRecordAdapter.getRecordList();
+      assertEquals(2, records.size());
+      assertEquals("1", records.get(0).getValueString("id"));
+      assertEquals("John", records.get(0).getValueString("firstName"));
+      assertEquals("Doe, Jr.", records.get(1).getValueString("lastName"));
+
+      //////////////////////////////////////////////////////
+      // into a pipe, with a customizer, as a query would //
+      //////////////////////////////////////////////////////
+      RecordPipe recordPipe = new RecordPipe();
+      new CsvToQRecordAdapter().buildRecordsFromCsv(recordPipe, new StringReader("""
+         id,firstName
+         1,John
+         2,Jane
+         """), TestUtils.defineTablePerson(), null, record -> record.setValue("lastName", "Piped"));
+      records = recordPipe.consumeAvailableRecords();
+      assertEquals(2, records.size());
+      assertEquals("Jane", records.get(1).getValueString("firstName"));
+      assertTrue(records.stream().allMatch(r -> r.getValueString("lastName").equals("Piped")));
+
+      assertThatThrownBy(() -> new CsvToQRecordAdapter().buildRecordsFromCsv(new CsvToQRecordAdapter.InputWrapper()
+         .withTable(TestUtils.defineTablePerson())
+         .withCsvReader(new StringReader(""))))
+         .isInstanceOf(IllegalArgumentException.class)
+         .hasMessageContaining("Empty");
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testRecordConsumerStopConditionAndFieldNamesToInclude() throws QException
+   {
+      List<QRecord> records = new ArrayList<>();
+      new CsvToQRecordAdapter().buildRecordsFromCsv(new CsvToQRecordAdapter.InputWrapper()
+         .withTable(TestUtils.defineTablePerson())
+         .withFieldNamesToInclude(Set.of("id", "firstName"))
+         .withRecordConsumer(records::add)
+         .withStopCondition(() -> records.size() >= 2)
+         .withCsvReader(new StringReader("""
+            id,firstName,lastName
+            1,John,Doe
+            2,Jane,Doe
+            3,Jim,Doe
+            """)));
+
+      assertEquals(2, records.size(), "Should stop reading once the stop condition is met");
+      assertEquals("Jane", records.get(1).getValueString("firstName"));
+      assertTrue(records.stream().allMatch(r -> r.getValues().keySet().equals(Set.of("id", "firstName"))), "Only included fields should have values");
+   }
+
+
+
+   /*******************************************************************************
+    ** parse more characters of csv than the heap could hold, to show that reading
+    ** from a reader into a pipe never holds the whole input.  Rows are generated
+    ** on the fly by the reader, and counted-then-dropped by the pipe.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during streaming file read change")
+   void testBuildRecordsFromReaderLargerThanHeap() throws QException
+   {
+      long maxHeapBytes = Runtime.getRuntime().maxMemory();
+
+      AtomicLong recordCount  = new AtomicLong();
+      RecordPipe countingPipe = new RecordPipe()
+      {
+         @Override
+         public void addRecord(QRecord record)
+         {
+            recordCount.incrementAndGet();
+         }
+      };
+
+      GeneratedCsvReader reader = new GeneratedCsvReader(maxHeapBytes + 1);
+
+      long start = System.currentTimeMillis();
+      new CsvToQRecordAdapter().buildRecordsFromCsv(countingPipe, reader, TestUtils.defineTablePerson(), null, null);
+      long millis = System.currentTimeMillis() - start;
+
+      System.out.printf("Parsed %,d records from %,d chars (max heap %,d bytes) in %,d ms%n", recordCount.get(), reader.getCharsGenerated(), maxHeapBytes, millis);
+      assertTrue(reader.getCharsGenerated() > maxHeapBytes);
+      assertEquals(reader.getRowsGenerated(), recordCount.get());
+   }
+
+
+
+   /*******************************************************************************
+    ** Reader that makes up person-table csv rows as they're read, until at least
+    ** minChars characters have been produced - so the content never exists in
+    ** memory as a whole.
+    *******************************************************************************/
+   private static class GeneratedCsvReader extends Reader
+   {
+      private final long minChars;
+
+      private String currentLine    = "id,firstName,lastName,birthDate,email\n";
+      private int    positionInLine = 0;
+      private long   charsGenerated = 0;
+      private long   rowsGenerated  = 0;
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      GeneratedCsvReader(long minChars)
+      {
+         this.minChars = minChars;
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public int read(char[] buffer, int offset, int length)
+      {
+         int charsRead = 0;
+         while(charsRead < length)
+         {
+            if(positionInLine == currentLine.length())
+            {
+               if(charsGenerated >= minChars)
+               {
+                  break;
+               }
+
+               rowsGenerated++;
+               currentLine = rowsGenerated + ",First" + rowsGenerated + ",Last" + rowsGenerated + ",1980-05-31,person" + rowsGenerated + "@kingsrook.com\n";
+               positionInLine = 0;
+            }
+
+            int count = Math.min(length - charsRead, currentLine.length() - positionInLine);
+            currentLine.getChars(positionInLine, positionInLine + count, buffer, offset + charsRead);
+            positionInLine += count;
+            charsRead += count;
+            charsGenerated += count;
+         }
+
+         return (charsRead == 0 ? -1 : charsRead);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public void close()
+      {
+         /////////////////////////////
+         // nothing to release here //
+         /////////////////////////////
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      public long getCharsGenerated()
+      {
+         return (charsGenerated);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      public long getRowsGenerated()
+      {
+         return (rowsGenerated);
+      }
+   }
+
 }
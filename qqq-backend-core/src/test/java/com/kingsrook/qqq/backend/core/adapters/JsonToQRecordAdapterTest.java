@@ -22,11 +22,16 @@
 package com.kingsrook.qqq.backend.core.adapters;
 
 
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.utils.TestUtils;
 import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -196,4 +201,84 @@ class JsonToQRecordAdapterTest extends BaseTest
       testExpectedToThrow("[ 1701 ]");
    }
 
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void test_buildRecordsFromJsonReader() throws QException
+   {
+      JsonToQRecordAdapter jsonToQRecordAdapter = new JsonToQRecordAdapter();
+
+      List<QRecord> qRecords = new ArrayList<>();
+      jsonToQRecordAdapter.buildRecordsFromJson(new StringReader("""
+         [
+            { "id": 1, "firstName":"Tyler", "lastName":"Samples" },
+            { "id": 2, "firstName":"Tim", "lastName":"Chamberlain" }
+         ]
+         """), TestUtils.defineTablePerson(), null, qRecords::add);
+      assertEquals(2, qRecords.size());
+      assertEquals(1, qRecords.get(0).getValue("id"));
+      assertEquals("Tyler", qRecords.get(0).getValue("firstName"));
+      assertEquals("Samples", qRecords.get(0).getValue("lastName"));
+      assertEquals(2, qRecords.get(1).getValue("id"));
+      assertEquals("Chamberlain", qRecords.get(1).getValue("lastName"));
+
+      //////////////////////////////////////////////////////////
+      // a single object (rather than array) gives one record //
+      //////////////////////////////////////////////////////////
+      qRecords.clear();
+      jsonToQRecordAdapter.buildRecordsFromJson(new StringReader("""
+         { "firstName":"Joe", "lastName":"Dimagio" }
+         """), TestUtils.defineTablePerson(), null, qRecords::add);
+      assertEquals(1, qRecords.size());
+      assertEquals("Joe", qRecords.get(0).getValue("firstName"));
+
+      qRecords.clear();
+      jsonToQRecordAdapter.buildRecordsFromJson(new StringReader("[]"), TestUtils.defineTablePerson(), null, qRecords::add);
+      assertTrue(qRecords.isEmpty());
+
+      ///////////////////////////////////////////////////////////////////////////
+      // records before a bad element should have already gone to the consumer //
+      ///////////////////////////////////////////////////////////////////////////
+      qRecords.clear();
+      assertThatThrownBy(() -> jsonToQRecordAdapter.buildRecordsFromJson(new StringReader("[ {\"firstName\":\"Tyler\"}, 1701 ]"), TestUtils.defineTablePerson(), null, qRecords::add))
+         .isInstanceOf(IllegalArgumentException.class)
+         .hasMessageContaining("index 1");
+      assertEquals(1, qRecords.size());
+
+      assertThatThrownBy(() -> jsonToQRecordAdapter.buildRecordsFromJson(new StringReader(""), TestUtils.defineTablePerson(), null, qRecords::add))
+         .isInstanceOf(IllegalArgumentException.class)
+         .hasMessageContaining("Empty");
+      assertThatThrownBy(() -> jsonToQRecordAdapter.buildRecordsFromJson(new StringReader("Not json"), TestUtils.defineTablePerson(), null, qRecords::add))
+         .isInstanceOf(IllegalArgumentException.class);
+      assertThatThrownBy(() -> jsonToQRecordAdapter.buildRecordsFromJson(new StringReader("[ {\"firstName\":\"Tyler\"}, "), TestUtils.defineTablePerson(), null, qRecords::add))
+         .isInstanceOf(IllegalArgumentException.class);
+   }
+
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void test_buildRecordsFromJsonReaderStopConditionAndFieldNamesToInclude() throws QException
+   {
+      List<QRecord> qRecords = new ArrayList<>();
+      new JsonToQRecordAdapter().buildRecordsFromJson(new StringReader("""
+         [
+            { "id": 1, "firstName":"Tyler", "lastName":"Samples" },
+            { "id": 2, "firstName":"Tim", "lastName":"Chamberlain" },
+            { "id": 3, "firstName":"Darin", "lastName":"Kelkhoff" }
+         ]
+         """), TestUtils.defineTablePerson(), null, Set.of("lastName"), qRecords::add, () -> qRecords.size() >= 2);
+
+      assertEquals(2, qRecords.size(), "Should stop reading once the stop condition is met");
+      assertEquals("Chamberlain", qRecords.get(1).getValue("lastName"));
+      assertTrue(qRecords.stream().allMatch(r -> r.getValues().keySet().equals(Set.of("lastName"))), "Only included fields should have values");
+   }
+
 }
@@ -83,6 +83,7 @@ import com.kingsrook.qqq.backend.core.model.metadata.menus.QMenu;
 import com.kingsrook.qqq.backend.core.model.metadata.menus.QMenuSlot;
 import com.kingsrook.qqq.backend.core.model.metadata.menus.defaults.QMenuDefaultViewScreenActionsMenu;
 import com.kingsrook.qqq.backend.core.model.metadata.menus.items.QMenuItemRunProcess;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PVSSharedLabelCache;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValue;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSource;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.QPossibleValueSourceType;
@@ -1461,6 +1462,19 @@ public class QInstanceValidatorTest extends BaseTest
 
       assertValidationFailureReasons((qInstance) -> qInstance.getPossibleValueSource(TestUtils.POSSIBLE_VALUE_SOURCE_SHAPE).setSearchFields(List.of("id", "notAField", "name")),
          "unrecognized searchField: notAField");
+
+      assertValidationFailureReasons((qInstance) -> qInstance.getPossibleValueSource(TestUtils.POSSIBLE_VALUE_SOURCE_SHAPE).setSharedLabelCache(new PVSSharedLabelCache().withMaxSize(0).withTimeoutSeconds(null)),
+         "sharedLabelCache must have a positive maxSize",
+         "sharedLabelCache must have a positive timeoutSeconds");
+
+      assertValidationFailureReasons((qInstance) ->
+      {
+         qInstance.getPossibleValueSource(TestUtils.POSSIBLE_VALUE_SOURCE_SHAPE).setSharedLabelCache(new PVSSharedLabelCache());
+         qInstance.getTable(TestUtils.TABLE_NAME_SHAPE).withRecordSecurityLock(new RecordSecurityLock().withSecurityKeyType(TestUtils.SECURITY_KEY_TYPE_STORE).withFieldName("id"));
+      },
+         "cannot use a sharedLabelCache, as its table has recordSecurityLocks");
+
+      assertValidationSuccess((qInstance) -> qInstance.getPossibleValueSource(TestUtils.POSSIBLE_VALUE_SOURCE_SHAPE).setSharedLabelCache(new PVSSharedLabelCache()));
    }
 
 
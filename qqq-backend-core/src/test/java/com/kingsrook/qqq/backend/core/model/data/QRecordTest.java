@@ -311,4 +311,62 @@ class QRecordTest extends BaseTest
       assertEquals("Be Careful", order.getValue("orderInstructions.instructions"));
    }
 
-}
\ No newline at end of file
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testLazyCollections()
+   {
+      ///////////////////////////////////////////////////////////////////////
+      // reading single values shouldn't need (nor create) any collections //
+      ///////////////////////////////////////////////////////////////////////
+      QRecord record = new QRecord();
+      assertNull(record.getValue("a"));
+      assertNull(record.getDisplayValue("a"));
+      assertNull(record.getBackendDetail("a"));
+      assertEquals("", record.getErrorsAsString());
+      record.removeValue("a");
+
+      record.addError(new BadInputStatusMessage("bad"));
+      record.addWarning(new QWarningMessage("warn"));
+      record.addBackendDetail("detail", 1);
+      assertEquals(1, record.getErrors().size());
+      assertEquals(1, record.getWarnings().size());
+      assertEquals(1, record.getBackendDetail("detail"));
+
+      ////////////////////////////////////////////////////////////////////////
+      // setting a collection back to non-null after nulling it should work //
+      ////////////////////////////////////////////////////////////////////////
+      record.setErrors(null);
+      assertNull(record.getErrors());
+      record.setErrors(new ArrayList<>());
+      record.addError(new BadInputStatusMessage("bad again"));
+      assertEquals(1, new QRecord(record).getErrors().size());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testCopyConstructorWithValueMap()
+   {
+      QRecordFieldIndex fieldIndex = new QRecordFieldIndex(List.of("id", "name"));
+      QRecord           original   = new QRecord().withTableName("myTable");
+      original.setValues(new QRecordValueMap(fieldIndex, MapBuilder.of("id", 1, "name", "A")));
+      original.setValue("extra", new ArrayList<>(List.of(1)));
+
+      QRecord clone = new QRecord(original);
+      assertThat(clone.getValues()).isInstanceOf(QRecordValueMap.class);
+      assertSame(fieldIndex, ((QRecordValueMap) clone.getValues()).getFieldIndex());
+      assertEquals(original.getValues(), clone.getValues());
+      assertNotSame(original.getValue("extra"), clone.getValue("extra"));
+
+      clone.setValue("name", "B");
+      assertEquals("A", original.getValueString("name"));
+   }
+
+}
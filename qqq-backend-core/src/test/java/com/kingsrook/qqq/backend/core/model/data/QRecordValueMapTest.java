@@ -0,0 +1,185 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.model.data;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.utils.collections.MapBuilder;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/*******************************************************************************
+ ** Unit test for QRecordValueMap
+ *******************************************************************************/
+class QRecordValueMapTest extends BaseTest
+{
+   private static final QRecordFieldIndex FIELD_INDEX = new QRecordFieldIndex(List.of("id", "name", "amount"));
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testBasicMapBehavior()
+   {
+      QRecordValueMap map = new QRecordValueMap(FIELD_INDEX);
+      assertTrue(map.isEmpty());
+      assertNull(map.get("id"));
+      assertFalse(map.containsKey("id"));
+
+      assertNull(map.put("id", 1));
+      assertEquals(1, map.put("id", 2));
+      assertEquals(2, map.get("id"));
+      assertEquals(1, map.size());
+
+      ////////////////////////////////////////////////
+      // present-with-null is different from absent //
+      ////////////////////////////////////////////////
+      map.put("name", null);
+      assertTrue(map.containsKey("name"));
+      assertNull(map.get("name"));
+      assertFalse(map.containsKey("amount"));
+      assertEquals(2, map.size());
+
+      ////////////////////////////////////////
+      // keys not in the index are fine too //
+      ////////////////////////////////////////
+      map.put("other", "x");
+      assertEquals("x", map.get("other"));
+      assertEquals(3, map.size());
+
+      assertEquals(2, map.remove("id"));
+      assertNull(map.remove("id"));
+      assertEquals("x", map.remove("other"));
+      assertEquals(1, map.size());
+
+      map.clear();
+      assertTrue(map.isEmpty());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testEqualsAndIterationMatchLinkedHashMap()
+   {
+      Map<String, Serializable> expected = new LinkedHashMap<>();
+      expected.put("id", 1);
+      expected.put("amount", null);
+      expected.put("other", "x");
+
+      QRecordValueMap map = new QRecordValueMap(FIELD_INDEX, expected);
+      assertEquals(expected, map);
+      assertEquals(map, expected);
+      assertEquals(expected.hashCode(), map.hashCode());
+      assertEquals(new HashMap<>(expected), new HashMap<>(map));
+
+      assertThat(map.keySet()).containsExactly("id", "amount", "other");
+
+      //////////////////////////////////////////////
+      // setValue through an entry writes through //
+      //////////////////////////////////////////////
+      for(Map.Entry<String, Serializable> entry : map.entrySet())
+      {
+         if(entry.getKey().equals("id"))
+         {
+            entry.setValue(100);
+         }
+      }
+      assertEquals(100, map.get("id"));
+
+      //////////////////////////////////
+      // removal through the iterator //
+      //////////////////////////////////
+      Iterator<Map.Entry<String, Serializable>> iterator = map.entrySet().iterator();
+      while(iterator.hasNext())
+      {
+         Map.Entry<String, Serializable> entry = iterator.next();
+         if(!entry.getKey().equals("amount"))
+         {
+            iterator.remove();
+         }
+      }
+      assertEquals(MapBuilder.of("amount", null), new HashMap<>(map));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testCopiesAndSerialization()
+   {
+      QRecordValueMap map = new QRecordValueMap(FIELD_INDEX, MapBuilder.of("id", 1, "other", new ArrayList<>(List.of(1))));
+
+      QRecordValueMap copy = new QRecordValueMap(map);
+      copy.put("id", 2);
+      copy.put("other", "y");
+      assertEquals(1, map.get("id"));
+      assertEquals(List.of(1), map.get("other"));
+
+      QRecordValueMap deserialized = SerializationUtils.clone(map);
+      assertEquals(map, deserialized);
+      deserialized.put("name", null);
+      assertTrue(deserialized.containsKey("name"));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testFieldIndex()
+   {
+      QRecordFieldIndex fieldIndex = new QRecordFieldIndex(List.of("a", "b", "a", "c"));
+      assertEquals(3, fieldIndex.size());
+      assertEquals(0, fieldIndex.getSlot("a"));
+      assertEquals(2, fieldIndex.getSlot("c"));
+      assertEquals(-1, fieldIndex.getSlot("d"));
+      assertEquals(-1, fieldIndex.getSlot(null));
+      assertEquals("b", fieldIndex.getFieldName(1));
+
+      assertTrue(fieldIndex.hasFieldNames(List.of("a", "b", "c")));
+      assertFalse(fieldIndex.hasFieldNames(List.of("a", "c", "b")));
+      assertFalse(fieldIndex.hasFieldNames(List.of("a", "b")));
+   }
+
+}
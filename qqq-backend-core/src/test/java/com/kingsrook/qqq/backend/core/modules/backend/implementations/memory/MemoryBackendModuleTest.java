@@ -22,11 +22,18 @@
 package com.kingsrook.qqq.backend.core.modules.backend.implementations.memory;
 
 
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import com.kingsrook.qqq.backend.core.BaseTest;
 import com.kingsrook.qqq.backend.core.actions.customizers.AbstractPostQueryCustomizer;
 import com.kingsrook.qqq.backend.core.actions.customizers.TableCustomizers;
@@ -52,6 +59,7 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.delete.DeleteInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.delete.DeleteOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.CriteriaOption;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
@@ -69,8 +77,10 @@ import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.model.session.QSession;
 import com.kingsrook.qqq.backend.core.utils.TestUtils;
+import com.kingsrook.qqq.backend.core.utils.Timer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -771,6 +781,158 @@ class MemoryBackendModuleTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** queries that can use indexes should get the same records as a full scan
+    ** (e.g., as when the table has no indexes) - including after updates & deletes.
+    *******************************************************************************/
+   @Test
+   void testIndexes() throws QException
+   {
+      QInstance      qInstance = QContext.getQInstance();
+      QTableMetaData table     = qInstance.getTable(TestUtils.TABLE_NAME_SHAPE);
+
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 1; i <= 60; i++)
+      {
+         records.add(new QRecord()
+            .withValue("id", i)
+            .withValue("name", i % 10 == 0 ? null : "Shape" + (i % 20))
+            .withValue("type", i % 2 == 0 ? "even" : "odd")
+            .withValue("noOfSides", i % 7 == 0 ? null : i % 12));
+      }
+      new InsertAction().execute(new InsertInput(table.getName()).withRecords(records));
+
+      List<QQueryFilter> filters = List.of(
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Shape3")),
+         new QQueryFilter(new QFilterCriteria("shape.name", QCriteriaOperator.EQUALS, "Shape3")),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "shape3").withOption(CriteriaOption.CASE_INSENSITIVE)),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.IN, "Shape3", "Shape5", "NotAShape")),
+         new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.IN, 1, "2", 3, 3, 99)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.EQUALS, "4")),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.GREATER_THAN, 5)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.GREATER_THAN_OR_EQUALS, 5)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.LESS_THAN, 3)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.LESS_THAN_OR_EQUALS, 3)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.BETWEEN, 3, 6)),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.BETWEEN, 6, 3)),
+         new QQueryFilter(new QFilterCriteria("type", QCriteriaOperator.EQUALS, "odd"), new QFilterCriteria("noOfSides", QCriteriaOperator.EQUALS, 5)),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Shape3"), new QFilterCriteria("id", QCriteriaOperator.GREATER_THAN, 30)),
+         new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Shape3"), new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Shape5")).withBooleanOperator(QQueryFilter.BooleanOperator.OR),
+         new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.GREATER_THAN, 2)).withSubFilter(new QQueryFilter(new QFilterCriteria("type", QCriteriaOperator.EQUALS, "even"))));
+
+      ////////////////////////////////////////////////////////////////////////////////////
+      // get the expected results with no indexes, then add indexes, and check the same //
+      ////////////////////////////////////////////////////////////////////////////////////
+      List<List<Integer>> expectedIds = new ArrayList<>();
+      for(QQueryFilter filter : filters)
+      {
+         expectedIds.add(queryShapeIds(qInstance, table, filter));
+      }
+
+      table.setBackendDetails(new MemoryTableBackendDetails()
+         .withIndex(new MemoryTableIndex(MemoryTableIndex.Type.HASH, "name"))
+         .withIndex(new MemoryTableIndex(MemoryTableIndex.Type.SORTED, "noOfSides"))
+         .withIndex(new MemoryTableIndex(MemoryTableIndex.Type.HASH, "type", "noOfSides")));
+
+      try
+      {
+         for(int i = 0; i < filters.size(); i++)
+         {
+            assertEquals(expectedIds.get(i), queryShapeIds(qInstance, table, filters.get(i)), "Filter: " + filters.get(i));
+         }
+
+         ///////////////////////////////////////////////////////////////////
+         // make sure indexes were (or weren't) used for some of the above //
+         ///////////////////////////////////////////////////////////////////
+         MemoryTableIndexes indexes = new MemoryTableIndexes(MemoryTableIndexes.getIndexDefinitions(table));
+         assertEquals(3, indexes.getDefinitions().size());
+         assertThat(indexes.findCandidatePrimaryKeys(table, filters.get(0), Set.of())).isNotNull();
+         assertThat(indexes.findCandidatePrimaryKeys(table, filters.get(2), Set.of())).isNull();
+         assertThat(indexes.findCandidatePrimaryKeys(table, filters.get(6), Set.of())).isNotNull();
+         assertThat(indexes.findCandidatePrimaryKeys(table, filters.get(14), Set.of())).isNull();
+         assertThat(indexes.findCandidatePrimaryKeys(table, filters.get(1), Set.of(table.getName()))).isNull();
+
+         /////////////////////////////////////////////////////////////
+         // updates and deletes must be reflected in the indexes    //
+         /////////////////////////////////////////////////////////////
+         new UpdateAction().execute(new UpdateInput(table.getName()).withRecords(List.of(
+            new QRecord().withValue("id", 3).withValue("name", "Renamed").withValue("noOfSides", 100),
+            new QRecord().withValue("id", 23).withValue("name", null))));
+         assertEquals(List.of(3), queryShapeIds(qInstance, table, new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Renamed"))));
+         assertEquals(List.of(43), queryShapeIds(qInstance, table, new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Shape3"))));
+         assertEquals(List.of(3), queryShapeIds(qInstance, table, new QQueryFilter(new QFilterCriteria("noOfSides", QCriteriaOperator.GREATER_THAN, 50))));
+
+         new DeleteAction().execute(new DeleteInput(table.getName()).withPrimaryKeys(List.of(3, 43)));
+         assertEquals(List.of(), queryShapeIds(qInstance, table, new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.EQUALS, "Renamed"))));
+         assertEquals(List.of(), queryShapeIds(qInstance, table, new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.IN, "Shape3", "Renamed"))));
+      }
+      finally
+      {
+         table.setBackendDetails(null);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private List<Integer> queryShapeIds(QInstance qInstance, QTableMetaData table, QQueryFilter filter) throws QException
+   {
+      return (queryShapes(qInstance, table, new QSession(), filter).stream().map(r -> r.getValueInteger("id")).sorted().toList());
+   }
+
+
+
+   /*******************************************************************************
+    ** joins should find the same records whether or not the join's table has an
+    ** index on the join field.
+    *******************************************************************************/
+   @Test
+   void testJoinsWithIndex() throws QException
+   {
+      QContext.getQSession().setSecurityKeyValues(Map.of(TestUtils.SECURITY_KEY_TYPE_STORE_ALL_ACCESS, List.of(true)));
+      QTableMetaData lineItemTable = QContext.getQInstance().getTable(TestUtils.TABLE_NAME_LINE_ITEM);
+      lineItemTable.setBackendDetails(new MemoryTableBackendDetails().withIndex(new MemoryTableIndex(MemoryTableIndex.Type.HASH, "orderId")));
+
+      try
+      {
+         new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_ORDER).withRecords(List.of(
+            new QRecord().withValue("id", 1),
+            new QRecord().withValue("id", 2),
+            new QRecord().withValue("id", 3)
+         )));
+
+         new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_LINE_ITEM).withRecords(List.of(
+            new QRecord().withValue("sku", "A").withValue("orderId", 1),
+            new QRecord().withValue("sku", "B").withValue("orderId", 1),
+            new QRecord().withValue("sku", "A").withValue("orderId", 2)
+         )));
+
+         QueryOutput queryOutput = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_ORDER)
+            .withQueryJoin(new QueryJoin(TestUtils.TABLE_NAME_LINE_ITEM)));
+         assertEquals(3, queryOutput.getRecords().size());
+
+         queryOutput = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_ORDER)
+            .withQueryJoin(new QueryJoin(TestUtils.TABLE_NAME_LINE_ITEM).withType(QueryJoin.Type.LEFT)));
+         assertEquals(4, queryOutput.getRecords().size());
+
+         ///////////////////////////////////////////////////////////////////////
+         // and joining the other way - where the join field is a primary key //
+         ///////////////////////////////////////////////////////////////////////
+         queryOutput = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_LINE_ITEM)
+            .withQueryJoin(new QueryJoin(TestUtils.TABLE_NAME_ORDER))
+            .withFilter(new QQueryFilter(new QFilterCriteria(TestUtils.TABLE_NAME_ORDER + ".id", QCriteriaOperator.EQUALS, 1))));
+         assertEquals(2, queryOutput.getRecords().size());
+      }
+      finally
+      {
+         lineItemTable.setBackendDetails(null);
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -796,4 +958,193 @@ class MemoryBackendModuleTest extends BaseTest
          return (records);
       }
    }
-}
\ No newline at end of file
+
+
+
+   /*******************************************************************************
+    ** many threads inserting, updating, deleting and querying the same table at
+    ** once - serials should all be unique, and each thread's queries should see
+    ** exactly the records it expects.
+    *******************************************************************************/
+   @Test
+   void testConcurrentAccess() throws Exception
+   {
+      int             threadCount      = 8;
+      int             recordsPerThread = 200;
+      QInstance       qInstance        = QContext.getQInstance();
+      QSession        qSession         = QContext.getQSession();
+      ExecutorService executorService  = Executors.newFixedThreadPool(threadCount);
+
+      try
+      {
+         List<Future<List<Integer>>> futures = new ArrayList<>();
+         for(int t = 0; t < threadCount; t++)
+         {
+            String threadName = "Thread" + t;
+            futures.add(executorService.submit(() ->
+            {
+               QContext.init(qInstance, qSession);
+               List<Integer> insertedIds = new ArrayList<>();
+               int           deleted     = 0;
+               for(int i = 0; i < recordsPerThread; i++)
+               {
+                  InsertOutput insertOutput = new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecord(new QRecord().withValue("firstName", threadName).withValue("lastName", "Inserted")));
+                  Integer      id           = insertOutput.getRecords().get(0).getValueInteger("id");
+                  insertedIds.add(id);
+
+                  new UpdateAction().execute(new UpdateInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecord(new QRecord().withValue("id", id).withValue("lastName", "Updated")));
+
+                  if(i % 4 == 3)
+                  {
+                     new DeleteAction().execute(new DeleteInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withPrimaryKeys(List.of(id)));
+                     deleted++;
+                  }
+
+                  List<QRecord> records = QueryAction.execute(TestUtils.TABLE_NAME_PERSON_MEMORY, new QQueryFilter(new QFilterCriteria("firstName", QCriteriaOperator.EQUALS, threadName)));
+                  assertEquals(i + 1 - deleted, records.size());
+                  assertThat(records).allMatch(r -> "Updated".equals(r.getValueString("lastName")));
+               }
+               return (insertedIds);
+            }));
+         }
+
+         Set<Integer> allIds = new HashSet<>();
+         for(Future<List<Integer>> future : futures)
+         {
+            allIds.addAll(future.get());
+         }
+         assertEquals(threadCount * recordsPerThread, allIds.size());
+         assertEquals(threadCount * recordsPerThread * 3 / 4, new CountAction().execute(new CountInput(TestUtils.TABLE_NAME_PERSON_MEMORY)).getCount());
+      }
+      finally
+      {
+         executorService.shutdownNow();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** report query & insert throughput against the memory store, as the number
+    ** of threads using it scales up.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during concurrent memory store change")
+   void testConcurrentThroughput() throws Exception
+   {
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < 10_000; i++)
+      {
+         records.add(new QRecord().withValue("firstName", "First" + i).withValue("lastName", "Last" + (i % 100)));
+      }
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecords(records));
+
+      QInstance qInstance    = QContext.getQInstance();
+      QSession  qSession     = QContext.getQSession();
+      int       opsPerThread = 500;
+      for(int threadCount : List.of(1, 2, 4, 8, 16))
+      {
+         ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+         List<Future<?>> futures         = new ArrayList<>();
+         Timer           timer           = new Timer("memoryStoreThroughput");
+         long            start           = System.nanoTime();
+
+         for(int t = 0; t < threadCount; t++)
+         {
+            futures.add(executorService.submit(() ->
+            {
+               QContext.init(qInstance, qSession);
+               for(int i = 0; i < opsPerThread; i++)
+               {
+                  if(i % 10 == 0)
+                  {
+                     new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecord(new QRecord().withValue("firstName", "New").withValue("lastName", "Last" + i)));
+                  }
+                  else
+                  {
+                     QueryAction.execute(TestUtils.TABLE_NAME_PERSON_MEMORY, new QQueryFilter(new QFilterCriteria("lastName", QCriteriaOperator.EQUALS, "Last" + (i % 100))).withLimit(10));
+                  }
+               }
+               return (null);
+            }));
+         }
+
+         for(Future<?> future : futures)
+         {
+            future.get();
+         }
+         executorService.shutdown();
+
+         long opsPerSecond = (long) threadCount * opsPerThread * 1_000_000_000L / (System.nanoTime() - start);
+         timer.mark(String.format("%d threads: %,d ops/second", threadCount, opsPerSecond));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** stored records' values should keep the order they were given in (rather
+    ** than, e.g., the table's field order), and fields added to the table after
+    ** records were stored should be stored for new records.
+    *******************************************************************************/
+   @Test
+   void testStoredValueOrderAndChangedFields() throws QException
+   {
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecords(List.of(
+         new QRecord().withValue("lastName", "Kelkhoff").withValue("firstName", "Darin"),
+         new QRecord().withValue("firstName", "James").withValue("lastName", "Maes"))));
+
+      List<QRecord> records = QueryAction.execute(TestUtils.TABLE_NAME_PERSON_MEMORY, new QQueryFilter().withOrderBy(new QFilterOrderBy("id")));
+      assertEquals(List.of("lastName", "firstName"), records.get(0).getValues().keySet().stream().filter(k -> k.endsWith("Name")).toList());
+      assertEquals(List.of("firstName", "lastName"), records.get(1).getValues().keySet().stream().filter(k -> k.endsWith("Name")).toList());
+
+      QContext.getQInstance().getTable(TestUtils.TABLE_NAME_PERSON_MEMORY).addField(new QFieldMetaData("nickname", QFieldType.STRING));
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecord(new QRecord().withValue("firstName", "Tim").withValue("nickname", "Timmy")));
+
+      records = QueryAction.execute(TestUtils.TABLE_NAME_PERSON_MEMORY, new QQueryFilter(new QFilterCriteria("nickname", QCriteriaOperator.EQUALS, "Timmy")));
+      assertEquals(1, records.size());
+      assertEquals("Tim", records.get(0).getValueString("firstName"));
+   }
+
+
+
+   /*******************************************************************************
+    ** report bytes retained per stored record in the memory store, and bytes
+    ** allocated per record returned by a query (e.g., to compare record storage
+    ** representations).
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during compact record storage change")
+   void testRecordFootprint() throws QException
+   {
+      com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      int                             recordCount  = 100_000;
+
+      System.gc();
+      long heapBefore = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < recordCount; i++)
+      {
+         records.add(new QRecord().withValue("firstName", "First" + i).withValue("lastName", "Last" + i).withValue("birthDate", LocalDate.of(1980, Month.JANUARY, 1)));
+      }
+
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON_MEMORY).withRecords(records));
+      records.clear();
+      System.gc();
+      long stored = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() - heapBefore;
+      new Timer("memoryRecordFootprint").mark(String.format("%,d bytes retained/stored record", stored / recordCount));
+
+      for(int i = 0; i < 5; i++)
+      {
+         long  allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+         Timer timer           = new Timer("memoryRecordFootprint");
+
+         QueryOutput queryOutput = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON_MEMORY));
+
+         long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+         timer.mark(String.format("%,d records: %,d bytes allocated/query record", queryOutput.getRecords().size(), allocated / recordCount));
+      }
+   }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.modules.backend.implementations.utils;
+
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.CriteriaOption;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.expressions.NowWithOffset;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.utils.Timer;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/*******************************************************************************
+ ** Unit test for CompiledQueryFilter
+ *******************************************************************************/
+class CompiledQueryFilterTest extends BaseTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testReusedAcrossRecords()
+   {
+      QQueryFilter filter = new QQueryFilter()
+         .withCriteria(new QFilterCriteria("name", QCriteriaOperator.LIKE, "J_n%"))
+         .withCriteria(new QFilterCriteria("id", QCriteriaOperator.IN, 1, 2, 3))
+         .withSubFilter(new QQueryFilter()
+            .withBooleanOperator(QQueryFilter.BooleanOperator.OR)
+            .withCriteria(new QFilterCriteria("city", QCriteriaOperator.STARTS_WITH, "st. ").withOption(CriteriaOption.CASE_INSENSITIVE))
+            .withCriteria(new QFilterCriteria("city", QCriteriaOperator.IS_BLANK)));
+
+      Predicate<QRecord> predicate = BackendQueryFilterUtils.compileFilter(filter, null);
+      assertTrue(predicate.test(new QRecord().withValue("id", 1).withValue("name", "Jane").withValue("city", "St. Louis")));
+      assertTrue(predicate.test(new QRecord().withValue("id", 2).withValue("name", "Jon")));
+      assertFalse(predicate.test(new QRecord().withValue("id", 4).withValue("name", "Jane").withValue("city", "St. Louis")));
+      assertFalse(predicate.test(new QRecord().withValue("id", 3).withValue("name", "James").withValue("city", "St. Louis")));
+      assertFalse(predicate.test(new QRecord().withValue("id", 3).withValue("name", "Jane").withValue("city", "Chesterfield")));
+
+      //////////////////////////////////////////////////////
+      // should match the same as doesRecordMatch, always //
+      //////////////////////////////////////////////////////
+      for(QRecord record : List.of(new QRecord().withValue("id", "1").withValue("name", "Jan"), new QRecord().withValue("id", 1L).withValue("name", "Jo")))
+      {
+         assertEquals(BackendQueryFilterUtils.doesRecordMatch(filter, record), predicate.test(record));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testExpressionsAreEvaluatedWithoutChangingFilter()
+   {
+      QFilterCriteria criteria = new QFilterCriteria("createDate", QCriteriaOperator.GREATER_THAN, NowWithOffset.minus(1, ChronoUnit.DAYS));
+      QQueryFilter    filter   = new QQueryFilter(criteria);
+
+      Predicate<QRecord> predicate = BackendQueryFilterUtils.compileFilter(filter, null);
+      assertTrue(predicate.test(new QRecord().withValue("createDate", Instant.now())));
+      assertFalse(predicate.test(new QRecord().withValue("createDate", Instant.now().minus(2, ChronoUnit.DAYS))));
+      assertFalse(predicate.test(new QRecord()));
+
+      assertInstanceOf(NowWithOffset.class, criteria.getValues().get(0));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testErrorsComeFromTestingRecords()
+   {
+      //////////////////////////////////////////////////////////////////////////
+      // a bad criteria is fine to compile, and for testing zero records with //
+      //////////////////////////////////////////////////////////////////////////
+      Predicate<QRecord> predicate = BackendQueryFilterUtils.compileFilter(new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.CONTAINS, new ArrayList<Serializable>())), null);
+      assertThatThrownBy(() -> predicate.test(new QRecord().withValue("name", "Jane")))
+         .isInstanceOf(IllegalArgumentException.class);
+
+      Predicate<QRecord> stringPredicate = BackendQueryFilterUtils.compileFilter(new QQueryFilter(new QFilterCriteria("name", QCriteriaOperator.CONTAINS, "a")), null);
+      assertThatThrownBy(() -> stringPredicate.test(new QRecord().withValue("name", 1)))
+         .isInstanceOf(ClassCastException.class);
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testTupleIn()
+   {
+      QFilterCriteria criteria = QFilterCriteria.tupleIn(List.of("firstName", "lastName"), List.of(
+         List.of("Darin", "Kelkhoff"),
+         List.of("Tim", "Chamberlain"),
+         new ArrayList<>(Arrays.asList("James", null))));
+
+      Predicate<QRecord> predicate = BackendQueryFilterUtils.compileFilter(new QQueryFilter(criteria), null);
+      assertTrue(predicate.test(new QRecord().withValue("firstName", "Darin").withValue("lastName", "Kelkhoff")));
+      assertTrue(predicate.test(new QRecord().withValue("firstName", "Tim").withValue("lastName", "Chamberlain").withValue("id", 2)));
+      assertFalse(predicate.test(new QRecord().withValue("firstName", "Darin").withValue("lastName", "Chamberlain")));
+      assertFalse(predicate.test(new QRecord().withValue("firstName", "Tim")));
+
+      //////////////////////////////////////////////////
+      // as in SQL, a null (in a tuple) never matches //
+      //////////////////////////////////////////////////
+      assertFalse(predicate.test(new QRecord().withValue("firstName", "James").withValue("lastName", null)));
+
+      ///////////////////////////////////////////////////////////////////
+      // numbers in records match string criteria values, as for an IN //
+      ///////////////////////////////////////////////////////////////////
+      Predicate<QRecord> mixedPredicate = BackendQueryFilterUtils.compileFilter(new QQueryFilter(QFilterCriteria.tupleIn(List.of("storeId", "sku"), List.of(List.of("1", "A"), List.of("2", "B")))), null);
+      assertTrue(mixedPredicate.test(new QRecord().withValue("storeId", 1).withValue("sku", "A")));
+      assertFalse(mixedPredicate.test(new QRecord().withValue("storeId", 1).withValue("sku", "B")));
+
+      assertThatThrownBy(() -> QFilterCriteria.tupleIn(List.of("storeId", "sku"), List.of(List.of(1))))
+         .isInstanceOf(IllegalArgumentException.class);
+   }
+
+
+
+   /*******************************************************************************
+    ** compare compiling a filter once vs. evaluating it fresh for every record,
+    ** over 1M records.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during compiled filter change")
+   void testPerformance()
+   {
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < 1_000_000; i++)
+      {
+         records.add(new QRecord().withTableName("person").withValue("id", i).withValue("firstName", "First" + i).withValue("lastName", "Last" + (i % 100)).withValue("createDate", Instant.now().minusSeconds(i)));
+      }
+
+      QQueryFilter filter = new QQueryFilter()
+         .withCriteria(new QFilterCriteria("lastName", QCriteriaOperator.LIKE, "%st_1%").withOption(CriteriaOption.CASE_INSENSITIVE))
+         .withCriteria(new QFilterCriteria("id", QCriteriaOperator.BETWEEN, 1000, 900_000))
+         .withCriteria(new QFilterCriteria("createDate", QCriteriaOperator.GREATER_THAN, NowWithOffset.minus(10, ChronoUnit.DAYS)))
+         .withSubFilter(new QQueryFilter()
+            .withBooleanOperator(QQueryFilter.BooleanOperator.OR)
+            .withCriteria(new QFilterCriteria("firstName", QCriteriaOperator.IN, "First1001", "First5555", "First77777"))
+            .withCriteria(new QFilterCriteria("firstName", QCriteriaOperator.ENDS_WITH, "1")));
+
+      for(int i = 0; i < 3; i++)
+      {
+         Timer timer   = new Timer("compiledFilter");
+         int   matches = 0;
+         for(QRecord record : records)
+         {
+            matches += BackendQueryFilterUtils.doesRecordMatch(filter, record) ? 1 : 0;
+         }
+         timer.mark("doesRecordMatch per record: " + matches + " matches");
+
+         matches = 0;
+         Predicate<QRecord> predicate = BackendQueryFilterUtils.compileFilter(filter, null);
+         for(QRecord record : records)
+         {
+            matches += predicate.test(record) ? 1 : 0;
+         }
+         timer.mark("compiled once: " + matches + " matches");
+      }
+   }
+
+}
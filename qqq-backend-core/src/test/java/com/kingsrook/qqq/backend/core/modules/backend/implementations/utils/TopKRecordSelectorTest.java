@@ -0,0 +1,164 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.kingsrook.qqq.backend.core.modules.backend.implementations.utils;
+
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.utils.Timer;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/*******************************************************************************
+ ** Unit test for TopKRecordSelector
+ *******************************************************************************/
+class TopKRecordSelectorTest extends BaseTest
+{
+
+   /*******************************************************************************
+    ** for various orderBys, skips and limits, the selector should give the same
+    ** records, in the same order, as a full sort followed by skip & limit.
+    *******************************************************************************/
+   @Test
+   void testSameAsSortThenSkipAndLimit()
+   {
+      List<QRecord> records = makeRecords(500, new Random(47));
+
+      List<List<QFilterOrderBy>> orderByLists = List.of(
+         List.of(),
+         List.of(new QFilterOrderBy("category")),
+         List.of(new QFilterOrderBy("category", false)),
+         List.of(new QFilterOrderBy("category"), new QFilterOrderBy("date", false)),
+         List.of(new QFilterOrderBy("date"), new QFilterOrderBy("name")));
+
+      for(List<QFilterOrderBy> orderBys : orderByLists)
+      {
+         for(Integer skip : new Integer[] { null, 0, 3, 499, 600 })
+         {
+            for(Integer limit : new Integer[] { null, 0, 1, 10, 499, 1000 })
+            {
+               QQueryFilter filter = new QQueryFilter().withSkip(skip).withLimit(limit);
+               orderBys.forEach(filter::withOrderBy);
+
+               List<QRecord> expected = new ArrayList<>(records);
+               BackendQueryFilterUtils.sortRecordList(filter, expected);
+               expected = BackendQueryFilterUtils.applySkipAndLimit(filter, expected);
+
+               TopKRecordSelector selector = new TopKRecordSelector(filter);
+               records.forEach(selector::add);
+               assertEquals(expected, selector.getRecords(), "orderBys=" + orderBys + ", skip=" + skip + ", limit=" + limit);
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSatisfied()
+   {
+      TopKRecordSelector unlimited = new TopKRecordSelector(new QQueryFilter());
+      unlimited.add(new QRecord().withValue("id", 1));
+      assertFalse(unlimited.isSatisfied());
+
+      TopKRecordSelector limitedUnordered = new TopKRecordSelector(new QQueryFilter().withSkip(1).withLimit(1));
+      limitedUnordered.add(new QRecord().withValue("id", 1));
+      assertFalse(limitedUnordered.isSatisfied());
+      limitedUnordered.add(new QRecord().withValue("id", 2));
+      assertTrue(limitedUnordered.isSatisfied());
+      assertEquals(2, limitedUnordered.getRecords().get(0).getValueInteger("id"));
+
+      ////////////////////////////////////////////////////////////////
+      // with an order-by, any future record could be in the output //
+      ////////////////////////////////////////////////////////////////
+      TopKRecordSelector limitedOrdered = new TopKRecordSelector(new QQueryFilter().withLimit(1).withOrderBy(new QFilterOrderBy("id")));
+      limitedOrdered.add(new QRecord().withValue("id", 2));
+      limitedOrdered.add(new QRecord().withValue("id", 1));
+      assertFalse(limitedOrdered.isSatisfied());
+      assertEquals(1, limitedOrdered.getRecords().get(0).getValueInteger("id"));
+   }
+
+
+
+   /*******************************************************************************
+    ** compare full sort + skip & limit vs. the selector, for "first 50 by date"
+    ** out of 1M records.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during top-k selection change")
+   void testPerformance()
+   {
+      List<QRecord> records = makeRecords(1_000_000, new Random(47));
+      QQueryFilter  filter  = new QQueryFilter().withLimit(50).withOrderBy(new QFilterOrderBy("date", false)).withOrderBy(new QFilterOrderBy("name"));
+
+      for(int i = 0; i < 5; i++)
+      {
+         Timer timer = new Timer("topK");
+
+         List<QRecord> sorted = new ArrayList<>(records);
+         BackendQueryFilterUtils.sortRecordList(filter, sorted);
+         sorted = BackendQueryFilterUtils.applySkipAndLimit(filter, sorted);
+         timer.mark("full sort");
+
+         TopKRecordSelector selector = new TopKRecordSelector(filter);
+         records.forEach(selector::add);
+         List<QRecord> selected = selector.getRecords();
+         timer.mark("selector");
+
+         assertEquals(sorted, selected);
+      }
+   }
+
+
+
+   /***************************************************************************
+    **
+    ***************************************************************************/
+   private static List<QRecord> makeRecords(int count, Random random)
+   {
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < count; i++)
+      {
+         records.add(new QRecord()
+            .withValue("id", i)
+            .withValue("category", random.nextInt(5))
+            .withValue("name", "Name" + random.nextInt(count))
+            .withValue("date", LocalDate.of(2020, 1, 1).plusDays(random.nextInt(1000))));
+      }
+      return (records);
+   }
+
+}
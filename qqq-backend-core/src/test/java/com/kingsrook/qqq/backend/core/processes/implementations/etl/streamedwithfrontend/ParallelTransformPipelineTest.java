@@ -0,0 +1,175 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwithfrontend;
+
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.BaseTest;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.processes.ProcessSummaryLineInterface;
+import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepInput;
+import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/*******************************************************************************
+ ** Unit test for ParallelTransformPipeline
+ *******************************************************************************/
+class ParallelTransformPipelineTest extends BaseTest
+{
+   private static CountDownLatch startLatch;
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testMergeValue()
+   {
+      ///////////////////////////////////////////////////////////////
+      // numbers of the same type get the transform's change added //
+      ///////////////////////////////////////////////////////////////
+      assertEquals(15, ParallelTransformPipeline.mergeValue(10, 3, 8));
+      assertEquals(15L, ParallelTransformPipeline.mergeValue(10L, 3L, 8L));
+      assertEquals(new BigDecimal("1.5"), ParallelTransformPipeline.mergeValue(new BigDecimal("1.0"), new BigDecimal("0.25"), new BigDecimal("0.75")));
+
+      ////////////////////////////////////////////////////////////////////////
+      // a null before-value (e.g., a counter the transform started) is 0 - //
+      // whether or not another page's count is in the process yet          //
+      ////////////////////////////////////////////////////////////////////////
+      assertEquals(15, ParallelTransformPipeline.mergeValue(10, null, 5));
+      assertEquals(5, ParallelTransformPipeline.mergeValue(null, null, 5));
+      assertEquals(15L, ParallelTransformPipeline.mergeValue(10L, null, 5L));
+      assertEquals(new BigDecimal("1.5"), ParallelTransformPipeline.mergeValue(new BigDecimal("1.0"), null, new BigDecimal("0.5")));
+
+      ////////////////////////////////////////////////////////
+      // else (other types, or mixed ones), the after-value //
+      ////////////////////////////////////////////////////////
+      assertEquals("b", ParallelTransformPipeline.mergeValue("x", "a", "b"));
+      assertEquals("b", ParallelTransformPipeline.mergeValue("x", null, "b"));
+      assertEquals(5L, ParallelTransformPipeline.mergeValue(10, null, 5L));
+      assertEquals(5, ParallelTransformPipeline.mergeValue(null, 3, 5));
+   }
+
+
+
+   /*******************************************************************************
+    ** pages submitted before any is merged all start a counter from null - and
+    ** their counts should all be added up, rather than each replacing the last.
+    *******************************************************************************/
+   @Test
+   void testConcurrentPagesStartingACounter() throws Exception
+   {
+      for(boolean preserveLoadOrder : List.of(true, false))
+      {
+         startLatch = new CountDownLatch(1);
+
+         List<AbstractTransformStep> transformSteps = new ArrayList<>();
+         for(int i = 0; i < 4; i++)
+         {
+            transformSteps.add(new CountingTransformStep());
+         }
+
+         RunBackendStepOutput runBackendStepOutput = new RunBackendStepOutput();
+         runBackendStepOutput.addValue("presetCounted", 100);
+
+         List<Integer> loadedPageSizes = new ArrayList<>();
+         try(ParallelTransformPipeline pipeline = new ParallelTransformPipeline(transformSteps, preserveLoadOrder, new RunBackendStepInput(), runBackendStepOutput, page -> loadedPageSizes.add(page.inputRecords().size())))
+         {
+            ///////////////////////////////////////////////////////////////////////
+            // 8 pages (the most that can be in flight for 4 workers) - with the //
+            // transforms held until they're all submitted, so none is merged    //
+            // (and none of their snapshots has the counter) before the last one //
+            ///////////////////////////////////////////////////////////////////////
+            for(int i = 1; i <= 8; i++)
+            {
+               List<QRecord> records = new ArrayList<>();
+               for(int j = 0; j < i; j++)
+               {
+                  records.add(new QRecord().withValue("id", j));
+               }
+               pipeline.submitPage(records);
+            }
+
+            startLatch.countDown();
+            pipeline.finish();
+         }
+
+         assertEquals(8, loadedPageSizes.size());
+         assertEquals(36, runBackendStepOutput.getValueInteger("recordsCounted"));
+         assertEquals(136, runBackendStepOutput.getValueInteger("presetCounted"));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** transform step that (once released by the test) counts its records into
+    ** a process value it creates, and one the test set up, read-modify-write style.
+    *******************************************************************************/
+   public static class CountingTransformStep extends AbstractTransformStep
+   {
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public void runOnePage(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput) throws QException
+      {
+         try
+         {
+            if(!startLatch.await(10, TimeUnit.SECONDS))
+            {
+               throw (new QException("Timed out waiting for the test to release the transforms"));
+            }
+         }
+         catch(InterruptedException e)
+         {
+            throw (new QException("Interrupted waiting for the test to release the transforms", e));
+         }
+
+         int size = runBackendStepInput.getRecords().size();
+         runBackendStepOutput.addValue("recordsCounted", Objects.requireNonNullElse(runBackendStepOutput.getValueInteger("recordsCounted"), 0) + size);
+         runBackendStepOutput.addValue("presetCounted", runBackendStepOutput.getValueInteger("presetCounted") + size);
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public ArrayList<ProcessSummaryLineInterface> getProcessSummary(RunBackendStepOutput runBackendStepOutput, boolean isForResultScreen)
+      {
+         return (new ArrayList<>());
+      }
+   }
+
+}
@@ -25,12 +25,17 @@ package com.kingsrook.qqq.backend.core.processes.implementations.etl.streamedwit
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import com.kingsrook.qqq.backend.core.BaseTest;
 import com.kingsrook.qqq.backend.core.actions.processes.QProcessCallback;
 import com.kingsrook.qqq.backend.core.actions.processes.RunProcessAction;
+import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.processes.ProcessSummaryLine;
@@ -40,6 +45,7 @@ import com.kingsrook.qqq.backend.core.model.actions.processes.RunBackendStepOutp
 import com.kingsrook.qqq.backend.core.model.actions.processes.RunProcessInput;
 import com.kingsrook.qqq.backend.core.model.actions.processes.RunProcessOutput;
 import com.kingsrook.qqq.backend.core.model.actions.processes.Status;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
@@ -48,6 +54,7 @@ import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.processes.QProcessMetaData;
 import com.kingsrook.qqq.backend.core.modules.backend.implementations.memory.MemoryRecordStore;
 import com.kingsrook.qqq.backend.core.processes.implementations.etl.streamed.StreamedETLProcess;
+import com.kingsrook.qqq.backend.core.utils.SleepUtils;
 import com.kingsrook.qqq.backend.core.utils.TestUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -55,6 +62,7 @@ import org.junit.jupiter.api.Test;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -367,6 +375,112 @@ public class StreamedETLWithFrontendProcessTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testParallelTransformWorkers() throws QException
+   {
+      QInstance instance = QContext.getQInstance();
+
+      for(boolean preserveLoadOrder : List.of(true, false))
+      {
+         MemoryRecordStore.getInstance().reset();
+
+         List<QRecord> shapeRecords = new ArrayList<>();
+         for(int i = 1; i <= 300; i++)
+         {
+            shapeRecords.add(new QRecord().withValue("id", i).withValue("name", "Shape " + i));
+         }
+         new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_SHAPE).withRecords(shapeRecords));
+
+         QProcessMetaData process = StreamedETLWithFrontendProcess.defineProcessMetaData(
+            TestUtils.TABLE_NAME_SHAPE,
+            TestUtils.TABLE_NAME_PERSON_MEMORY,
+            ExtractViaQueryStep.class,
+            TestParallelTransformStep.class,
+            LoadViaInsertStep.class);
+         process.setName("testParallel" + preserveLoadOrder);
+         process.setTableName(TestUtils.TABLE_NAME_SHAPE);
+         instance.addProcess(process);
+
+         //////////////////////////////////////////////////////////////////////
+         // run with 4 workers, and a small pipe, so there are many pages -  //
+         // with a page-level transaction for one run, process for the other //
+         //////////////////////////////////////////////////////////////////////
+         Map<String, Serializable> values = new HashMap<>();
+         values.put(StreamedETLWithFrontendProcess.FIELD_TRANSFORM_WORKERS, 4);
+         values.put(StreamedETLWithFrontendProcess.FIELD_PRESERVE_LOAD_ORDER, preserveLoadOrder);
+         values.put(StreamedETLWithFrontendProcess.FIELD_TRANSACTION_LEVEL, preserveLoadOrder ? StreamedETLWithFrontendProcess.TRANSACTION_LEVEL_PROCESS : StreamedETLWithFrontendProcess.TRANSACTION_LEVEL_PAGE);
+         values.put("recordPipeCapacity", 10);
+
+         RunProcessOutput runProcessOutput = runProcess(instance, process, values, new Callback());
+         assertEquals(300, runProcessOutput.getValues().get(StreamedETLWithFrontendProcess.FIELD_RECORD_COUNT));
+
+         ///////////////////////////////////////////////////////////////////////////
+         // each page's transform counted into its own copy of the values - and   //
+         // those counts should all have been added up into the process's value - //
+         // including from the first pages, whose copies didn't have the counter  //
+         // yet (as it isn't given in the process's input values).                //
+         ///////////////////////////////////////////////////////////////////////////
+         assertFalse(values.containsKey("recordsCounted"));
+         assertEquals(300, runProcessOutput.getValues().get("recordsCounted"));
+
+         //////////////////////////////////////////////////////////////////////////
+         // the workers' process summaries should have been merged into one line //
+         //////////////////////////////////////////////////////////////////////////
+         List<ProcessSummaryLine> processSummaryLines = (List<ProcessSummaryLine>) runProcessOutput.getValues().get(StreamedETLWithFrontendProcess.FIELD_PROCESS_SUMMARY);
+         assertEquals(1, processSummaryLines.size());
+         assertEquals(300, processSummaryLines.get(0).getCount());
+         assertEquals(300, processSummaryLines.get(0).getPrimaryKeys().size());
+
+         List<QRecord> personRecords = TestUtils.queryTable(instance, TestUtils.TABLE_NAME_PERSON_MEMORY);
+         assertEquals(300, personRecords.size());
+         if(preserveLoadOrder)
+         {
+            personRecords.sort(Comparator.comparing(r -> r.getValueInteger("id")));
+            for(int i = 0; i < personRecords.size(); i++)
+            {
+               assertEquals("Shape " + (i + 1), personRecords.get(i).getValueString("lastName"));
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testMergeProcessSummaries()
+   {
+      TestParallelTransformStep transformStep = new TestParallelTransformStep();
+
+      ArrayList<ProcessSummaryLineInterface> summary1 = new ArrayList<>(List.of(
+         new ProcessSummaryLine(Status.OK, 2, "were transformed", new ArrayList<>(List.of(1, 2))),
+         new ProcessSummaryLine(Status.ERROR, 1, "had an error", new ArrayList<>(List.of(3)))));
+      ArrayList<ProcessSummaryLineInterface> summary2 = new ArrayList<>(List.of(
+         new ProcessSummaryLine(Status.OK, 3, "were transformed", new ArrayList<>(List.of(4, 5, 6))),
+         new ProcessSummaryLine(Status.ERROR, 1, "had a different error")));
+
+      ArrayList<ProcessSummaryLineInterface> merged = transformStep.mergeProcessSummaries(List.of(summary1, summary2));
+      assertThat(merged)
+         .usingRecursiveFieldByFieldElementComparatorOnFields("status", "count", "message", "primaryKeys")
+         .containsExactly(
+            new ProcessSummaryLine(Status.OK, 5, "were transformed", new ArrayList<>(List.of(1, 2, 4, 5, 6))),
+            new ProcessSummaryLine(Status.ERROR, 1, "had an error", new ArrayList<>(List.of(3))),
+            new ProcessSummaryLine(Status.ERROR, 1, "had a different error"));
+
+      ////////////////////////////////////////////////
+      // the workers' own lines should be unchanged //
+      ////////////////////////////////////////////////
+      assertEquals(2, ((ProcessSummaryLine) summary1.get(0)).getCount());
+      assertEquals(2, ((ProcessSummaryLine) summary1.get(0)).getPrimaryKeys().size());
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -542,6 +656,51 @@ public class StreamedETLWithFrontendProcessTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** transform step for the parallel workers test - sleeping a random bit per
+    ** page, so that pages can finish in a different order than they started -
+    ** and counting records into a process value, read-modify-write style (as
+    ** e.g., BulkInsertTransformStep does), with the sleep in between.
+    *******************************************************************************/
+   public static class TestParallelTransformStep extends AbstractTransformStep
+   {
+      private ProcessSummaryLine okSummary = new ProcessSummaryLine(Status.OK, 0, "were transformed into a Person");
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public void runOnePage(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput) throws QException
+      {
+         Integer recordsCounted = Objects.requireNonNullElse(runBackendStepOutput.getValueInteger("recordsCounted"), 0);
+         SleepUtils.sleep(ThreadLocalRandom.current().nextInt(5), TimeUnit.MILLISECONDS);
+         runBackendStepOutput.addValue("recordsCounted", recordsCounted + runBackendStepInput.getRecords().size());
+
+         for(QRecord qRecord : runBackendStepInput.getRecords())
+         {
+            runBackendStepOutput.addRecord(new QRecord().withValue("firstName", "Johnny").withValue("lastName", qRecord.getValueString("name")));
+            okSummary.incrementCountAndAddPrimaryKey(qRecord.getValue("id"));
+         }
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public ArrayList<ProcessSummaryLineInterface> getProcessSummary(RunBackendStepOutput runBackendStepOutput, boolean isForResultScreen)
+      {
+         ArrayList<ProcessSummaryLineInterface> summaryList = new ArrayList<>();
+         okSummary.addSelfToListIfAnyCount(summaryList);
+         return (summaryList);
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
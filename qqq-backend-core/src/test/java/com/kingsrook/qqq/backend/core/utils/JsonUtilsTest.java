@@ -22,23 +22,34 @@
 package com.kingsrook.qqq.backend.core.utils;
 
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.kingsrook.qqq.backend.core.BaseTest;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.utils.collections.MapBuilder;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -343,4 +354,152 @@ class JsonUtilsTest extends BaseTest
          {"":"foo"}""", JsonUtils.toJson(mapWithNullKey, mapper -> mapper.getSerializerProvider().setNullKeySerializer(JsonUtils.nullKeyToEmptyStringSerializer)));
    }
 
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testToJsonOutputStream() throws IOException
+   {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream()
+      {
+         private boolean isClosed = false;
+
+
+
+         @Override
+         public void close()
+         {
+            isClosed = true;
+         }
+
+
+
+         @Override
+         public String toString()
+         {
+            assertFalse(isClosed, "Output stream should not have been closed");
+            return (super.toString(StandardCharsets.UTF_8));
+         }
+      };
+
+      JsonUtils.toJson(getQRecord(), outputStream);
+      assertEquals(JsonUtils.toJson(getQRecord()), outputStream.toString());
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testCustomizersWithAndWithoutState()
+   {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("a", null);
+      map.put("b", 1);
+
+      //////////////////////////////////////////////////////////////////////////
+      // same stateless customizer, used repeatedly, gives the same results - //
+      // and doesn't affect the standard (non-customized) serialization.      //
+      //////////////////////////////////////////////////////////////////////////
+      for(int i = 0; i < 3; i++)
+      {
+         assertEquals("""
+            {"a":null,"b":1}""", JsonUtils.toJson(map, mapper -> mapper.setSerializationInclusion(JsonInclude.Include.ALWAYS)));
+         assertEquals("""
+            {"b":1}""", JsonUtils.toJson(map));
+      }
+
+      ////////////////////////////////////////////////////////////////////////////
+      // customizers that capture state must not share a mapper with each other //
+      ////////////////////////////////////////////////////////////////////////////
+      for(JsonInclude.Include include : List.of(JsonInclude.Include.ALWAYS, JsonInclude.Include.NON_NULL, JsonInclude.Include.ALWAYS))
+      {
+         Consumer<ObjectMapper> customizer = mapper -> mapper.setSerializationInclusion(include);
+         assertEquals(include.equals(JsonInclude.Include.ALWAYS) ? """
+            {"a":null,"b":1}""" : """
+            {"b":1}""", JsonUtils.toJson(map, customizer));
+      }
+
+      //////////////////////////////////
+      // and same for the builder API //
+      //////////////////////////////////
+      for(boolean indent : List.of(true, false, true))
+      {
+         String json = JsonUtils.toJsonCustomized(map, builder -> builder.configure(SerializationFeature.INDENT_OUTPUT, indent));
+         assertEquals(indent, json.contains("\n"));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during shared ObjectMapper change")
+   void testSerializationPerformance() throws Exception
+   {
+      QueryOutput queryOutput = new QueryOutput(new QueryInput("person"));
+      for(int i = 0; i < 1000; i++)
+      {
+         queryOutput.addRecord(new QRecord()
+            .withValue("id", i)
+            .withValue("firstName", "First" + i)
+            .withValue("lastName", "Last" + i)
+            .withValue("birthDate", LocalDate.of(1980, 1, 1).plusDays(i))
+            .withValue("createDate", Instant.parse("2024-01-01T00:00:00Z").plusSeconds(i))
+            .withValue("salary", new BigDecimal("1000.00").add(BigDecimal.valueOf(i)))
+            .withDisplayValue("salary", "$" + (1000 + i) + ".00"));
+      }
+
+      /////////////////////////////////////////////////////////
+      // warm up, then time each of the serialization styles //
+      /////////////////////////////////////////////////////////
+      for(int i = 0; i < 50; i++)
+      {
+         JsonUtils.toJson(queryOutput);
+      }
+
+      int     iterations = 500;
+      Integer length     = null;
+
+      long start = System.nanoTime();
+      for(int i = 0; i < iterations; i++)
+      {
+         length = JsonUtils.toJson(queryOutput).length();
+      }
+      System.out.printf("toJson (shared mapper):          %,d ms for %d iterations (%,d chars)%n", (System.nanoTime() - start) / 1_000_000, iterations, length);
+
+      start = System.nanoTime();
+      for(int i = 0; i < iterations; i++)
+      {
+         length = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+            .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+            .writeValueAsString(queryOutput).length();
+      }
+      System.out.printf("new ObjectMapper per call:       %,d ms for %d iterations (%,d chars)%n", (System.nanoTime() - start) / 1_000_000, iterations, length);
+
+      start = System.nanoTime();
+      for(int i = 0; i < iterations; i++)
+      {
+         length = JsonUtils.toJson(queryOutput, mapper -> mapper.setSerializationInclusion(JsonInclude.Include.ALWAYS)).length();
+      }
+      System.out.printf("toJson (customized mapper):      %,d ms for %d iterations (%,d chars)%n", (System.nanoTime() - start) / 1_000_000, iterations, length);
+
+      start = System.nanoTime();
+      for(int i = 0; i < iterations; i++)
+      {
+         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+         JsonUtils.toJson(queryOutput, outputStream);
+         length = outputStream.size();
+      }
+      System.out.printf("toJson (to OutputStream):        %,d ms for %d iterations (%,d bytes)%n", (System.nanoTime() - start) / 1_000_000, iterations, length);
+   }
+
 }
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -288,4 +289,195 @@ class MemoizationTest extends BaseTest
       System.out.println("All Done");
    }
 
-}
\ No newline at end of file
+
+
+   /*******************************************************************************
+    ** make sure that, when over max-size, it's the least-recently-USED result that
+    ** gets evicted (not the least-recently-stored).
+    *******************************************************************************/
+   @Test
+   void testLeastRecentlyUsedEviction()
+   {
+      Memoization<String, Integer> memoization = new Memoization<>();
+      memoization.setMaxSize(3);
+
+      memoization.storeResult("one", 1);
+      memoization.storeResult("two", 2);
+      memoization.storeResult("three", 3);
+
+      //////////////////////////////////////////////////////////
+      // use "one", so that storing "four" should evict "two" //
+      //////////////////////////////////////////////////////////
+      assertThat(memoization.getMemoizedResult("one")).isPresent();
+      memoization.storeResult("four", 4);
+
+      assertThat(memoization.getMemoizedResult("two")).isEmpty();
+      assertThat(memoization.getMemoizedResult("one")).isPresent().get().extracting("result").isEqualTo(1);
+      assertThat(memoization.getMemoizedResult("three")).isPresent().get().extracting("result").isEqualTo(3);
+      assertThat(memoization.getMemoizedResult("four")).isPresent().get().extracting("result").isEqualTo(4);
+
+      MemoizationStatistics statistics = memoization.getStatistics();
+      assertEquals(1, statistics.evictionCount());
+      assertEquals(3, statistics.size());
+      assertEquals(4, statistics.hitCount());
+      assertEquals(1, statistics.missCount());
+   }
+
+
+
+   /*******************************************************************************
+    ** eviction (which scans the whole map) takes the map down to 90% of its max
+    ** size - so it doesn't run again until that many more results are stored.
+    *******************************************************************************/
+   @Test
+   void testEvictionInBatches()
+   {
+      Memoization<Integer, Integer> memoization = new Memoization<>(100);
+      for(int i = 0; i < 101; i++)
+      {
+         memoization.storeResult(i, i);
+      }
+
+      MemoizationStatistics statistics = memoization.getStatistics();
+      assertEquals(11, statistics.evictionCount());
+      assertEquals(90, statistics.size());
+      assertThat(memoization.getMemoizedResult(10)).isEmpty();
+      assertThat(memoization.getMemoizedResult(11)).isPresent();
+
+      for(int i = 101; i < 111; i++)
+      {
+         memoization.storeResult(i, i);
+      }
+      assertEquals(11, memoization.getStatistics().evictionCount());
+      assertEquals(100, memoization.getStatistics().size());
+
+      memoization.storeResult(111, 111);
+      assertEquals(22, memoization.getStatistics().evictionCount());
+      assertEquals(90, memoization.getStatistics().size());
+   }
+
+
+
+   /*******************************************************************************
+    ** make sure that many threads getting the same missing key at once only run
+    ** the lookup function once - and that they all get its result.
+    *******************************************************************************/
+   @Test
+   void testSingleFlightLoading() throws Exception
+   {
+      Memoization<String, Integer> memoization = new Memoization<>();
+      AtomicInteger                callCounter = new AtomicInteger(0);
+      CountDownLatch               startLatch  = new CountDownLatch(1);
+      ExecutorService              executor    = Executors.newFixedThreadPool(10);
+
+      UnsafeFunction<String, Integer, Exception> slowLookupFunction = key ->
+      {
+         callCounter.incrementAndGet();
+         SleepUtils.sleep(100, TimeUnit.MILLISECONDS);
+         return (Integer.parseInt(key));
+      };
+
+      try
+      {
+         List<Future<Optional<Integer>>> futures = new ArrayList<>();
+         for(int i = 0; i < 10; i++)
+         {
+            futures.add(executor.submit(() ->
+            {
+               startLatch.await();
+               return (memoization.getResult("47", slowLookupFunction));
+            }));
+         }
+
+         startLatch.countDown();
+         for(Future<Optional<Integer>> future : futures)
+         {
+            assertThat(future.get()).isPresent().contains(47);
+         }
+
+         assertEquals(1, callCounter.get());
+         assertEquals(1, memoization.getStatistics().loadCount());
+      }
+      finally
+      {
+         executor.shutdownNow();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testRefreshAhead()
+   {
+      Memoization<String, Integer> memoization = new Memoization<String, Integer>()
+         .withTimeout(Duration.ofMillis(1000))
+         .withRefreshAhead(Duration.ofMillis(500));
+
+      AtomicInteger                              callCounter    = new AtomicInteger(0);
+      UnsafeFunction<String, Integer, Exception> lookupFunction = key -> callCounter.incrementAndGet();
+
+      assertThat(memoization.getResult("key", lookupFunction)).isPresent().contains(1);
+      assertThat(memoization.getResult("key", lookupFunction)).isPresent().contains(1);
+      assertEquals(1, callCounter.get());
+
+      //////////////////////////////////////////////////////////////////////////////
+      // once in the refresh-ahead window, a get should still return the current  //
+      // result - but also refresh it - so the next get sees the refreshed result //
+      //////////////////////////////////////////////////////////////////////////////
+      SleepUtils.sleep(600, TimeUnit.MILLISECONDS);
+      assertThat(memoization.getResult("key", lookupFunction)).isPresent().contains(1);
+      assertEquals(2, callCounter.get());
+      assertThat(memoization.getResult("key", lookupFunction)).isPresent().contains(2);
+      assertEquals(2, callCounter.get());
+
+      MemoizationStatistics statistics = memoization.getStatistics();
+      assertEquals(1, statistics.missCount());
+      assertEquals(3, statistics.hitCount());
+      assertEquals(2, statistics.loadCount());
+   }
+
+
+
+   /*******************************************************************************
+    ** contended gets of a small set of hot keys, from increasing numbers of threads.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during memoization change")
+   void testContendedGetPerformance() throws Exception
+   {
+      Memoization<Integer, Integer> memoization   = new Memoization<>();
+      int                           getsPerThread = 5_000_000;
+
+      for(int threadCount : List.of(1, 2, 4, 8, 16))
+      {
+         ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+         List<Future<?>> futures  = new ArrayList<>();
+         long            start    = System.nanoTime();
+
+         for(int t = 0; t < threadCount; t++)
+         {
+            futures.add(executor.submit(() ->
+            {
+               for(int n = 0; n < getsPerThread; n++)
+               {
+                  memoization.getResult(n % 100, key -> key);
+               }
+               return (null);
+            }));
+         }
+
+         for(Future<?> future : futures)
+         {
+            future.get();
+         }
+         executor.shutdown();
+
+         long nanos = System.nanoTime() - start;
+         System.out.format("%2d threads: %,d gets/second; %s%n", threadCount, (long) threadCount * getsPerThread * 1_000_000_000L / nanos, memoization.getStatistics());
+      }
+   }
+
+}
@@ -22,9 +22,12 @@
 package com.kingsrook.qqq.backend.module.filesystem.base.actions;
 
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
@@ -33,6 +36,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
 import com.kingsrook.qqq.backend.core.actions.customizers.QCodeLoader;
 import com.kingsrook.qqq.backend.core.adapters.CsvToQRecordAdapter;
 import com.kingsrook.qqq.backend.core.adapters.JsonToQRecordAdapter;
@@ -46,7 +51,6 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
-import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
@@ -58,12 +62,12 @@ import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.variants.BackendVariantSetting;
 import com.kingsrook.qqq.backend.core.model.metadata.variants.BackendVariantsUtil;
 import com.kingsrook.qqq.backend.core.model.statusmessages.SystemErrorStatusMessage;
-import com.kingsrook.qqq.backend.core.modules.backend.implementations.utils.BackendQueryFilterUtils;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.ExceptionUtils;
 import com.kingsrook.qqq.backend.core.utils.ObjectUtils;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
 import com.kingsrook.qqq.backend.core.utils.ValueUtils;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeConsumer;
 import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeSupplier;
 import com.kingsrook.qqq.backend.module.filesystem.base.FilesystemRecordBackendDetailFields;
 import com.kingsrook.qqq.backend.module.filesystem.base.model.metadata.AbstractFilesystemBackendMetaData;
@@ -71,7 +75,6 @@ import com.kingsrook.qqq.backend.module.filesystem.base.model.metadata.AbstractF
 import com.kingsrook.qqq.backend.module.filesystem.base.model.metadata.Cardinality;
 import com.kingsrook.qqq.backend.module.filesystem.exceptions.FilesystemException;
 import com.kingsrook.qqq.backend.module.filesystem.sftp.model.metadata.SFTPBackendVariantSetting;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.NotImplementedException;
 import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
@@ -126,6 +129,18 @@ public abstract class AbstractBaseFilesystemAction<FILE>
     *******************************************************************************/
    public abstract InputStream readFile(FILE file) throws IOException;
 
+   /*******************************************************************************
+    ** Read the full contents of a file into a byte array (closing the stream
+    ** that readFile opened for it).
+    *******************************************************************************/
+   public byte[] readFileBytes(FILE file) throws IOException
+   {
+      try(InputStream inputStream = readFile(file))
+      {
+         return (inputStream.readAllBytes());
+      }
+   }
+
    /***************************************************************************
     ** Legacy signature for this method - before table & record params were added.
     ***************************************************************************/
@@ -288,6 +303,20 @@ public abstract class AbstractBaseFilesystemAction<FILE>
     ** Generic implementation of the execute method from the QueryInterface
     *******************************************************************************/
    public QueryOutput executeQuery(QueryInput queryInput) throws QException
+   {
+      QueryOutput queryOutput = new QueryOutput(queryInput);
+      executeQuery(queryInput, FilesystemQueryRecordCollector.forQuery(queryInput.getFilter(), queryInput.getFieldNamesToInclude(), queryOutput));
+      return (queryOutput);
+   }
+
+
+
+   /*******************************************************************************
+    ** run a query, sending the records it reads to a collector - which applies the
+    ** filter, skip, limit, order-bys & fieldNamesToInclude (for a query), or which
+    ** just counts (for a count).
+    *******************************************************************************/
+   private void executeQuery(QueryInput queryInput, FilesystemQueryRecordCollector recordCollector) throws QException
    {
       preAction(queryInput.getBackend());
 
@@ -296,8 +325,6 @@ public abstract class AbstractBaseFilesystemAction<FILE>
          QTableMetaData                        table        = queryInput.getTable();
          AbstractFilesystemTableBackendDetails tableDetails = getTableBackendDetails(AbstractFilesystemTableBackendDetails.class, table);
 
-         QueryOutput queryOutput = new QueryOutput(queryInput);
-
          String requestedPath = null;
 
          //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -318,12 +345,12 @@ public abstract class AbstractBaseFilesystemAction<FILE>
 
          switch(tableDetails.getCardinality())
          {
-            case MANY -> completeExecuteQueryForManyTable(queryInput, queryOutput, files, table, tableDetails);
-            case ONE -> completeExecuteQueryForOneTable(queryInput, queryOutput, files, table, tableDetails);
+            case MANY -> completeExecuteQueryForManyTable(recordCollector, files, queryInput.getBackend(), table, tableDetails);
+            case ONE -> completeExecuteQueryForOneTable(queryInput, recordCollector, files, table, tableDetails);
             default -> throw new IllegalStateException("Unexpected table cardinality: " + tableDetails.getCardinality());
          }
 
-         return (queryOutput);
+         recordCollector.finish();
       }
       catch(Exception e)
       {
@@ -361,10 +388,19 @@ public abstract class AbstractBaseFilesystemAction<FILE>
    /***************************************************************************
     **
     ***************************************************************************/
-   private void completeExecuteQueryForOneTable(QueryInput queryInput, QueryOutput queryOutput, List<FILE> files, QTableMetaData table, AbstractFilesystemTableBackendDetails tableDetails) throws QException
+   private void completeExecuteQueryForOneTable(QueryInput queryInput, FilesystemQueryRecordCollector recordCollector, List<FILE> files, QTableMetaData table, AbstractFilesystemTableBackendDetails tableDetails) throws QException
    {
-      int           recordCount = 0;
-      List<QRecord> records     = new ArrayList<>();
+      //////////////////////////////////////////////////////////////////////////////////////////////////////////
+      // the listFiles method may have used a "path" criteria.                                                //
+      // if so, remove that criteria here, so that its presence doesn't cause all records to be filtered away //
+      //////////////////////////////////////////////////////////////////////////////////////////////////////////
+      // QQueryFilter filterForRecords = queryInput.getFilter();
+      // if(filterForRecords != null)
+      // {
+      //    filterForRecords = filterForRecords.clone();
+      //    CollectionUtils.nonNullList(filterForRecords.getCriteria())
+      //       .removeIf(AbstractBaseFilesystemAction::isPathEqualsCriteria);
+      // }
 
       for(FILE file : files)
       {
@@ -411,27 +447,17 @@ public abstract class AbstractBaseFilesystemAction<FILE>
             }
          }
 
-         //////////////////////////////////////////////////////////////////////////////////////////////////////////
-         // the listFiles method may have used a "path" criteria.                                                //
-         // if so, remove that criteria here, so that its presence doesn't cause all records to be filtered away //
-         //////////////////////////////////////////////////////////////////////////////////////////////////////////
-         QQueryFilter filterForRecords = queryInput.getFilter();
-         // if(filterForRecords != null)
-         // {
-         //    filterForRecords = filterForRecords.clone();
-         //    CollectionUtils.nonNullList(filterForRecords.getCriteria())
-         //       .removeIf(AbstractBaseFilesystemAction::isPathEqualsCriteria);
-         // }
-
-         if(BackendQueryFilterUtils.doesRecordMatch(filterForRecords, null, record))
+         recordCollector.add(record);
+
+         /////////////////////////////////////////////////////////////////////////////////
+         // if there's a limit (but no order-by) that's been filled, then no more files //
+         // can change the output - so don't go reading any more of them.               //
+         /////////////////////////////////////////////////////////////////////////////////
+         if(recordCollector.isDone())
          {
-            records.add(record);
+            break;
          }
       }
-
-      BackendQueryFilterUtils.sortRecordList(queryInput.getFilter(), records);
-      records = BackendQueryFilterUtils.applySkipAndLimit(queryInput.getFilter(), records);
-      queryOutput.addRecords(records);
    }
 
 
@@ -464,52 +490,106 @@ public abstract class AbstractBaseFilesystemAction<FILE>
    /***************************************************************************
     **
     ***************************************************************************/
-   private void completeExecuteQueryForManyTable(QueryInput queryInput, QueryOutput queryOutput, List<FILE> files, QTableMetaData table, AbstractFilesystemTableBackendDetails tableDetails) throws QException, IOException
+   private void completeExecuteQueryForManyTable(FilesystemQueryRecordCollector recordCollector, List<FILE> files, QBackendMetaData backend, QTableMetaData table, AbstractFilesystemTableBackendDetails tableDetails) throws QException, IOException
    {
-      int recordCount = 0;
+      Set<String> fieldNamesToInclude = recordCollector.getFieldNamesToMaterialize();
+
+      if(ParallelFileReader.getMaxConcurrentFileReads(backend) > 1 && files.size() > 1)
+      {
+         completeExecuteQueryForManyTableInParallel(recordCollector, files, backend, table, tableDetails, fieldNamesToInclude);
+         return;
+      }
 
       for(FILE file : files)
       {
-         try(InputStream inputStream = readFile(file))
+         //////////////////////////////////////////////////////////////////////////////
+         // once the collector has all the records it can output (e.g., a limit with //
+         // no order-by is filled), stop - both between files, and within a file (as //
+         // the adapters check isDone before each record), so the rest goes unread.  //
+         //////////////////////////////////////////////////////////////////////////////
+         if(recordCollector.isDone())
+         {
+            break;
+         }
+
+         readRecordsFromFile(file, table, tableDetails, fieldNamesToInclude, recordCollector::add, recordCollector::isDone);
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** version of completeExecuteQueryForManyTable for a backend with
+    ** maxConcurrentFileReads - where files are fetched & parsed by the workers of
+    ** a ParallelFileReader, each into a list of that file's records, which are
+    ** then given to the collector (which isn't thread-safe) on this thread.  So,
+    ** unlike the sequential version, each file's records are held in memory
+    ** (for up to 2 files per worker at a time) - which suits tables of many
+    ** small-to-medium files, more than a few very large ones.
+    ***************************************************************************/
+   private void completeExecuteQueryForManyTableInParallel(FilesystemQueryRecordCollector recordCollector, List<FILE> files, QBackendMetaData backend, QTableMetaData table, AbstractFilesystemTableBackendDetails tableDetails, Set<String> fieldNamesToInclude) throws QException
+   {
+      ////////////////////////////////////////////////////////////////////////////////////
+      // closing the reader when the collector is done interrupts the workers' threads, //
+      // which the adapters see through this stop condition, ending their parses early. //
+      ////////////////////////////////////////////////////////////////////////////////////
+      BooleanSupplier workerStopCondition = () -> Thread.currentThread().isInterrupted();
+
+      try(ParallelFileReader<FILE, List<QRecord>> fileReader = new ParallelFileReader<>(backend, files, file ->
+      {
+         List<QRecord> recordsInFile = new ArrayList<>();
+         readRecordsFromFile(file, table, tableDetails, fieldNamesToInclude, recordsInFile::add, workerStopCondition);
+         return (recordsInFile);
+      }))
+      {
+         while(fileReader.hasNext() && !recordCollector.isDone())
          {
-            LOG.info("Extracting records from file", logPair("table", table.getName()), logPair("path", getFullPathForFile(file)));
-            switch(tableDetails.getRecordFormat())
+            for(QRecord record : fileReader.next().getValueOrThrow())
             {
-               case CSV ->
+               recordCollector.add(record);
+               if(recordCollector.isDone())
                {
-                  String fileContents = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-                  fileContents = customizeFileContentsAfterReading(table, fileContents);
-
-                  if(queryInput.getRecordPipe() != null)
-                  {
-                     new CsvToQRecordAdapter().buildRecordsFromCsv(queryInput.getRecordPipe(), fileContents, table, null, (record ->
-                     {
-                        ////////////////////////////////////////////////////////////////////////////////////////////
-                        // Before the records go into the pipe, make sure their backend details are added to them //
-                        ////////////////////////////////////////////////////////////////////////////////////////////
-                        addBackendDetailsToRecord(record, file);
-                     }));
-                  }
-                  else
-                  {
-                     List<QRecord> recordsInFile = new CsvToQRecordAdapter().buildRecordsFromCsv(fileContents, table, null);
-                     addBackendDetailsToRecords(recordsInFile, file);
-                     queryOutput.addRecords(recordsInFile);
-                  }
+                  break;
                }
-               case JSON ->
-               {
-                  String fileContents = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-                  fileContents = customizeFileContentsAfterReading(table, fileContents);
+            }
+         }
+      }
+   }
 
-                  // todo - pipe support!!
-                  List<QRecord> recordsInFile = new JsonToQRecordAdapter().buildRecordsFromJson(fileContents, table, null);
-                  addBackendDetailsToRecords(recordsInFile, file);
 
-                  queryOutput.addRecords(recordsInFile);
-               }
-               default -> throw new IllegalStateException("Unexpected table record format: " + tableDetails.getRecordFormat());
-            }
+
+   /***************************************************************************
+    ** parse the records out of one file of a MANY-cardinality table, giving each
+    ** one (with its backend details) to a consumer, until the stop condition is
+    ** true.
+    ***************************************************************************/
+   private void readRecordsFromFile(FILE file, QTableMetaData table, AbstractFilesystemTableBackendDetails tableDetails, Set<String> fieldNamesToInclude, UnsafeConsumer<QRecord, QException> consumer, BooleanSupplier stopCondition) throws QException, IOException
+   {
+      //////////////////////////////////////////////////////////////////////////////////////////////////////
+      // parse straight off of the file's stream (through the post-read customizer, if the table has one) //
+      // so that records flow out as they are read, rather than holding each full file in a String first  //
+      //////////////////////////////////////////////////////////////////////////////////////////////////////
+      try(InputStream inputStream = readFile(file);
+          Reader reader = customizeFileContentsAfterReading(table, new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))))
+      {
+         LOG.info("Extracting records from file", logPair("table", table.getName()), logPair("path", getFullPathForFile(file)));
+
+         UnsafeConsumer<QRecord, QException> recordConsumer = record ->
+         {
+            addBackendDetailsToRecord(record, file);
+            consumer.run(record);
+         };
+
+         switch(tableDetails.getRecordFormat())
+         {
+            case CSV -> new CsvToQRecordAdapter().buildRecordsFromCsv(new CsvToQRecordAdapter.InputWrapper()
+               .withCsvReader(reader)
+               .withTable(table)
+               .withFieldNamesToInclude(fieldNamesToInclude)
+               .withRecordConsumer(recordConsumer)
+               .withStopCondition(stopCondition));
+            case JSON -> new JsonToQRecordAdapter().buildRecordsFromJson(reader, table, null, fieldNamesToInclude, recordConsumer, stopCondition);
+            default -> throw new IllegalStateException("Unexpected table record format: " + tableDetails.getRecordFormat());
          }
       }
    }
@@ -541,20 +621,17 @@ public abstract class AbstractBaseFilesystemAction<FILE>
    {
       QueryInput queryInput = new QueryInput();
       queryInput.setTableName(countInput.getTableName());
+      queryInput.setFilter(countInput.getFilter());
 
-      QQueryFilter filter = countInput.getFilter();
-      if(filter != null)
-      {
-         filter = filter.clone();
-         filter.setSkip(null);
-         filter.setLimit(null);
-      }
-
-      queryInput.setFilter(filter);
-      QueryOutput queryOutput = executeQuery(queryInput);
+      ///////////////////////////////////////////////////////////////////////////
+      // stream the records through a counting collector - only the fields the //
+      // filter needs get built, and no records are kept.                      //
+      ///////////////////////////////////////////////////////////////////////////
+      FilesystemQueryRecordCollector recordCollector = FilesystemQueryRecordCollector.forCount(countInput.getFilter());
+      executeQuery(queryInput, recordCollector);
 
       CountOutput countOutput = new CountOutput();
-      countOutput.setCount(queryOutput.getRecords().size());
+      countOutput.setCount(recordCollector.getMatchCount());
       return (countOutput);
    }
 
@@ -607,25 +684,26 @@ public abstract class AbstractBaseFilesystemAction<FILE>
 
 
    /*******************************************************************************
-    **
+    ** wrap the reader for a file's contents in the table's post-read customizer,
+    ** if it has one.
     *******************************************************************************/
-   private String customizeFileContentsAfterReading(QTableMetaData table, String fileContents) throws QException
+   private Reader customizeFileContentsAfterReading(QTableMetaData table, Reader fileContentsReader) throws QException
    {
       try
       {
          Optional<QCodeReference> codeReference = table.getCustomizer(FilesystemTableCustomizers.POST_READ_FILE.getRole());
          if(codeReference.isEmpty())
          {
-            return (fileContents);
+            return (fileContentsReader);
          }
 
          AbstractPostReadFileCustomizer tableCustomizer = QCodeLoader.getAdHoc(AbstractPostReadFileCustomizer.class, codeReference.get());
          if(tableCustomizer == null)
          {
-            return (fileContents);
+            return (fileContentsReader);
          }
 
-         return tableCustomizer.customizeFileContents(fileContents);
+         return tableCustomizer.customizeFileContents(fileContentsReader);
       }
       catch(Exception e)
       {
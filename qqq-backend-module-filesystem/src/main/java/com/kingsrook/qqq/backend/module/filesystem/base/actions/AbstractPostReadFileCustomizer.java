@@ -22,9 +22,21 @@
 package com.kingsrook.qqq.backend.module.filesystem.base.actions;
 
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import org.apache.commons.io.IOUtils;
+
+
 /*******************************************************************************
  ** after a file is read, "customize" its contents - e.g., do regex, or append
  ** contents, or do whatever we like to it.
+ **
+ ** Queries against MANY-cardinality tables read files as a stream, through the
+ ** Reader version of customizeFileContents.  By default that buffers the whole
+ ** file and calls the String version - so a customizer that can work on the fly
+ ** (e.g., by wrapping the reader in a FilterReader) should override it as well,
+ ** to keep large files from being read fully into memory.
  *******************************************************************************/
 public abstract class AbstractPostReadFileCustomizer
 {
@@ -34,4 +46,15 @@ public abstract class AbstractPostReadFileCustomizer
     *******************************************************************************/
    public abstract String customizeFileContents(String s);
 
+
+
+   /*******************************************************************************
+    ** streaming version of customizeFileContents - see class comment.  The caller
+    ** is responsible for closing both the input and returned readers.
+    *******************************************************************************/
+   public Reader customizeFileContents(Reader reader) throws IOException
+   {
+      return (new StringReader(customizeFileContents(IOUtils.toString(reader))));
+   }
+
 }
@@ -0,0 +1,266 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.filesystem.base.actions;
+
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.utils.BackendQueryFilterUtils;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.utils.TopKRecordSelector;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+
+
+/*******************************************************************************
+ ** Applies a query's filter, skip, limit, order-bys and fieldNamesToInclude to
+ ** records one at a time, as a filesystem backend reads them out of its files -
+ ** so that the backend can stop reading as soon as the output is complete
+ ** (see isDone), and never has to build or hold records the query won't return.
+ **
+ ** Without order-bys, records that pass the filter go straight into the query
+ ** output (and so, straight into its record pipe, if it has one).  With order-bys,
+ ** every record can affect the output, so they go through a TopKRecordSelector,
+ ** and only reach the output in finish().
+ **
+ ** In count mode (see forCount), matching records are only counted, not kept.
+ *******************************************************************************/
+public class FilesystemQueryRecordCollector
+{
+   private final QueryOutput        queryOutput;
+   private final Predicate<QRecord> filterPredicate;
+   private final TopKRecordSelector recordSelector;
+
+   private final Set<String> fieldNamesToInclude;
+   private final Set<String> fieldNamesToMaterialize;
+
+   private final int     skip;
+   private final Integer limit;
+
+   private int skippedCount = 0;
+   private int outputCount  = 0;
+   private int matchCount   = 0;
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    *******************************************************************************/
+   private FilesystemQueryRecordCollector(QQueryFilter filter, QueryOutput queryOutput, Set<String> fieldNamesToInclude)
+   {
+      this.queryOutput = queryOutput;
+      this.filterPredicate = BackendQueryFilterUtils.compileFilter(filter, null);
+      this.fieldNamesToInclude = fieldNamesToInclude;
+
+      boolean hasOrderBys = filter != null && CollectionUtils.nullSafeHasContents(filter.getOrderBys());
+      this.recordSelector = (queryOutput != null && hasOrderBys) ? new TopKRecordSelector(filter) : null;
+
+      this.skip = (filter == null || filter.getSkip() == null || filter.getSkip() < 0) ? 0 : filter.getSkip();
+      this.limit = (filter == null || filter.getLimit() == null || filter.getLimit() < 0) ? null : filter.getLimit();
+
+      ///////////////////////////////////////////////////////////////////////////////////
+      // records need values for the fields the filter and order-bys look at, as well //
+      // as the ones the caller asked for - those extras get removed before output.   //
+      ///////////////////////////////////////////////////////////////////////////////////
+      if(fieldNamesToInclude == null)
+      {
+         this.fieldNamesToMaterialize = null;
+      }
+      else
+      {
+         this.fieldNamesToMaterialize = new HashSet<>(fieldNamesToInclude);
+         addFieldNamesUsedByFilter(filter, this.fieldNamesToMaterialize);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** collector for a query - whose records go into the queryOutput.
+    *******************************************************************************/
+   public static FilesystemQueryRecordCollector forQuery(QQueryFilter filter, Set<String> fieldNamesToInclude, QueryOutput queryOutput)
+   {
+      return (new FilesystemQueryRecordCollector(filter, queryOutput, fieldNamesToInclude));
+   }
+
+
+
+   /*******************************************************************************
+    ** collector for a count - which only needs the filter's fields built, and
+    ** doesn't keep any records.  Skip and limit in the filter are ignored.
+    *******************************************************************************/
+   public static FilesystemQueryRecordCollector forCount(QQueryFilter filter)
+   {
+      QQueryFilter filterForCount = filter;
+      if(filterForCount != null)
+      {
+         filterForCount = filterForCount.clone();
+         filterForCount.setSkip(null);
+         filterForCount.setLimit(null);
+      }
+
+      return (new FilesystemQueryRecordCollector(filterForCount, null, Set.of()));
+   }
+
+
+
+   /*******************************************************************************
+    ** Add a record, as read from a file.
+    *******************************************************************************/
+   public void add(QRecord record) throws QException
+   {
+      if(!filterPredicate.test(record))
+      {
+         return;
+      }
+
+      matchCount++;
+
+      if(queryOutput == null)
+      {
+         return;
+      }
+
+      if(recordSelector != null)
+      {
+         recordSelector.add(record);
+         return;
+      }
+
+      if(skippedCount < skip)
+      {
+         skippedCount++;
+         return;
+      }
+
+      if(!isDone())
+      {
+         queryOutput.addRecord(removeFieldsNotIncluded(record));
+         outputCount++;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Check if no more records can change the output - in which case, callers
+    ** should stop reading files.
+    *******************************************************************************/
+   public boolean isDone()
+   {
+      return (queryOutput != null && recordSelector == null && limit != null && outputCount >= limit);
+   }
+
+
+
+   /*******************************************************************************
+    ** Called after all records have been added - sends any records that were
+    ** being held for ordering to the output.
+    *******************************************************************************/
+   public void finish() throws QException
+   {
+      if(recordSelector != null)
+      {
+         for(QRecord record : recordSelector.getRecords())
+         {
+            queryOutput.addRecord(removeFieldsNotIncluded(record));
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the number of records that matched the filter.
+    *******************************************************************************/
+   public int getMatchCount()
+   {
+      return (matchCount);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the names of the fields that records need to have values built for -
+    ** or null, meaning, all fields.
+    *******************************************************************************/
+   public Set<String> getFieldNamesToMaterialize()
+   {
+      return (fieldNamesToMaterialize);
+   }
+
+
+
+   /*******************************************************************************
+    ** drop values the caller didn't ask for - e.g., ones only built for the filter,
+    ** or file meta-data that's always set on records from ONE-cardinality tables.
+    *******************************************************************************/
+   private QRecord removeFieldsNotIncluded(QRecord record)
+   {
+      if(fieldNamesToInclude != null)
+      {
+         record.getValues().keySet().retainAll(fieldNamesToInclude);
+      }
+      return (record);
+   }
+
+
+
+   /*******************************************************************************
+    ** collect the names of fields referenced by a filter's criteria (including
+    ** in sub-filters) and order-bys.
+    *******************************************************************************/
+   private static void addFieldNamesUsedByFilter(QQueryFilter filter, Set<String> fieldNames)
+   {
+      if(filter == null)
+      {
+         return;
+      }
+
+      for(QFilterCriteria criteria : CollectionUtils.nonNullList(filter.getCriteria()))
+      {
+         fieldNames.add(criteria.getFieldName());
+         if(StringUtils.hasContent(criteria.getOtherFieldName()))
+         {
+            fieldNames.add(criteria.getOtherFieldName());
+         }
+      }
+
+      for(QFilterOrderBy orderBy : CollectionUtils.nonNullList(filter.getOrderBys()))
+      {
+         fieldNames.add(orderBy.getFieldName());
+      }
+
+      for(QQueryFilter subFilter : CollectionUtils.nonNullList(filter.getSubFilters()))
+      {
+         addFieldNamesUsedByFilter(subFilter, fieldNames);
+      }
+   }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.filesystem.base.actions;
+
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import com.kingsrook.qqq.backend.core.context.CapturedContext;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeFunction;
+import com.kingsrook.qqq.backend.module.filesystem.base.model.metadata.AbstractFilesystemBackendMetaData;
+
+
+/*******************************************************************************
+ ** Reads a list of files (or, anything that identifies a file - e.g., a map
+ ** entry of a file name and a file) through a read function (e.g., fetching its
+ ** bytes, or parsing it into records), up to a backend's maxConcurrentFileReads
+ ** at a time - handing the results back, one file at a time, from next().
+ **
+ ** With maxConcurrentFileReads of 1 (the default), there's no thread pool -
+ ** each file is just read on the calling thread, when next() asks for it.  Else,
+ ** reads run on a pool of that many worker threads (with the caller's QInstance
+ ** and QSession), with at most 2 files per worker in flight, so a caller that
+ ** can't keep up back-pressures the reads, rather than having every file held in
+ ** memory.  Results come back either in the order of the list (if the backend's
+ ** preserveFileReadOrder), or in the order their reads finish.
+ **
+ ** An exception from the read function doesn't stop the other reads - it's
+ ** kept in that file's FileRead, for the caller to deal with (e.g., to log it
+ ** and move on to the next file).  Closing the reader (e.g., after an error, or
+ ** once the caller has all the records it needs) cancels the reads in flight,
+ ** interrupting their threads - so read functions doing long work (e.g., parsing
+ ** a large file) can check Thread.currentThread().isInterrupted() to stop early.
+ *******************************************************************************/
+public class ParallelFileReader<F, T> implements AutoCloseable
+{
+   private final UnsafeFunction<F, T, ? extends Exception> readFunction;
+   private final Iterator<F>                               filesToRead;
+   private final boolean                                   preserveFileReadOrder;
+   private final int                                       maxReadsInFlight;
+
+   private final ExecutorService                   executorService;
+   private final CompletionService<FileRead<F, T>> completionService;
+   private final Deque<Future<FileRead<F, T>>>     readsInFlight = new ArrayDeque<>();
+   private final CapturedContext                   capturedContext;
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    ** @param backend whose maxConcurrentFileReads & preserveFileReadOrder settings
+    ** to use - which, for a backend that isn't an AbstractFilesystemBackendMetaData,
+    ** are 1 and true.
+    ** @param files to read - in the order they should be read.
+    ** @param readFunction to run on each file - on a worker thread, if reading
+    ** in parallel.
+    *******************************************************************************/
+   public ParallelFileReader(QBackendMetaData backend, List<F> files, UnsafeFunction<F, T, ? extends Exception> readFunction)
+   {
+      this.readFunction = readFunction;
+      this.filesToRead = files.iterator();
+      this.preserveFileReadOrder = !(backend instanceof AbstractFilesystemBackendMetaData filesystemBackend) || filesystemBackend.getPreserveFileReadOrder();
+
+      int noOfWorkers = Math.min(getMaxConcurrentFileReads(backend), files.size());
+      if(noOfWorkers > 1)
+      {
+         this.maxReadsInFlight = 2 * noOfWorkers;
+         this.executorService = Executors.newFixedThreadPool(noOfWorkers, new PrefixedDefaultThreadFactory(ParallelFileReader.class));
+         this.completionService = new ExecutorCompletionService<>(executorService);
+         this.capturedContext = new CapturedContext(QContext.getQInstance(), QContext.getQSession());
+      }
+      else
+      {
+         this.maxReadsInFlight = 0;
+         this.executorService = null;
+         this.completionService = null;
+         this.capturedContext = null;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the number of files that a backend should read at a time - at least 1.
+    *******************************************************************************/
+   public static int getMaxConcurrentFileReads(QBackendMetaData backend)
+   {
+      if(backend instanceof AbstractFilesystemBackendMetaData filesystemBackend && filesystemBackend.getMaxConcurrentFileReads() != null)
+      {
+         return (Math.max(1, filesystemBackend.getMaxConcurrentFileReads()));
+      }
+      return (1);
+   }
+
+
+
+   /*******************************************************************************
+    ** Whether this reader is using worker threads (vs. reading each file on the
+    ** calling thread).
+    *******************************************************************************/
+   public boolean isParallel()
+   {
+      return (executorService != null);
+   }
+
+
+
+   /*******************************************************************************
+    ** Whether there are any more files to get from next().
+    *******************************************************************************/
+   public boolean hasNext()
+   {
+      return (filesToRead.hasNext() || !readsInFlight.isEmpty());
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the next file's read - waiting for it to finish, if it hasn't yet (or,
+    ** if not parallel, reading it now).
+    *******************************************************************************/
+   public FileRead<F, T> next() throws QException
+   {
+      if(!hasNext())
+      {
+         throw (new NoSuchElementException("No more files to read"));
+      }
+
+      if(!isParallel())
+      {
+         return (read(filesToRead.next()));
+      }
+
+      submitReads();
+
+      try
+      {
+         Future<FileRead<F, T>> future;
+         if(preserveFileReadOrder)
+         {
+            future = readsInFlight.removeFirst();
+         }
+         else
+         {
+            future = completionService.take();
+            readsInFlight.remove(future);
+         }
+
+         FileRead<F, T> fileRead = future.get();
+         submitReads();
+         return (fileRead);
+      }
+      catch(InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw (new QException("Interrupted waiting for files to be read", e));
+      }
+      catch(ExecutionException e)
+      {
+         /////////////////////////////////////////////////////////////////////////
+         // read() catches exceptions from the read function - so this would be //
+         // something unexpected (e.g., an Error) from the worker thread.       //
+         /////////////////////////////////////////////////////////////////////////
+         throw (new QException("Error reading file", e.getCause()));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Stop the workers - cancelling (and interrupting) any reads still in flight.
+    *******************************************************************************/
+   @Override
+   public void close()
+   {
+      if(isParallel())
+      {
+         for(Future<FileRead<F, T>> future : readsInFlight)
+         {
+            future.cancel(true);
+         }
+         readsInFlight.clear();
+         executorService.shutdownNow();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** submit reads for more files, up to the max that can be in flight.
+    *******************************************************************************/
+   private void submitReads()
+   {
+      while(readsInFlight.size() < maxReadsInFlight && filesToRead.hasNext())
+      {
+         F file = filesToRead.next();
+         readsInFlight.add(preserveFileReadOrder
+            ? executorService.submit(() -> readOnWorkerThread(file))
+            : completionService.submit(() -> readOnWorkerThread(file)));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** read one file - on a worker thread.
+    *******************************************************************************/
+   private FileRead<F, T> readOnWorkerThread(F file)
+   {
+      try
+      {
+         QContext.init(capturedContext);
+         return (read(file));
+      }
+      finally
+      {
+         QContext.clear();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** run the read function on one file, capturing any exception it throws.
+    *******************************************************************************/
+   private FileRead<F, T> read(F file)
+   {
+      try
+      {
+         return (new FileRead<>(file, readFunction.apply(file), null));
+      }
+      catch(Exception e)
+      {
+         return (new FileRead<>(file, null, e));
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** the result of reading one file.
+    **
+    ** @param file the file that was read.
+    ** @param value what the read function returned for it (null if it threw).
+    ** @param exception what the read function threw (null if it didn't).
+    ***************************************************************************/
+   public record FileRead<F, T>(F file, T value, Exception exception)
+   {
+      /***************************************************************************
+       ** get the value from the read - or, if it failed, throw its exception
+       ** (wrapped in a QException, if it wasn't one).
+       ***************************************************************************/
+      public T getValueOrThrow() throws QException
+      {
+         if(exception instanceof QException qException)
+         {
+            throw (qException);
+         }
+         else if(exception != null)
+         {
+            throw (new QException("Error reading file", exception));
+         }
+         return (value);
+      }
+   }
+}
@@ -27,10 +27,19 @@ import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
 
 /*******************************************************************************
  ** Base class for all BackendMetaData for all filesystem-style backend modules.
+ **
+ ** maxConcurrentFileReads lets reads that go over many files (queries of MANY-
+ ** cardinality tables, and the filesystem sync & importer steps) fetch (and, for
+ ** queries, parse) that many files at once - see ParallelFileReader.  Left null
+ ** (or at 1), files are read one at a time.  preserveFileReadOrder (the default)
+ ** makes those reads hand back their results in the order the files were
+ ** listed; turned off, results come back in the order their reads finish.
  *******************************************************************************/
 public class AbstractFilesystemBackendMetaData extends QBackendMetaData
 {
-   private String basePath;
+   private String  basePath;
+   private Integer maxConcurrentFileReads;
+   private boolean preserveFileReadOrder = true;
 
 
 
@@ -78,6 +87,74 @@ public class AbstractFilesystemBackendMetaData extends QBackendMetaData
 
 
 
+   /*******************************************************************************
+    ** Getter for maxConcurrentFileReads
+    **
+    *******************************************************************************/
+   public Integer getMaxConcurrentFileReads()
+   {
+      return (maxConcurrentFileReads);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxConcurrentFileReads
+    **
+    *******************************************************************************/
+   public void setMaxConcurrentFileReads(Integer maxConcurrentFileReads)
+   {
+      this.maxConcurrentFileReads = maxConcurrentFileReads;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxConcurrentFileReads
+    **
+    *******************************************************************************/
+   public AbstractFilesystemBackendMetaData withMaxConcurrentFileReads(Integer maxConcurrentFileReads)
+   {
+      this.maxConcurrentFileReads = maxConcurrentFileReads;
+      return (this);
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for preserveFileReadOrder
+    **
+    *******************************************************************************/
+   public boolean getPreserveFileReadOrder()
+   {
+      return (preserveFileReadOrder);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for preserveFileReadOrder
+    **
+    *******************************************************************************/
+   public void setPreserveFileReadOrder(boolean preserveFileReadOrder)
+   {
+      this.preserveFileReadOrder = preserveFileReadOrder;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for preserveFileReadOrder
+    **
+    *******************************************************************************/
+   public AbstractFilesystemBackendMetaData withPreserveFileReadOrder(boolean preserveFileReadOrder)
+   {
+      this.preserveFileReadOrder = preserveFileReadOrder;
+      return (this);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -160,6 +160,16 @@ public class FilesystemBackendModule implements QBackendModuleInterface, Filesys
    }
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public boolean supportsTupleInCriteria()
+   {
+      return (true);
+   }
+
+
 
    /*******************************************************************************
     **
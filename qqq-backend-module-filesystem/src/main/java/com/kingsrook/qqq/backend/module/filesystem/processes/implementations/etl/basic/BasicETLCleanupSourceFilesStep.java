@@ -80,40 +80,47 @@ public class BasicETLCleanupSourceFilesStep implements BackendStep
       AbstractBaseFilesystemAction actionBase = filesystemModule.getActionBase();
       actionBase.preAction(backend);
 
-      String sourceFilePaths = runBackendStepInput.getValueString(BasicETLCollectSourceFileNamesStep.FIELD_SOURCE_FILE_PATHS);
-      if(!StringUtils.hasContent(sourceFilePaths))
+      try
       {
-         LOG.debug("No source file paths were specified in field [" + BasicETLCollectSourceFileNamesStep.FIELD_SOURCE_FILE_PATHS + "]");
-         return;
-      }
-
-      String[] sourceFiles = sourceFilePaths.split(",");
-      for(String sourceFile : sourceFiles)
-      {
-         String moveOrDelete = runBackendStepInput.getValueString(FIELD_MOVE_OR_DELETE);
-         if(VALUE_DELETE.equals(moveOrDelete))
+         String sourceFilePaths = runBackendStepInput.getValueString(BasicETLCollectSourceFileNamesStep.FIELD_SOURCE_FILE_PATHS);
+         if(!StringUtils.hasContent(sourceFilePaths))
          {
-            LOG.info("Deleting ETL source file: " + sourceFile);
-            actionBase.deleteFile(table, sourceFile);
+            LOG.debug("No source file paths were specified in field [" + BasicETLCollectSourceFileNamesStep.FIELD_SOURCE_FILE_PATHS + "]");
+            return;
          }
-         else if(VALUE_MOVE.equals(moveOrDelete))
+
+         String[] sourceFiles = sourceFilePaths.split(",");
+         for(String sourceFile : sourceFiles)
          {
-            String destinationForMoves = runBackendStepInput.getValueString(FIELD_DESTINATION_FOR_MOVES);
-            LOG.info("Moving ETL source file: " + sourceFile + " to " + destinationForMoves);
-            if(!StringUtils.hasContent(destinationForMoves))
+            String moveOrDelete = runBackendStepInput.getValueString(FIELD_MOVE_OR_DELETE);
+            if(VALUE_DELETE.equals(moveOrDelete))
             {
-               throw (new QException("Field [" + FIELD_DESTINATION_FOR_MOVES + "] is missing a value."));
+               LOG.info("Deleting ETL source file: " + sourceFile);
+               actionBase.deleteFile(table, sourceFile);
+            }
+            else if(VALUE_MOVE.equals(moveOrDelete))
+            {
+               String destinationForMoves = runBackendStepInput.getValueString(FIELD_DESTINATION_FOR_MOVES);
+               LOG.info("Moving ETL source file: " + sourceFile + " to " + destinationForMoves);
+               if(!StringUtils.hasContent(destinationForMoves))
+               {
+                  throw (new QException("Field [" + FIELD_DESTINATION_FOR_MOVES + "] is missing a value."));
+               }
+               String filePathWithoutBase = actionBase.stripBackendAndTableBasePathsFromFileName(sourceFile, backend, table);
+               String destinationPath     = destinationForMoves + File.separator + filePathWithoutBase;
+               actionBase.moveFile(QContext.getQInstance(), table, sourceFile, destinationPath);
+            }
+            else
+            {
+               throw (new QException("Unexpected value [" + moveOrDelete + "] for field [" + FIELD_MOVE_OR_DELETE + "].  "
+                  + "Must be either [" + VALUE_MOVE + "] or [" + VALUE_DELETE + "]."));
             }
-            String filePathWithoutBase = actionBase.stripBackendAndTableBasePathsFromFileName(sourceFile, backend, table);
-            String destinationPath     = destinationForMoves + File.separator + filePathWithoutBase;
-            actionBase.moveFile(QContext.getQInstance(), table, sourceFile, destinationPath);
-         }
-         else
-         {
-            throw (new QException("Unexpected value [" + moveOrDelete + "] for field [" + FIELD_MOVE_OR_DELETE + "].  "
-               + "Must be either [" + VALUE_MOVE + "] or [" + VALUE_DELETE + "]."));
          }
       }
+      finally
+      {
+         actionBase.postAction();
+      }
    }
 
 
@@ -24,7 +24,6 @@ package com.kingsrook.qqq.backend.module.filesystem.processes.implementations.fi
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -65,6 +64,7 @@ import com.kingsrook.qqq.backend.core.utils.JsonUtils;
 import com.kingsrook.qqq.backend.core.utils.StringUtils;
 import com.kingsrook.qqq.backend.module.filesystem.base.FilesystemBackendModuleInterface;
 import com.kingsrook.qqq.backend.module.filesystem.base.actions.AbstractBaseFilesystemAction;
+import com.kingsrook.qqq.backend.module.filesystem.base.actions.ParallelFileReader;
 import org.apache.commons.lang3.BooleanUtils;
 import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
@@ -115,7 +115,19 @@ public class FilesystemImporterStep implements BackendStep
       // defer to a private method here, so we can add a type-parameter for that method to use              //
       // would think we could do that here, but get compiler error, since this method comes from base class //
       ////////////////////////////////////////////////////////////////////////////////////////////////////////
-      doRun(runBackendStepInput, runBackendStepOutput);
+      List<AbstractBaseFilesystemAction<?>> preActionedActionBases = new ArrayList<>();
+      try
+      {
+         doRun(runBackendStepInput, runBackendStepOutput, preActionedActionBases);
+      }
+      finally
+      {
+         /////////////////////////////////////////////////////////////////////////////
+         // let the actions release their connections (e.g., sftp sessions, back to //
+         // the session pool), however the run ended                                //
+         /////////////////////////////////////////////////////////////////////////////
+         preActionedActionBases.forEach(AbstractBaseFilesystemAction::postAction);
+      }
    }
 
 
@@ -123,7 +135,7 @@ public class FilesystemImporterStep implements BackendStep
    /*******************************************************************************
     **
     *******************************************************************************/
-   private <F> void doRun(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput) throws QException
+   private <F> void doRun(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput, List<AbstractBaseFilesystemAction<?>> preActionedActionBases) throws QException
    {
       String  fileFormat             = runBackendStepInput.getValueString(FIELD_FILE_FORMAT);
       Boolean removeFileAfterImport  = runBackendStepInput.getValueBoolean(FIELD_REMOVE_FILE_AFTER_IMPORT);
@@ -144,6 +156,7 @@ public class FilesystemImporterStep implements BackendStep
       FilesystemBackendModuleInterface<F> sourceModule     = (FilesystemBackendModuleInterface<F>) new QBackendModuleDispatcher().getQBackendModule(sourceBackend);
       AbstractBaseFilesystemAction<F>     sourceActionBase = sourceModule.getActionBase();
       sourceActionBase.preAction(sourceBackend);
+      preActionedActionBases.add(sourceActionBase);
       Map<String, F> sourceFiles = getFileNames(sourceActionBase, sourceTable, sourceBackend);
 
       if(CollectionUtils.nullSafeIsEmpty(sourceFiles))
@@ -162,44 +175,62 @@ public class FilesystemImporterStep implements BackendStep
       QueryOutput               queryOutput           = new QueryAction().execute(queryInput);
       Map<String, Serializable> existingImportedFiles = CollectionUtils.listToMap(queryOutput.getRecords(), r -> r.getValueString("sourceFileName"), r -> r.getValue("id"));
 
+      //////////////////////////////////////////////////////////////////////////////
+      // decide which files to skip before reading any, so that only the files to //
+      // be imported get read - which may happen several at a time, below         //
+      //////////////////////////////////////////////////////////////////////////////
+      List<Map.Entry<String, F>> filesToImport = new ArrayList<>();
       for(Map.Entry<String, F> sourceEntry : sourceFiles.entrySet())
       {
-         QBackendTransaction transaction = null;
          try
          {
             String sourceFileName = sourceEntry.getKey();
             LOG.info("Found file", logPair("fileName", sourceFileName));
 
-            /////////////////////////////////////////////////////////
-            // if filename was already imported, decide what to do //
-            /////////////////////////////////////////////////////////
-            boolean      alreadyImported = existingImportedFiles.containsKey(sourceFileName);
-            Serializable idToUpdate      = null;
-            if(alreadyImported)
+            //////////////////////////////////////////////////////////////////////////////////
+            // if filename was already imported, decide what to do                          //
+            // todo - would we want to support importing multiple-times the same file name? //
+            // possibly - if so, add it here, presumably w/ another boolean field           //
+            //////////////////////////////////////////////////////////////////////////////////
+            if(existingImportedFiles.containsKey(sourceFileName) && !updateFileIfNameExists)
+            {
+               LOG.info("Skipping already-imported file", logPair("fileName", sourceFileName)); // todo - downgrade to debug?
+               removeSourceFileIfSoConfigured(removeFileAfterImport, sourceActionBase, sourceTable, sourceBackend, sourceFileName);
+               continue;
+            }
+
+            filesToImport.add(sourceEntry);
+         }
+         catch(Exception e)
+         {
+            LOG.error("Error processing file: " + sourceEntry, e);
+         }
+      }
+
+      ////////////////////////////////////////////////////////////////////////////////////
+      // read the files' bytes - several at a time, if the source backend has           //
+      // maxConcurrentFileReads - while parsing & inserting each file's records (in its //
+      // own transaction) stays here, one file at a time, in the order they were listed //
+      ////////////////////////////////////////////////////////////////////////////////////
+      try(ParallelFileReader<Map.Entry<String, F>, byte[]> fileReader = new ParallelFileReader<>(sourceBackend, filesToImport, sourceEntry -> sourceActionBase.readFileBytes(sourceEntry.getValue())))
+      {
+         while(fileReader.hasNext())
+         {
+            ParallelFileReader.FileRead<Map.Entry<String, F>, byte[]> fileRead    = fileReader.next();
+            Map.Entry<String, F>                                       sourceEntry = fileRead.file();
+            QBackendTransaction                                        transaction = null;
+            try
             {
-               //////////////////////////////////////////////////////////////////////////////////
-               // todo - would we want to support importing multiple-times the same file name? //
-               // possibly - if so, add it here, presumably w/ another boolean field           //
-               //////////////////////////////////////////////////////////////////////////////////
-               if(updateFileIfNameExists)
+               String sourceFileName = sourceEntry.getKey();
+
+               Serializable idToUpdate = null;
+               if(existingImportedFiles.containsKey(sourceFileName))
                {
-                  LOG.info("Updating already-imported file", logPair("fileName", sourceFileName), logPair("id", idToUpdate));
                   idToUpdate = existingImportedFiles.get(sourceFileName);
+                  LOG.info("Updating already-imported file", logPair("fileName", sourceFileName), logPair("id", idToUpdate));
                }
-               else
-               {
-                  LOG.info("Skipping already-imported file", logPair("fileName", sourceFileName)); // todo - downgrade to debug?
-                  removeSourceFileIfSoConfigured(removeFileAfterImport, sourceActionBase, sourceTable, sourceBackend, sourceFileName);
-                  continue;
-               }
-            }
 
-            ///////////////////////////////////
-            // read the file as input stream //
-            ///////////////////////////////////
-            try(InputStream inputStream = sourceActionBase.readFile(sourceEntry.getValue()))
-            {
-               byte[] bytes = inputStream.readAllBytes();
+               byte[] bytes = fileRead.getValueOrThrow();
 
                //////////////////////////////////////
                // archive the file, if so directed //
@@ -243,28 +274,28 @@ public class FilesystemImporterStep implements BackendStep
                LOG.info("Inserted insertFile & records", logPair("id", insertOutput.getRecords().get(0).getValue("id")));
 
                transaction.commit();
-            }
 
-            ///////////////////////////////////////////////////////////////////////////////////////////////
-            // after the records are built, we can delete the file                                       //
-            // if we are interrupted between the commit & the delete, then the file will be found again, //
-            // and we'll either skip it or do an update, based on FIELD_UPDATE_FILE_IF_NAME_EXISTS flag  //
-            ///////////////////////////////////////////////////////////////////////////////////////////////
-            removeSourceFileIfSoConfigured(removeFileAfterImport, sourceActionBase, sourceTable, sourceBackend, sourceFileName);
-         }
-         catch(Exception e)
-         {
-            LOG.error("Error processing file: " + sourceEntry, e);
-            if(transaction != null)
+               ///////////////////////////////////////////////////////////////////////////////////////////////
+               // after the records are built, we can delete the file                                       //
+               // if we are interrupted between the commit & the delete, then the file will be found again, //
+               // and we'll either skip it or do an update, based on FIELD_UPDATE_FILE_IF_NAME_EXISTS flag  //
+               ///////////////////////////////////////////////////////////////////////////////////////////////
+               removeSourceFileIfSoConfigured(removeFileAfterImport, sourceActionBase, sourceTable, sourceBackend, sourceFileName);
+            }
+            catch(Exception e)
             {
-               transaction.rollback();
+               LOG.error("Error processing file: " + sourceEntry, e);
+               if(transaction != null)
+               {
+                  transaction.rollback();
+               }
             }
-         }
-         finally
-         {
-            if(transaction != null)
+            finally
             {
-               transaction.close();
+               if(transaction != null)
+               {
+                  transaction.close();
+               }
             }
          }
       }
@@ -357,19 +388,26 @@ public class FilesystemImporterStep implements BackendStep
       AbstractBaseFilesystemAction<?>     archiveActionBase = archiveModule.getActionBase();
       archiveActionBase.preAction(archiveBackend);
 
-      LocalDateTime now = LocalDateTime.now();
-      String path = archiveActionBase.getFullBasePath(archiveTable, archiveBackend)
-         + File.separator + archivePath
-         + File.separator + now.getYear()
-         + File.separator + now.getMonth()
-         + File.separator + UUID.randomUUID()
-         + "-" + sourceFileName.replaceAll(".*" + File.separator, "");
-      path = AbstractBaseFilesystemAction.stripDuplicatedSlashes(path);
-
-      LOG.info("Archiving file", logPair("path", path), logPair("archiveBackendName", archiveBackend.getName()), logPair("archiveTableName", archiveTable.getName()));
-      archiveActionBase.writeFile(archiveBackend, archiveTable, null, path, bytes);
-
-      return (path);
+      try
+      {
+         LocalDateTime now = LocalDateTime.now();
+         String path = archiveActionBase.getFullBasePath(archiveTable, archiveBackend)
+            + File.separator + archivePath
+            + File.separator + now.getYear()
+            + File.separator + now.getMonth()
+            + File.separator + UUID.randomUUID()
+            + "-" + sourceFileName.replaceAll(".*" + File.separator, "");
+         path = AbstractBaseFilesystemAction.stripDuplicatedSlashes(path);
+
+         LOG.info("Archiving file", logPair("path", path), logPair("archiveBackendName", archiveBackend.getName()), logPair("archiveTableName", archiveTable.getName()));
+         archiveActionBase.writeFile(archiveBackend, archiveTable, null, path, bytes);
+
+         return (path);
+      }
+      finally
+      {
+         archiveActionBase.postAction();
+      }
    }
 
 
@@ -23,7 +23,7 @@ package com.kingsrook.qqq.backend.module.filesystem.processes.implementations.fi
 
 
 import java.io.File;
-import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +39,7 @@ import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.modules.backend.QBackendModuleDispatcher;
 import com.kingsrook.qqq.backend.module.filesystem.base.FilesystemBackendModuleInterface;
 import com.kingsrook.qqq.backend.module.filesystem.base.actions.AbstractBaseFilesystemAction;
+import com.kingsrook.qqq.backend.module.filesystem.base.actions.ParallelFileReader;
 
 
 /*******************************************************************************
@@ -65,7 +66,19 @@ public class FilesystemSyncStep implements BackendStep
       // defer to a private method here, so we can add a type-parameter for that method to use              //
       // would think we could do that here, but get compiler error, since this method comes from base class //
       ////////////////////////////////////////////////////////////////////////////////////////////////////////
-      doRun(runBackendStepInput, runBackendStepOutput);
+      List<AbstractBaseFilesystemAction<?>> preActionedActionBases = new ArrayList<>();
+      try
+      {
+         doRun(runBackendStepInput, runBackendStepOutput, preActionedActionBases);
+      }
+      finally
+      {
+         /////////////////////////////////////////////////////////////////////////////
+         // let the actions release their connections (e.g., sftp sessions, back to //
+         // the session pool), however the run ended                                //
+         /////////////////////////////////////////////////////////////////////////////
+         preActionedActionBases.forEach(AbstractBaseFilesystemAction::postAction);
+      }
    }
 
 
@@ -73,7 +86,7 @@ public class FilesystemSyncStep implements BackendStep
    /*******************************************************************************
     **
     *******************************************************************************/
-   private <F> void doRun(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput) throws QException
+   private <F> void doRun(RunBackendStepInput runBackendStepInput, RunBackendStepOutput runBackendStepOutput, List<AbstractBaseFilesystemAction<?>> preActionedActionBases) throws QException
    {
       QTableMetaData sourceTable     = QContext.getQInstance().getTable(runBackendStepInput.getValueString(FilesystemSyncProcess.FIELD_SOURCE_TABLE));
       QTableMetaData archiveTable    = QContext.getQInstance().getTable(runBackendStepInput.getValueString(FilesystemSyncProcess.FIELD_ARCHIVE_TABLE));
@@ -83,51 +96,62 @@ public class FilesystemSyncStep implements BackendStep
       FilesystemBackendModuleInterface<F> sourceModule     = (FilesystemBackendModuleInterface<F>) new QBackendModuleDispatcher().getQBackendModule(sourceBackend);
       AbstractBaseFilesystemAction<F>     sourceActionBase = sourceModule.getActionBase();
       sourceActionBase.preAction(sourceBackend);
+      preActionedActionBases.add(sourceActionBase);
       Map<String, F> sourceFiles = getFileNames(sourceActionBase, sourceTable, sourceBackend);
 
       QBackendMetaData                    archiveBackend    = QContext.getQInstance().getBackendForTable(archiveTable.getName());
       FilesystemBackendModuleInterface<F> archiveModule     = (FilesystemBackendModuleInterface<F>) new QBackendModuleDispatcher().getQBackendModule(archiveBackend);
       AbstractBaseFilesystemAction<F>     archiveActionBase = archiveModule.getActionBase();
       archiveActionBase.preAction(archiveBackend);
+      preActionedActionBases.add(archiveActionBase);
       Set<String> archiveFiles = getFileNames(archiveActionBase, archiveTable, archiveBackend).keySet();
 
       QBackendMetaData                    processingBackend    = QContext.getQInstance().getBackendForTable(processingTable.getName());
       FilesystemBackendModuleInterface<F> processingModule     = (FilesystemBackendModuleInterface<F>) new QBackendModuleDispatcher().getQBackendModule(processingBackend);
       AbstractBaseFilesystemAction<F>     processingActionBase = processingModule.getActionBase();
       processingActionBase.preAction(processingBackend);
+      preActionedActionBases.add(processingActionBase);
+
+      List<Map.Entry<String, F>> filesToSync = sourceFiles.entrySet().stream()
+         .filter(sourceEntry -> !archiveFiles.contains(sourceEntry.getKey()))
+         .toList();
 
+      //////////////////////////////////////////////////////////////////////////////////
+      // fetch the source files' bytes - several at a time, if the source backend has //
+      // maxConcurrentFileReads - but write them out here, one at a time, so that the //
+      // count of synced files (for maxFilesToSync) stays exact.                      //
+      //////////////////////////////////////////////////////////////////////////////////
       Integer maxFilesToSync  = runBackendStepInput.getValueInteger(FilesystemSyncProcess.FIELD_MAX_FILES_TO_ARCHIVE);
       int     syncedFileCount = 0;
-      for(Map.Entry<String, F> sourceEntry : sourceFiles.entrySet())
+      try(ParallelFileReader<Map.Entry<String, F>, byte[]> fileReader = new ParallelFileReader<>(sourceBackend, filesToSync, sourceEntry -> sourceActionBase.readFileBytes(sourceEntry.getValue())))
       {
-         try
+         while(fileReader.hasNext())
          {
-            String sourceFileName = sourceEntry.getKey();
-            if(!archiveFiles.contains(sourceFileName))
+            ParallelFileReader.FileRead<Map.Entry<String, F>, byte[]> fileRead    = fileReader.next();
+            Map.Entry<String, F>                                       sourceEntry = fileRead.file();
+            try
             {
+               String sourceFileName = sourceEntry.getKey();
                LOG.info("Syncing file [" + sourceFileName + "] to [" + archiveTable + "] and [" + processingTable + "]");
-               try(InputStream inputStream = sourceActionBase.readFile(sourceEntry.getValue()))
-               {
-                  byte[] bytes = inputStream.readAllBytes();
+               byte[] bytes = fileRead.getValueOrThrow();
 
-                  String archivePath = archiveActionBase.getFullBasePath(archiveTable, archiveBackend);
-                  archiveActionBase.writeFile(archiveBackend, archiveTable, null, archivePath + File.separator + sourceFileName, bytes);
+               String archivePath = archiveActionBase.getFullBasePath(archiveTable, archiveBackend);
+               archiveActionBase.writeFile(archiveBackend, archiveTable, null, archivePath + File.separator + sourceFileName, bytes);
 
-                  String processingPath = processingActionBase.getFullBasePath(processingTable, processingBackend);
-                  processingActionBase.writeFile(processingBackend, processingTable, null, processingPath + File.separator + sourceFileName, bytes);
-                  syncedFileCount++;
+               String processingPath = processingActionBase.getFullBasePath(processingTable, processingBackend);
+               processingActionBase.writeFile(processingBackend, processingTable, null, processingPath + File.separator + sourceFileName, bytes);
+               syncedFileCount++;
 
-                  if(maxFilesToSync != null && syncedFileCount >= maxFilesToSync)
-                  {
-                     LOG.info("Breaking after syncing " + syncedFileCount + " files");
-                     break;
-                  }
+               if(maxFilesToSync != null && syncedFileCount >= maxFilesToSync)
+               {
+                  LOG.info("Breaking after syncing " + syncedFileCount + " files");
+                  break;
                }
             }
-         }
-         catch(Exception e)
-         {
-            LOG.error("Error processing file: " + sourceEntry, e);
+            catch(Exception e)
+            {
+               LOG.error("Error processing file: " + sourceEntry, e);
+            }
          }
       }
    }
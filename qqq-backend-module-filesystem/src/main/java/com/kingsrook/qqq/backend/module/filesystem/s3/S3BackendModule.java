@@ -157,6 +157,16 @@ public class S3BackendModule implements QBackendModuleInterface, FilesystemBacke
    }
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public boolean supportsTupleInCriteria()
+   {
+      return (true);
+   }
+
+
 
    /*******************************************************************************
     **
@@ -37,6 +37,8 @@ public class S3BackendMetaData extends AbstractFilesystemBackendMetaData
    private String secretKey;
    private String region;
 
+   private Integer maxConcurrentUploadParts;
+
 
 
    /*******************************************************************************
@@ -186,6 +188,42 @@ public class S3BackendMetaData extends AbstractFilesystemBackendMetaData
 
 
 
+   /*******************************************************************************
+    ** Getter for maxConcurrentUploadParts
+    **
+    *******************************************************************************/
+   public Integer getMaxConcurrentUploadParts()
+   {
+      return maxConcurrentUploadParts;
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxConcurrentUploadParts - how many parts of a multipart upload
+    ** (e.g., from the storage action) to upload at a time.  If null, the default
+    ** from S3UploadOutputStream is used.
+    **
+    *******************************************************************************/
+   public void setMaxConcurrentUploadParts(Integer maxConcurrentUploadParts)
+   {
+      this.maxConcurrentUploadParts = maxConcurrentUploadParts;
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxConcurrentUploadParts
+    **
+    *******************************************************************************/
+   public S3BackendMetaData withMaxConcurrentUploadParts(Integer maxConcurrentUploadParts)
+   {
+      this.maxConcurrentUploadParts = maxConcurrentUploadParts;
+      return (this);
+   }
+
+
+
    /*******************************************************************************
     ** Called by the QInstanceEnricher - to do backend-type-specific enrichments.
     ** Original use case is:  reading secrets into fields (e.g., passwords).
@@ -25,18 +25,26 @@ package com.kingsrook.qqq.backend.module.filesystem.s3.utils;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
-import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
 import com.amazonaws.services.s3.model.ObjectMetadata;
-import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.UploadPartRequest;
 import com.amazonaws.services.s3.model.UploadPartResult;
+import com.kingsrook.qqq.backend.core.instances.QMetaDataVariableInterpreter;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
 import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
 
@@ -45,23 +53,48 @@ import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
  **
  ** This will be done using a multipart-upload if the contents are > 5MB - else
  ** just a 1-time-call to PutObject
+ **
+ ** Parts of a multipart-upload are uploaded by worker threads, up to
+ ** maxConcurrentParts at a time (default from the qqq.s3.upload.maxConcurrentParts
+ ** system property or QQQ_S3_UPLOAD_MAX_CONCURRENT_PARTS env var - else 4), so
+ ** writes only block when that many parts are in flight.  Part buffers are
+ ** reused, once their uploads finish.  As S3 allows at most 10,000 parts, the
+ ** part size grows by 5MB every 1,000 parts (so, up to ~275GB per file).  If any
+ ** part fails, the multipart-upload is aborted, and the error is thrown from the
+ ** next write (or close).
  *******************************************************************************/
 public class S3UploadOutputStream extends OutputStream
 {
    private static final QLogger LOG = QLogger.getLogger(S3UploadOutputStream.class);
 
+   public static final int MIN_PART_SIZE                = 5 * 1024 * 1024;
+   public static final int PARTS_PER_PART_SIZE_STEP     = 1_000;
+   public static final int MAX_PARTS                    = 10_000;
+   public static final int DEFAULT_MAX_CONCURRENT_PARTS = new QMetaDataVariableInterpreter().getIntegerFromPropertyOrEnvironment("qqq.s3.upload.maxConcurrentParts", "QQQ_S3_UPLOAD_MAX_CONCURRENT_PARTS", 4);
+
    private final AmazonS3 amazonS3;
    private final String   bucketName;
    private final String   key;
    private final String   contentType;
 
-   private byte[] buffer = new byte[5 * 1024 * 1024];
+   private int maxConcurrentParts = DEFAULT_MAX_CONCURRENT_PARTS;
+
+   private byte[] buffer = new byte[MIN_PART_SIZE];
    private int    offset = 0;
 
    private InitiateMultipartUploadResult initiateMultipartUploadResult = null;
    private List<UploadPartResult>        uploadPartResultList          = null;
+   private int                           lastPartNumber                = 0;
 
-   private boolean isClosed = false;
+   private final Deque<Future<UploadPartResult>> partsInFlight   = new ArrayDeque<>();
+   private final ConcurrentLinkedQueue<byte[]>   freeBuffers     = new ConcurrentLinkedQueue<>();
+   private ExecutorService                       executorService = null;
+
+   private long startNanos    = 0;
+   private long bytesUploaded = 0;
+
+   private boolean isClosed  = false;
+   private boolean isAborted = false;
 
 
 
@@ -85,6 +118,8 @@ public class S3UploadOutputStream extends OutputStream
    @Override
    public void write(int b) throws IOException
    {
+      assertWritable();
+
       buffer[offset] = (byte) b;
       offset++;
 
@@ -96,15 +131,8 @@ public class S3UploadOutputStream extends OutputStream
    /*******************************************************************************
     **
     *******************************************************************************/
-   private void uploadIfNeeded()
+   private void uploadIfNeeded() throws IOException
    {
-      ObjectMetadata objectMetadata = null;
-      if(this.contentType != null)
-      {
-         objectMetadata = new ObjectMetadata();
-         objectMetadata.setContentType(this.contentType);
-      }
-
       if(offset == buffer.length)
       {
          //////////////////////////////////////////
@@ -112,55 +140,264 @@ public class S3UploadOutputStream extends OutputStream
          //////////////////////////////////////////
          if(initiateMultipartUploadResult == null)
          {
-            LOG.info("Initiating a multipart upload", logPair("key", key));
-            initiateMultipartUploadResult = amazonS3.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key, objectMetadata));
+            LOG.info("Initiating a multipart upload", logPair("key", key), logPair("maxConcurrentParts", maxConcurrentParts));
+            initiateMultipartUploadResult = amazonS3.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key, makeObjectMetadata()));
 
             uploadPartResultList = new ArrayList<>();
+            startNanos = System.nanoTime();
+            if(maxConcurrentParts > 1)
+            {
+               executorService = Executors.newFixedThreadPool(maxConcurrentParts, new PrefixedDefaultThreadFactory(S3UploadOutputStream.class));
+            }
          }
 
-         LOG.info("Uploading a part", logPair("key", key), logPair("partNumber", uploadPartResultList.size() + 1));
-         UploadPartRequest uploadPartRequest = new UploadPartRequest()
-            .withUploadId(initiateMultipartUploadResult.getUploadId())
-            .withPartNumber(uploadPartResultList.size() + 1)
-            .withInputStream(new ByteArrayInputStream(buffer))
-            .withBucketName(bucketName)
-            .withKey(key)
-            .withPartSize(buffer.length)
-            .withObjectMetadata(objectMetadata);
-
-         uploadPartResultList.add(amazonS3.uploadPart(uploadPartRequest));
-
-         //////////////////
-         // reset buffer //
-         //////////////////
+         uploadPart(false);
+
+         ///////////////////////////////////////////////////////////////////
+         // continue into a free buffer (of the size for the next part) - //
+         // the one that was just filled may still be getting uploaded.   //
+         ///////////////////////////////////////////////////////////////////
+         buffer = getFreeBuffer(getPartSize(lastPartNumber + 1));
          offset = 0;
       }
    }
 
 
 
+   /*******************************************************************************
+    ** upload the current buffer as the next part - on a worker thread, after
+    ** waiting for room, if the max number of parts are in flight - else inline.
+    *******************************************************************************/
+   private void uploadPart(boolean isFinalPart) throws IOException
+   {
+      if(lastPartNumber == MAX_PARTS)
+      {
+         abort();
+         throw (new IOException("Too many parts for S3 multipart upload of [" + key + "] (max is " + MAX_PARTS + ")"));
+      }
+
+      int    partNumber = ++lastPartNumber;
+      byte[] partBuffer = buffer;
+      int    partSize   = offset;
+      LOG.info("Uploading a part", logPair("key", key), logPair("isFinalPart", isFinalPart), logPair("partNumber", partNumber), logPair("partSize", partSize));
+
+      UploadPartRequest uploadPartRequest = new UploadPartRequest()
+         .withUploadId(initiateMultipartUploadResult.getUploadId())
+         .withPartNumber(partNumber)
+         .withInputStream(new ByteArrayInputStream(partBuffer, 0, partSize))
+         .withBucketName(bucketName)
+         .withKey(key)
+         .withPartSize(partSize)
+         .withObjectMetadata(makeObjectMetadata());
+
+      if(executorService == null)
+      {
+         try
+         {
+            uploadPartResultList.add(amazonS3.uploadPart(uploadPartRequest));
+            bytesUploaded += partSize;
+            freeBuffers.add(partBuffer);
+         }
+         catch(RuntimeException e)
+         {
+            abort();
+            throw (new IOException("Error uploading part " + partNumber + " of [" + key + "]", e));
+         }
+         return;
+      }
+
+      //////////////////////////////////////////////////////////////////////////
+      // collect any parts that are done (to surface failures promptly), then //
+      // if we're at the max in flight, wait for the oldest one.              //
+      //////////////////////////////////////////////////////////////////////////
+      collectFinishedParts(false);
+      while(partsInFlight.size() >= maxConcurrentParts)
+      {
+         collectPart(partsInFlight.removeFirst());
+      }
+
+      partsInFlight.add(executorService.submit(() ->
+      {
+         try
+         {
+            return (amazonS3.uploadPart(uploadPartRequest));
+         }
+         finally
+         {
+            freeBuffers.add(partBuffer);
+         }
+      }));
+      bytesUploaded += partSize;
+   }
+
+
+
+   /*******************************************************************************
+    ** collect the results of parts in flight - either all of them (waiting as
+    ** needed), or just those that are already done.
+    *******************************************************************************/
+   private void collectFinishedParts(boolean waitForAll) throws IOException
+   {
+      while(!partsInFlight.isEmpty() && (waitForAll || partsInFlight.peekFirst().isDone()))
+      {
+         collectPart(partsInFlight.removeFirst());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** wait for one part's upload to finish - aborting the multipart-upload if it
+    ** failed.
+    *******************************************************************************/
+   private void collectPart(Future<UploadPartResult> future) throws IOException
+   {
+      try
+      {
+         uploadPartResultList.add(future.get());
+      }
+      catch(InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         abort();
+         throw (new IOException("Interrupted waiting for S3 part upload of [" + key + "]", e));
+      }
+      catch(ExecutionException e)
+      {
+         abort();
+         throw (new IOException("Error uploading part of [" + key + "]", e.getCause()));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** get a buffer to fill with the next part - reusing one whose upload is done,
+    ** if it's the right size (else dropping it, for the garbage collector).
+    *******************************************************************************/
+   private byte[] getFreeBuffer(int size)
+   {
+      byte[] freeBuffer;
+      while((freeBuffer = freeBuffers.poll()) != null)
+      {
+         if(freeBuffer.length == size)
+         {
+            return (freeBuffer);
+         }
+      }
+      return (new byte[size]);
+   }
+
+
+
+   /*******************************************************************************
+    ** S3 allows at most 10,000 parts - so to support files bigger than that many
+    ** 5MB parts, the part size grows by 5MB every 1,000 parts.
+    *******************************************************************************/
+   static int getPartSize(int partNumber)
+   {
+      return (MIN_PART_SIZE * (1 + (partNumber - 1) / PARTS_PER_PART_SIZE_STEP));
+   }
+
+
+
+   /*******************************************************************************
+    ** abort the multipart upload (so S3 doesn't keep (and bill for) its parts),
+    ** after cancelling any parts in flight.
+    *******************************************************************************/
+   private void abort()
+   {
+      if(isAborted)
+      {
+         return;
+      }
+      isAborted = true;
+
+      partsInFlight.forEach(future -> future.cancel(true));
+      partsInFlight.clear();
+      shutdownExecutor();
+
+      if(initiateMultipartUploadResult != null)
+      {
+         try
+         {
+            LOG.info("Aborting multipart upload", logPair("key", key), logPair("partsUploaded", uploadPartResultList.size()));
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, initiateMultipartUploadResult.getUploadId()));
+         }
+         catch(Exception e)
+         {
+            LOG.warn("Error aborting multipart upload", e, logPair("key", key));
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void shutdownExecutor()
+   {
+      if(executorService != null)
+      {
+         executorService.shutdownNow();
+         executorService = null;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private ObjectMetadata makeObjectMetadata()
+   {
+      ObjectMetadata objectMetadata = null;
+      if(this.contentType != null)
+      {
+         objectMetadata = new ObjectMetadata();
+         objectMetadata.setContentType(this.contentType);
+      }
+      return (objectMetadata);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
    @Override
    public void write(byte[] b, int off, int len) throws IOException
    {
-      int bytesToWrite = len;
+      assertWritable();
 
-      while(bytesToWrite > buffer.length - offset)
+      int bytesToWrite = len;
+      while(bytesToWrite > 0)
       {
-         int size = buffer.length - offset;
+         int size = Math.min(bytesToWrite, buffer.length - offset);
          System.arraycopy(b, off, buffer, offset, size);
-         offset = buffer.length;
+         offset += size;
          uploadIfNeeded();
          off += size;
          bytesToWrite -= size;
       }
+   }
 
-      int size = len - off;
-      System.arraycopy(b, off, buffer, offset, size);
-      offset += size;
-      uploadIfNeeded();
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void assertWritable() throws IOException
+   {
+      if(isAborted)
+      {
+         throw (new IOException("S3 upload of [" + key + "] was aborted, after an error"));
+      }
+      if(isClosed)
+      {
+         throw (new IOException("S3UploadOutputStream for [" + key + "] is closed"));
+      }
    }
 
 
@@ -177,52 +414,115 @@ public class S3UploadOutputStream extends OutputStream
          return;
       }
 
-      ObjectMetadata objectMetadata = null;
-      if(this.contentType != null)
+      if(isAborted)
       {
-         objectMetadata = new ObjectMetadata();
-         objectMetadata.setContentType(this.contentType);
+         ///////////////////////////////////////////////////////////////////////
+         // the error that caused the abort was already thrown (from a write) //
+         ///////////////////////////////////////////////////////////////////////
+         isClosed = true;
+         return;
       }
 
-      if(initiateMultipartUploadResult != null)
+      try
       {
-         if(offset > 0)
+         if(initiateMultipartUploadResult != null)
          {
-            //////////////////////////////////////////////////
-            // if there's a final part to upload, do it now //
-            //////////////////////////////////////////////////
-            LOG.info("Uploading a part", logPair("key", key), logPair("isFinalPart", true), logPair("partNumber", uploadPartResultList.size() + 1));
-            UploadPartRequest uploadPartRequest = new UploadPartRequest()
+            if(offset > 0)
+            {
+               //////////////////////////////////////////////////
+               // if there's a final part to upload, do it now //
+               //////////////////////////////////////////////////
+               uploadPart(true);
+            }
+            collectFinishedParts(true);
+
+            CompleteMultipartUploadRequest completeMultipartUploadRequest = new CompleteMultipartUploadRequest()
                .withUploadId(initiateMultipartUploadResult.getUploadId())
-               .withPartNumber(uploadPartResultList.size() + 1)
-               .withInputStream(new ByteArrayInputStream(buffer, 0, offset))
+               .withPartETags(uploadPartResultList)
                .withBucketName(bucketName)
-               .withKey(key)
-               .withPartSize(offset)
-               .withObjectMetadata(objectMetadata);
-            uploadPartResultList.add(amazonS3.uploadPart(uploadPartRequest));
+               .withKey(key);
+
+            try
+            {
+               amazonS3.completeMultipartUpload(completeMultipartUploadRequest);
+            }
+            catch(RuntimeException e)
+            {
+               abort();
+               throw (new IOException("Error completing multipart upload of [" + key + "]", e));
+            }
+
+            logMetrics();
          }
-
-         CompleteMultipartUploadRequest completeMultipartUploadRequest = new CompleteMultipartUploadRequest()
-            .withUploadId(initiateMultipartUploadResult.getUploadId())
-            .withPartETags(uploadPartResultList)
-            .withBucketName(bucketName)
-            .withKey(key);
-         CompleteMultipartUploadResult completeMultipartUploadResult = amazonS3.completeMultipartUpload(completeMultipartUploadRequest);
-      }
-      else
-      {
-         if(objectMetadata == null)
+         else
          {
-            objectMetadata = new ObjectMetadata();
+            ObjectMetadata objectMetadata = makeObjectMetadata();
+            if(objectMetadata == null)
+            {
+               objectMetadata = new ObjectMetadata();
+            }
+
+            LOG.info("Putting object (non-multipart)", logPair("key", key), logPair("length", offset));
+            objectMetadata.setContentLength(offset);
+            amazonS3.putObject(bucketName, key, new ByteArrayInputStream(buffer, 0, offset), objectMetadata);
          }
-
-         LOG.info("Putting object (non-multipart)", logPair("key", key), logPair("length", offset));
-         objectMetadata.setContentLength(offset);
-         PutObjectResult putObjectResult = amazonS3.putObject(bucketName, key, new ByteArrayInputStream(buffer, 0, offset), objectMetadata);
       }
+      finally
+      {
+         shutdownExecutor();
+         isClosed = true;
+      }
+   }
 
-      isClosed = true;
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void logMetrics()
+   {
+      long   elapsedMillis = Math.max((System.nanoTime() - startNanos) / 1_000_000, 1);
+      double megabytes     = bytesUploaded / (1024.0 * 1024.0);
+
+      LOG.info("Completed multipart upload",
+         logPair("key", key),
+         logPair("parts", uploadPartResultList.size()),
+         logPair("bytes", bytesUploaded),
+         logPair("maxConcurrentParts", maxConcurrentParts),
+         logPair("elapsedMillis", elapsedMillis),
+         logPair("megabytesPerSecond", Math.round(megabytes * 1000.0 / elapsedMillis)));
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for maxConcurrentParts
+    *******************************************************************************/
+   public int getMaxConcurrentParts()
+   {
+      return (this.maxConcurrentParts);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for maxConcurrentParts - only takes effect if set before the first
+    ** part is uploaded.  1 means to upload each part inline, in the writing thread.
+    *******************************************************************************/
+   public void setMaxConcurrentParts(int maxConcurrentParts)
+   {
+      this.maxConcurrentParts = Math.max(1, maxConcurrentParts);
+   }
+
+
+
+   /*******************************************************************************
+    ** Fluent setter for maxConcurrentParts
+    *******************************************************************************/
+   public S3UploadOutputStream withMaxConcurrentParts(int maxConcurrentParts)
+   {
+      setMaxConcurrentParts(maxConcurrentParts);
+      return (this);
    }
 
 }
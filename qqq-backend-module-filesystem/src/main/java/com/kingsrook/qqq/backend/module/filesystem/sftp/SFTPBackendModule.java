@@ -157,6 +157,16 @@ public class SFTPBackendModule implements QBackendModuleInterface, FilesystemBac
    }
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public boolean supportsTupleInCriteria()
+   {
+      return (true);
+   }
+
+
 
    /*******************************************************************************
     **
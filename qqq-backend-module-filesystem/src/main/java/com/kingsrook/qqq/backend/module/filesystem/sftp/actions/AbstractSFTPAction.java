@@ -55,6 +55,7 @@ import com.kingsrook.qqq.backend.module.filesystem.exceptions.FilesystemExceptio
 import com.kingsrook.qqq.backend.module.filesystem.sftp.model.SFTPDirEntryWithPath;
 import com.kingsrook.qqq.backend.module.filesystem.sftp.model.metadata.SFTPBackendMetaData;
 import com.kingsrook.qqq.backend.module.filesystem.sftp.model.metadata.SFTPBackendVariantSetting;
+import com.kingsrook.qqq.backend.module.filesystem.sftp.utils.SFTPSessionPool;
 import org.apache.sshd.client.SshClient;
 import org.apache.sshd.client.session.ClientSession;
 import org.apache.sshd.common.config.keys.KeyUtils;
@@ -111,6 +112,12 @@ public class AbstractSFTPAction extends AbstractBaseFilesystemAction<SFTPDirEntr
    private ClientSession clientSession;
    private SftpClient    sftpClient;
 
+   //////////////////////////////////////////////////////////////////////
+   // if the clientSession & sftpClient were borrowed from the session //
+   // pool, this is them - to be released back to it, in postAction.   //
+   //////////////////////////////////////////////////////////////////////
+   private SFTPSessionPool.PooledSession pooledSession;
+
 
 
    /*******************************************************************************
@@ -172,7 +179,19 @@ public class AbstractSFTPAction extends AbstractBaseFilesystemAction<SFTPDirEntr
             }
          }
 
-         makeConnection(username, hostName, port, password, privateKey);
+         if(usesSessionPool())
+         {
+            SFTPSessionPool.Key key            = SFTPSessionPool.Key.of(username, hostName, port, password, privateKey);
+            String              poolPassword   = password;
+            byte[]              poolPrivateKey = privateKey;
+            this.pooledSession = getSessionPool().borrow(key, () -> openSession(key, poolPassword, poolPrivateKey));
+            this.clientSession = pooledSession.getClientSession();
+            this.sftpClient = pooledSession.getSftpClient();
+         }
+         else
+         {
+            makeConnection(username, hostName, port, password, privateKey);
+         }
       }
       catch(Exception e)
       {
@@ -182,6 +201,29 @@ public class AbstractSFTPAction extends AbstractBaseFilesystemAction<SFTPDirEntr
 
 
 
+   /***************************************************************************
+    ** whether this action should borrow its session from the session pool (vs.
+    ** opening its own, which postAction closes).  Subclasses whose sftpClient
+    ** is handed off to something else to close (e.g., a storage action's
+    ** streams) should return false.
+    ***************************************************************************/
+   protected boolean usesSessionPool()
+   {
+      return (SFTPSessionPool.isEnabled());
+   }
+
+
+
+   /***************************************************************************
+    ** the session pool to borrow from - overridable, e.g., for tests.
+    ***************************************************************************/
+   protected SFTPSessionPool getSessionPool()
+   {
+      return (SFTPSessionPool.getInstance());
+   }
+
+
+
    /***************************************************************************
     **
     ***************************************************************************/
@@ -203,43 +245,80 @@ public class AbstractSFTPAction extends AbstractBaseFilesystemAction<SFTPDirEntr
          }
       };
 
-      closer.accept(sftpClient);
-      closer.accept(clientSession);
+      if(pooledSession != null)
+      {
+         getSessionPool().release(pooledSession);
+         pooledSession = null;
+      }
+      else
+      {
+         closer.accept(sftpClient);
+         closer.accept(clientSession);
+      }
+
+      ////////////////////////////////////////////////////////////////////////
+      // clear these out, so a later preAction (or getSftpClient) sets up a //
+      // new (or re-borrowed) connection, rather than using a closed one    //
+      ////////////////////////////////////////////////////////////////////////
+      sftpClient = null;
+      clientSession = null;
    }
 
 
 
    /***************************************************************************
-    **
+    ** open a (not pooled) connection - which postAction will close.
     ***************************************************************************/
    protected SftpClient makeConnection(String username, String hostName, Integer port, String password, byte[] privateKeyBytes) throws Exception
    {
-      this.clientSession = SshClientManager.getInstance().connect(username, hostName, port).verify().getSession();
+      SFTPSessionPool.PooledSession session = openSession(SFTPSessionPool.Key.of(username, hostName, port, password, privateKeyBytes), password, privateKeyBytes);
+      this.clientSession = session.getClientSession();
+      this.sftpClient = session.getSftpClient();
+      return (this.sftpClient);
+   }
 
-      //////////////////////////////////////////////////////////////////////
-      // if we have private key bytes, use them to add publicKey identity //
-      //////////////////////////////////////////////////////////////////////
-      if(privateKeyBytes != null && privateKeyBytes.length > 0)
-      {
-         PKCS8EncodedKeySpec keySpec    = new PKCS8EncodedKeySpec(privateKeyBytes);
-         KeyFactory          keyFactory = KeyFactory.getInstance("RSA");
-         PrivateKey          privateKey = keyFactory.generatePrivate(keySpec);
-         PublicKey           publicKey  = KeyUtils.recoverPublicKey(privateKey);
-         clientSession.addPublicKeyIdentity(new KeyPair(publicKey, privateKey));
-      }
 
-      //////////////////////////////////////////////////
-      // if we have a password, add password identity //
-      //////////////////////////////////////////////////
-      if(StringUtils.hasContent(password))
+
+   /***************************************************************************
+    ** open and authenticate an ssh session, and an sftp client on it.
+    ***************************************************************************/
+   public static SFTPSessionPool.PooledSession openSession(SFTPSessionPool.Key key, String password, byte[] privateKeyBytes) throws Exception
+   {
+      ClientSession clientSession = SshClientManager.getInstance().connect(key.username(), key.hostName(), key.port()).verify().getSession();
+      try
       {
-         clientSession.addPasswordIdentity(password);
-      }
+         //////////////////////////////////////////////////////////////////////
+         // if we have private key bytes, use them to add publicKey identity //
+         //////////////////////////////////////////////////////////////////////
+         if(privateKeyBytes != null && privateKeyBytes.length > 0)
+         {
+            PKCS8EncodedKeySpec keySpec    = new PKCS8EncodedKeySpec(privateKeyBytes);
+            KeyFactory          keyFactory = KeyFactory.getInstance("RSA");
+            PrivateKey          privateKey = keyFactory.generatePrivate(keySpec);
+            PublicKey           publicKey  = KeyUtils.recoverPublicKey(privateKey);
+            clientSession.addPublicKeyIdentity(new KeyPair(publicKey, privateKey));
+         }
 
-      clientSession.auth().verify();
+         //////////////////////////////////////////////////
+         // if we have a password, add password identity //
+         //////////////////////////////////////////////////
+         if(StringUtils.hasContent(password))
+         {
+            clientSession.addPasswordIdentity(password);
+         }
 
-      this.sftpClient = SftpClientFactory.instance().createSftpClient(clientSession);
-      return (this.sftpClient);
+         clientSession.auth().verify();
+
+         return (new SFTPSessionPool.PooledSession(key, clientSession, SftpClientFactory.instance().createSftpClient(clientSession)));
+      }
+      catch(Exception e)
+      {
+         /////////////////////////////////////////////////////////////////
+         // don't leave the session open if auth (or the client) failed //
+         /////////////////////////////////////////////////////////////////
+         clientSession.close();
+         throw (e);
+      }
    }
 
 
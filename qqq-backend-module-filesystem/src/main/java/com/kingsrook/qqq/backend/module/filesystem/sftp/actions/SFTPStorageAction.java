@@ -42,6 +42,19 @@ import org.apache.sshd.sftp.client.SftpClient;
 public class SFTPStorageAction extends AbstractSFTPAction implements QStorageInterface
 {
 
+   /*******************************************************************************
+    ** the streams this action returns use (and the output stream closes) its
+    ** sftpClient after the action is done - so it can't be one that's shared
+    ** through the session pool.
+    *******************************************************************************/
+   @Override
+   protected boolean usesSessionPool()
+   {
+      return (false);
+   }
+
+
+
    /*******************************************************************************
     ** create an output stream in the storage backend - that can be written to,
     ** for the purpose of inserting or writing a file into storage.
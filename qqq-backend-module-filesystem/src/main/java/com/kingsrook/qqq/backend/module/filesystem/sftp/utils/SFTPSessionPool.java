@@ -0,0 +1,857 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.filesystem.sftp.utils;
+
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.instances.QMetaDataVariableInterpreter;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.utils.PrefixedDefaultThreadFactory;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeSupplier;
+import org.apache.sshd.client.session.ClientSession;
+import org.apache.sshd.sftp.client.SftpClient;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
+
+
+/*******************************************************************************
+ ** Pool of open (authenticated) SFTP sessions, for AbstractSFTPAction to borrow
+ ** in preAction and release in postAction - so that processes which run many
+ ** actions against the same server (e.g., list, read & delete, per file) pay
+ ** for the SSH handshake & auth once, instead of on every action.
+ **
+ ** Sessions are keyed by host, port, username and (a digest of) the password &
+ ** private key - so each backend variant's credentials get their own sessions.
+ ** - Borrowing takes the most recently released idle session for the key. One
+ **   that's been idle for healthCheckAfterIdleMillis is first checked with a
+ **   round-trip to the server, and replaced if that fails.
+ ** - Optionally (if maxSessionsPerHost is greater than 0), at most that many
+ **   sessions (idle or borrowed) are open to any one host:port.  At that limit,
+ **   an idle session of another key on the host is closed to make room, else
+ **   borrow waits (up to borrowTimeoutMillis) for one to be released.  But a
+ **   thread that already has a session borrowed from the host doesn't wait (it
+ **   goes over the max instead) - as steps hold one action's session while
+ **   running others (e.g., the importer archiving a file it's still reading),
+ **   so concurrent runs waiting on each other's held sessions would deadlock.
+ ** - Sessions idle for more than maxIdleMillis are closed, by a background
+ **   sweeper (and whenever their key is borrowed).
+ **
+ ** The shared instance (getInstance) is configured by system properties (or
+ ** environment variables) - qqq.sftp.sessionPool.enabled (default true),
+ ** .maxSessionsPerHost (0 - i.e., no max), .maxIdleSeconds (60),
+ ** .healthCheckAfterIdleSeconds (10), and .borrowTimeoutSeconds (60).
+ *******************************************************************************/
+public class SFTPSessionPool implements AutoCloseable
+{
+   private static final QLogger LOG = QLogger.getLogger(SFTPSessionPool.class);
+
+   private final int  maxSessionsPerHost;
+   private final long maxIdleMillis;
+   private final long healthCheckAfterIdleMillis;
+   private final long borrowTimeoutMillis;
+
+   ////////////////////////////////////////////////////////////////////////////
+   // all pool state is guarded by the lock - but opening, health-checking & //
+   // closing sessions (which all go to the network) happen outside of it.   //
+   ////////////////////////////////////////////////////////////////////////////
+   private final ReentrantLock                  lock                = new ReentrantLock();
+   private final Condition                      sessionReleased     = lock.newCondition();
+   private final Map<Key, Deque<PooledSession>> idleSessions        = new HashMap<>();
+   private final Map<String, Integer>           openSessionsPerHost = new HashMap<>();
+
+   /////////////////////////////////////////////////////////////////////////
+   // how many sessions each thread has borrowed from each host:port - so //
+   // that a thread's nested borrows don't wait on the host's max.        //
+   /////////////////////////////////////////////////////////////////////////
+   private final Map<String, Map<Thread, Integer>> borrowsPerHostPerThread = new HashMap<>();
+
+   private int                      borrowedSessions = 0;
+   private boolean                  closed           = false;
+   private ScheduledExecutorService evictionExecutor;
+
+   private final AtomicLong sessionsOpened      = new AtomicLong();
+   private final AtomicLong sessionsReused      = new AtomicLong();
+   private final AtomicLong sessionsClosed      = new AtomicLong();
+   private final AtomicLong idleSessionsEvicted = new AtomicLong();
+   private final AtomicLong healthCheckFailures = new AtomicLong();
+   private final AtomicLong borrowWaits         = new AtomicLong();
+   private final AtomicLong borrowTimeouts      = new AtomicLong();
+
+
+
+   /***************************************************************************
+    ** holder for the lazily-built shared instance.
+    ***************************************************************************/
+   private static class Holder
+   {
+      private static final boolean ENABLED;
+
+      private static volatile SFTPSessionPool instance;
+
+      static
+      {
+         QMetaDataVariableInterpreter interpreter = new QMetaDataVariableInterpreter();
+         ENABLED = interpreter.getBooleanFromPropertyOrEnvironment("qqq.sftp.sessionPool.enabled", "QQQ_SFTP_SESSION_POOL_ENABLED", true);
+         instance = new SFTPSessionPool(
+            interpreter.getIntegerFromPropertyOrEnvironment("qqq.sftp.sessionPool.maxSessionsPerHost", "QQQ_SFTP_SESSION_POOL_MAX_SESSIONS_PER_HOST", 0),
+            interpreter.getIntegerFromPropertyOrEnvironment("qqq.sftp.sessionPool.maxIdleSeconds", "QQQ_SFTP_SESSION_POOL_MAX_IDLE_SECONDS", 60) * 1000L,
+            interpreter.getIntegerFromPropertyOrEnvironment("qqq.sftp.sessionPool.healthCheckAfterIdleSeconds", "QQQ_SFTP_SESSION_POOL_HEALTH_CHECK_AFTER_IDLE_SECONDS", 10) * 1000L,
+            interpreter.getIntegerFromPropertyOrEnvironment("qqq.sftp.sessionPool.borrowTimeoutSeconds", "QQQ_SFTP_SESSION_POOL_BORROW_TIMEOUT_SECONDS", 60) * 1000L);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Constructor
+    **
+    ** @param maxSessionsPerHost max open sessions to any one host:port - or 0
+    ** (or less) for no max.
+    *******************************************************************************/
+   public SFTPSessionPool(int maxSessionsPerHost, long maxIdleMillis, long healthCheckAfterIdleMillis, long borrowTimeoutMillis)
+   {
+      this.maxSessionsPerHost = maxSessionsPerHost;
+      this.maxIdleMillis = maxIdleMillis;
+      this.healthCheckAfterIdleMillis = healthCheckAfterIdleMillis;
+      this.borrowTimeoutMillis = borrowTimeoutMillis;
+   }
+
+
+
+   /*******************************************************************************
+    ** Get the shared pool instance.
+    *******************************************************************************/
+   public static SFTPSessionPool getInstance()
+   {
+      return (Holder.instance);
+   }
+
+
+
+   /*******************************************************************************
+    ** Replace the shared pool instance - for tests (which should put the original
+    ** instance back when they're done).
+    *******************************************************************************/
+   static void setInstance(SFTPSessionPool sessionPool)
+   {
+      Holder.instance = sessionPool;
+   }
+
+
+
+   /*******************************************************************************
+    ** Whether the shared pool should be used (per qqq.sftp.sessionPool.enabled).
+    *******************************************************************************/
+   public static boolean isEnabled()
+   {
+      return (Holder.ENABLED);
+   }
+
+
+
+   /*******************************************************************************
+    ** Borrow a session for a key - an idle one, if there's a healthy one, else a
+    ** new one from the sessionOpener (once there's room for it on the host).
+    ** Give it back with release (or discard, if it turns out to be broken).
+    *******************************************************************************/
+   public PooledSession borrow(Key key, UnsafeSupplier<PooledSession, ? extends Exception> sessionOpener) throws QException
+   {
+      long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+      while(true)
+      {
+         PooledSession       idleSession;
+         boolean             reservedNewSession = false;
+         List<PooledSession> sessionsToClose    = new ArrayList<>();
+
+         lock.lock();
+         try
+         {
+            if(closed)
+            {
+               throw (new QException("SFTP session pool is closed"));
+            }
+
+            idleSession = pollIdleSession(key, sessionsToClose);
+            if(idleSession == null)
+            {
+               reservedNewSession = reserveNewSession(key, deadlineNanos, sessionsToClose);
+            }
+         }
+         finally
+         {
+            lock.unlock();
+            sessionsToClose.forEach(this::closeSession);
+         }
+
+         if(idleSession != null)
+         {
+            if(isHealthy(idleSession))
+            {
+               sessionsReused.incrementAndGet();
+               return (idleSession);
+            }
+
+            healthCheckFailures.incrementAndGet();
+            LOG.info("Replacing SFTP session that failed its health check", logPair("key", key));
+            discard(idleSession);
+         }
+         else if(reservedNewSession)
+         {
+            PooledSession newSession;
+            try
+            {
+               newSession = sessionOpener.get();
+            }
+            catch(Exception e)
+            {
+               unreserveSession(key);
+               throw (new QException("Error opening SFTP session", e));
+            }
+
+            newSession.borrowingThread = Thread.currentThread();
+            sessionsOpened.incrementAndGet();
+            return (newSession);
+         }
+
+         ///////////////////////////////////////////////////////////////////
+         // else, an idle session for this key was released while waiting //
+         // for room on the host (or, the one we got was broken) - retry. //
+         ///////////////////////////////////////////////////////////////////
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Give a borrowed session back to the pool - to be reused, if it's still
+    ** open (else it's closed).
+    *******************************************************************************/
+   public void release(PooledSession session)
+   {
+      boolean keep;
+      lock.lock();
+      try
+      {
+         borrowedSessions--;
+         uncountBorrow(session.getKey(), session.borrowingThread);
+         keep = !closed && session.isOpen();
+         if(keep)
+         {
+            session.lastReleasedMillis = System.currentTimeMillis();
+            idleSessions.computeIfAbsent(session.getKey(), k -> new ArrayDeque<>()).addFirst(session);
+            startEvictionExecutorIfNeeded();
+         }
+         else
+         {
+            decrementOpenSessions(session.getKey());
+         }
+         sessionReleased.signalAll();
+      }
+      finally
+      {
+         lock.unlock();
+      }
+
+      if(!keep)
+      {
+         closeSession(session);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Close a borrowed session, instead of giving it back to the pool (e.g.,
+    ** after an error that may have left it in a bad state).
+    *******************************************************************************/
+   public void discard(PooledSession session)
+   {
+      lock.lock();
+      try
+      {
+         borrowedSessions--;
+         uncountBorrow(session.getKey(), session.borrowingThread);
+         decrementOpenSessions(session.getKey());
+         sessionReleased.signalAll();
+      }
+      finally
+      {
+         lock.unlock();
+      }
+
+      closeSession(session);
+   }
+
+
+
+   /*******************************************************************************
+    ** Close all sessions that have been idle for more than maxIdleMillis.
+    **
+    ** @return the number of sessions closed.
+    *******************************************************************************/
+   public int evictIdleSessions()
+   {
+      List<PooledSession> sessionsToClose = new ArrayList<>();
+      lock.lock();
+      try
+      {
+         long now = System.currentTimeMillis();
+         for(Deque<PooledSession> sessions : idleSessions.values())
+         {
+            Iterator<PooledSession> iterator = sessions.iterator();
+            while(iterator.hasNext())
+            {
+               PooledSession session = iterator.next();
+               if(now - session.lastReleasedMillis > maxIdleMillis)
+               {
+                  iterator.remove();
+                  decrementOpenSessions(session.getKey());
+                  sessionsToClose.add(session);
+               }
+            }
+         }
+         idleSessions.values().removeIf(Deque::isEmpty);
+
+         if(!sessionsToClose.isEmpty())
+         {
+            sessionReleased.signalAll();
+         }
+      }
+      finally
+      {
+         lock.unlock();
+      }
+
+      idleSessionsEvicted.addAndGet(sessionsToClose.size());
+      sessionsToClose.forEach(this::closeSession);
+      return (sessionsToClose.size());
+   }
+
+
+
+   /*******************************************************************************
+    ** Close all idle sessions, and stop the sweeper - borrowed sessions get closed
+    ** when they're released.
+    *******************************************************************************/
+   @Override
+   public void close()
+   {
+      List<PooledSession> sessionsToClose = new ArrayList<>();
+      lock.lock();
+      try
+      {
+         closed = true;
+         idleSessions.values().forEach(sessionsToClose::addAll);
+         idleSessions.clear();
+         sessionsToClose.forEach(session -> decrementOpenSessions(session.getKey()));
+
+         if(evictionExecutor != null)
+         {
+            evictionExecutor.shutdownNow();
+            evictionExecutor = null;
+         }
+         sessionReleased.signalAll();
+      }
+      finally
+      {
+         lock.unlock();
+      }
+
+      sessionsToClose.forEach(this::closeSession);
+   }
+
+
+
+   /*******************************************************************************
+    ** Get a snapshot of the pool's counters & gauges.
+    *******************************************************************************/
+   public Metrics getMetrics()
+   {
+      lock.lock();
+      try
+      {
+         int openSessions = openSessionsPerHost.values().stream().mapToInt(Integer::intValue).sum();
+         int idleCount    = idleSessions.values().stream().mapToInt(Deque::size).sum();
+         return (new Metrics(sessionsOpened.get(), sessionsReused.get(), sessionsClosed.get(), idleSessionsEvicted.get(), healthCheckFailures.get(), borrowWaits.get(), borrowTimeouts.get(), openSessions, idleCount, borrowedSessions));
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** log the pool's metrics.
+    *******************************************************************************/
+   public void logMetrics()
+   {
+      Metrics metrics = getMetrics();
+      LOG.info("SFTP session pool metrics",
+         logPair("sessionsOpened", metrics.sessionsOpened()),
+         logPair("sessionsReused", metrics.sessionsReused()),
+         logPair("sessionsClosed", metrics.sessionsClosed()),
+         logPair("idleSessionsEvicted", metrics.idleSessionsEvicted()),
+         logPair("healthCheckFailures", metrics.healthCheckFailures()),
+         logPair("borrowWaits", metrics.borrowWaits()),
+         logPair("borrowTimeouts", metrics.borrowTimeouts()),
+         logPair("openSessions", metrics.openSessions()),
+         logPair("idleSessions", metrics.idleSessions()),
+         logPair("borrowedSessions", metrics.borrowedSessions()));
+   }
+
+
+
+   /*******************************************************************************
+    ** take the most recently released idle session for a key (closing any that
+    ** have been idle too long) - under the lock.
+    *******************************************************************************/
+   private PooledSession pollIdleSession(Key key, List<PooledSession> sessionsToClose)
+   {
+      Deque<PooledSession> sessions = idleSessions.get(key);
+      long                 now      = System.currentTimeMillis();
+      while(sessions != null && !sessions.isEmpty())
+      {
+         PooledSession session = sessions.pollFirst();
+         if(now - session.lastReleasedMillis > maxIdleMillis)
+         {
+            decrementOpenSessions(key);
+            idleSessionsEvicted.incrementAndGet();
+            sessionsToClose.add(session);
+            continue;
+         }
+
+         borrowedSessions++;
+         countBorrow(key);
+         session.borrowingThread = Thread.currentThread();
+         return (session);
+      }
+      return (null);
+   }
+
+
+
+   /*******************************************************************************
+    ** make room for (and count) a new session to the key's host - waiting, if the
+    ** host is at its max (unless this thread already has a session borrowed from
+    ** the host, as then it could be waiting on itself) - under the lock.
+    **
+    ** @return true if a new session was reserved - false if, while waiting, an
+    ** idle session for the key was released (so it should be used instead).
+    *******************************************************************************/
+   private boolean reserveNewSession(Key key, long deadlineNanos, List<PooledSession> sessionsToClose) throws QException
+   {
+      boolean waited = false;
+      while(maxSessionsPerHost > 0 && !isBorrowingFromHost(key) && openSessionsPerHost.getOrDefault(key.getHostAndPort(), 0) >= maxSessionsPerHost)
+      {
+         PooledSession otherIdleSession = pollIdleSessionForOtherKeyOnHost(key);
+         if(otherIdleSession != null)
+         {
+            decrementOpenSessions(otherIdleSession.getKey());
+            sessionsToClose.add(otherIdleSession);
+            continue;
+         }
+
+         long remainingNanos = deadlineNanos - System.nanoTime();
+         if(remainingNanos <= 0)
+         {
+            borrowTimeouts.incrementAndGet();
+            throw (new QException("Timed out waiting for an SFTP session to [" + key.getHostAndPort() + "] (where the max is " + maxSessionsPerHost + ")"));
+         }
+
+         if(!waited)
+         {
+            borrowWaits.incrementAndGet();
+            waited = true;
+         }
+
+         try
+         {
+            sessionReleased.awaitNanos(remainingNanos);
+         }
+         catch(InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw (new QException("Interrupted waiting for an SFTP session", e));
+         }
+
+         if(closed)
+         {
+            throw (new QException("SFTP session pool is closed"));
+         }
+
+         Deque<PooledSession> sessionsForKey = idleSessions.get(key);
+         if(sessionsForKey != null && !sessionsForKey.isEmpty())
+         {
+            return (false);
+         }
+      }
+
+      openSessionsPerHost.merge(key.getHostAndPort(), 1, Integer::sum);
+      borrowedSessions++;
+      countBorrow(key);
+      return (true);
+   }
+
+
+
+   /*******************************************************************************
+    ** give back the room reserved for a session that failed to open.
+    *******************************************************************************/
+   private void unreserveSession(Key key)
+   {
+      lock.lock();
+      try
+      {
+         borrowedSessions--;
+         uncountBorrow(key, Thread.currentThread());
+         decrementOpenSessions(key);
+         sessionReleased.signalAll();
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** whether the current thread has a session borrowed from the key's host -
+    ** under the lock.
+    *******************************************************************************/
+   private boolean isBorrowingFromHost(Key key)
+   {
+      Map<Thread, Integer> borrowsPerThread = borrowsPerHostPerThread.get(key.getHostAndPort());
+      return (borrowsPerThread != null && borrowsPerThread.containsKey(Thread.currentThread()));
+   }
+
+
+
+   /*******************************************************************************
+    ** count a session borrowed from the key's host by the current thread - under
+    ** the lock.
+    *******************************************************************************/
+   private void countBorrow(Key key)
+   {
+      borrowsPerHostPerThread.computeIfAbsent(key.getHostAndPort(), k -> new HashMap<>()).merge(Thread.currentThread(), 1, Integer::sum);
+   }
+
+
+
+   /*******************************************************************************
+    ** un-count a session borrowed from the key's host by a thread - under the
+    ** lock.
+    *******************************************************************************/
+   private void uncountBorrow(Key key, Thread thread)
+   {
+      Map<Thread, Integer> borrowsPerThread = borrowsPerHostPerThread.get(key.getHostAndPort());
+      if(borrowsPerThread != null)
+      {
+         borrowsPerThread.computeIfPresent(thread, (t, count) -> count > 1 ? count - 1 : null);
+         if(borrowsPerThread.isEmpty())
+         {
+            borrowsPerHostPerThread.remove(key.getHostAndPort());
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** take the least recently released idle session of another key on the same
+    ** host as the given key (if there is one) - under the lock.
+    *******************************************************************************/
+   private PooledSession pollIdleSessionForOtherKeyOnHost(Key key)
+   {
+      PooledSession oldest = null;
+      for(Map.Entry<Key, Deque<PooledSession>> entry : idleSessions.entrySet())
+      {
+         if(!entry.getKey().equals(key) && entry.getKey().getHostAndPort().equals(key.getHostAndPort()) && !entry.getValue().isEmpty())
+         {
+            PooledSession candidate = entry.getValue().peekLast();
+            if(oldest == null || candidate.lastReleasedMillis < oldest.lastReleasedMillis)
+            {
+               oldest = candidate;
+            }
+         }
+      }
+
+      if(oldest != null)
+      {
+         idleSessions.get(oldest.getKey()).pollLast();
+      }
+      return (oldest);
+   }
+
+
+
+   /*******************************************************************************
+    ** under the lock.
+    *******************************************************************************/
+   private void decrementOpenSessions(Key key)
+   {
+      openSessionsPerHost.computeIfPresent(key.getHostAndPort(), (k, count) -> count > 1 ? count - 1 : null);
+   }
+
+
+
+   /*******************************************************************************
+    ** check that a session is open - and, if it's been idle for a while, that it
+    ** can still make a round trip to the server.
+    *******************************************************************************/
+   private boolean isHealthy(PooledSession session)
+   {
+      if(!session.isOpen())
+      {
+         return (false);
+      }
+
+      if(System.currentTimeMillis() - session.lastReleasedMillis >= healthCheckAfterIdleMillis)
+      {
+         try
+         {
+            session.getSftpClient().canonicalPath(".");
+         }
+         catch(Exception e)
+         {
+            return (false);
+         }
+      }
+
+      return (true);
+   }
+
+
+
+   /*******************************************************************************
+    ** start the background sweeper (with a daemon thread, so it doesn't hold up
+    ** JVM shutdown), the first time a session goes idle - under the lock.
+    *******************************************************************************/
+   private void startEvictionExecutorIfNeeded()
+   {
+      if(evictionExecutor == null)
+      {
+         PrefixedDefaultThreadFactory threadFactory = new PrefixedDefaultThreadFactory(this);
+         evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable ->
+         {
+            Thread thread = threadFactory.newThread(runnable);
+            thread.setDaemon(true);
+            return (thread);
+         });
+
+         long periodMillis = Math.max(1000, maxIdleMillis / 2);
+         evictionExecutor.scheduleWithFixedDelay(() ->
+         {
+            try
+            {
+               if(evictIdleSessions() > 0)
+               {
+                  logMetrics();
+               }
+            }
+            catch(Exception e)
+            {
+               LOG.warn("Error evicting idle SFTP sessions", e);
+            }
+         }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private void closeSession(PooledSession session)
+   {
+      sessionsClosed.incrementAndGet();
+      session.close();
+   }
+
+
+
+   /***************************************************************************
+    ** what sessions in the pool are keyed by.  Build one with Key.of - which
+    ** keeps only a digest of the credentials (so they're not held as plain
+    ** text, nor written out by toString).
+    ***************************************************************************/
+   public record Key(String hostName, Integer port, String username, String credentialsDigest)
+   {
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      public static Key of(String username, String hostName, Integer port, String password, byte[] privateKey)
+      {
+         try
+         {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            messageDigest.update(Objects.requireNonNullElse(password, "").getBytes(StandardCharsets.UTF_8));
+            messageDigest.update((byte) 0);
+            messageDigest.update(Objects.requireNonNullElse(privateKey, new byte[0]));
+            return (new Key(hostName, port, username, HexFormat.of().formatHex(messageDigest.digest())));
+         }
+         catch(Exception e)
+         {
+            throw (new IllegalStateException("Error digesting SFTP credentials", e));
+         }
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      public String getHostAndPort()
+      {
+         return (hostName + ":" + port);
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      @Override
+      public String toString()
+      {
+         return (username + "@" + getHostAndPort());
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** an open, authenticated ssh session, and the sftp client on it.
+    ***************************************************************************/
+   public static class PooledSession
+   {
+      private final Key           key;
+      private final ClientSession clientSession;
+      private final SftpClient    sftpClient;
+
+      private volatile long   lastReleasedMillis;
+      private volatile Thread borrowingThread;
+
+
+
+      /*******************************************************************************
+       ** Constructor
+       **
+       *******************************************************************************/
+      public PooledSession(Key key, ClientSession clientSession, SftpClient sftpClient)
+      {
+         this.key = key;
+         this.clientSession = clientSession;
+         this.sftpClient = sftpClient;
+      }
+
+
+
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      public boolean isOpen()
+      {
+         return (clientSession.isOpen() && !clientSession.isClosing() && sftpClient.isOpen());
+      }
+
+
+
+      /***************************************************************************
+       ** close the sftp client, then the session.
+       ***************************************************************************/
+      public void close()
+      {
+         for(AutoCloseable closeable : List.of(sftpClient, clientSession))
+         {
+            try
+            {
+               closeable.close();
+            }
+            catch(Exception e)
+            {
+               LOG.info("Error closing SFTP resource", e, logPair("type", closeable.getClass().getSimpleName()));
+            }
+         }
+      }
+
+
+
+      /*******************************************************************************
+       ** Getter for key
+       **
+       *******************************************************************************/
+      public Key getKey()
+      {
+         return (key);
+      }
+
+
+
+      /*******************************************************************************
+       ** Getter for clientSession
+       **
+       *******************************************************************************/
+      public ClientSession getClientSession()
+      {
+         return (clientSession);
+      }
+
+
+
+      /*******************************************************************************
+       ** Getter for sftpClient
+       **
+       *******************************************************************************/
+      public SftpClient getSftpClient()
+      {
+         return (sftpClient);
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** snapshot of the pool's counters (since it was built) and current gauges.
+    ***************************************************************************/
+   public record Metrics(long sessionsOpened, long sessionsReused, long sessionsClosed, long idleSessionsEvicted, long healthCheckFailures, long borrowWaits, long borrowTimeouts, int openSessions, int idleSessions, int borrowedSessions)
+   {
+   }
+}
@@ -25,6 +25,9 @@ package com.kingsrook.qqq.backend.module.filesystem.local.actions;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.tables.count.CountInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.count.CountOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.module.filesystem.TestUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -48,4 +51,25 @@ public class FilesystemCountActionTest extends FilesystemActionTest
       Assertions.assertEquals(3, countOutput.getCount(), "Unfiltered count should find all rows");
    }
 
-}
\ No newline at end of file
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testCountWithFilter() throws QException
+   {
+      CountInput countInput = new CountInput(TestUtils.TABLE_NAME_PERSON_LOCAL_FS_CSV);
+      countInput.setFilter(new QQueryFilter(new QFilterCriteria("lastName", QCriteriaOperator.EQUALS, "S")));
+      Assertions.assertEquals(3, new FilesystemCountAction().execute(countInput).getCount(), "Filtered count should find matching rows from all files");
+
+      countInput.setFilter(new QQueryFilter(new QFilterCriteria("lastName", QCriteriaOperator.IN, "Doe", "Smith")).withLimit(1));
+      Assertions.assertEquals(2, new FilesystemCountAction().execute(countInput).getCount(), "Limit should not apply to a count");
+
+      countInput = new CountInput(TestUtils.TABLE_NAME_PERSON_LOCAL_FS_JSON);
+      countInput.setFilter(new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.GREATER_THAN_OR_EQUALS, 2)));
+      Assertions.assertEquals(2, new FilesystemCountAction().execute(countInput).getCount());
+   }
+
+}
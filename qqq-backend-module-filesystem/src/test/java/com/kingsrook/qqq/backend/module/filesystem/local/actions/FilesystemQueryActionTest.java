@@ -22,12 +22,26 @@
 package com.kingsrook.qqq.backend.module.filesystem.local.actions;
 
 
+import java.io.File;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import com.kingsrook.qqq.backend.core.actions.reporting.RecordPipe;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.count.CountInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.count.CountOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.code.QCodeReference;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
@@ -35,7 +49,9 @@ import com.kingsrook.qqq.backend.module.filesystem.TestUtils;
 import com.kingsrook.qqq.backend.module.filesystem.base.FilesystemRecordBackendDetailFields;
 import com.kingsrook.qqq.backend.module.filesystem.base.actions.AbstractPostReadFileCustomizer;
 import com.kingsrook.qqq.backend.module.filesystem.base.actions.FilesystemTableCustomizers;
+import com.kingsrook.qqq.backend.module.filesystem.base.model.metadata.AbstractFilesystemBackendMetaData;
 import com.kingsrook.qqq.backend.module.filesystem.local.model.metadata.FilesystemTableBackendDetails;
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -87,6 +103,149 @@ public class FilesystemQueryActionTest extends FilesystemActionTest
 
 
 
+   /*******************************************************************************
+    ** filter, skip, limit, order-by and fieldNamesToInclude on a MANY table.
+    *******************************************************************************/
+   @Test
+   public void testQueryManyTableFilterLimitAndProjection() throws QException
+   {
+      FilesystemQueryAction filesystemQueryAction = new FilesystemQueryAction();
+      QueryInput            queryInput            = new QueryInput(TestUtils.TABLE_NAME_PERSON_LOCAL_FS_CSV);
+
+      queryInput.setFilter(new QQueryFilter(new QFilterCriteria("lastName", QCriteriaOperator.EQUALS, "S")));
+      List<QRecord> records = filesystemQueryAction.execute(queryInput).getRecords();
+      assertEquals(3, records.size(), "Filter should be applied to rows from all files");
+      assertTrue(records.stream().allMatch(r -> r.getValueString("lastName").equals("S")));
+
+      queryInput.setFilter(new QQueryFilter(new QFilterCriteria("lastName", QCriteriaOperator.EQUALS, "S")).withLimit(2));
+      records = filesystemQueryAction.execute(queryInput).getRecords();
+      assertEquals(2, records.size(), "Limit should be applied after filter");
+      assertTrue(records.stream().allMatch(r -> r.getValueString("lastName").equals("S")));
+
+      queryInput.setFilter(new QQueryFilter().withOrderBy(new QFilterOrderBy("id", false)).withLimit(2));
+      records = filesystemQueryAction.execute(queryInput).getRecords();
+      assertEquals(List.of("5", "4"), records.stream().map(r -> r.getValueString("id")).toList(), "Order-by should apply across all files, before limit");
+
+      queryInput.setFilter(new QQueryFilter().withOrderBy(new QFilterOrderBy("id")).withSkip(1).withLimit(1));
+      records = filesystemQueryAction.execute(queryInput).getRecords();
+      assertEquals(List.of("2"), records.stream().map(r -> r.getValueString("id")).toList());
+
+      ////////////////////////////////////////////////////////////////////////////////
+      // only included fields come back - even though lastName had to be built, for //
+      // the filter.  backend details (e.g., the file path) are still there.        //
+      ////////////////////////////////////////////////////////////////////////////////
+      queryInput.setFilter(new QQueryFilter(new QFilterCriteria("lastName", QCriteriaOperator.EQUALS, "S")));
+      queryInput.setFieldNamesToInclude(Set.of("firstName"));
+      records = filesystemQueryAction.execute(queryInput).getRecords();
+      assertEquals(3, records.size());
+      assertTrue(records.stream().allMatch(r -> r.getValues().keySet().equals(Set.of("firstName"))), "Only included fields should have values");
+      assertTrue(records.stream().allMatch(r -> r.getBackendDetailString(FilesystemRecordBackendDetailFields.FULL_PATH) != null));
+
+      queryInput = new QueryInput(TestUtils.TABLE_NAME_PERSON_LOCAL_FS_JSON);
+      queryInput.setFilter(new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.GREATER_THAN, 1)).withOrderBy(new QFilterOrderBy("id", false)));
+      queryInput.setFieldNamesToInclude(Set.of("id", "email"));
+      records = filesystemQueryAction.execute(queryInput).getRecords();
+      assertEquals(List.of(3, 2), records.stream().map(r -> r.getValueInteger("id")).toList());
+      assertTrue(records.stream().allMatch(r -> r.getValues().keySet().equals(Set.of("id", "email"))), "Only included fields should have values");
+   }
+
+
+
+   /*******************************************************************************
+    ** with maxConcurrentFileReads on the backend, a MANY table's files are read in
+    ** parallel - giving the same records as reading them one at a time (and in the
+    ** same order, unless preserveFileReadOrder is turned off).
+    *******************************************************************************/
+   @Test
+   public void testQueryWithConcurrentFileReads() throws Exception
+   {
+      QueryInput queryInput = new QueryInput(TestUtils.TABLE_NAME_PERSON_LOCAL_FS_CSV);
+
+      ///////////////////////////////////////////////////////////////////
+      // add more files to the table, for the workers to split between //
+      ///////////////////////////////////////////////////////////////////
+      String fullPath  = new FilesystemQueryAction().execute(queryInput).getRecords().get(0).getBackendDetailString(FilesystemRecordBackendDetailFields.FULL_PATH);
+      File   directory = new File(fullPath).getParentFile();
+      for(int i = 0; i < 20; i++)
+      {
+         FileUtils.writeStringToFile(new File(directory, "MORE-" + i + ".csv"), """
+            "id","firstName","lastName"
+            "%d","Extra","Person"
+            "%d","Extra","Person"
+            """.formatted(100 + 2 * i, 101 + 2 * i), StandardCharsets.UTF_8);
+      }
+
+      List<Integer> sequentialIds = new FilesystemQueryAction().execute(queryInput).getRecords().stream().map(r -> r.getValueInteger("id")).toList();
+      assertEquals(45, sequentialIds.size());
+
+      QInstance                         instance = TestUtils.defineInstance();
+      AbstractFilesystemBackendMetaData backend  = (AbstractFilesystemBackendMetaData) instance.getBackend(TestUtils.BACKEND_NAME_LOCAL_FS);
+      backend.setMaxConcurrentFileReads(4);
+      reInitInstanceInContext(instance);
+
+      List<Integer> parallelIds = new FilesystemQueryAction().execute(queryInput).getRecords().stream().map(r -> r.getValueInteger("id")).toList();
+      assertEquals(sequentialIds, parallelIds, "Parallel reads should give the same records, in the same order");
+
+      queryInput.setFilter(new QQueryFilter().withLimit(7));
+      parallelIds = new FilesystemQueryAction().execute(queryInput).getRecords().stream().map(r -> r.getValueInteger("id")).toList();
+      assertEquals(sequentialIds.subList(0, 7), parallelIds, "Limit should be applied to parallel reads, in file order");
+
+      backend.setPreserveFileReadOrder(false);
+      queryInput.setFilter(null);
+      parallelIds = new FilesystemQueryAction().execute(queryInput).getRecords().stream().map(r -> r.getValueInteger("id")).toList();
+      assertEquals(new HashSet<>(sequentialIds), new HashSet<>(parallelIds), "Unordered parallel reads should give the same records");
+      assertEquals(sequentialIds.size(), parallelIds.size());
+
+      CountOutput countOutput = new FilesystemCountAction().execute(new CountInput(TestUtils.TABLE_NAME_PERSON_LOCAL_FS_CSV).withFilter(new QQueryFilter(new QFilterCriteria("lastName", QCriteriaOperator.EQUALS, "Person"))));
+      assertEquals(40, countOutput.getCount(), "Count should use parallel reads too");
+   }
+
+
+
+   /*******************************************************************************
+    ** a customizer that overrides the Reader version of customizeFileContents
+    ** should get used instead of the (buffering) String version.
+    *******************************************************************************/
+   @Test
+   public void testQueryWithStreamingFileCustomizer() throws QException
+   {
+      QInstance instance = TestUtils.defineInstance();
+      for(String tableName : List.of(TestUtils.TABLE_NAME_PERSON_LOCAL_FS_JSON, TestUtils.TABLE_NAME_PERSON_LOCAL_FS_CSV))
+      {
+         instance.getTable(tableName).withCustomizer(FilesystemTableCustomizers.POST_READ_FILE.getRole(), new QCodeReference(CharCountingStreamingCustomizer.class));
+      }
+      reInitInstanceInContext(instance);
+
+      for(String tableName : List.of(TestUtils.TABLE_NAME_PERSON_LOCAL_FS_JSON, TestUtils.TABLE_NAME_PERSON_LOCAL_FS_CSV))
+      {
+         CharCountingStreamingCustomizer.charsRead.set(0);
+         QueryOutput queryOutput = new FilesystemQueryAction().execute(new QueryInput(tableName));
+         assertEquals(3, queryOutput.getRecords().size(), "Unfiltered query should find all rows in " + tableName);
+         assertTrue(CharCountingStreamingCustomizer.charsRead.get() > 0, "File contents should have been read through the streaming customizer");
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** json records should now stream into a record pipe, same as csv ones do.
+    *******************************************************************************/
+   @Test
+   public void testQueryJsonIntoRecordPipe() throws QException
+   {
+      RecordPipe recordPipe = new RecordPipe();
+      QueryInput queryInput = new QueryInput(TestUtils.TABLE_NAME_PERSON_LOCAL_FS_JSON);
+      queryInput.setRecordPipe(recordPipe);
+      new FilesystemQueryAction().execute(queryInput);
+
+      List<QRecord> records = recordPipe.consumeAvailableRecords();
+      assertEquals(3, records.size(), "Unfiltered query should put all rows into the pipe");
+      assertTrue(records.stream().allMatch(record -> record.getBackendDetailString(FilesystemRecordBackendDetailFields.FULL_PATH) != null),
+         "All piped records should have a full-path in their backend details");
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -144,4 +303,49 @@ public class FilesystemQueryActionTest extends FilesystemActionTest
       }
    }
 
-}
\ No newline at end of file
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   public static class CharCountingStreamingCustomizer extends AbstractPostReadFileCustomizer
+   {
+      static AtomicLong charsRead = new AtomicLong();
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public String customizeFileContents(String s)
+      {
+         throw (new IllegalStateException("The String version of customizeFileContents should not be called when the Reader version is overridden."));
+      }
+
+
+
+      /*******************************************************************************
+       **
+       *******************************************************************************/
+      @Override
+      public Reader customizeFileContents(Reader reader)
+      {
+         return (new FilterReader(reader)
+         {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException
+            {
+               int count = super.read(buffer, offset, length);
+               if(count > 0)
+               {
+                  charsRead.addAndGet(count);
+               }
+               return (count);
+            }
+         });
+      }
+   }
+
+}
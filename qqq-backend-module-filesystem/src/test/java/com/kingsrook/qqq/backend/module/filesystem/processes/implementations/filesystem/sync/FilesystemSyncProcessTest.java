@@ -42,6 +42,7 @@ import com.kingsrook.qqq.backend.module.filesystem.local.model.metadata.Filesyst
 import com.kingsrook.qqq.backend.module.filesystem.local.model.metadata.FilesystemTableBackendDetails;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 
 /*******************************************************************************
@@ -85,9 +86,9 @@ class FilesystemSyncProcessTest extends BaseTest
       // writeTestFile(basePath, sourceTable, "3.txt", "x");
       writeTestFile(basePath, archiveTable, "2.txt", "x");
 
-      //////////////////////
+      //////////////////
       // run the step //
-      //////////////////////
+      //////////////////
       RunBackendStepInput runBackendStepInput = new RunBackendStepInput();
       runBackendStepInput.setStepName(step.getName());
       runBackendStepInput.setProcessName(process.getName());
@@ -99,6 +100,58 @@ class FilesystemSyncProcessTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** with maxConcurrentFileReads on the source backend - files are still synced
+    ** only once each, and maxFilesToSync is still exact.
+    *******************************************************************************/
+   @Test
+   public void testWithConcurrentFileReads() throws Exception
+   {
+      TestUtils.cleanInstanceFiles();
+
+      QTableMetaData       sourceTable     = defineTable("source");
+      QTableMetaData       archiveTable    = defineTable("archive");
+      QTableMetaData       processingTable = defineTable("processing");
+      QProcessMetaData     process         = new FilesystemSyncProcess().defineProcessMetaData();
+      QBackendStepMetaData step            = (QBackendStepMetaData) process.getStep(FilesystemSyncStep.STEP_NAME);
+
+      step.getInputMetaData().getFieldThrowing(FilesystemSyncProcess.FIELD_SOURCE_TABLE).setDefaultValue(sourceTable.getName());
+      step.getInputMetaData().getFieldThrowing(FilesystemSyncProcess.FIELD_ARCHIVE_TABLE).setDefaultValue(archiveTable.getName());
+      step.getInputMetaData().getFieldThrowing(FilesystemSyncProcess.FIELD_PROCESSING_TABLE).setDefaultValue(processingTable.getName());
+      step.getInputMetaData().getFieldThrowing(FilesystemSyncProcess.FIELD_MAX_FILES_TO_ARCHIVE).setDefaultValue(5);
+
+      QInstance qInstance = TestUtils.defineInstance();
+      qInstance.addTable(sourceTable);
+      qInstance.addTable(archiveTable);
+      qInstance.addTable(processingTable);
+      qInstance.addProcess(process);
+      ((FilesystemBackendMetaData) qInstance.getBackend(TestUtils.BACKEND_NAME_LOCAL_FS)).setMaxConcurrentFileReads(3);
+      reInitInstanceInContext(qInstance);
+
+      String basePath = ((FilesystemBackendMetaData) qInstance.getBackend(TestUtils.BACKEND_NAME_LOCAL_FS)).getBasePath();
+      for(int i = 0; i < 10; i++)
+      {
+         writeTestFile(basePath, sourceTable, i + ".txt", "content of " + i);
+      }
+      writeTestFile(basePath, archiveTable, "0.txt", "content of 0");
+      writeTestFile(basePath, archiveTable, "1.txt", "content of 1");
+
+      RunBackendStepInput runBackendStepInput = new RunBackendStepInput();
+      runBackendStepInput.setStepName(step.getName());
+      runBackendStepInput.setProcessName(process.getName());
+      new RunBackendStepAction().execute(runBackendStepInput);
+
+      File processingDirectory = new File(basePath + "/processing");
+      assertEquals(5, processingDirectory.list().length, "maxFilesToSync should be respected");
+      assertEquals(7, new File(basePath + "/archive").list().length);
+      for(File file : processingDirectory.listFiles())
+      {
+         assertEquals("content of " + file.getName().replace(".txt", ""), FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -22,16 +22,19 @@
 package com.kingsrook.qqq.backend.module.filesystem.s3.actions;
 
 
+import java.util.List;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.module.filesystem.TestUtils;
 import com.kingsrook.qqq.backend.module.filesystem.base.FilesystemRecordBackendDetailFields;
 import com.kingsrook.qqq.backend.module.filesystem.s3.BaseS3Test;
+import com.kingsrook.qqq.backend.module.filesystem.s3.model.metadata.S3BackendMetaData;
 import com.kingsrook.qqq.backend.module.filesystem.s3.model.metadata.S3TableBackendDetails;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -62,6 +65,31 @@ public class S3QueryActionTest extends BaseS3Test
 
 
 
+   /*******************************************************************************
+    ** with maxConcurrentFileReads on the backend, the files get fetched & parsed
+    ** in parallel - giving the same records, in the same order, as reading them
+    ** one at a time.
+    *******************************************************************************/
+   @Test
+   public void testQueryWithConcurrentFileReads() throws QException
+   {
+      S3QueryAction s3QueryAction = new S3QueryAction();
+      s3QueryAction.setS3Utils(getS3Utils());
+      List<QRecord> sequentialRecords = s3QueryAction.execute(initQueryRequest()).getRecords();
+
+      QInstance instance = TestUtils.defineInstance();
+      ((S3BackendMetaData) instance.getBackend(TestUtils.BACKEND_NAME_S3)).setMaxConcurrentFileReads(3);
+      reInitInstanceInContext(instance);
+
+      List<QRecord> parallelRecords = s3QueryAction.execute(initQueryRequest()).getRecords();
+      assertEquals(5, parallelRecords.size(), "Expected # of rows from unfiltered query");
+      assertEquals(sequentialRecords.stream().map(r -> r.getValueString("id")).toList(), parallelRecords.stream().map(r -> r.getValueString("id")).toList());
+      assertEquals(sequentialRecords.stream().map(r -> r.getBackendDetailString(FilesystemRecordBackendDetailFields.FULL_PATH)).toList(),
+         parallelRecords.stream().map(r -> r.getBackendDetailString(FilesystemRecordBackendDetailFields.FULL_PATH)).toList());
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -24,10 +24,24 @@ package com.kingsrook.qqq.backend.module.filesystem.s3.utils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Random;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListMultipartUploadsRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.kingsrook.qqq.backend.core.utils.Timer;
 import com.kingsrook.qqq.backend.module.filesystem.s3.BaseS3Test;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /*******************************************************************************
@@ -64,4 +78,143 @@ class S3UploadOutputStreamTest extends BaseS3Test
       s3UploadOutputStream.close();
    }
 
+
+
+   /*******************************************************************************
+    ** write a multi-part file in odd-sized chunks (from a non-zero offset into
+    ** the source array), sequentially and with concurrent parts - then read it
+    ** back and make sure it's all there, in order.
+    *******************************************************************************/
+   @Test
+   void testMultipartContents() throws IOException
+   {
+      byte[] bytes = makeBytes(17 * 1024 * 1024 + 47);
+
+      for(int maxConcurrentParts : new int[] { 1, 4 })
+      {
+         String key = "uploader-tests/multipart-" + maxConcurrentParts + ".bin";
+         try(S3UploadOutputStream s3UploadOutputStream = new S3UploadOutputStream(getS3Utils().getAmazonS3(), BaseS3Test.BUCKET_NAME, key, null).withMaxConcurrentParts(maxConcurrentParts))
+         {
+            s3UploadOutputStream.write(bytes[0]);
+            int off = 1;
+            while(off < bytes.length)
+            {
+               int len = Math.min(1_234_567, bytes.length - off);
+               s3UploadOutputStream.write(bytes, off, len);
+               off += len;
+            }
+         }
+
+         assertArrayEquals(bytes, getS3Utils().getAmazonS3().getObject(BaseS3Test.BUCKET_NAME, key).getObjectContent().readAllBytes(), "Contents with maxConcurrentParts=" + maxConcurrentParts);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testSmallFile() throws IOException
+   {
+      String key = "uploader-tests/small.txt";
+      try(S3UploadOutputStream s3UploadOutputStream = new S3UploadOutputStream(getS3Utils().getAmazonS3(), BaseS3Test.BUCKET_NAME, key, "text/plain"))
+      {
+         s3UploadOutputStream.write("Hello, ".getBytes(StandardCharsets.UTF_8));
+         s3UploadOutputStream.write("S3".getBytes(StandardCharsets.UTF_8));
+      }
+
+      assertEquals("Hello, S3", new String(getS3Utils().getAmazonS3().getObject(BaseS3Test.BUCKET_NAME, key).getObjectContent().readAllBytes(), StandardCharsets.UTF_8));
+   }
+
+
+
+   /*******************************************************************************
+    ** if a part fails to upload, the multipart upload should be aborted, and the
+    ** error thrown to the writer.
+    *******************************************************************************/
+   @Test
+   void testAbortOnPartFailure()
+   {
+      AmazonS3 amazonS3 = getS3Utils().getAmazonS3();
+      AmazonS3 failingAmazonS3 = (AmazonS3) Proxy.newProxyInstance(AmazonS3.class.getClassLoader(), new Class<?>[] { AmazonS3.class }, (proxy, method, args) ->
+      {
+         if(method.getName().equals("uploadPart") && ((UploadPartRequest) args[0]).getPartNumber() == 2)
+         {
+            throw (new AmazonServiceException("Test part failure"));
+         }
+
+         try
+         {
+            return (method.invoke(amazonS3, args));
+         }
+         catch(InvocationTargetException e)
+         {
+            throw (e.getCause());
+         }
+      });
+
+      String               key                  = "uploader-tests/aborted.bin";
+      byte[]               bytes                = makeBytes(16 * 1024 * 1024);
+      S3UploadOutputStream s3UploadOutputStream = new S3UploadOutputStream(failingAmazonS3, BaseS3Test.BUCKET_NAME, key, null).withMaxConcurrentParts(4);
+      assertThatThrownBy(() ->
+      {
+         s3UploadOutputStream.write(bytes, 0, bytes.length);
+         s3UploadOutputStream.close();
+      })
+         .isInstanceOf(IOException.class)
+         .hasRootCauseInstanceOf(AmazonServiceException.class);
+
+      assertTrue(amazonS3.listMultipartUploads(new ListMultipartUploadsRequest(BaseS3Test.BUCKET_NAME).withPrefix(key)).getMultipartUploads().isEmpty(), "Multipart upload should have been aborted");
+      assertFalse(amazonS3.doesObjectExist(BaseS3Test.BUCKET_NAME, key));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testGetPartSize()
+   {
+      assertEquals(S3UploadOutputStream.MIN_PART_SIZE, S3UploadOutputStream.getPartSize(1));
+      assertEquals(S3UploadOutputStream.MIN_PART_SIZE, S3UploadOutputStream.getPartSize(1_000));
+      assertEquals(2 * S3UploadOutputStream.MIN_PART_SIZE, S3UploadOutputStream.getPartSize(1_001));
+      assertEquals(10 * S3UploadOutputStream.MIN_PART_SIZE, S3UploadOutputStream.getPartSize(S3UploadOutputStream.MAX_PARTS));
+   }
+
+
+
+   /*******************************************************************************
+    ** compare upload throughput at different part concurrencies.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during concurrent part upload change")
+   void testPerformance() throws IOException
+   {
+      byte[] bytes = makeBytes(100 * 1024 * 1024);
+
+      for(int maxConcurrentParts : new int[] { 1, 2, 4, 8 })
+      {
+         Timer timer = new Timer("s3Upload");
+         try(S3UploadOutputStream s3UploadOutputStream = new S3UploadOutputStream(getS3Utils().getAmazonS3(), BaseS3Test.BUCKET_NAME, "uploader-tests/perf.bin", null).withMaxConcurrentParts(maxConcurrentParts))
+         {
+            s3UploadOutputStream.write(bytes, 0, bytes.length);
+         }
+         timer.mark("100MB with maxConcurrentParts=" + maxConcurrentParts);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private static byte[] makeBytes(int size)
+   {
+      byte[] bytes = new byte[size];
+      new Random(47).nextBytes(bytes);
+      return (bytes);
+   }
+
 }
@@ -0,0 +1,419 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.filesystem.sftp.utils;
+
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.actions.processes.RunProcessAction;
+import com.kingsrook.qqq.backend.core.actions.tables.CountAction;
+import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
+import com.kingsrook.qqq.backend.core.context.CapturedContext;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.processes.RunProcessInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.count.CountInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
+import com.kingsrook.qqq.backend.core.model.metadata.audits.QAuditRules;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.modules.backend.implementations.memory.MemoryRecordStore;
+import com.kingsrook.qqq.backend.core.utils.SleepUtils;
+import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeSupplier;
+import com.kingsrook.qqq.backend.module.filesystem.TestUtils;
+import com.kingsrook.qqq.backend.module.filesystem.base.model.metadata.Cardinality;
+import com.kingsrook.qqq.backend.module.filesystem.base.model.metadata.FilesystemTableMetaDataBuilder;
+import com.kingsrook.qqq.backend.module.filesystem.base.model.metadata.RecordFormat;
+import com.kingsrook.qqq.backend.module.filesystem.processes.implementations.filesystem.importer.FilesystemImporterMetaDataTemplate;
+import com.kingsrook.qqq.backend.module.filesystem.processes.implementations.filesystem.importer.FilesystemImporterProcessMetaDataBuilder;
+import com.kingsrook.qqq.backend.module.filesystem.sftp.BaseSFTPTest;
+import com.kingsrook.qqq.backend.module.filesystem.sftp.actions.AbstractSFTPAction;
+import com.kingsrook.qqq.backend.module.filesystem.sftp.actions.SFTPQueryAction;
+import com.kingsrook.qqq.backend.module.filesystem.sftp.model.metadata.SFTPTableBackendDetails;
+import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+
+/*******************************************************************************
+ ** Unit test for SFTPSessionPool - against the sftp test container.
+ *******************************************************************************/
+class SFTPSessionPoolTest extends BaseSFTPTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testReleasedSessionsAreReused() throws QException
+   {
+      try(SFTPSessionPool pool = new SFTPSessionPool(2, 60_000, 60_000, 1_000))
+      {
+         SFTPSessionPool.Key key = getKey();
+
+         SFTPSessionPool.PooledSession session = pool.borrow(key, getOpener(key));
+         pool.release(session);
+         assertSame(session, pool.borrow(key, getOpener(key)), "Released session should be reused");
+         pool.release(session);
+
+         SFTPSessionPool.Metrics metrics = pool.getMetrics();
+         assertEquals(1, metrics.sessionsOpened());
+         assertEquals(1, metrics.sessionsReused());
+         assertEquals(1, metrics.idleSessions());
+         assertEquals(0, metrics.borrowedSessions());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** at the max per host, borrow (from a thread without a session on the host)
+    ** waits for a release - or times out.
+    *******************************************************************************/
+   @Test
+   void testMaxSessionsPerHost() throws QException
+   {
+      try(SFTPSessionPool pool = new SFTPSessionPool(2, 60_000, 60_000, 1_000))
+      {
+         SFTPSessionPool.Key           key      = getKey();
+         SFTPSessionPool.PooledSession session1 = pool.borrow(key, getOpener(key));
+         SFTPSessionPool.PooledSession session2 = pool.borrow(key, getOpener(key));
+         assertNotSame(session1, session2);
+
+         assertThatThrownBy(() -> borrowOnOtherThread(pool, key))
+            .isInstanceOf(QException.class)
+            .hasMessageContaining("Timed out waiting for an SFTP session");
+
+         CompletableFuture<SFTPSessionPool.PooledSession> waitingBorrow = CompletableFuture.supplyAsync(() -> borrowOrThrow(pool, key));
+         SleepUtils.sleep(200, TimeUnit.MILLISECONDS);
+         pool.release(session1);
+         assertSame(session1, waitingBorrow.join(), "Borrow should get the session released while it waited");
+
+         SFTPSessionPool.Metrics metrics = pool.getMetrics();
+         assertEquals(2, metrics.sessionsOpened());
+         assertEquals(2, metrics.borrowWaits());
+         assertEquals(1, metrics.borrowTimeouts());
+         assertEquals(2, metrics.openSessions());
+
+         //////////////////////////////////////////////////////////////////////
+         // an idle session of another key on the host gets closed to make   //
+         // room for a new one (here, the "other" key is the same user, just //
+         // keyed differently, so that it can authenticate).                 //
+         //////////////////////////////////////////////////////////////////////
+         pool.release(session1);
+         pool.release(session2);
+         SFTPSessionPool.Key otherKey = new SFTPSessionPool.Key(key.hostName(), key.port(), key.username(), "other");
+         pool.release(pool.borrow(otherKey, getOpener(otherKey)));
+         metrics = pool.getMetrics();
+         assertEquals(3, metrics.sessionsOpened());
+         assertEquals(1, metrics.sessionsClosed());
+         assertEquals(2, metrics.openSessions());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** a thread that already has a session from the host goes over the max, rather
+    ** than waiting (on a release that it may be the one holding up).
+    *******************************************************************************/
+   @Test
+   void testNestedBorrowsDoNotWaitOnMax() throws QException
+   {
+      try(SFTPSessionPool pool = new SFTPSessionPool(1, 60_000, 60_000, 1_000))
+      {
+         SFTPSessionPool.Key           key     = getKey();
+         SFTPSessionPool.PooledSession outer   = pool.borrow(key, getOpener(key));
+         SFTPSessionPool.PooledSession nested  = pool.borrow(key, getOpener(key));
+         SFTPSessionPool.PooledSession nested2 = pool.borrow(key, getOpener(key));
+         assertNotSame(outer, nested);
+         assertNotSame(nested, nested2);
+         assertEquals(3, pool.getMetrics().openSessions());
+         assertEquals(0, pool.getMetrics().borrowWaits());
+
+         ///////////////////////////////////////////////////////////////
+         // but another thread does wait (and here, times out) for it //
+         ///////////////////////////////////////////////////////////////
+         assertThatThrownBy(() -> borrowOnOtherThread(pool, key))
+            .isInstanceOf(QException.class)
+            .hasMessageContaining("Timed out waiting for an SFTP session");
+
+         pool.release(nested2);
+         pool.release(nested);
+         pool.release(outer);
+         assertEquals(0, pool.getMetrics().borrowedSessions());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** with no max per host (the default), borrows never wait.
+    *******************************************************************************/
+   @Test
+   void testNoMaxSessionsPerHost() throws QException
+   {
+      try(SFTPSessionPool pool = new SFTPSessionPool(0, 60_000, 60_000, 1_000))
+      {
+         SFTPSessionPool.Key key = getKey();
+         assertNotSame(pool.borrow(key, getOpener(key)), borrowOnOtherThread(pool, key));
+         assertEquals(2, pool.getMetrics().openSessions());
+         assertEquals(0, pool.getMetrics().borrowWaits());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** importer runs hold their source session while borrowing another, to
+    ** archive each file - so concurrent runs against one host, with a max of 1
+    ** session per host, must not deadlock waiting on each other's sessions.
+    *******************************************************************************/
+   @Test
+   void testConcurrentImporterRunsAgainstOneHost() throws Exception
+   {
+      QInstance        qInstance   = QContext.getQInstance();
+      QBackendMetaData sftpBackend = qInstance.getBackend(TestUtils.BACKEND_NAME_SFTP);
+
+      //////////////////////////////////////////////////////////////////////
+      // the archive dir (which the importer doesn't create) must be made //
+      //////////////////////////////////////////////////////////////////////
+      LocalDateTime now = LocalDateTime.now();
+      sftpContainer.execInContainer("sh", "-c", "mkdir -p /home/testuser/upload/importer-archive/" + now.getYear() + "/" + now.getMonth() + " && chmod -R 777 /home/testuser/upload/importer-archive");
+      qInstance.addTable(new FilesystemTableMetaDataBuilder()
+         .withBasePath("importer-archive")
+         .withBackend(sftpBackend)
+         .withName("sftpImporterArchive")
+         .buildStandardCardinalityOneTable());
+
+      int noOfImporters = 3;
+      for(int i = 0; i < noOfImporters; i++)
+      {
+         String folder = "/home/testuser/upload/importer-" + i;
+         sftpContainer.execInContainer("sh", "-c", "mkdir -p " + folder
+            + " && printf 'id,firstName\\n1,Darin\\n2,Tim\\n' > " + folder + "/a.csv"
+            + " && printf 'id,firstName\\n3,James\\n' > " + folder + "/b.csv"
+            + " && chmod -R 777 " + folder);
+
+         qInstance.addTable(new QTableMetaData()
+            .withName("sftpImporterSource" + i)
+            .withBackendName(TestUtils.BACKEND_NAME_SFTP)
+            .withPrimaryKeyField("id")
+            .withField(new QFieldMetaData("id", QFieldType.INTEGER))
+            .withBackendDetails(new SFTPTableBackendDetails()
+               .withBasePath("importer-" + i)
+               .withRecordFormat(RecordFormat.CSV)
+               .withCardinality(Cardinality.MANY)));
+
+         FilesystemImporterProcessMetaDataBuilder importerProcessMetaDataBuilder = (FilesystemImporterProcessMetaDataBuilder) new FilesystemImporterProcessMetaDataBuilder()
+            .withSourceTableName("sftpImporterSource" + i)
+            .withFileFormat("csv")
+            .withArchiveFileEnabled(true)
+            .withArchiveTableName("sftpImporterArchive")
+            .withName("sftpImporter" + i);
+         new FilesystemImporterMetaDataTemplate(qInstance, "sftpImporter" + i, TestUtils.BACKEND_NAME_MEMORY, importerProcessMetaDataBuilder, table -> table.withAuditRules(QAuditRules.defaultInstanceLevelNone())).addToInstance(qInstance);
+      }
+
+      SFTPSessionPool originalPool = SFTPSessionPool.getInstance();
+      try(SFTPSessionPool pool = new SFTPSessionPool(1, 60_000, 60_000, 10_000))
+      {
+         SFTPSessionPool.setInstance(pool);
+
+         CapturedContext               capturedContext = QContext.capture();
+         List<CompletableFuture<Void>> runs            = new ArrayList<>();
+         for(int i = 0; i < noOfImporters; i++)
+         {
+            String processName = "sftpImporter" + i;
+            runs.add(CompletableFuture.runAsync(() ->
+            {
+               QContext.init(capturedContext);
+               try
+               {
+                  RunProcessInput runProcessInput = new RunProcessInput();
+                  runProcessInput.setProcessName(processName);
+                  new RunProcessAction().execute(runProcessInput);
+               }
+               catch(QException e)
+               {
+                  throw (new RuntimeException(e));
+               }
+               finally
+               {
+                  QContext.clear();
+               }
+            }));
+         }
+         CompletableFuture.allOf(runs.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+
+         for(int i = 0; i < noOfImporters; i++)
+         {
+            QueryInput    queryInput  = new QueryInput("sftpImporter" + i + FilesystemImporterMetaDataTemplate.IMPORT_FILE_TABLE_SUFFIX);
+            List<QRecord> importFiles = new QueryAction().execute(queryInput).getRecords();
+            assertEquals(2, importFiles.size(), "Each run should import (and archive) both of its files");
+            importFiles.forEach(importFile -> assertNotNull(importFile.getValueString("archivedPath")));
+            assertEquals(3, new CountAction().execute(new CountInput("sftpImporter" + i + FilesystemImporterMetaDataTemplate.IMPORT_RECORD_TABLE_SUFFIX)).getCount());
+         }
+
+         assertEquals(0, pool.getMetrics().borrowTimeouts());
+         assertEquals(0, pool.getMetrics().borrowedSessions());
+      }
+      finally
+      {
+         SFTPSessionPool.setInstance(originalPool);
+         MemoryRecordStore.getInstance().reset();
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   void testIdleEvictionAndHealthCheck() throws QException
+   {
+      try(SFTPSessionPool pool = new SFTPSessionPool(2, 100, 0, 1_000))
+      {
+         SFTPSessionPool.Key key = getKey();
+
+         pool.release(pool.borrow(key, getOpener(key)));
+         SleepUtils.sleep(200, TimeUnit.MILLISECONDS);
+         assertEquals(1, pool.evictIdleSessions());
+         assertEquals(0, pool.getMetrics().openSessions());
+         assertEquals(0, pool.getMetrics().idleSessions());
+
+         //////////////////////////////////////////////////////////////////
+         // a session that broke while idle gets replaced, when borrowed //
+         //////////////////////////////////////////////////////////////////
+         SFTPSessionPool.PooledSession session = pool.borrow(key, getOpener(key));
+         pool.release(session);
+         session.close();
+         SFTPSessionPool.PooledSession replacement = pool.borrow(key, getOpener(key));
+         assertNotSame(session, replacement);
+         assertEquals(1, pool.getMetrics().healthCheckFailures());
+         assertEquals(1, pool.getMetrics().openSessions());
+         pool.release(replacement);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** actions borrow in preAction and release in postAction - so a second query
+    ** reuses the first one's session.
+    *******************************************************************************/
+   @Test
+   void testActionsUsePool() throws QException
+   {
+      try(SFTPSessionPool pool = new SFTPSessionPool(2, 60_000, 60_000, 1_000))
+      {
+         for(int i = 0; i < 2; i++)
+         {
+            SFTPQueryAction sftpQueryAction = new SFTPQueryAction()
+            {
+               @Override
+               protected SFTPSessionPool getSessionPool()
+               {
+                  return (pool);
+               }
+            };
+            assertEquals(5, sftpQueryAction.execute(new QueryInput(TestUtils.TABLE_NAME_SFTP_FILE)).getRecords().size());
+         }
+
+         SFTPSessionPool.Metrics metrics = pool.getMetrics();
+         assertEquals(1, metrics.sessionsOpened());
+         assertEquals(1, metrics.sessionsReused());
+         assertEquals(0, metrics.borrowedSessions());
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private SFTPSessionPool.Key getKey()
+   {
+      return (SFTPSessionPool.Key.of(USERNAME, HOST_NAME, getCurrentPort(), PASSWORD, null));
+   }
+
+
+
+   /*******************************************************************************
+    ** borrow a session on another thread - e.g., one that doesn't already have a
+    ** session from the host, so it waits at the host's max.
+    *******************************************************************************/
+   private SFTPSessionPool.PooledSession borrowOnOtherThread(SFTPSessionPool pool, SFTPSessionPool.Key key) throws QException
+   {
+      try
+      {
+         return (CompletableFuture.supplyAsync(() -> borrowOrThrow(pool, key)).join());
+      }
+      catch(CompletionException e)
+      {
+         if(e.getCause() instanceof RuntimeException runtimeException && runtimeException.getCause() instanceof QException qException)
+         {
+            throw (qException);
+         }
+         throw (e);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private SFTPSessionPool.PooledSession borrowOrThrow(SFTPSessionPool pool, SFTPSessionPool.Key key)
+   {
+      try
+      {
+         return (pool.borrow(key, getOpener(key)));
+      }
+      catch(QException e)
+      {
+         throw (new RuntimeException(e));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   private UnsafeSupplier<SFTPSessionPool.PooledSession, Exception> getOpener(SFTPSessionPool.Key key)
+   {
+      return (() -> AbstractSFTPAction.openSession(key, PASSWORD, null));
+   }
+
+}
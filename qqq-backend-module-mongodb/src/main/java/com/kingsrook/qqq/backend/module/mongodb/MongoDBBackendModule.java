@@ -29,6 +29,7 @@ import com.kingsrook.qqq.backend.core.actions.interfaces.DeleteInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.InsertInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QueryInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.UpdateInterface;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
 import com.kingsrook.qqq.backend.core.model.actions.AbstractTableActionInput;
 import com.kingsrook.qqq.backend.core.model.metadata.QBackendMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableBackendDetails;
@@ -43,6 +44,7 @@ import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBInsertAction;
 import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBQueryAction;
 import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBTransaction;
 import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBUpdateAction;
+import com.kingsrook.qqq.backend.module.mongodb.actions.MongoDBUpsertAction;
 import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
 import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBTableBackendDetails;
 
@@ -133,6 +135,17 @@ public class MongoDBBackendModule implements QBackendModuleInterface
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public UpsertInterface getUpsertInterface()
+   {
+      return (new MongoDBUpsertAction());
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -143,6 +156,16 @@ public class MongoDBBackendModule implements QBackendModuleInterface
    }
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public boolean supportsTupleInCriteria()
+   {
+      return (true);
+   }
+
+
 
    /*******************************************************************************
     **
@@ -553,6 +553,12 @@ public class AbstractMongoDBAction
 
       for(QFilterCriteria criteria : CollectionUtils.nonNullList(filter.getCriteria()))
       {
+         if(QCriteriaOperator.TUPLE_IN.equals(criteria.getOperator()) && criteria.getTupleFieldNames() != null)
+         {
+            criteriaFilters.add(filterTupleIn(table, criteria));
+            continue;
+         }
+
          List<Serializable> values           = criteria.getValues() == null ? new ArrayList<>() : new ArrayList<>(criteria.getValues());
          QFieldMetaData     field            = table.getField(criteria.getFieldName());
          String             fieldBackendName = getFieldBackendName(field);
@@ -648,6 +654,7 @@ public class AbstractMongoDBAction
             case NOT_BETWEEN -> Filters.nor(filterBetween(fieldBackendName, values));
             case TRUE -> Filters.or(Filters.eq(fieldBackendName, "true"), Filters.ne(fieldBackendName, "true"), Filters.eq(fieldBackendName, null)); // todo test!!
             case FALSE -> Filters.and(Filters.eq(fieldBackendName, "true"), Filters.ne(fieldBackendName, "true"), Filters.eq(fieldBackendName, null));
+            case TUPLE_IN -> throw (new IllegalArgumentException("A TUPLE_IN criteria requires tupleFieldNames."));
          });
       }
 
@@ -714,6 +721,53 @@ public class AbstractMongoDBAction
 
 
 
+   /*******************************************************************************
+    ** build a bson filter for TUPLE_IN - an OR of an AND of equals for each tuple.
+    ** as in RDBMS, a tuple with a null never matches, so those are skipped.
+    *******************************************************************************/
+   private Bson filterTupleIn(QTableMetaData table, QFilterCriteria criteria)
+   {
+      List<String> fieldNames = criteria.getTupleFieldNames();
+      List<Bson>   tupleBsons = new ArrayList<>();
+      for(Serializable tuple : CollectionUtils.nonNullList(criteria.getValues()))
+      {
+         if(!(tuple instanceof List<?> tupleValues) || tupleValues.size() != fieldNames.size())
+         {
+            throw new IllegalArgumentException("Incorrect number of values given in tuple for criteria " + fieldNames);
+         }
+
+         if(tupleValues.contains(null))
+         {
+            continue;
+         }
+
+         List<Bson> equalsBsons = new ArrayList<>();
+         for(int i = 0; i < fieldNames.size(); i++)
+         {
+            QFieldMetaData field = table.getField(fieldNames.get(i));
+            Object         value = tupleValues.get(i);
+            if(field.getName().equals(table.getPrimaryKeyField()))
+            {
+               value = new ObjectId(String.valueOf(value));
+            }
+            equalsBsons.add(Filters.eq(getFieldBackendName(field), value));
+         }
+         tupleBsons.add(Filters.and(equalsBsons));
+      }
+
+      if(tupleBsons.isEmpty())
+      {
+         ////////////////////////////////////////////////////////////
+         // no tuples, so match nothing (as with an empty IN list) //
+         ////////////////////////////////////////////////////////////
+         return (Filters.in(getFieldBackendName(table.getField(fieldNames.get(0))), List.of()));
+      }
+
+      return (Filters.or(tupleBsons));
+   }
+
+
+
    /*******************************************************************************
     ** build a bson filter doing BETWEEN
     *******************************************************************************/
@@ -131,6 +131,8 @@ public class MongoDBTransaction extends QBackendTransaction
             this.clientSession.startTransaction();
          }
       }
+
+      runPostCommitActions();
    }
 
 
@@ -141,6 +143,7 @@ public class MongoDBTransaction extends QBackendTransaction
    @Override
    public void rollback() throws QException
    {
+      clearPostCommitActions();
       try
       {
          if(transactionsSupported)
@@ -0,0 +1,220 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.mongodb.actions;
+
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
+import com.kingsrook.qqq.backend.core.actions.tables.UpsertAction;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.module.mongodb.model.metadata.MongoDBBackendMetaData;
+import com.mongodb.bulk.BulkWriteInsert;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+
+/*******************************************************************************
+ ** Native upsert for mongo collections - one bulkWrite per page, of
+ ** updateOne(upsert=true) models, filtered on the unique key's fields:
+ ** "update" fields go in a $set; all other fields in a $setOnInsert.
+ **
+ ** mongo only reports the _id's of documents that the upserts inserted - so
+ ** records that updated an existing document are output without an id.
+ *******************************************************************************/
+public class MongoDBUpsertAction extends AbstractMongoDBAction implements UpsertInterface
+{
+   private static final QLogger LOG = QLogger.getLogger(MongoDBUpsertAction.class);
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   public UpsertOutput execute(UpsertInput upsertInput) throws QException
+   {
+      MongoClientContainer mongoClientContainer = null;
+      UpsertOutput         rs                   = new UpsertOutput();
+      rs.setRecords(new ArrayList<>());
+
+      Long       queryStartTime = System.currentTimeMillis();
+      List<Bson> queryToLog     = new ArrayList<>();
+
+      try
+      {
+         QTableMetaData         table            = upsertInput.getTable();
+         UniqueKey              uniqueKey        = upsertInput.getKey();
+         String                 backendTableName = getBackendTableName(table);
+         MongoDBBackendMetaData backend          = (MongoDBBackendMetaData) upsertInput.getBackend();
+
+         Set<String> fieldNamesToUpdate = upsertInput.getFieldNamesToUpdate() != null ? upsertInput.getFieldNamesToUpdate()
+            : UpsertAction.getDefaultFieldNamesToUpdate(table, uniqueKey, upsertInput.getRecords());
+
+         mongoClientContainer = openClient(backend, upsertInput.getTransaction());
+         MongoDatabase             database   = mongoClientContainer.getMongoClient().getDatabase(backend.getDatabaseName());
+         MongoCollection<Document> collection = database.getCollection(backendTableName);
+
+         for(List<QRecord> page : CollectionUtils.getPages(upsertInput.getRecords(), getPageSize()))
+         {
+            ////////////////////////////////////////////////////////////////////////
+            // build a write-model for each record w/o errors in this page - and  //
+            // remember which page-index each model is for, to map ids back after //
+            ////////////////////////////////////////////////////////////////////////
+            List<WriteModel<Document>> writeModels        = new ArrayList<>();
+            Map<Integer, Integer>      modelIndexToRecord = new HashMap<>();
+            for(int i = 0; i < page.size(); i++)
+            {
+               QRecord record = page.get(i);
+               if(CollectionUtils.nullSafeHasContents(record.getErrors()))
+               {
+                  continue;
+               }
+
+               modelIndexToRecord.put(writeModels.size(), i);
+               writeModels.add(buildWriteModel(table, uniqueKey, fieldNamesToUpdate, record, queryToLog));
+            }
+
+            if(writeModels.isEmpty())
+            {
+               page.forEach(r -> rs.addRecord(new QRecord(r)));
+               continue;
+            }
+
+            BulkWriteResult bulkWriteResult = collection.bulkWrite(mongoClientContainer.getMongoSession(), writeModels);
+
+            //////////////////////////////////////////////////////////////////
+            // collect the ids of inserted documents (from both upserts and //
+            // plain inserts), by the index of the record they're for       //
+            //////////////////////////////////////////////////////////////////
+            Map<Integer, BsonValue> idsByRecordIndex = new HashMap<>();
+            for(BulkWriteUpsert upsert : bulkWriteResult.getUpserts())
+            {
+               idsByRecordIndex.put(modelIndexToRecord.get(upsert.getIndex()), upsert.getId());
+            }
+            for(BulkWriteInsert insert : bulkWriteResult.getInserts())
+            {
+               idsByRecordIndex.put(modelIndexToRecord.get(insert.getIndex()), insert.getId());
+            }
+
+            for(int i = 0; i < page.size(); i++)
+            {
+               QRecord outputRecord = new QRecord(page.get(i));
+               rs.addRecord(outputRecord);
+
+               BsonValue id = idsByRecordIndex.get(i);
+               if(id != null && id.isObjectId())
+               {
+                  outputRecord.setValue(table.getPrimaryKeyField(), id.asObjectId().getValue().toString());
+               }
+            }
+         }
+      }
+      catch(Exception e)
+      {
+         throw new QException("Error executing upsert: " + e.getMessage(), e);
+      }
+      finally
+      {
+         logQuery(getBackendTableName(upsertInput.getTable()), "upsert", queryToLog, queryStartTime);
+
+         if(mongoClientContainer != null)
+         {
+            mongoClientContainer.closeIfNeeded();
+         }
+      }
+
+      return (rs);
+   }
+
+
+
+   /*******************************************************************************
+    ** a record with any null key value can't match by key (a mongo equality filter
+    ** on null would match documents that don't have the field at all) - so it's
+    ** just inserted.  others become an upserting updateOne, filtered on the key.
+    *******************************************************************************/
+   private WriteModel<Document> buildWriteModel(QTableMetaData table, UniqueKey uniqueKey, Set<String> fieldNamesToUpdate, QRecord record, List<Bson> queryToLog) throws QException
+   {
+      List<Bson> keyFilters = new ArrayList<>();
+      for(String keyFieldName : uniqueKey.getFieldNames())
+      {
+         Serializable value = record.getValue(keyFieldName);
+         if(value == null)
+         {
+            Document document = recordToDocument(table, record);
+            queryToLog.add(document);
+            return (new InsertOneModel<>(document));
+         }
+         keyFilters.add(Filters.eq(getFieldBackendName(table.getField(keyFieldName)), value));
+      }
+
+      List<Bson> updates = new ArrayList<>();
+      for(QFieldMetaData field : table.getFields().values())
+      {
+         if(field.getName().equals(table.getPrimaryKeyField()))
+         {
+            continue;
+         }
+
+         String       fieldBackendName = getFieldBackendName(field);
+         Serializable value            = record.getValue(field.getName());
+         if(fieldNamesToUpdate.contains(field.getName()) && !uniqueKey.getFieldNames().contains(field.getName()))
+         {
+            updates.add(Updates.set(fieldBackendName, value));
+         }
+         else
+         {
+            updates.add(Updates.setOnInsert(fieldBackendName, value));
+         }
+      }
+
+      Bson filter = Filters.and(keyFilters);
+      Bson update = Updates.combine(updates);
+      queryToLog.add(filter);
+      queryToLog.add(update);
+      return (new UpdateOneModel<>(filter, update, new UpdateOptions().upsert(true)));
+   }
+
+}
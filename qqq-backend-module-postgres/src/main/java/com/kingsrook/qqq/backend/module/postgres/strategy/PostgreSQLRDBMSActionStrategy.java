@@ -23,19 +23,30 @@ package com.kingsrook.qqq.backend.module.postgres.strategy;
 
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import com.kingsrook.qqq.backend.core.instances.QMetaDataVariableInterpreter;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PossibleValueEnum;
 import com.kingsrook.qqq.backend.module.rdbms.strategy.BaseRDBMSActionStrategy;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
 
 /*******************************************************************************
@@ -44,9 +55,35 @@ import com.kingsrook.qqq.backend.module.rdbms.strategy.BaseRDBMSActionStrategy;
  ** This class provides PostgreSQL-specific implementations for database operations,
  ** including optimized insert operations using RETURNING clause, proper handling
  ** of temporal data types, and PostgreSQL-specific parameter binding behavior.
+ **
+ ** Large inserts (of at least BULK_INSERT_MIN_ROWS rows) use COPY FROM STDIN,
+ ** with ids reserved up-front from the primary key's sequence.
  *******************************************************************************/
 public class PostgreSQLRDBMSActionStrategy extends BaseRDBMSActionStrategy
 {
+   private static final QLogger LOG = QLogger.getLogger(PostgreSQLRDBMSActionStrategy.class);
+
+   public static final int DEFAULT_BULK_INSERT_MIN_ROWS = 500;
+   public static       int BULK_INSERT_MIN_ROWS         = DEFAULT_BULK_INSERT_MIN_ROWS;
+
+   ////////////////////////////////////////////////////////////////////////
+   // how much COPY data (in chars) to build up before sending it along. //
+   ////////////////////////////////////////////////////////////////////////
+   private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+   static
+   {
+      try
+      {
+         BULK_INSERT_MIN_ROWS = new QMetaDataVariableInterpreter().getIntegerFromPropertyOrEnvironment("qqq.rdbms.postgres.bulkInsertMinRows", "QQQ_RDBMS_POSTGRES_BULK_INSERT_MIN_ROWS", DEFAULT_BULK_INSERT_MIN_ROWS);
+      }
+      catch(Exception e)
+      {
+         LOG.warn("Error reading property/env for bulkInsertMinRows", e);
+      }
+   }
+
+
 
    /***************************************************************************
     ** PostgreSQL uses RETURNING clause for getting generated IDs.
@@ -276,4 +313,281 @@ public class PostgreSQLRDBMSActionStrategy extends BaseRDBMSActionStrategy
       return "\"";
    }
 
+
+
+   /***************************************************************************
+    ** The PostgreSQL driver only honors a fetch size (e.g., reads results via
+    ** a server-side cursor, rather than buffering the whole result set in
+    ** memory) when auto-commit is off - so, turn it off here, if it's on.  The
+    ** caller (RDBMSQueryAction) restores auto-commit after the query.
+    **
+    ** @param connection the database connection
+    ** @param sql the query SQL
+    ** @param queryInput the query being run
+    ** @return a streaming statement, or null if this query shouldn't stream
+    ** @throws SQLException if a database error occurs
+    ***************************************************************************/
+   @Override
+   public PreparedStatement prepareStreamingStatement(Connection connection, String sql, QueryInput queryInput) throws SQLException
+   {
+      PreparedStatement statement = super.prepareStreamingStatement(connection, sql, queryInput);
+      if(statement != null && connection.getAutoCommit())
+      {
+         connection.setAutoCommit(false);
+      }
+      return (statement);
+   }
+
+
+
+   /***************************************************************************
+    ** Inserts of at least this many rows are done via COPY.
+    **
+    ** @return BULK_INSERT_MIN_ROWS
+    ***************************************************************************/
+   @Override
+   public Integer getBulkInsertMinRows()
+   {
+      return (BULK_INSERT_MIN_ROWS);
+   }
+
+
+
+   /***************************************************************************
+    ** Don't use the CASE form of multi-row updates here:  PostgreSQL types a
+    ** CASE from all of its branches - so the bound values (e.g., varchar for a
+    ** jsonb, enum or uuid column, or timestamp for a timestamptz one) must
+    ** match the column's type, which, in a plain SET c = ?, assignment casts
+    ** take care of.  Field types don't tell us the column types (to cast to),
+    ** so these updates stay as batches.
+    **
+    ** @return null, to never use multi-row update statements
+    ***************************************************************************/
+   @Override
+   public Integer getMultiRowUpdateMinRows()
+   {
+      return (null);
+   }
+
+
+
+   /***************************************************************************
+    ** Bulk insert via COPY FROM STDIN (in CSV format) - which, for large
+    ** numbers of rows, is much faster than multi-row INSERT statements.
+    **
+    ** COPY can't return generated keys, so first, one id per row is reserved
+    ** from the primary key column's sequence (nextval, as a serial/identity
+    ** column's default would do), and those ids are copied in with the rows.
+    ** If the primary key has no sequence, or if any value is of a type we don't
+    ** know how to write as COPY text, null is returned (so the caller falls
+    ** back to a regular insert).
+    **
+    ** @param connection the database connection
+    ** @param tableName the (escaped) table name
+    ** @param columnNames the (escaped) names of the columns being inserted
+    ** @param values the values for each row, in the same order as columnNames
+    ** @param primaryKeyField the primary key field metadata
+    ** @return list of generated IDs, or null if not bulk-inserted
+    ** @throws SQLException if a database error occurs
+    ***************************************************************************/
+   @Override
+   public List<Serializable> executeBulkInsertForGeneratedIds(Connection connection, String tableName, List<String> columnNames, List<List<Serializable>> values, QFieldMetaData primaryKeyField) throws SQLException
+   {
+      if(values.size() < BULK_INSERT_MIN_ROWS || primaryKeyField == null)
+      {
+         return (null);
+      }
+
+      for(List<Serializable> row : values)
+      {
+         for(Serializable value : row)
+         {
+            if(!isCopyableValue(value))
+            {
+               LOG.debug("Not using COPY for insert, due to value type", logPair("type", value.getClass().getName()));
+               return (null);
+            }
+         }
+      }
+
+      List<Serializable> ids = reserveIds(connection, tableName, primaryKeyField, values.size());
+      if(ids == null)
+      {
+         return (null);
+      }
+
+      String quoteString = getIdentifierQuoteString();
+      String sql         = "COPY " + tableName + " (" + quoteString + getColumnName(primaryKeyField) + quoteString + (columnNames.isEmpty() ? "" : ", " + String.join(", ", columnNames)) + ") FROM STDIN WITH (FORMAT csv)";
+
+      incrementStatistic(STAT_QUERIES_RAN);
+      CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+      try
+      {
+         StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE + 1024);
+         for(int i = 0; i < values.size(); i++)
+         {
+            appendCopyValue(buffer, ids.get(i));
+            for(Serializable value : values.get(i))
+            {
+               buffer.append(',');
+               appendCopyValue(buffer, value);
+            }
+            buffer.append('\n');
+
+            if(buffer.length() >= COPY_BUFFER_SIZE)
+            {
+               writeToCopy(copyIn, buffer);
+            }
+         }
+
+         writeToCopy(copyIn, buffer);
+         copyIn.endCopy();
+      }
+      finally
+      {
+         if(copyIn.isActive())
+         {
+            copyIn.cancelCopy();
+         }
+      }
+
+      return (ids);
+   }
+
+
+
+   /***************************************************************************
+    ** get the next {count} values from the sequence behind the primary key
+    ** column - or null if it doesn't have one.
+    ***************************************************************************/
+   private List<Serializable> reserveIds(Connection connection, String tableName, QFieldMetaData primaryKeyField, int count) throws SQLException
+   {
+      try(PreparedStatement statement = connection.prepareStatement("SELECT nextval(pg_get_serial_sequence(?, ?)) FROM generate_series(1, ?) ORDER BY 1"))
+      {
+         /////////////////////////////////////////////////////////////////////////////////////
+         // pg_get_serial_sequence parses its table name param as an identifier (so, as the //
+         // escaped name) - but takes its column name param literally (so, un-escaped).     //
+         /////////////////////////////////////////////////////////////////////////////////////
+         statement.setString(1, tableName);
+         statement.setString(2, getColumnName(primaryKeyField));
+         statement.setInt(3, count);
+         incrementStatistic(STAT_QUERIES_RAN);
+
+         List<Serializable> rs = new ArrayList<>();
+         try(ResultSet resultSet = statement.executeQuery())
+         {
+            while(resultSet.next())
+            {
+               Serializable id = getFieldValueFromResultSet(primaryKeyField.getType(), resultSet, 1);
+               if(id == null)
+               {
+                  LOG.debug("Not using COPY for insert, as primary key does not have a sequence", logPair("tableName", tableName));
+                  return (null);
+               }
+               rs.add(id);
+            }
+         }
+         return (rs);
+      }
+   }
+
+
+
+   /***************************************************************************
+    **
+    ***************************************************************************/
+   private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException
+   {
+      if(!buffer.isEmpty())
+      {
+         byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+         copyIn.writeToCopy(bytes, 0, bytes.length);
+         buffer.setLength(0);
+      }
+   }
+
+
+
+   /***************************************************************************
+    ** check if a value is of a type that appendCopyValue knows how to write.
+    ***************************************************************************/
+   private static boolean isCopyableValue(Serializable value)
+   {
+      return (value == null
+         || value instanceof String
+         || value instanceof Number
+         || value instanceof Boolean
+         || value instanceof Instant
+         || value instanceof LocalDate
+         || value instanceof LocalTime
+         || value instanceof LocalDateTime
+         || value instanceof byte[]
+         || (value instanceof PossibleValueEnum<?> pve && isCopyableValue(pve.getPossibleValueId())));
+   }
+
+
+
+   /***************************************************************************
+    ** write a value as a COPY csv field.  null is written as nothing (which
+    ** COPY reads as NULL), and all other values are quoted (so an empty string
+    ** stays an empty string, and commas, quotes & newlines need no other care).
+    ***************************************************************************/
+   private static void appendCopyValue(StringBuilder buffer, Serializable value)
+   {
+      if(value == null)
+      {
+         return;
+      }
+
+      String text;
+      if(value instanceof PossibleValueEnum<?> pve)
+      {
+         appendCopyValue(buffer, pve.getPossibleValueId());
+         return;
+      }
+      else if(value instanceof Instant instant)
+      {
+         ////////////////////////////////////////////////////////////
+         // same as bindParamObject - timestamps are stored in UTC //
+         ////////////////////////////////////////////////////////////
+         text = LocalDateTime.ofInstant(instant, ZoneOffset.UTC).toString();
+      }
+      else if(value instanceof BigDecimal bigDecimal)
+      {
+         text = bigDecimal.toPlainString();
+      }
+      else if(value instanceof byte[] bytes)
+      {
+         text = "\\x" + HexFormat.of().formatHex(bytes);
+      }
+      else
+      {
+         text = value.toString();
+      }
+
+      buffer.append('"');
+      for(int i = 0; i < text.length(); i++)
+      {
+         char c = text.charAt(i);
+         if(c == '"')
+         {
+            buffer.append('"');
+         }
+         buffer.append(c);
+      }
+      buffer.append('"');
+   }
+
+
+
+   /***************************************************************************
+    ** postgres supports INSERT ... ON CONFLICT DO UPDATE, and RETURNING -
+    ** so an upsert gives back one id per row, in order, just like an insert.
+    ***************************************************************************/
+   @Override
+   public List<Serializable> executeUpsertForIds(Connection connection, String insertSQL, List<Object> params, List<String> keyColumnNames, List<String> updateColumnNames, QFieldMetaData primaryKeyField) throws SQLException
+   {
+      return (executeInsertForGeneratedIds(connection, insertSQL + buildOnConflictDoUpdateClause(keyColumnNames, updateColumnNames), params, primaryKeyField));
+   }
+
 }
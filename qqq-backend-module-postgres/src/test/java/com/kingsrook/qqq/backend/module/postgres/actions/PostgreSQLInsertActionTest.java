@@ -22,6 +22,8 @@
 package com.kingsrook.qqq.backend.module.postgres.actions;
 
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -34,10 +36,13 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.module.postgres.BaseTest;
 import com.kingsrook.qqq.backend.module.postgres.TestUtils;
+import com.kingsrook.qqq.backend.module.postgres.strategy.PostgreSQLRDBMSActionStrategy;
 import com.kingsrook.qqq.backend.module.rdbms.strategy.BaseRDBMSActionStrategy;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -214,6 +219,107 @@ public class PostgreSQLInsertActionTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** Tests that a large insert (at least BULK_INSERT_MIN_ROWS records) goes via
+    ** COPY - with ids reserved from the table's sequence, in order, and with
+    ** values that need escaping (quotes, commas, newlines, empty strings) and
+    ** nulls all coming through intact.
+    **
+    ** @throws Exception if insert or verification fails
+    *******************************************************************************/
+   @Test
+   public void testBulkInsertViaCopy() throws Exception
+   {
+      getBaseRDBMSActionStrategyAndActivateCollectingStatistics();
+
+      int           count   = PostgreSQLRDBMSActionStrategy.BULK_INSERT_MIN_ROWS;
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < count; i++)
+      {
+         records.add(new QRecord()
+            .withValue("firstName", "First \"" + i + "\", with\nnewline")
+            .withValue("lastName", "Bulk" + i)
+            .withValue("email", i == 0 ? "" : "bulk" + i + "@kingsrook.com")
+            .withValue("birthDate", "1980-05-31")
+            .withValue("isEmployed", i % 2 == 0)
+            .withValue("annualSalary", new BigDecimal("12345.67"))
+            .withValue("daysWorked", i == 1 ? null : i));
+      }
+
+      InsertInput insertInput = initInsertRequest();
+      insertInput.setRecords(records);
+      InsertOutput insertOutput = new InsertAction().execute(insertInput);
+      assertEquals(count, insertOutput.getRecords().size(), "Should return right # of rows");
+      for(int i = 0; i < count; i++)
+      {
+         assertEquals(6 + i, insertOutput.getRecords().get(i).getValue("id"), "Should have next id in the row");
+      }
+
+      ///////////////////////////////////////////////////
+      // one query to reserve the ids, and one to COPY //
+      ///////////////////////////////////////////////////
+      Map<String, Integer> statistics = getBaseRDBMSActionStrategy().getStatistics();
+      assertEquals(2, statistics.get(BaseRDBMSActionStrategy.STAT_QUERIES_RAN));
+
+      assertAnInsertedPersonRecord("First \"0\", with\nnewline", "Bulk0", 6);
+      runTestSql("SELECT * FROM person WHERE id IN (6, 7) ORDER BY id", (rs ->
+      {
+         rs.next();
+         assertEquals("", rs.getString("email"));
+         assertEquals(0, rs.getInt("days_worked"));
+         assertTrue(rs.getBoolean("is_employed"));
+         assertEquals(new BigDecimal("12345.67"), rs.getBigDecimal("annual_salary"));
+         assertEquals("1980-05-31", rs.getString("birth_date"));
+
+         rs.next();
+         assertEquals("bulk1@kingsrook.com", rs.getString("email"));
+         assertNull(rs.getObject("days_worked"));
+      }));
+
+      /////////////////////////////////////////////////////////////////////
+      // a regular insert after the bulk one should get the next id, too //
+      /////////////////////////////////////////////////////////////////////
+      insertInput = initInsertRequest();
+      insertInput.setRecords(List.of(new QRecord().withValue("firstName", "After").withValue("lastName", "Bulk").withValue("email", "after@kingsrook.com")));
+      assertEquals(6 + count, new InsertAction().execute(insertInput).getRecords().get(0).getValue("id"));
+   }
+
+
+
+   /*******************************************************************************
+    ** compare the time to insert a large number of records via multi-row INSERT
+    ** statements vs. via COPY.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during COPY bulk insert change")
+   void testBulkInsertPerformance() throws QException
+   {
+      int originalBulkInsertMinRows = PostgreSQLRDBMSActionStrategy.BULK_INSERT_MIN_ROWS;
+      try
+      {
+         for(boolean useCopy : new boolean[] { false, true, false, true })
+         {
+            PostgreSQLRDBMSActionStrategy.BULK_INSERT_MIN_ROWS = useCopy ? originalBulkInsertMinRows : Integer.MAX_VALUE;
+
+            List<QRecord> records = new ArrayList<>();
+            for(int i = 0; i < 100_000; i++)
+            {
+               records.add(new QRecord().withValue("firstName", "First" + i).withValue("lastName", "Last" + i).withValue("email", i + "@kingsrook.com").withValue("birthDate", "1980-05-31").withValue("daysWorked", i));
+            }
+
+            long start = System.currentTimeMillis();
+            new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(records));
+            System.out.printf("%s: %,d records in %,d ms%n", useCopy ? "COPY" : "INSERT", records.size(), System.currentTimeMillis() - start);
+         }
+      }
+      finally
+      {
+         PostgreSQLRDBMSActionStrategy.BULK_INSERT_MIN_ROWS = originalBulkInsertMinRows;
+      }
+   }
+
+
+
    /***************************************************************************
     ** Helper method to verify a person record was inserted correctly.
     ** 
@@ -22,6 +22,7 @@
 package com.kingsrook.qqq.backend.module.postgres.actions;
 
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -276,6 +277,56 @@ public class PostgreSQLUpdateActionTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** the CASE form of multi-row updates isn't used for postgres (where it can
+    ** fail on column types) - so, even with enough records for it (which other
+    ** vendors would write as one statement), this update runs as a batch.
+    *******************************************************************************/
+   @Test
+   public void testUpdateManyWithSameColumnsDifferentValuesStaysBatched() throws Exception
+   {
+      int originalMultiRowUpdateMinRows = BaseRDBMSActionStrategy.MULTI_ROW_UPDATE_MIN_ROWS;
+      try
+      {
+         BaseRDBMSActionStrategy.MULTI_ROW_UPDATE_MIN_ROWS = 2;
+
+         UpdateInput   updateInput = initUpdateRequest();
+         List<QRecord> records     = new ArrayList<>();
+         for(int i = 1; i <= 5; i++)
+         {
+            records.add(new QRecord()
+               .withValue("id", i)
+               .withValue("firstName", "First " + i)
+               .withValue("birthDate", LocalDate.of(1980, 1, i))
+               .withValue("daysWorked", i * 10));
+         }
+         updateInput.setRecords(records);
+
+         new UpdateAction().execute(updateInput);
+         Map<String, Integer> statistics = getBaseRDBMSActionStrategy().getStatistics();
+         assertEquals(1, statistics.get(BaseRDBMSActionStrategy.STAT_BATCHES_RAN));
+
+         runTestSql("SELECT id, first_name, birth_date, days_worked FROM person ORDER BY id", (rs ->
+         {
+            int rowsFound = 0;
+            while(rs.next())
+            {
+               rowsFound++;
+               assertEquals("First " + rs.getInt("id"), rs.getString("first_name"));
+               assertEquals(LocalDate.of(1980, 1, rs.getInt("id")), rs.getDate("birth_date").toLocalDate());
+               assertEquals(rs.getInt("id") * 10, rs.getInt("days_worked"));
+            }
+            assertEquals(5, rowsFound);
+         }));
+      }
+      finally
+      {
+         BaseRDBMSActionStrategy.MULTI_ROW_UPDATE_MIN_ROWS = originalMultiRowUpdateMinRows;
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -34,6 +34,7 @@ import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
 import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
 import com.kingsrook.qqq.backend.core.actions.tables.UpdateAction;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.QueryHint;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
@@ -52,6 +53,7 @@ import com.kingsrook.qqq.backend.module.rdbms.jdbc.ConnectionManager;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -537,4 +539,35 @@ public class PostgreSQLRDBMSActionStrategyTest extends BaseTest
       UpdateOutput updateOutput = new UpdateAction().execute(updateInput);
       assertEquals(3, updateOutput.getRecords().size(), "Should update 3 records");
    }
+
+
+
+   /*******************************************************************************
+    ** Tests that a streaming statement turns off auto-commit (which the driver
+    ** requires, to use a cursor with the fetch size), and that a streamed query
+    ** (hinted as large) still returns all records.
+    **
+    ** @throws Exception if test fails
+    *******************************************************************************/
+   @Test
+   void testStreamingStatement() throws Exception
+   {
+      try(Connection connection = ConnectionManager.getConnection(TestUtils.defineBackend()))
+      {
+         PostgreSQLRDBMSActionStrategy strategy   = new PostgreSQLRDBMSActionStrategy();
+         QueryInput                    queryInput = new QueryInput(TestUtils.TABLE_NAME_PERSON).withQueryHint(QueryHint.POTENTIALLY_LARGE_NUMBER_OF_RESULTS);
+
+         assertTrue(connection.getAutoCommit());
+         try(PreparedStatement statement = strategy.prepareStreamingStatement(connection, "SELECT * FROM person", queryInput))
+         {
+            assertNotNull(statement);
+            assertFalse(connection.getAutoCommit(), "Streaming should turn off auto-commit");
+         }
+         connection.rollback();
+      }
+
+      QueryOutput allOutput      = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON));
+      QueryOutput streamedOutput = new QueryAction().execute(new QueryInput(TestUtils.TABLE_NAME_PERSON).withQueryHint(QueryHint.POTENTIALLY_LARGE_NUMBER_OF_RESULTS));
+      assertEquals(allOutput.getRecords().size(), streamedOutput.getRecords().size(), "Streamed query should find all rows");
+   }
 }
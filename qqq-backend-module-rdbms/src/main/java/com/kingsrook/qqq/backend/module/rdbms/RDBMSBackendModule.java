@@ -30,6 +30,7 @@ import com.kingsrook.qqq.backend.core.actions.interfaces.DeleteInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.InsertInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QueryInterface;
 import com.kingsrook.qqq.backend.core.actions.interfaces.UpdateInterface;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.actions.AbstractTableActionInput;
@@ -45,6 +46,7 @@ import com.kingsrook.qqq.backend.module.rdbms.actions.RDBMSInsertAction;
 import com.kingsrook.qqq.backend.module.rdbms.actions.RDBMSQueryAction;
 import com.kingsrook.qqq.backend.module.rdbms.actions.RDBMSTransaction;
 import com.kingsrook.qqq.backend.module.rdbms.actions.RDBMSUpdateAction;
+import com.kingsrook.qqq.backend.module.rdbms.actions.RDBMSUpsertAction;
 import com.kingsrook.qqq.backend.module.rdbms.model.metadata.RDBMSBackendMetaData;
 import com.kingsrook.qqq.backend.module.rdbms.model.metadata.RDBMSTableBackendDetails;
 
@@ -139,6 +141,17 @@ public class RDBMSBackendModule implements QBackendModuleInterface
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public UpsertInterface getUpsertInterface()
+   {
+      return (new RDBMSUpsertAction());
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -149,6 +162,16 @@ public class RDBMSBackendModule implements QBackendModuleInterface
    }
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Override
+   public boolean supportsTupleInCriteria()
+   {
+      return (true);
+   }
+
+
 
    /*******************************************************************************
     **
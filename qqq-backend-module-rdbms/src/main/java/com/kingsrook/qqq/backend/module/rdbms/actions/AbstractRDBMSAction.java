@@ -54,6 +54,7 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.aggregate.QFilterOrde
 import com.kingsrook.qqq.backend.core.model.actions.tables.count.CountInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.get.GetInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.JoinsContext;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
@@ -551,6 +552,54 @@ public abstract class AbstractRDBMSAction
 
 
 
+   /*******************************************************************************
+    ** Populate the params list for a FROM clause - exactly as makeFromClause would
+    ** have (e.g., from security criteria on joins), but without building the SQL -
+    ** e.g., for when the SQL for a query's shape was cached.
+    **
+    ** @param tableName the name of the main table
+    ** @param joinsContext context containing all joins to include in the query
+    ** @param params list to populate with parameter values from security criteria
+    *******************************************************************************/
+   protected void populateParamsForFromClause(String tableName, JoinsContext joinsContext, List<Serializable> params)
+   {
+      for(QueryJoin queryJoin : sortQueryJoinsForFromClause(tableName, joinsContext.getQueryJoins()))
+      {
+         if(CollectionUtils.nullSafeHasContents(queryJoin.getSecurityCriteria()))
+         {
+            getSqlWhereStringAndPopulateParamsListFromNonNestedFilter(joinsContext, queryJoin.getSecurityCriteria(), QQueryFilter.BooleanOperator.AND, params, true);
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** Populate the params list for a WHERE clause - exactly as makeWhereClause would
+    ** have, but without building the SQL - e.g., for when the SQL for a query's
+    ** shape was cached.
+    **
+    ** @param joinsContext context for resolving field names to table aliases
+    ** @param filter the filter whose criteria (and sub-filters) supply the params
+    ** @param params list to populate with parameter values for PreparedStatement
+    ** @throws IllegalArgumentException if criteria have incorrect number of values
+    *******************************************************************************/
+   protected void populateParamsForWhereClause(JoinsContext joinsContext, QQueryFilter filter, List<Serializable> params) throws IllegalArgumentException
+   {
+      if(filter == null || !filter.hasAnyCriteria())
+      {
+         return;
+      }
+
+      getSqlWhereStringAndPopulateParamsListFromNonNestedFilter(joinsContext, filter.getCriteria(), filter.getBooleanOperator(), params, true);
+      for(QQueryFilter subFilter : CollectionUtils.nonNullList(filter.getSubFilters()))
+      {
+         populateParamsForWhereClause(joinsContext, subFilter, params);
+      }
+   }
+
+
+
    /*******************************************************************************
     ** Convert a non-nested list of filter criteria into a SQL WHERE sub-clause.
     **
@@ -567,6 +616,28 @@ public abstract class AbstractRDBMSAction
     ** @throws IllegalArgumentException if criteria have incorrect number of values
     *******************************************************************************/
    private Optional<String> getSqlWhereStringAndPopulateParamsListFromNonNestedFilter(JoinsContext joinsContext, List<QFilterCriteria> criteria, QQueryFilter.BooleanOperator booleanOperator, List<Serializable> params) throws IllegalArgumentException
+   {
+      return (getSqlWhereStringAndPopulateParamsListFromNonNestedFilter(joinsContext, criteria, booleanOperator, params, false));
+   }
+
+
+
+   /*******************************************************************************
+    ** Convert a non-nested list of filter criteria into a SQL WHERE sub-clause -
+    ** or, if onlyPopulateParams is true, skip building the SQL, and just populate
+    ** the params list (exactly as it would have been populated along with the SQL).
+    **
+    ** @param joinsContext context for resolving field names to table aliases
+    ** @param criteria list of filter criteria to convert to SQL
+    ** @param booleanOperator operator (AND/OR) to join the criteria clauses
+    ** @param params list to populate with parameter values for PreparedStatement
+    ** @param onlyPopulateParams if true, only the params list is populated (e.g., when
+    ** the SQL for this query shape came from a cache), and empty is returned.
+    ** @return optional SQL where sub-clause, as in "x AND y", or empty if no valid
+    ** criteria (or if onlyPopulateParams)
+    ** @throws IllegalArgumentException if criteria have incorrect number of values
+    *******************************************************************************/
+   private Optional<String> getSqlWhereStringAndPopulateParamsListFromNonNestedFilter(JoinsContext joinsContext, List<QFilterCriteria> criteria, QQueryFilter.BooleanOperator booleanOperator, List<Serializable> params, boolean onlyPopulateParams) throws IllegalArgumentException
    {
       List<String> clauses = new ArrayList<>();
       for(QFilterCriteria criterion : criteria)
@@ -583,11 +654,17 @@ public abstract class AbstractRDBMSAction
             continue;
          }
 
+         if(QCriteriaOperator.TUPLE_IN.equals(criterion.getOperator()) && criterion.getTupleFieldNames() != null)
+         {
+            clauses.add("(" + makeTupleInClauseAndPopulateParams(joinsContext, criterion, params, onlyPopulateParams) + ")");
+            continue;
+         }
+
          JoinsContext.FieldAndTableNameOrAlias fieldAndTableNameOrAlias = joinsContext.getFieldAndTableNameOrAlias(criterion.getFieldName());
 
          List<Serializable> values = criterion.getValues() == null ? new ArrayList<>() : new ArrayList<>(criterion.getValues());
          QFieldMetaData     field  = fieldAndTableNameOrAlias.field();
-         String             column = escapeIdentifier(fieldAndTableNameOrAlias.tableNameOrAlias()) + "." + escapeIdentifier(getColumnName(field));
+         String             column = onlyPopulateParams ? "" : escapeIdentifier(fieldAndTableNameOrAlias.tableNameOrAlias()) + "." + escapeIdentifier(getColumnName(field));
          StringBuilder      clause = new StringBuilder();
 
          RDBMSActionStrategyInterface actionStrategy = getActionStrategy();
@@ -608,10 +685,13 @@ public abstract class AbstractRDBMSAction
          {
             if(expectedNoOfParams.equals(1) && StringUtils.hasContent(criterion.getOtherFieldName()))
             {
-               JoinsContext.FieldAndTableNameOrAlias otherFieldAndTableNameOrAlias = joinsContext.getFieldAndTableNameOrAlias(criterion.getOtherFieldName());
+               if(!onlyPopulateParams)
+               {
+                  JoinsContext.FieldAndTableNameOrAlias otherFieldAndTableNameOrAlias = joinsContext.getFieldAndTableNameOrAlias(criterion.getOtherFieldName());
 
-               String otherColumn = escapeIdentifier(otherFieldAndTableNameOrAlias.tableNameOrAlias()) + "." + escapeIdentifier(getColumnName(otherFieldAndTableNameOrAlias.field()));
-               clause = new StringBuilder(clause.toString().replace("?", otherColumn));
+                  String otherColumn = escapeIdentifier(otherFieldAndTableNameOrAlias.tableNameOrAlias()) + "." + escapeIdentifier(getColumnName(otherFieldAndTableNameOrAlias.field()));
+                  clause = new StringBuilder(clause.toString().replace("?", otherColumn));
+               }
 
                /////////////////////////////////////////////////////////////////////
                // make sure we don't add any values in this case, just in case... //
@@ -667,7 +747,7 @@ public abstract class AbstractRDBMSAction
       // since we're skipping criteria w/o a field or operator in the loop -      //
       // we can get to the end here without any clauses... so, return a null here //
       //////////////////////////////////////////////////////////////////////////////
-      if(clauses.isEmpty())
+      if(clauses.isEmpty() || onlyPopulateParams)
       {
          return (Optional.empty());
       }
@@ -677,6 +757,57 @@ public abstract class AbstractRDBMSAction
 
 
 
+   /*******************************************************************************
+    ** Build the SQL for a TUPLE_IN criterion - as in (a, b) IN ((?, ?), (?, ?)) -
+    ** adding each tuple's values (scrubbed for their fields) to the params list.
+    **
+    ** @param joinsContext context for resolving field names to table aliases
+    ** @param criterion the TUPLE_IN criterion
+    ** @param params list to populate with parameter values for PreparedStatement
+    ** @param onlyPopulateParams if true, skip building the SQL
+    ** @return the SQL for the criterion (empty if onlyPopulateParams)
+    ** @throws IllegalArgumentException if any tuple has the wrong number of values
+    *******************************************************************************/
+   private String makeTupleInClauseAndPopulateParams(JoinsContext joinsContext, QFilterCriteria criterion, List<Serializable> params, boolean onlyPopulateParams) throws IllegalArgumentException
+   {
+      List<QFieldMetaData> fields  = new ArrayList<>();
+      List<String>         columns = new ArrayList<>();
+      for(String fieldName : criterion.getTupleFieldNames())
+      {
+         JoinsContext.FieldAndTableNameOrAlias fieldAndTableNameOrAlias = joinsContext.getFieldAndTableNameOrAlias(fieldName);
+         fields.add(fieldAndTableNameOrAlias.field());
+         columns.add(onlyPopulateParams ? "" : escapeIdentifier(fieldAndTableNameOrAlias.tableNameOrAlias()) + "." + escapeIdentifier(getColumnName(fieldAndTableNameOrAlias.field())));
+      }
+
+      List<Serializable> tuples             = CollectionUtils.nonNullList(criterion.getValues());
+      StringBuilder      clause             = new StringBuilder();
+      Integer            expectedNoOfParams = getActionStrategy().appendTupleInCriterionToWhereClause(criterion, clause, columns, tuples.size());
+
+      List<Serializable> values = new ArrayList<>();
+      for(Serializable tuple : tuples)
+      {
+         if(!(tuple instanceof List<?> tupleValues) || tupleValues.size() != fields.size())
+         {
+            throw new IllegalArgumentException("Incorrect number of values given in tuple for criteria " + criterion.getTupleFieldNames() + " (expected " + fields.size() + ")");
+         }
+
+         for(int i = 0; i < fields.size(); i++)
+         {
+            values.add(scrubValue(fields.get(i), (Serializable) tupleValues.get(i)));
+         }
+      }
+
+      if(expectedNoOfParams != null && !expectedNoOfParams.equals(values.size()))
+      {
+         throw new IllegalArgumentException("Incorrect number of values given for criteria " + criterion.getTupleFieldNames() + " (expected " + expectedNoOfParams + ", received " + values.size() + ")");
+      }
+
+      params.addAll(values);
+      return (clause.toString());
+   }
+
+
+
    /*******************************************************************************
     ** Evaluate and normalize date/time parameter values for SQL queries.
     **
@@ -841,6 +972,22 @@ public abstract class AbstractRDBMSAction
 
 
 
+   /*******************************************************************************
+    ** Get a reader for values of a type from ResultSets, using the action strategy.
+    **
+    ** For callers that read many rows, to resolve the reader for each column once
+    ** (rather than going through getFieldValueFromResultSet for every value).
+    **
+    ** @param type the QQQ field type to be read
+    ** @return a reader for values of that type
+    *******************************************************************************/
+   protected RDBMSActionStrategyInterface.ResultSetValueReader getResultSetValueReader(QFieldType type)
+   {
+      return (actionStrategy.getResultSetValueReader(type));
+   }
+
+
+
    /*******************************************************************************
     ** Extract a field value from a ResultSet using field metadata.
     **
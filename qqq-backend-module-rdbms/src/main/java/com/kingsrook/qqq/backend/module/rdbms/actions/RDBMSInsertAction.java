@@ -91,6 +91,13 @@ public class RDBMSInsertAction extends AbstractRDBMSAction implements InsertInte
             needToCloseConnection = true;
          }
 
+         mark = System.currentTimeMillis();
+         if(tryBulkInsert(connection, table, insertableFields, insertInput.getRecords(), outputRecords))
+         {
+            logSQL("bulk insert into " + getTableName(table) + " (" + outputRecords.size() + " records)", null, mark);
+            return rs;
+         }
+
          for(List<QRecord> page : CollectionUtils.getPages(insertInput.getRecords(), getActionStrategy().getPageSize(insertInput)))
          {
             String backendTableName = escapeIdentifier(getTableName(table));
@@ -199,4 +206,72 @@ public class RDBMSInsertAction extends AbstractRDBMSAction implements InsertInte
 
    }
 
+
+
+   /*******************************************************************************
+    ** if the action strategy supports bulk inserts (e.g., postgres COPY), and
+    ** will use one for this many records, insert them all that way - adding
+    ** them (with their new ids) to the output records, and returning true.
+    ** else, return false (having inserted nothing).
+    *******************************************************************************/
+   private boolean tryBulkInsert(Connection connection, QTableMetaData table, List<QFieldMetaData> insertableFields, List<QRecord> records, List<QRecord> outputRecords) throws SQLException
+   {
+      Integer bulkInsertMinRows = getActionStrategy().getBulkInsertMinRows();
+      if(bulkInsertMinRows == null || records == null || records.size() < bulkInsertMinRows || table.getPrimaryKeyField() == null)
+      {
+         return (false);
+      }
+
+      //////////////////////////////////////////////////////////////////////////////////
+      // bulk inserts get ids from the database separately from the other columns -   //
+      // so don't use one if the primary key is being inserted along with the others //
+      //////////////////////////////////////////////////////////////////////////////////
+      QFieldMetaData primaryKeyField = table.getField(table.getPrimaryKeyField());
+      if(insertableFields.contains(primaryKeyField))
+      {
+         return (false);
+      }
+
+      List<List<Serializable>> values = new ArrayList<>();
+      for(QRecord record : records)
+      {
+         if(CollectionUtils.nullSafeHasContents(record.getErrors()))
+         {
+            continue;
+         }
+
+         List<Serializable> row = new ArrayList<>(insertableFields.size());
+         for(QFieldMetaData field : insertableFields)
+         {
+            row.add(scrubValue(field, record.getValue(field.getName())));
+         }
+         values.add(row);
+      }
+
+      List<String>       columnNames = insertableFields.stream().map(f -> escapeIdentifier(getColumnName(f))).toList();
+      List<Serializable> idList      = getActionStrategy().executeBulkInsertForGeneratedIds(connection, escapeIdentifier(getTableName(table)), columnNames, values, primaryKeyField);
+      if(idList == null)
+      {
+         return (false);
+      }
+
+      int index = 0;
+      for(QRecord record : records)
+      {
+         QRecord outputRecord = new QRecord(record);
+         if(!StringUtils.hasContent(outputRecord.getTableName()))
+         {
+            outputRecord.setTableName(table.getName());
+         }
+         outputRecords.add(outputRecord);
+
+         if(CollectionUtils.nullSafeIsEmpty(record.getErrors()) && idList.size() > index)
+         {
+            outputRecord.setValue(table.getPrimaryKeyField(), idList.get(index++));
+         }
+      }
+
+      return (true);
+   }
+
 }
@@ -28,16 +28,20 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
+import com.kingsrook.qqq.backend.core.actions.async.AsyncJobCallback;
 import com.kingsrook.qqq.backend.core.actions.interfaces.QueryInterface;
 import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerAction;
+import com.kingsrook.qqq.backend.core.actions.metadata.personalization.TableMetaDataPersonalizerInterface;
 import com.kingsrook.qqq.backend.core.actions.tables.helpers.ActionTimeoutHelper;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
@@ -45,21 +49,26 @@ import com.kingsrook.qqq.backend.core.exceptions.QUserFacingException;
 import com.kingsrook.qqq.backend.core.instances.QMetaDataVariableInterpreter;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.actions.metadata.personalization.TableMetaDataPersonalizerInput;
-import com.kingsrook.qqq.backend.core.model.actions.tables.QueryHint;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.JoinsContext;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryJoin;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.data.QRecordFieldIndex;
+import com.kingsrook.qqq.backend.core.model.data.QRecordValueMap;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
 import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.core.utils.Pair;
-import com.kingsrook.qqq.backend.module.rdbms.model.metadata.RDBMSBackendMetaData;
+import com.kingsrook.qqq.backend.core.utils.memoization.Memoization;
+import com.kingsrook.qqq.backend.core.utils.memoization.MemoizationStatistics;
+import com.kingsrook.qqq.backend.core.utils.memoization.MemoizedResult;
+import com.kingsrook.qqq.backend.module.rdbms.strategy.RDBMSActionStrategyInterface.ResultSetValueReader;
 import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
 
@@ -72,20 +81,49 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
 
    private ActionTimeoutHelper actionTimeoutHelper;
 
-   private static boolean mysqlResultSetOptimizationEnabled = false;
+   ///////////////////////////////////////////////////////////////////////////
+   // how often (in rows) to check if the query's job was asked to cancel - //
+   // rather than checking after every row.                                 //
+   ///////////////////////////////////////////////////////////////////////////
+   private static final int CANCEL_CHECK_INTERVAL_ROWS = 1000;
+
+   //////////////////////////////////////////////////////////////////////////////
+   // cache of the SQL (and Selection) built for each "shape" of query - e.g., //
+   // same table, fields, joins & filter structure, but different values.      //
+   // opt-in, as it relies on action strategies building the same SQL for      //
+   // criteria with the same operator & number of values.                      //
+   //////////////////////////////////////////////////////////////////////////////
+   private static          boolean                             querySQLCacheEnabled  = false;
+   private static          Memoization<String, CachedQuerySQL> querySQLCache         = new Memoization<String, CachedQuerySQL>()
+      .withTimeout(Duration.ofHours(1))
+      .withMayStoreNullValues(false);
+   private static volatile QInstance                           querySQLCacheInstance = null;
 
    static
    {
       try
       {
-         mysqlResultSetOptimizationEnabled = new QMetaDataVariableInterpreter().getBooleanFromPropertyOrEnvironment("qqq.rdbms.mysql.resultSetOptimizationEnabled", "QQQ_RDBMS_MYSQL_RESULT_SET_OPTIMIZATION_ENABLED", false);
+         querySQLCacheEnabled = new QMetaDataVariableInterpreter().getBooleanFromPropertyOrEnvironment("qqq.rdbms.querySQLCache.enabled", "QQQ_RDBMS_QUERY_SQL_CACHE_ENABLED", false);
+         querySQLCache.setMaxSize(new QMetaDataVariableInterpreter().getIntegerFromPropertyOrEnvironment("qqq.rdbms.querySQLCache.maxSize", "QQQ_RDBMS_QUERY_SQL_CACHE_MAX_SIZE", 1000));
       }
       catch(Exception e)
       {
-         LOG.warn("Error reading property/env for mysqlResultSetOptimizationEnabled", e);
+         LOG.warn("Error reading property/env for querySQLCache", e);
       }
    }
 
+
+
+   /***************************************************************************
+    ** what we cache per query shape - the Selection, and the SQL for it, up to
+    ** (but not including) its LIMIT & OFFSET (which are appended per-query).
+    ***************************************************************************/
+   private record CachedQuerySQL(Selection selection, String sql)
+   {
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -98,9 +136,8 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
          setBackendMetaData(queryInput.getBackend());
 
          List<Serializable> params    = new ArrayList<>();
-         Selection          selection = makeSelection(queryInput);
-
-         StringBuilder sql = makeSQL(queryInput, selection, tableName, params, table);
+         StringBuilder      sql       = new StringBuilder();
+         Selection          selection = makeSelectionAndSQL(queryInput, tableName, params, table, sql);
 
          Connection connection;
          boolean    needToCloseConnection = false;
@@ -114,7 +151,8 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
             needToCloseConnection = true;
          }
 
-         Long mark = System.currentTimeMillis();
+         Long    mark                  = System.currentTimeMillis();
+         boolean autoCommitBeforeQuery = connection.getAutoCommit();
 
          try
          {
@@ -149,39 +187,36 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
                /////////////////////////////////////////////////////////////////////////
                actionTimeoutHelper.cancel();
 
-               ResultSetMetaData metaData = resultSet.getMetaData();
+               //////////////////////////////////////////////////////////////////////////
+               // all rows share one field index, with a slot per selected column - so //
+               // each record's values are just an array, rather than a LinkedHashMap. //
+               // the reader for each column is also set up once, here, not per row.   //
+               //////////////////////////////////////////////////////////////////////////
+               ResultSetMetaData metaData         = resultSet.getMetaData();
+               QRecordFieldIndex fieldIndex       = new QRecordFieldIndex(selection.fields().stream().map(QFieldMetaData::getName).toList());
+               ColumnReader[]    columnReaders    = makeColumnReaders(selection, fieldIndex, metaData.getColumnCount(), queryInput.getShouldFetchHeavyFields());
+               AsyncJobCallback  asyncJobCallback = queryInput.getAsyncJobCallback();
+               int               rowCount         = 0;
                while(resultSet.next())
                {
-                  setQueryStatFirstResultTime();
+                  if(rowCount++ == 0)
+                  {
+                     setQueryStatFirstResultTime();
+                  }
 
                   QRecord record = new QRecord();
                   record.setTableName(table.getName());
-                  LinkedHashMap<String, Serializable> values = new LinkedHashMap<>();
+                  QRecordValueMap values = new QRecordValueMap(fieldIndex);
                   record.setValues(values);
 
-                  for(int i = 1; i <= metaData.getColumnCount(); i++)
+                  for(int i = 0; i < columnReaders.length; i++)
                   {
-                     QFieldMetaData field = selection.fields().get(i - 1);
-
-                     if(!queryInput.getShouldFetchHeavyFields() && field.getIsHeavy())
-                     {
-                        ///////////////////////////////////////////////////////////////////////////////////
-                        // if this is a non-fetched heavy field (e.g., we just fetched its length), then //
-                        // get the value here as an INTEGER, not a BLOB or whatever the field would be   //
-                        ///////////////////////////////////////////////////////////////////////////////////
-                        Serializable fieldLength = getFieldValueFromResultSet(QFieldType.INTEGER, resultSet, i);
-                        setHeavyFieldLengthInRecordBackendDetails(record, field, fieldLength);
-                     }
-                     else
-                     {
-                        Serializable value = getFieldValueFromResultSet(field, resultSet, i);
-                        values.put(field.getName(), value);
-                     }
+                     columnReaders[i].readColumn(resultSet, i + 1, record, values);
                   }
 
                   queryOutput.addRecord(record);
 
-                  if(queryInput.getAsyncJobCallback().wasCancelRequested())
+                  if(rowCount % CANCEL_CHECK_INTERVAL_ROWS == 0 && asyncJobCallback.wasCancelRequested())
                   {
                      LOG.info("Breaking query job, as requested.");
                      break;
@@ -209,6 +244,8 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
                actionTimeoutHelper.cancel();
             }
 
+            restoreAutoCommitIfNeeded(connection, autoCommitBeforeQuery);
+
             if(needToCloseConnection)
             {
                connection.close();
@@ -236,15 +273,86 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
 
 
    /***************************************************************************
-    **
+    ** build the Selection and the SQL (into the sql param, populating params)
+    ** for a query - or, if the query-SQL cache is enabled and has an entry for
+    ** this query's shape, take those from the cache, and just populate params.
     ***************************************************************************/
-   private StringBuilder makeSQL(QueryInput queryInput, Selection selection, String tableName, List<Serializable> params, QTableMetaData table) throws QException
+   private Selection makeSelectionAndSQL(QueryInput queryInput, String tableName, List<Serializable> params, QTableMetaData table, StringBuilder sql) throws QException
    {
+      long         startNanos   = System.nanoTime();
       QQueryFilter filter       = clonedOrNewFilter(queryInput.getFilter());
       JoinsContext joinsContext = new JoinsContext(QContext.getQInstance(), tableName, queryInput.getQueryJoins(), filter);
 
-      StringBuilder sql = new StringBuilder();
+      Selection                                selection;
+      String                                   cacheKey     = makeQuerySQLCacheKey(queryInput, tableName, table, joinsContext, filter);
+      Optional<MemoizedResult<CachedQuerySQL>> cachedResult = cacheKey == null ? Optional.empty() : querySQLCache.getMemoizedResult(cacheKey);
+      if(cachedResult.isPresent())
+      {
+         ////////////////////////////////////////////////////////////////////////////////
+         // on a cache hit, the SQL is re-used as-is, and only the params are gathered //
+         // (in the same order as makeSQL would have), from the (security-enhanced)    //
+         // filter & joins.                                                            //
+         ////////////////////////////////////////////////////////////////////////////////
+         CachedQuerySQL cachedQuerySQL = cachedResult.get().getResult();
+         selection = cachedQuerySQL.selection();
+         sql.append(cachedQuerySQL.sql());
+
+         if(filter.getSubFilterSetOperator() != null && CollectionUtils.nullSafeHasContents(filter.getSubFilters()))
+         {
+            for(QQueryFilter subFilter : filter.getSubFilters())
+            {
+               populateParamsForFromClause(tableName, joinsContext, params);
+               populateParamsForWhereClause(joinsContext, subFilter, params);
+            }
+         }
+         else
+         {
+            populateParamsForFromClause(tableName, joinsContext, params);
+            populateParamsForWhereClause(joinsContext, filter, params);
+         }
+      }
+      else
+      {
+         selection = makeSelection(queryInput);
+         makeSQL(selection, tableName, params, table, filter, joinsContext, sql);
+
+         if(cacheKey != null)
+         {
+            querySQLCache.storeResult(cacheKey, new CachedQuerySQL(selection, sql.toString()));
+         }
+      }
+
+      if(filter.getLimit() != null)
+      {
+         sql.append(" LIMIT ").append(filter.getLimit());
 
+         if(filter.getSkip() != null)
+         {
+            // todo - other sql grammars?
+            sql.append(" OFFSET ").append(filter.getSkip());
+         }
+      }
+
+      // todo sql customization - can edit sql and/or param list
+
+      setSqlAndJoinsInQueryStat(sql, joinsContext);
+      if(queryStat != null)
+      {
+         queryStat.setSqlBuildMicros((System.nanoTime() - startNanos) / 1000);
+         queryStat.setSqlCacheHit(cacheKey == null ? null : cachedResult.isPresent());
+      }
+
+      return (selection);
+   }
+
+
+
+   /***************************************************************************
+    ** build the SQL for a query (into the sql param, populating params) - up to,
+    ** but not including, its LIMIT & OFFSET.
+    ***************************************************************************/
+   private void makeSQL(Selection selection, String tableName, List<Serializable> params, QTableMetaData table, QQueryFilter filter, JoinsContext joinsContext, StringBuilder sql) throws QException
+   {
       if(filter != null && filter.getSubFilterSetOperator() != null && CollectionUtils.nullSafeHasContents(filter.getSubFilters()))
       {
          for(QQueryFilter subFilter : filter.getSubFilters())
@@ -283,22 +391,168 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
             sql.append(" ORDER BY ").append(makeOrderByClause(table, filter.getOrderBys(), joinsContext));
          }
       }
+   }
 
-      if(filter != null && filter.getLimit() != null)
+
+
+   /***************************************************************************
+    ** build the key for the query-SQL cache for a query - that is, a string that
+    ** describes everything that goes into the query's SQL (but not its params) -
+    ** so, the table, the fields being selected, the joins, and the structure of
+    ** the filter (with only the number of values in each criteria), after any
+    ** security criteria were added to it (when the joinsContext was built).
+    **
+    ** returns null if the cache is not enabled, or if this query can't use it
+    ** (e.g., if table personalization may be in play).
+    ***************************************************************************/
+   private String makeQuerySQLCacheKey(QueryInput queryInput, String tableName, QTableMetaData table, JoinsContext joinsContext, QQueryFilter filter)
+   {
+      if(!querySQLCacheEnabled)
       {
-         sql.append(" LIMIT ").append(filter.getLimit());
+         return (null);
+      }
 
-         if(filter.getSkip() != null)
+      ////////////////////////////////////////////////////////////////////////////////
+      // personalization can vary tables' fields per-user, so don't cache with it - //
+      // nor if the table given in the input isn't the instance's (e.g., was        //
+      // already personalized)                                                      //
+      ////////////////////////////////////////////////////////////////////////////////
+      QInstance instance = QContext.getQInstance();
+      if(instance.getSupplementalCustomizer(TableMetaDataPersonalizerInterface.CUSTOMIZER_TYPE) != null || table != instance.getTable(tableName))
+      {
+         return (null);
+      }
+
+      ///////////////////////////////////////////////////////////////////
+      // cached SQL is only valid for the instance it was built under. //
+      ///////////////////////////////////////////////////////////////////
+      if(instance != querySQLCacheInstance)
+      {
+         querySQLCache.clear();
+         querySQLCacheInstance = instance;
+      }
+
+      StringBuilder key = new StringBuilder();
+      key.append(queryInput.getBackend().getName()).append('|').append(tableName);
+      key.append("|fields=").append(queryInput.getFieldNamesToInclude() == null ? "*" : new TreeSet<>(queryInput.getFieldNamesToInclude()));
+      key.append("|heavy=").append(queryInput.getShouldFetchHeavyFields());
+      key.append("|distinct=").append(queryInput.getSelectDistinct());
+
+      for(QueryJoin queryJoin : CollectionUtils.nonNullList(joinsContext.getQueryJoins()))
+      {
+         key.append("|join=").append(queryJoin.getType())
+            .append(',').append(queryJoin.getJoinTable())
+            .append(',').append(queryJoin.getAlias())
+            .append(',').append(queryJoin.getBaseTableOrAlias())
+            .append(',').append(queryJoin.getSelect())
+            .append(',').append(queryJoin.getJoinMetaData() == null ? null : queryJoin.getJoinMetaData().getName());
+
+         for(QFilterCriteria criteria : CollectionUtils.nonNullList(queryJoin.getSecurityCriteria()))
          {
-            // todo - other sql grammars?
-            sql.append(" OFFSET ").append(filter.getSkip());
+            appendCriteriaToQuerySQLCacheKey(key, criteria);
          }
       }
 
-      // todo sql customization - can edit sql and/or param list
+      key.append("|filter=");
+      if(!appendFilterToQuerySQLCacheKey(key, filter))
+      {
+         return (null);
+      }
 
-      setSqlAndJoinsInQueryStat(sql, joinsContext);
-      return sql;
+      return (key.toString());
+   }
+
+
+
+   /***************************************************************************
+    ** append the structure of a filter to a query-SQL cache key.  returns false
+    ** if the filter has something that the key can't describe (in which case,
+    ** the query shouldn't be cached).
+    ***************************************************************************/
+   private boolean appendFilterToQuerySQLCacheKey(StringBuilder key, QQueryFilter filter)
+   {
+      key.append('(').append(filter.getBooleanOperator()).append(',').append(filter.getSubFilterSetOperator());
+
+      for(QFilterCriteria criteria : CollectionUtils.nonNullList(filter.getCriteria()))
+      {
+         appendCriteriaToQuerySQLCacheKey(key, criteria);
+      }
+
+      for(QFilterOrderBy orderBy : CollectionUtils.nonNullList(filter.getOrderBys()))
+      {
+         ////////////////////////////////////////////////////////////////////
+         // only plain order-bys here - not sub-classes (e.g., aggregates) //
+         ////////////////////////////////////////////////////////////////////
+         if(!QFilterOrderBy.class.equals(orderBy.getClass()))
+         {
+            return (false);
+         }
+         key.append(",orderBy:").append(orderBy.getFieldName()).append(':').append(orderBy.getIsAscending());
+      }
+
+      for(QQueryFilter subFilter : CollectionUtils.nonNullList(filter.getSubFilters()))
+      {
+         if(!appendFilterToQuerySQLCacheKey(key, subFilter))
+         {
+            return (false);
+         }
+      }
+
+      key.append(')');
+      return (true);
+   }
+
+
+
+   /***************************************************************************
+    ** append the structure of a criteria to a query-SQL cache key - note, just
+    ** the number of values, not the values themselves.
+    ***************************************************************************/
+   private void appendCriteriaToQuerySQLCacheKey(StringBuilder key, QFilterCriteria criteria)
+   {
+      key.append(",[").append(criteria.getFieldName())
+         .append(':').append(criteria.getOperator())
+         .append(':').append(criteria.getOtherFieldName())
+         .append(':').append(criteria.getTupleFieldNames())
+         .append(':').append(criteria.getValues() == null ? -1 : criteria.getValues().size())
+         .append(']');
+   }
+
+
+
+   /*******************************************************************************
+    ** Getter for querySQLCacheEnabled
+    **
+    *******************************************************************************/
+   public static boolean getQuerySQLCacheEnabled()
+   {
+      return (querySQLCacheEnabled);
+   }
+
+
+
+   /*******************************************************************************
+    ** Setter for querySQLCacheEnabled - e.g., to turn the query-SQL cache on or
+    ** off at runtime (its default comes from the qqq.rdbms.querySQLCache.enabled
+    ** system property or QQQ_RDBMS_QUERY_SQL_CACHE_ENABLED env var).  The cache is
+    ** cleared either way.
+    **
+    *******************************************************************************/
+   public static void setQuerySQLCacheEnabled(boolean querySQLCacheEnabled)
+   {
+      RDBMSQueryAction.querySQLCacheEnabled = querySQLCacheEnabled;
+      querySQLCache.clear();
+   }
+
+
+
+   /*******************************************************************************
+    ** Get statistics (hits, misses, etc) from the query-SQL cache.
+    **
+    *******************************************************************************/
+   public static MemoizationStatistics getQuerySQLCacheStatistics()
+   {
+      return (querySQLCache.getStatistics());
    }
 
 
@@ -328,6 +582,55 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
 
 
 
+   /***************************************************************************
+    ** reads one column of a result set's current row into a record (e.g., into
+    ** its slot in the record's values, or its heavy-field-length backend detail).
+    ***************************************************************************/
+   @FunctionalInterface
+   private interface ColumnReader
+   {
+      /***************************************************************************
+       **
+       ***************************************************************************/
+      void readColumn(ResultSet resultSet, int i, QRecord record, QRecordValueMap values) throws SQLException;
+   }
+
+
+
+   /*******************************************************************************
+    ** build the reader for each column in a query's result set - resolving, once
+    ** per query (rather than once per row & column), each column's field, its
+    ** value-reader (by type), its slot in the record values, and whether it's a
+    ** non-fetched heavy field (for which its length is read, as an INTEGER).
+    *******************************************************************************/
+   private ColumnReader[] makeColumnReaders(Selection selection, QRecordFieldIndex fieldIndex, int columnCount, boolean shouldFetchHeavyFields)
+   {
+      ColumnReader[] columnReaders = new ColumnReader[columnCount];
+      for(int i = 0; i < columnCount; i++)
+      {
+         QFieldMetaData field = selection.fields().get(i);
+
+         if(!shouldFetchHeavyFields && field.getIsHeavy())
+         {
+            ///////////////////////////////////////////////////////////////////////////////////
+            // if this is a non-fetched heavy field (e.g., we just fetched its length), then //
+            // get the value here as an INTEGER, not a BLOB or whatever the field would be   //
+            ///////////////////////////////////////////////////////////////////////////////////
+            ResultSetValueReader lengthReader = getResultSetValueReader(QFieldType.INTEGER);
+            columnReaders[i] = (resultSet, columnIndex, record, values) -> setHeavyFieldLengthInRecordBackendDetails(record, field, lengthReader.readValue(resultSet, columnIndex));
+         }
+         else
+         {
+            ResultSetValueReader valueReader = getResultSetValueReader(field.getType());
+            int                  slot        = fieldIndex.getSlot(field.getName());
+            columnReaders[i] = (resultSet, columnIndex, record, values) -> values.putInSlot(slot, valueReader.readValue(resultSet, columnIndex));
+         }
+      }
+      return (columnReaders);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -484,37 +787,43 @@ public class RDBMSQueryAction extends AbstractRDBMSAction implements QueryInterf
 
 
    /*******************************************************************************
-    **
+    ** let the action strategy prepare a streaming statement, if it will stream
+    ** this query (e.g., a large export, or a query feeding a record pipe) -
+    ** else, a plain statement.
     *******************************************************************************/
    private PreparedStatement createStatement(Connection connection, String sql, QueryInput queryInput) throws SQLException
    {
-      /////////////////////////////////////////////////////////////////////////
-      // if we're allowed to use the mysqlResultSetOptimization, and we have //
-      // the query hint of "potentially large no of results", then check if  //
-      // our backend is indeed mysql, and if so, then apply those settings.  //
-      /////////////////////////////////////////////////////////////////////////
-      if(mysqlResultSetOptimizationEnabled && queryInput.hasQueryHint(QueryHint.POTENTIALLY_LARGE_NUMBER_OF_RESULTS))
+      PreparedStatement statement = getActionStrategy().prepareStreamingStatement(connection, sql, queryInput);
+      if(statement != null)
       {
-         RDBMSBackendMetaData rdbmsBackendMetaData = (RDBMSBackendMetaData) queryInput.getBackend();
+         return (statement);
+      }
+
+      return (connection.prepareStatement(sql));
+   }
+
 
-         if(RDBMSBackendMetaData.VENDOR_MYSQL.equals(rdbmsBackendMetaData.getVendor()) || RDBMSBackendMetaData.VENDOR_AURORA_MYSQL.equals(rdbmsBackendMetaData.getVendor()))
+
+   /*******************************************************************************
+    ** if the action strategy turned off auto-commit to stream the query (e.g.,
+    ** postgres only uses a cursor within a transaction), end that transaction
+    ** (it was read-only) and turn auto-commit back on - as the connection may be
+    ** going back to a pool, or be used again by the caller.
+    *******************************************************************************/
+   private void restoreAutoCommitIfNeeded(Connection connection, boolean autoCommitBeforeQuery)
+   {
+      try
+      {
+         if(autoCommitBeforeQuery && !connection.isClosed() && !connection.getAutoCommit())
          {
-            //////////////////////////////////////////////////////////////////////////////////////////////////////
-            // mysql "optimization", presumably here - from Result Set section of                               //
-            // https://dev.mysql.com/doc/connector-j/en/connector-j-reference-implementation-notes.html without //
-            // this change, we saw ~10 seconds of "wait" time, before results would start to stream out of a    //
-            // large query (e.g., > 1,000,000 rows).                                                            //
-            // with this change, we start to get results immediately, and the total runtime also seems lower... //
-            // perhaps more importantly, without this change, the whole result set goes into memory - but with  //
-            // this change, it is streamed.                                                                     //
-            //////////////////////////////////////////////////////////////////////////////////////////////////////
-            PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-            statement.setFetchSize(Integer.MIN_VALUE);
-            return (statement);
+            connection.rollback();
+            connection.setAutoCommit(true);
          }
       }
-
-      return (connection.prepareStatement(sql));
+      catch(SQLException e)
+      {
+         LOG.warn("Error restoring auto-commit after query", e);
+      }
    }
 
 
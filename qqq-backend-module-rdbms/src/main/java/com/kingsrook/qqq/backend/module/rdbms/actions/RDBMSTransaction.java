@@ -116,6 +116,8 @@ public class RDBMSTransaction extends QBackendTransaction
          /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
          openedAt = Instant.now();
       }
+
+      runPostCommitActions();
    }
 
 
@@ -126,6 +128,7 @@ public class RDBMSTransaction extends QBackendTransaction
    @Override
    public void rollback() throws QException
    {
+      clearPostCommitActions();
       try
       {
          LOG.info("Rolling back transaction");
@@ -27,6 +27,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -55,6 +56,12 @@ public class RDBMSUpdateAction extends AbstractRDBMSAction implements UpdateInte
 {
    private static final QLogger LOG = QLogger.getLogger(RDBMSUpdateAction.class);
 
+   //////////////////////////////////////////////////////////////////////////////
+   // cap on bind-params in a multi-row update statement - well under the      //
+   // limits of the supported vendors (65535 in mysql & postgres; 32766 sqlite) //
+   //////////////////////////////////////////////////////////////////////////////
+   private static final int MULTI_ROW_UPDATE_MAX_PARAMS = 30_000;
+
    private int statusCounter = 0;
 
 
@@ -176,6 +183,17 @@ public class RDBMSUpdateAction extends AbstractRDBMSAction implements UpdateInte
          return;
       }
 
+      ///////////////////////////////////////////////////////////////////////////////
+      // if the strategy supports it, and there are enough records, write them as  //
+      // one statement per page, rather than a batch with one statement per record //
+      ///////////////////////////////////////////////////////////////////////////////
+      Integer multiRowUpdateMinRows = getActionStrategy().getMultiRowUpdateMinRows();
+      if(multiRowUpdateMinRows != null && values.size() >= multiRowUpdateMinRows && !hasRepeatedIds(values))
+      {
+         updateRecordsWithMultiRowStatements(updateInput, connection, table, values, fieldsBeingUpdated);
+         return;
+      }
+
       Long mark = System.currentTimeMillis();
 
       ////////////////////////////////////////////////////////////////////////////////
@@ -194,6 +212,77 @@ public class RDBMSUpdateAction extends AbstractRDBMSAction implements UpdateInte
 
 
 
+   /*******************************************************************************
+    ** write pages of rows (each being the values for fieldsBeingUpdated, then the
+    ** id) as single statements, of the form:
+    **    UPDATE t SET c1 = CASE id WHEN ? THEN ? ... ELSE c1 END, c2 = ...
+    **    WHERE id IN (?, ...)
+    *******************************************************************************/
+   private void updateRecordsWithMultiRowStatements(UpdateInput updateInput, Connection connection, QTableMetaData table, List<List<Serializable>> values, List<String> fieldsBeingUpdated) throws SQLException
+   {
+      String idColumn         = escapeIdentifier(getColumnName(table.getField(table.getPrimaryKeyField())));
+      int    idIndex          = fieldsBeingUpdated.size();
+      int    paramsPerRow     = 2 * fieldsBeingUpdated.size() + 1;
+      int    rowsPerStatement = Math.max(1, Math.min(getActionStrategy().getPageSize(updateInput), MULTI_ROW_UPDATE_MAX_PARAMS / paramsPerRow));
+
+      for(List<List<Serializable>> page : CollectionUtils.getPages(values, rowsPerStatement))
+      {
+         StringBuilder sql    = new StringBuilder("UPDATE ").append(escapeIdentifier(getTableName(table))).append(" SET ");
+         List<Object>  params = new ArrayList<>();
+
+         for(int i = 0; i < fieldsBeingUpdated.size(); i++)
+         {
+            String column = escapeIdentifier(getColumnName(table.getField(fieldsBeingUpdated.get(i))));
+            sql.append(i == 0 ? "" : ", ").append(column).append(" = CASE ").append(idColumn);
+            for(List<Serializable> row : page)
+            {
+               sql.append(" WHEN ? THEN ?");
+               params.add(row.get(idIndex));
+               params.add(row.get(i));
+            }
+            sql.append(" ELSE ").append(column).append(" END");
+         }
+
+         sql.append(" WHERE ").append(idColumn).append(" IN (").append(StringUtils.join(",", Collections.nCopies(page.size(), "?"))).append(")");
+         for(List<Serializable> row : page)
+         {
+            params.add(row.get(idIndex));
+         }
+
+         Long mark = System.currentTimeMillis();
+         try
+         {
+            getActionStrategy().executeUpdate(connection, sql.toString(), params);
+            incrementStatus(updateInput, page.size());
+         }
+         finally
+         {
+            logSQL(sql, params, mark);
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** a CASE only applies its first matching WHEN - so, if an id is in the list
+    ** more than once, the multi-row form can't be used (a batch applies each).
+    *******************************************************************************/
+   private static boolean hasRepeatedIds(List<List<Serializable>> values)
+   {
+      HashSet<Serializable> ids = new HashSet<>();
+      for(List<Serializable> row : values)
+      {
+         if(!ids.add(row.get(row.size() - 1)))
+         {
+            return (true);
+         }
+      }
+      return (false);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -0,0 +1,227 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.rdbms.actions;
+
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import com.kingsrook.qqq.backend.core.actions.interfaces.UpsertInterface;
+import com.kingsrook.qqq.backend.core.actions.tables.UpsertAction;
+import com.kingsrook.qqq.backend.core.actions.tables.helpers.UniqueKeyHelper;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.logging.QLogger;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.QTableMetaData;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
+import com.kingsrook.qqq.backend.core.utils.StringUtils;
+
+
+/*******************************************************************************
+ ** Native upsert for RDBMS tables - one multi-row INSERT per page, with the
+ ** action strategy's vendor-specific "on conflict, update" clause.
+ *******************************************************************************/
+public class RDBMSUpsertAction extends AbstractRDBMSAction implements UpsertInterface
+{
+   private static final QLogger LOG = QLogger.getLogger(RDBMSUpsertAction.class);
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   public UpsertOutput execute(UpsertInput upsertInput) throws QException
+   {
+      UpsertOutput   rs    = new UpsertOutput();
+      QTableMetaData table = upsertInput.getTable();
+      setBackendMetaData(upsertInput.getBackend());
+
+      Connection connection            = null;
+      boolean    needToCloseConnection = false;
+
+      StringBuilder sql    = null;
+      List<Object>  params = null;
+      Long          mark   = null;
+
+      try
+      {
+         UniqueKey uniqueKey = upsertInput.getKey();
+
+         List<QFieldMetaData> insertableFields = table.getFields().values().stream()
+            .filter(field -> !field.getName().equals(table.getPrimaryKeyField()))
+            .toList();
+
+         Set<String> fieldNamesToUpdate = upsertInput.getFieldNamesToUpdate() != null ? upsertInput.getFieldNamesToUpdate()
+            : UpsertAction.getDefaultFieldNamesToUpdate(table, uniqueKey, upsertInput.getRecords());
+
+         List<String> keyColumnNames = uniqueKey.getFieldNames().stream()
+            .map(fieldName -> escapeIdentifier(getColumnName(table.getField(fieldName))))
+            .toList();
+
+         List<String> updateColumnNames = insertableFields.stream()
+            .filter(f -> fieldNamesToUpdate.contains(f.getName()) && !uniqueKey.getFieldNames().contains(f.getName()))
+            .map(f -> escapeIdentifier(getColumnName(f)))
+            .toList();
+
+         String columns = insertableFields.stream()
+            .map(f -> escapeIdentifier(getColumnName(f)))
+            .collect(Collectors.joining(", "));
+         String questionMarks = insertableFields.stream()
+            .map(x -> "?")
+            .collect(Collectors.joining(", "));
+
+         List<QRecord> outputRecords = new ArrayList<>();
+         rs.setRecords(outputRecords);
+
+         if(upsertInput.getTransaction() != null && upsertInput.getTransaction() instanceof RDBMSTransaction rdbmsTransaction)
+         {
+            connection = rdbmsTransaction.getConnection();
+         }
+         else
+         {
+            connection = getConnection(upsertInput);
+            needToCloseConnection = true;
+         }
+
+         String backendTableName = escapeIdentifier(getTableName(table));
+         for(List<QRecord> page : getPagesWithoutRepeatedKeys(table, uniqueKey, upsertInput.getRecords(), getActionStrategy().getPageSize(upsertInput)))
+         {
+            sql = new StringBuilder("INSERT INTO ").append(backendTableName).append("(").append(columns).append(") VALUES");
+            params = new ArrayList<>();
+            int recordIndex = 0;
+
+            for(QRecord record : page)
+            {
+               if(CollectionUtils.nullSafeHasContents(record.getErrors()))
+               {
+                  continue;
+               }
+
+               if(recordIndex++ > 0)
+               {
+                  sql.append(",");
+               }
+               sql.append("(").append(questionMarks).append(")");
+
+               for(QFieldMetaData field : insertableFields)
+               {
+                  params.add(scrubValue(field, record.getValue(field.getName())));
+               }
+            }
+
+            List<Serializable> idList = null;
+            if(recordIndex > 0)
+            {
+               mark = System.currentTimeMillis();
+               idList = getActionStrategy().executeUpsertForIds(connection, sql.toString(), params, keyColumnNames, updateColumnNames, table.getField(table.getPrimaryKeyField()));
+               logSQL(sql, params, mark);
+            }
+
+            //////////////////////////////////////////////////////////////////////
+            // add each record to the output - with its id, if the strategy was //
+            // able to report them (else, leaving whatever the input had).      //
+            //////////////////////////////////////////////////////////////////////
+            int index = 0;
+            for(QRecord record : page)
+            {
+               QRecord outputRecord = new QRecord(record);
+               if(!StringUtils.hasContent(outputRecord.getTableName()))
+               {
+                  outputRecord.setTableName(table.getName());
+               }
+               outputRecords.add(outputRecord);
+
+               if(idList != null && CollectionUtils.nullSafeIsEmpty(record.getErrors()) && idList.size() > index)
+               {
+                  outputRecord.setValue(table.getPrimaryKeyField(), idList.get(index++));
+               }
+            }
+         }
+
+         return rs;
+      }
+      catch(Exception e)
+      {
+         logSQL(sql, params, mark);
+         throw new QException("Error executing upsert: " + e.getMessage(), e);
+      }
+      finally
+      {
+         if(needToCloseConnection && connection != null)
+         {
+            try
+            {
+               connection.close();
+            }
+            catch(SQLException se)
+            {
+               LOG.error("Error closing database connection", se);
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** split records into pages of up to pageSize - but also starting a new page
+    ** whenever a key repeats, as one upsert statement can't affect a row twice.
+    *******************************************************************************/
+   private List<List<QRecord>> getPagesWithoutRepeatedKeys(QTableMetaData table, UniqueKey uniqueKey, List<QRecord> records, int pageSize)
+   {
+      List<List<QRecord>>     pages       = new ArrayList<>();
+      List<QRecord>           currentPage = new ArrayList<>();
+      Set<List<Serializable>> keysInPage  = new HashSet<>();
+
+      for(QRecord record : records)
+      {
+         Optional<List<Serializable>> keyValues = UniqueKeyHelper.getKeyValues(table, uniqueKey, record, false);
+         if(currentPage.size() >= pageSize || (keyValues.isPresent() && keysInPage.contains(keyValues.get())))
+         {
+            pages.add(currentPage);
+            currentPage = new ArrayList<>();
+            keysInPage.clear();
+         }
+
+         currentPage.add(record);
+         keyValues.ifPresent(keysInPage::add);
+      }
+
+      if(!currentPage.isEmpty())
+      {
+         pages.add(currentPage);
+      }
+
+      return (pages);
+   }
+
+}
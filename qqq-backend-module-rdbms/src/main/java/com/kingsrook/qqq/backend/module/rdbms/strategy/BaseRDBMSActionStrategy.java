@@ -49,14 +49,18 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import com.kingsrook.qqq.backend.core.actions.ActionHelper;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.instances.QMetaDataVariableInterpreter;
 import com.kingsrook.qqq.backend.core.logging.QLogger;
 import com.kingsrook.qqq.backend.core.model.actions.AbstractActionInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.QueryHint;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
 import com.kingsrook.qqq.backend.core.model.metadata.possiblevalues.PossibleValueEnum;
 import com.kingsrook.qqq.backend.core.utils.CollectionUtils;
 import com.kingsrook.qqq.backend.module.rdbms.jdbc.QueryManager;
+import com.kingsrook.qqq.backend.module.rdbms.model.metadata.RDBMSBackendMetaData;
 import static com.kingsrook.qqq.backend.core.logging.LogUtils.logPair;
 
 
@@ -72,12 +76,41 @@ public class BaseRDBMSActionStrategy implements RDBMSActionStrategyInterface
    public static final int DEFAULT_PAGE_SIZE = 2000;
    public static       int PAGE_SIZE         = DEFAULT_PAGE_SIZE;
 
+   ////////////////////////////////////////////////////////////////////////////
+   // rows per round-trip, when streaming a query's results from the server. //
+   ////////////////////////////////////////////////////////////////////////////
+   public static final int DEFAULT_STREAMING_FETCH_SIZE = 1000;
+   public static       int STREAMING_FETCH_SIZE         = DEFAULT_STREAMING_FETCH_SIZE;
+
+   ///////////////////////////////////////////////////////////////////////////////
+   // minimum rows with differing values, for an update to be written as one    //
+   // statement (SET col = CASE id WHEN ...), instead of a JDBC batch.          //
+   ///////////////////////////////////////////////////////////////////////////////
+   public static final int DEFAULT_MULTI_ROW_UPDATE_MIN_ROWS = 10;
+   public static       int MULTI_ROW_UPDATE_MIN_ROWS         = DEFAULT_MULTI_ROW_UPDATE_MIN_ROWS;
+
+   private static boolean mysqlResultSetOptimizationEnabled = false;
+
    private       boolean              collectStatistics = false;
    private final Map<String, Integer> statistics        = Collections.synchronizedMap(new HashMap<>());
 
    public static final String STAT_QUERIES_RAN = "queriesRan";
    public static final String STAT_BATCHES_RAN = "batchesRan";
 
+   static
+   {
+      try
+      {
+         mysqlResultSetOptimizationEnabled = new QMetaDataVariableInterpreter().getBooleanFromPropertyOrEnvironment("qqq.rdbms.mysql.resultSetOptimizationEnabled", "QQQ_RDBMS_MYSQL_RESULT_SET_OPTIMIZATION_ENABLED", false);
+         STREAMING_FETCH_SIZE = new QMetaDataVariableInterpreter().getIntegerFromPropertyOrEnvironment("qqq.rdbms.streamingFetchSize", "QQQ_RDBMS_STREAMING_FETCH_SIZE", DEFAULT_STREAMING_FETCH_SIZE);
+         MULTI_ROW_UPDATE_MIN_ROWS = new QMetaDataVariableInterpreter().getIntegerFromPropertyOrEnvironment("qqq.rdbms.multiRowUpdateMinRows", "QQQ_RDBMS_MULTI_ROW_UPDATE_MIN_ROWS", DEFAULT_MULTI_ROW_UPDATE_MIN_ROWS);
+      }
+      catch(Exception e)
+      {
+         LOG.warn("Error reading property/env for rdbms action strategy", e);
+      }
+   }
+
 
 
    /***************************************************************************
@@ -287,6 +320,32 @@ public class BaseRDBMSActionStrategy implements RDBMSActionStrategyInterface
 
 
 
+   /***************************************************************************
+    ** return the QueryManager method for the type directly - so a query that
+    ** resolves its columns' readers up-front doesn't switch on the type for
+    ** every value.  Subclasses that override getFieldValueFromResultSet for a
+    ** type must override this for that type too.
+    ***************************************************************************/
+   @Override
+   public ResultSetValueReader getResultSetValueReader(QFieldType type)
+   {
+      return switch(type)
+      {
+         case STRING, TEXT, HTML, PASSWORD -> (QueryManager::getString);
+         case INTEGER -> (QueryManager::getInteger);
+         case LONG -> (QueryManager::getLong);
+         case DECIMAL -> (QueryManager::getBigDecimal);
+         case DATE -> (QueryManager::getDate);
+         case TIME -> (QueryManager::getLocalTime);
+         case DATE_TIME -> (QueryManager::getInstant);
+         case BOOLEAN -> (QueryManager::getBoolean);
+         case BLOB -> (QueryManager::getByteArray);
+         default -> ((resultSet, i) -> getFieldValueFromResultSet(type, resultSet, i));
+      };
+   }
+
+
+
    /***************************************************************************
     *
     ***************************************************************************/
@@ -359,6 +418,47 @@ public class BaseRDBMSActionStrategy implements RDBMSActionStrategyInterface
 
 
 
+   /***************************************************************************
+    ** MySQL-style upsert (which H2, run in its MySQL mode, also supports).  Note
+    ** that ON DUPLICATE KEY fires for a conflict on any unique index, and that
+    ** mysql can't report the ids of updated rows from a multi-row statement -
+    ** so this returns null.
+    ***************************************************************************/
+   @Override
+   public List<Serializable> executeUpsertForIds(Connection connection, String insertSQL, List<Object> params, List<String> keyColumnNames, List<String> updateColumnNames, QFieldMetaData primaryKeyField) throws SQLException
+   {
+      ////////////////////////////////////////////////////////////////////////////
+      // with nothing to update, set the key to itself - a no-op update, which //
+      // keeps the statement valid, and doesn't fail on the conflicting rows   //
+      ////////////////////////////////////////////////////////////////////////////
+      List<String> setColumnNames = CollectionUtils.nullSafeHasContents(updateColumnNames) ? updateColumnNames : keyColumnNames;
+
+      String sql = insertSQL + " ON DUPLICATE KEY UPDATE " + setColumnNames.stream()
+         .map(c -> c + " = VALUES(" + c + ")")
+         .collect(Collectors.joining(", "));
+
+      executeUpdateForRowCount(connection, sql, params.toArray());
+      return (null);
+   }
+
+
+
+   /***************************************************************************
+    ** build the ON CONFLICT (...) DO UPDATE SET ... clause used for upserts by
+    ** vendors that support it (postgres, sqlite).  Requires a unique index (or
+    ** constraint) on exactly the key columns.
+    ***************************************************************************/
+   protected String buildOnConflictDoUpdateClause(List<String> keyColumnNames, List<String> updateColumnNames)
+   {
+      List<String> setColumnNames = CollectionUtils.nullSafeHasContents(updateColumnNames) ? updateColumnNames : keyColumnNames;
+
+      return (" ON CONFLICT (" + String.join(", ", keyColumnNames) + ") DO UPDATE SET " + setColumnNames.stream()
+         .map(c -> c + " = EXCLUDED." + c)
+         .collect(Collectors.joining(", ")));
+   }
+
+
+
    /***************************************************************************
     *
     ***************************************************************************/
@@ -430,6 +530,70 @@ public class BaseRDBMSActionStrategy implements RDBMSActionStrategyInterface
 
 
 
+   /***************************************************************************
+    ** the vendors supported here handle the CASE form of a multi-row update -
+    ** where the ELSE (the column itself) gives the CASE its type - except for
+    ** PostgreSQL, whose strategy turns this off.
+    ***************************************************************************/
+   @Override
+   public Integer getMultiRowUpdateMinRows()
+   {
+      return (MULTI_ROW_UPDATE_MIN_ROWS);
+   }
+
+
+
+   /***************************************************************************
+    ** Stream queries that are hinted as potentially having a large number of
+    ** results, or that are feeding a RecordPipe.
+    **
+    ** For MySQL, this is the driver's row-by-row streaming mode (fetch size of
+    ** Integer.MIN_VALUE) - but only for hinted queries, and only if enabled via
+    ** qqq.rdbms.mysql.resultSetOptimizationEnabled - as, in that mode, no other
+    ** statement can be run on the connection until the result set is closed.
+    **
+    ** For other vendors, a forward-only, read-only statement with a fetch size
+    ** of STREAMING_FETCH_SIZE.  Drivers that stream natively (e.g., SQLite) or
+    ** that spill large results to disk (e.g., embedded H2) treat that as a hint.
+    ***************************************************************************/
+   @Override
+   public PreparedStatement prepareStreamingStatement(Connection connection, String sql, QueryInput queryInput) throws SQLException
+   {
+      boolean isHintedLarge = queryInput.hasQueryHint(QueryHint.POTENTIALLY_LARGE_NUMBER_OF_RESULTS);
+      if(!isHintedLarge && queryInput.getRecordPipe() == null)
+      {
+         return (null);
+      }
+
+      String vendor = queryInput.getBackend() instanceof RDBMSBackendMetaData rdbmsBackendMetaData ? rdbmsBackendMetaData.getVendor() : null;
+      if(RDBMSBackendMetaData.VENDOR_MYSQL.equals(vendor) || RDBMSBackendMetaData.VENDOR_AURORA_MYSQL.equals(vendor))
+      {
+         if(!mysqlResultSetOptimizationEnabled || !isHintedLarge)
+         {
+            return (null);
+         }
+
+         //////////////////////////////////////////////////////////////////////////////////////////////////////
+         // mysql "optimization", presumably here - from Result Set section of                               //
+         // https://dev.mysql.com/doc/connector-j/en/connector-j-reference-implementation-notes.html without //
+         // this change, we saw ~10 seconds of "wait" time, before results would start to stream out of a    //
+         // large query (e.g., > 1,000,000 rows).                                                            //
+         // with this change, we start to get results immediately, and the total runtime also seems lower... //
+         // perhaps more importantly, without this change, the whole result set goes into memory - but with  //
+         // this change, it is streamed.                                                                     //
+         //////////////////////////////////////////////////////////////////////////////////////////////////////
+         PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+         statement.setFetchSize(Integer.MIN_VALUE);
+         return (statement);
+      }
+
+      PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      statement.setFetchSize(STREAMING_FETCH_SIZE);
+      return (statement);
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
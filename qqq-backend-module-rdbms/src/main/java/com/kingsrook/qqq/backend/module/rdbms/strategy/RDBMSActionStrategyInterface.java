@@ -27,10 +27,13 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.util.List;
+import java.util.stream.Collectors;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.AbstractActionInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldMetaData;
 import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
 
@@ -47,12 +50,52 @@ public interface RDBMSActionStrategyInterface
     ***************************************************************************/
    Integer appendCriterionToWhereClause(QFilterCriteria criterion, StringBuilder clause, String column, List<Serializable> values, QFieldMetaData field);
 
+   /***************************************************************************
+    * for a TUPLE_IN criterion - modifies the clause StringBuilder (appending to
+    * it) for the given columns and number of tuples, returning the expected
+    * number of params to bind.
+    ***************************************************************************/
+   default Integer appendTupleInCriterionToWhereClause(QFilterCriteria criterion, StringBuilder clause, List<String> columns, int noOfTuples)
+   {
+      if(noOfTuples == 0)
+      {
+         ///////////////////////////////////////////////////////
+         // if there are no tuples, then we want a false here //
+         ///////////////////////////////////////////////////////
+         clause.append(" 0 = 1 ");
+         return (0);
+      }
+
+      String tupleMarks = "(" + columns.stream().map(x -> "?").collect(Collectors.joining(", ")) + ")";
+      clause.append("(").append(String.join(", ", columns)).append(") IN (");
+      for(int i = 0; i < noOfTuples; i++)
+      {
+         clause.append(i == 0 ? "" : ", ").append(tupleMarks);
+      }
+      clause.append(")");
+
+      return (noOfTuples * columns.size());
+   }
+
    /***************************************************************************
     *
     ***************************************************************************/
    Serializable getFieldValueFromResultSet(QFieldType type, ResultSet resultSet, int i) throws SQLException;
 
 
+   /***************************************************************************
+    ** Get a reader for values of the given type from result sets - so that a
+    ** query can look up the reader for each of its columns once, rather than
+    ** once per row.  The default defers to getFieldValueFromResultSet (so a
+    ** strategy that overrides only that method is still fully respected);
+    ** BaseRDBMSActionStrategy returns type-specific readers instead.
+    ***************************************************************************/
+   default ResultSetValueReader getResultSetValueReader(QFieldType type)
+   {
+      return ((resultSet, i) -> getFieldValueFromResultSet(type, resultSet, i));
+   }
+
+
    /***************************************************************************
     *
     ***************************************************************************/
@@ -71,6 +114,49 @@ public interface RDBMSActionStrategyInterface
    List<Serializable> executeInsertForGeneratedIds(Connection connection, String sql, List<Object> params, QFieldMetaData primaryKeyField) throws SQLException;
 
 
+   /***************************************************************************
+    ** Insert rows using a vendor-specific bulk-load mechanism (e.g., postgres
+    ** COPY), returning the ids generated for them, in the same order as the
+    ** rows.  The table and column names are given already escaped; the primary
+    ** key is not among the columns.
+    **
+    ** Returns null if this strategy will not bulk-insert these rows (e.g., there
+    ** are too few of them, or the vendor has no such mechanism) - in which case
+    ** the caller should use executeInsertForGeneratedIds instead.
+    ***************************************************************************/
+   default List<Serializable> executeBulkInsertForGeneratedIds(Connection connection, String tableName, List<String> columnNames, List<List<Serializable>> values, QFieldMetaData primaryKeyField) throws SQLException
+   {
+      return (null);
+   }
+
+
+   /***************************************************************************
+    ** The minimum number of rows for which executeBulkInsertForGeneratedIds
+    ** may be used - or null (the default) if this strategy doesn't support bulk
+    ** inserts at all (so callers needn't prepare the rows for it).
+    ***************************************************************************/
+   default Integer getBulkInsertMinRows()
+   {
+      return (null);
+   }
+
+
+   /***************************************************************************
+    ** Run an upsert:  the given multi-row INSERT statement, plus a vendor-specific
+    ** clause (e.g., ON CONFLICT / ON DUPLICATE KEY UPDATE), so that rows whose
+    ** unique-key columns match an existing row update that row's "update" columns
+    ** instead.  Column names are given already escaped.  The rows in one call
+    ** must not repeat a key.
+    **
+    ** Returns the primary keys of the inserted-or-updated rows, in the same order
+    ** as the rows - or null, if the vendor can't report them from one statement.
+    ***************************************************************************/
+   default List<Serializable> executeUpsertForIds(Connection connection, String insertSQL, List<Object> params, List<String> keyColumnNames, List<String> updateColumnNames, QFieldMetaData primaryKeyField) throws SQLException
+   {
+      throw (new SQLFeatureNotSupportedException("Upsert is not supported by this action strategy: " + getClass().getSimpleName()));
+   }
+
+
    /***************************************************************************
     *
     ***************************************************************************/
@@ -89,6 +175,41 @@ public interface RDBMSActionStrategyInterface
    Integer getPageSize(AbstractActionInput actionInput);
 
 
+   /***************************************************************************
+    ** The minimum number of records (all updating the same fields, but with
+    ** differing values) for which an update should be written as a single
+    ** statement - UPDATE t SET c = CASE id WHEN ? THEN ? ... ELSE c END WHERE
+    ** id IN (...) - rather than as a JDBC batch of one statement per record
+    ** (which, without driver-side rewriting, is a round trip per record).
+    **
+    ** Null (the default) means never use the single-statement form.
+    ***************************************************************************/
+   default Integer getMultiRowUpdateMinRows()
+   {
+      return (null);
+   }
+
+
+   /***************************************************************************
+    ** Prepare a statement for a query whose results should be streamed from
+    ** the database as they are read (e.g., into a RecordPipe, which applies
+    ** back-pressure), rather than being fully buffered in memory by the JDBC
+    ** driver before the first row is returned.  This typically means a
+    ** forward-only, read-only statement with a vendor-appropriate fetch size.
+    **
+    ** A strategy may change connection state that its driver requires for
+    ** streaming (e.g., turning off auto-commit) - the caller is responsible for
+    ** restoring it (see RDBMSQueryAction).
+    **
+    ** Returns null if this strategy will not stream this query - in which case
+    ** the caller should prepare a plain statement.
+    ***************************************************************************/
+   default PreparedStatement prepareStreamingStatement(Connection connection, String sql, QueryInput queryInput) throws SQLException
+   {
+      return (null);
+   }
+
+
    /***************************************************************************
     ** Get the string to use for quoting identifiers (table names, column names).
     ** Default is backtick for MySQL/H2/SQLite. PostgreSQL should return empty string
@@ -111,4 +232,17 @@ public interface RDBMSActionStrategyInterface
        *******************************************************************************/
       void processResultSet(ResultSet rs) throws SQLException, QException;
    }
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @FunctionalInterface
+   interface ResultSetValueReader
+   {
+      /*******************************************************************************
+       ** read the value from the (1-based) column i of the result set's current row
+       *******************************************************************************/
+      Serializable readValue(ResultSet resultSet, int i) throws SQLException;
+   }
 }
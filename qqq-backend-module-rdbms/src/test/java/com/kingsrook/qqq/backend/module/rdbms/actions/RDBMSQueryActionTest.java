@@ -23,27 +23,35 @@ package com.kingsrook.qqq.backend.module.rdbms.actions;
 
 
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import com.kingsrook.qqq.backend.core.actions.QBackendTransaction;
+import com.kingsrook.qqq.backend.core.actions.reporting.RecordPipe;
 import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
 import com.kingsrook.qqq.backend.core.actions.tables.QueryAction;
+import com.kingsrook.qqq.backend.core.actions.values.QPossibleValueTranslator;
 import com.kingsrook.qqq.backend.core.context.QContext;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.QueryHint;
 import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QCriteriaOperator;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterCriteria;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QFilterOrderBy;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QQueryFilter;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryJoin;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryOutput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.expressions.Now;
 import com.kingsrook.qqq.backend.core.model.actions.tables.query.expressions.NowWithOffset;
@@ -51,11 +59,15 @@ import com.kingsrook.qqq.backend.core.model.actions.tables.query.expressions.Thi
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
 import com.kingsrook.qqq.backend.core.model.metadata.QInstance;
 import com.kingsrook.qqq.backend.core.model.metadata.security.RecordSecurityLock;
+import com.kingsrook.qqq.backend.core.model.querystats.QueryStat;
 import com.kingsrook.qqq.backend.core.model.session.QSession;
+import com.kingsrook.qqq.backend.core.utils.Pair;
+import com.kingsrook.qqq.backend.core.utils.Timer;
 import com.kingsrook.qqq.backend.core.utils.lambdas.UnsafeFunction;
 import com.kingsrook.qqq.backend.module.rdbms.TestUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -63,6 +75,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -236,6 +249,35 @@ public class RDBMSQueryActionTest extends RDBMSActionTest
 
 
 
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testTupleInQuery() throws QException
+   {
+      QueryInput queryInput = initQueryRequest();
+      queryInput.setFilter(new QQueryFilter(QFilterCriteria.tupleIn(List.of("firstName", "homeTown"), List.of(
+         List.of("Darin", "Chester"),
+         List.of("James", "Decatur"),
+         List.of("Tim", "Decatur")))));
+      QueryOutput queryOutput = new RDBMSQueryAction().execute(queryInput);
+      assertEquals(2, queryOutput.getRecords().size(), "Expected # of rows");
+      assertTrue(queryOutput.getRecords().stream().allMatch(r -> r.getValueInteger("id").equals(1) || r.getValueInteger("id").equals(3)), "Should find expected ids");
+
+      /////////////////////////////////////////////////////
+      // OR'ed with another criteria, and with no tuples //
+      /////////////////////////////////////////////////////
+      queryInput.setFilter(new QQueryFilter()
+         .withBooleanOperator(QQueryFilter.BooleanOperator.OR)
+         .withCriteria(QFilterCriteria.tupleIn(List.of("firstName", "homeTown"), List.of()))
+         .withCriteria(new QFilterCriteria("id", QCriteriaOperator.EQUALS, 5)));
+      queryOutput = new RDBMSQueryAction().execute(queryInput);
+      assertEquals(1, queryOutput.getRecords().size(), "Expected # of rows");
+      assertEquals(5, queryOutput.getRecords().get(0).getValueInteger("id"));
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
@@ -1144,4 +1186,348 @@ public class RDBMSQueryActionTest extends RDBMSActionTest
       assertEquals(1, record.getValues().size());
    }
 
+
+
+   /*******************************************************************************
+    ** measure heap allocated (by the querying thread) and retained per record, for
+    ** a large unfiltered query - e.g., to compare record storage representations.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during compact record storage change")
+   void testQueryRecordFootprint() throws QException
+   {
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < 100_000; i++)
+      {
+         records.add(new QRecord().withValue("email", i + "@kingsrook.com").withValue("firstName", "First" + i).withValue("lastName", "Last" + i).withValue("birthDate", LocalDate.of(1980, 1, 1)));
+      }
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(records));
+      records.clear();
+
+      com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      for(int i = 0; i < 5; i++)
+      {
+         System.gc();
+         long heapBefore      = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+         long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+         Timer timer          = new Timer("queryRecordFootprint");
+
+         QueryOutput queryOutput = new RDBMSQueryAction().execute(initQueryRequest());
+
+         long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+         System.gc();
+         long retained = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() - heapBefore;
+         int  count    = queryOutput.getRecords().size();
+         timer.mark(String.format("%,d records: %,d bytes allocated/record, %,d bytes retained/record", count, allocated / count, retained / count));
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** translating possible values in pages (in parallel), while selecting only
+    ** the fields needed to build record labels, should still give full labels.
+    *******************************************************************************/
+   @Test
+   void testPossibleValueTranslationInParallelPages() throws QException
+   {
+      List<QRecord> orderRecords = new ArrayList<>();
+      for(int i = 1; i <= 5; i++)
+      {
+         orderRecords.add(new QRecord().withValue("billToPersonId", i));
+      }
+
+      QPossibleValueTranslator possibleValueTranslator = new QPossibleValueTranslator();
+      possibleValueTranslator.setPrimingPageSize(2);
+      possibleValueTranslator.setPrimingParallelism(3);
+      possibleValueTranslator.translatePossibleValuesInRecords(QContext.getQInstance().getTable(TestUtils.TABLE_NAME_ORDER), orderRecords);
+
+      assertEquals(List.of("Darin Kelkhoff", "James Maes", "Tim Chamberlain", "Tyler Samples", "Garret Richardson"),
+         orderRecords.stream().map(r -> r.getDisplayValue("billToPersonId")).toList());
+   }
+
+
+
+   /*******************************************************************************
+    ** compare time to translate possible values with different priming parallelism.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during PVS cache priming change")
+   void testPossibleValueTranslationPerformance() throws QException
+   {
+      List<QRecord> people = new ArrayList<>();
+      for(int i = 0; i < 50_000; i++)
+      {
+         people.add(new QRecord().withValue("email", i + "@kingsrook.com").withValue("firstName", "First" + i).withValue("lastName", "Last" + i).withValue("birthDate", LocalDate.of(1980, 1, 1)).withValue("homeTown", "Town" + i));
+      }
+      List<Serializable> personIds = new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(people)).getRecords().stream().map(r -> r.getValue("id")).toList();
+
+      List<QRecord> orderRecords = personIds.stream().map(id -> new QRecord().withValue("billToPersonId", id)).toList();
+      for(int parallelism : List.of(1, 2, 4, 8, 1, 2, 4, 8))
+      {
+         QPossibleValueTranslator possibleValueTranslator = new QPossibleValueTranslator();
+         possibleValueTranslator.setPrimingParallelism(parallelism);
+
+         Timer timer = new Timer("priming");
+         possibleValueTranslator.translatePossibleValuesInRecords(QContext.getQInstance().getTable(TestUtils.TABLE_NAME_ORDER), orderRecords);
+         timer.mark("parallelism " + parallelism);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** with the query-SQL cache on, queries of the same shape (but with different
+    ** values, including security values) should re-use SQL, but bind their own
+    ** params - and queries of different shapes should not share SQL.
+    *******************************************************************************/
+   @Test
+   void testQuerySQLCache() throws QException
+   {
+      try
+      {
+         RDBMSQueryAction.setQuerySQLCacheEnabled(true);
+         long hitsBefore = RDBMSQueryAction.getQuerySQLCacheStatistics().hitCount();
+
+         ///////////////////////////////////////////////////////////////
+         // same shape, different values - first misses, others hit. //
+         ///////////////////////////////////////////////////////////////
+         for(Pair<String, Boolean> emailAndExpectedHit : List.of(Pair.of("darin.kelkhoff@gmail.com", false), Pair.of("jdmaes@mmltholdings.com", true), Pair.of("tsamples@mmltholdings.com", true)))
+         {
+            QueryInput queryInput = initQueryRequest();
+            queryInput.setFilter(new QQueryFilter(new QFilterCriteria("email", QCriteriaOperator.EQUALS, emailAndExpectedHit.getA())).withLimit(10));
+
+            RDBMSQueryAction queryAction = new RDBMSQueryAction();
+            queryAction.setQueryStat(new QueryStat());
+            QueryOutput queryOutput = queryAction.execute(queryInput);
+            assertEquals(1, queryOutput.getRecords().size());
+            assertEquals(emailAndExpectedHit.getA(), queryOutput.getRecords().get(0).getValueString("email"));
+            assertEquals(emailAndExpectedHit.getB(), queryAction.getQueryStat().getSqlCacheHit());
+            assertNotNull(queryAction.getQueryStat().getSqlBuildMicros());
+            assertThat(queryAction.getQueryStat().getQueryText()).endsWith("LIMIT 10");
+         }
+         assertEquals(hitsBefore + 2, RDBMSQueryAction.getQuerySQLCacheStatistics().hitCount());
+
+         /////////////////////////////////////////////////////////////////////
+         // a different number of IN values is a different shape (new SQL) //
+         /////////////////////////////////////////////////////////////////////
+         QueryInput queryInput = initQueryRequest();
+         queryInput.setFilter(new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.IN, 2, 3)));
+         assertEquals(2, new RDBMSQueryAction().execute(queryInput).getRecords().size());
+         queryInput.setFilter(new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.IN, 1, 2, 3)));
+         assertEquals(3, new RDBMSQueryAction().execute(queryInput).getRecords().size());
+         queryInput.setFilter(new QQueryFilter(new QFilterCriteria("id", QCriteriaOperator.IN, 4, 5)));
+         assertEquals(2, new RDBMSQueryAction().execute(queryInput).getRecords().size());
+         assertEquals(hitsBefore + 3, RDBMSQueryAction.getQuerySQLCacheStatistics().hitCount());
+
+         //////////////////////////////////////////////////////////////////////
+         // security values are params too - so different sessions share SQL //
+         // but each only sees its own records.                               //
+         //////////////////////////////////////////////////////////////////////
+         for(Integer storeId : List.of(1, 2, 1))
+         {
+            QContext.setQSession(new QSession().withSecurityKeyValue(TestUtils.TABLE_NAME_STORE, storeId));
+            queryInput = new QueryInput(TestUtils.TABLE_NAME_ORDER);
+            assertThat(new RDBMSQueryAction().execute(queryInput).getRecords())
+               .isNotEmpty()
+               .allMatch(r -> r.getValueInteger("storeId").equals(storeId));
+         }
+         assertEquals(hitsBefore + 5, RDBMSQueryAction.getQuerySQLCacheStatistics().hitCount());
+      }
+      finally
+      {
+         RDBMSQueryAction.setQuerySQLCacheEnabled(false);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** compare time spent building SQL (per QueryStat) for a "list screen" style
+    ** query (joins, a few criteria, order-by & limit), with and without the
+    ** query-SQL cache.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during query-SQL cache change")
+   void testQuerySQLBuildPerformance() throws QException
+   {
+      for(boolean cacheEnabled : List.of(false, true, false, true))
+      {
+         try
+         {
+            RDBMSQueryAction.setQuerySQLCacheEnabled(cacheEnabled);
+
+            long totalMicros = 0;
+            int  iterations  = 10_000;
+            for(int i = 0; i < iterations; i++)
+            {
+               QueryInput queryInput = new QueryInput(TestUtils.TABLE_NAME_ORDER);
+               queryInput.withQueryJoin(new QueryJoin(TestUtils.TABLE_NAME_PERSON).withAlias("billToPerson").withJoinMetaData(QContext.getQInstance().getJoin("orderJoinBillToPerson")).withSelect(true));
+               queryInput.setFilter(new QQueryFilter(
+                  new QFilterCriteria("storeId", QCriteriaOperator.IN, 1, 2),
+                  new QFilterCriteria("billToPerson.firstName", QCriteriaOperator.STARTS_WITH, "D" + i))
+                  .withOrderBy(new QFilterOrderBy("id", false))
+                  .withLimit(50));
+
+               RDBMSQueryAction queryAction = new RDBMSQueryAction();
+               queryAction.setQueryStat(new QueryStat());
+               queryAction.execute(queryInput);
+               totalMicros += queryAction.getQueryStat().getSqlBuildMicros();
+            }
+
+            System.out.printf("cacheEnabled=%s: %,d micros building SQL for %,d queries (%,.1f per query)%n", cacheEnabled, totalMicros, iterations, (double) totalMicros / iterations);
+         }
+         finally
+         {
+            RDBMSQueryAction.setQuerySQLCacheEnabled(false);
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** measure rows/second read by a large unfiltered query - e.g., to compare ways
+    ** of reading values out of the result set.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during per-column result set reader change")
+   void testQueryRowsPerSecond() throws QException
+   {
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < 200_000; i++)
+      {
+         records.add(new QRecord().withValue("email", i + "@kingsrook.com").withValue("firstName", "First" + i).withValue("lastName", "Last" + i).withValue("birthDate", LocalDate.of(1980, 1, 1)).withValue("homeTown", "Town" + i));
+      }
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(records));
+      records.clear();
+
+      for(int i = 0; i < 5; i++)
+      {
+         long        start       = System.nanoTime();
+         QueryOutput queryOutput = new RDBMSQueryAction().execute(initQueryRequest());
+         long        millis      = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+         int         count       = queryOutput.getRecords().size();
+         System.out.printf("%,d rows x %d columns in %,d ms: %,d rows/second%n", count, queryOutput.getRecords().get(0).getValues().size(), millis, count * 1000L / millis);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** compare time to page through a large table, by OFFSET (skip) vs. by keyset
+    ** (continuation token) - where OFFSET pages should get slower as the skip
+    ** grows, but keyset pages should not.
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during keyset pagination change")
+   void testOffsetVersusKeysetPagingPerformance() throws QException
+   {
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < 200_000; i++)
+      {
+         records.add(new QRecord().withValue("email", i + "@kingsrook.com").withValue("firstName", "First" + i).withValue("lastName", "Last" + i).withValue("birthDate", LocalDate.of(1980, 1, 1)));
+      }
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(records));
+      records.clear();
+
+      int pageSize = 1_000;
+      for(int i = 0; i < 3; i++)
+      {
+         ///////////////////////////////////////////
+         // page by OFFSET - i.e., a growing skip //
+         ///////////////////////////////////////////
+         Timer timer        = new Timer("offsetPaging");
+         int   offsetCount  = 0;
+         long  lastPageNano = 0;
+         for(int skip = 0; ; skip += pageSize)
+         {
+            long       pageStart  = System.nanoTime();
+            QueryInput queryInput = new QueryInput(TestUtils.TABLE_NAME_PERSON).withFilter(new QQueryFilter().withOrderBy(new QFilterOrderBy("id")).withSkip(skip).withLimit(pageSize));
+            int        pageCount  = new QueryAction().execute(queryInput).getRecords().size();
+            lastPageNano = System.nanoTime() - pageStart;
+            offsetCount += pageCount;
+            if(pageCount < pageSize)
+            {
+               break;
+            }
+         }
+         timer.mark(String.format("%,d records by offset; last page took %,d micros", offsetCount, lastPageNano / 1_000));
+
+         ////////////////////////////////////////////////
+         // page by keyset - i.e., continuation tokens //
+         ////////////////////////////////////////////////
+         timer = new Timer("keysetPaging");
+         int    keysetCount       = 0;
+         String continuationToken = null;
+         do
+         {
+            long       pageStart  = System.nanoTime();
+            QueryInput queryInput = new QueryInput(TestUtils.TABLE_NAME_PERSON).withFilter(new QQueryFilter().withOrderBy(new QFilterOrderBy("id")).withLimit(pageSize))
+               .withShouldGenerateContinuationToken(true)
+               .withContinuationToken(continuationToken);
+            QueryOutput queryOutput = new QueryAction().execute(queryInput);
+            lastPageNano = System.nanoTime() - pageStart;
+            keysetCount += queryOutput.getRecords().size();
+            continuationToken = queryOutput.getContinuationToken();
+         }
+         while(continuationToken != null);
+         timer.mark(String.format("%,d records by keyset; last page took %,d micros", keysetCount, lastPageNano / 1_000));
+
+         assertEquals(offsetCount, keysetCount);
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** a large query, streamed into a small record pipe with a slow consumer,
+    ** should never have more than the pipe's capacity of records in memory at
+    ** once (i.e., the producer is held back, rather than buffering everything),
+    ** and the consumer should still get every record.
+    *******************************************************************************/
+   @Test
+   void testStreamedQueryIntoRecordPipeIsBounded() throws Exception
+   {
+      List<QRecord> records = new ArrayList<>();
+      for(int i = 0; i < 20_000; i++)
+      {
+         records.add(new QRecord().withValue("email", i + "@kingsrook.com").withValue("firstName", "First" + i).withValue("lastName", "Last" + i));
+      }
+      new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(records));
+      records.clear();
+
+      int           capacity         = 100;
+      RecordPipe    recordPipe       = new RecordPipe(capacity).withUseBlockingHandOff(true);
+      AtomicInteger consumedCount    = new AtomicInteger(0);
+      AtomicInteger maxRecordsInPipe = new AtomicInteger(0);
+      Thread        consumerThread   = new Thread(() ->
+      {
+         try
+         {
+            while(!recordPipe.isProducerFinished() || recordPipe.countAvailableRecords() > 0)
+            {
+               maxRecordsInPipe.accumulateAndGet(recordPipe.countAvailableRecords(), Math::max);
+               recordPipe.awaitAvailableRecords(capacity, 10, TimeUnit.MILLISECONDS);
+               consumedCount.addAndGet(recordPipe.consumeAvailableRecords().size());
+            }
+         }
+         catch(InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+      });
+      consumerThread.start();
+
+      QueryInput queryInput = initQueryRequest();
+      queryInput.setRecordPipe(recordPipe);
+      queryInput.withQueryHint(QueryHint.POTENTIALLY_LARGE_NUMBER_OF_RESULTS);
+      new RDBMSQueryAction().execute(queryInput);
+      recordPipe.markProducerFinished();
+
+      consumerThread.join(60_000);
+      assertEquals(20_005, consumedCount.get());
+      assertThat(maxRecordsInPipe.get()).isLessThanOrEqualTo(capacity);
+   }
+
 }
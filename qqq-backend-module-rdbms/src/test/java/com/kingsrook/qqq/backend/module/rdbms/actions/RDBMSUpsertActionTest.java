@@ -0,0 +1,219 @@
+/*
+ * QQQ - Low-code Application Framework for Engineers.
+ * Copyright (C) 2021-2026.  Kingsrook, LLC
+ * 651 N Broad St Ste 205 # 6917 | Middletown DE 19709 | United States
+ * contact@kingsrook.com
+ * https://github.com/Kingsrook/
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.kingsrook.qqq.backend.module.rdbms.actions;
+
+
+import java.util.List;
+import java.util.Map;
+import com.kingsrook.qqq.backend.core.actions.tables.UpsertAction;
+import com.kingsrook.qqq.backend.core.context.QContext;
+import com.kingsrook.qqq.backend.core.exceptions.QException;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertInput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.upsert.UpsertOutput;
+import com.kingsrook.qqq.backend.core.model.data.QRecord;
+import com.kingsrook.qqq.backend.core.model.metadata.tables.UniqueKey;
+import com.kingsrook.qqq.backend.module.rdbms.TestUtils;
+import com.kingsrook.qqq.backend.module.rdbms.strategy.BaseRDBMSActionStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/*******************************************************************************
+ ** Unit test for RDBMSUpsertAction
+ *******************************************************************************/
+public class RDBMSUpsertActionTest extends RDBMSActionTest
+{
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @BeforeEach
+   public void beforeEach() throws Exception
+   {
+      super.primeTestDatabase();
+      runTestSql("CREATE UNIQUE INDEX person_email_uk ON person (email)", null);
+
+      getBaseRDBMSActionStrategyAndActivateCollectingStatistics();
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testUpsertInsertsAndUpdatesInOneQuery() throws Exception
+   {
+      UpsertOutput upsertOutput = new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_PERSON)
+         .withKey(new UniqueKey("email"))
+         .withRecords(List.of(
+            new QRecord().withValue("firstName", "Darin").withValue("lastName", "Kelkhoff-Updated").withValue("email", "darin.kelkhoff@gmail.com"),
+            new QRecord().withValue("firstName", "James").withValue("lastName", "Kirk").withValue("email", "jamestk@starfleet.net"))));
+
+      assertEquals(2, upsertOutput.getRecords().size());
+
+      ////////////////////////////////////////////////////////////////////////
+      // one statement - no pre-query for existing keys, nor separate DML's //
+      ////////////////////////////////////////////////////////////////////////
+      Map<String, Integer> statistics = getBaseRDBMSActionStrategy().getStatistics();
+      assertEquals(1, statistics.get(BaseRDBMSActionStrategy.STAT_QUERIES_RAN));
+
+      runTestSql("SELECT COUNT(*) FROM person", (rs ->
+      {
+         rs.next();
+         assertEquals(6, rs.getInt(1));
+      }));
+
+      runTestSql("SELECT id, first_name, last_name FROM person WHERE email = 'darin.kelkhoff@gmail.com'", (rs ->
+      {
+         rs.next();
+         assertEquals(1, rs.getInt("id"));
+         assertEquals("Darin", rs.getString("first_name"));
+         assertEquals("Kelkhoff-Updated", rs.getString("last_name"));
+      }));
+
+      runTestSql("SELECT first_name FROM person WHERE email = 'jamestk@starfleet.net'", (rs ->
+      {
+         rs.next();
+         assertEquals("James", rs.getString("first_name"));
+      }));
+   }
+
+
+
+   /*******************************************************************************
+    ** one statement can't affect the same row twice - so a key repeated in the
+    ** input goes into a separate statement (and the later record wins).
+    *******************************************************************************/
+   @Test
+   public void testRepeatedKeyInInput() throws Exception
+   {
+      new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_PERSON)
+         .withKey(new UniqueKey("email"))
+         .withRecords(List.of(
+            new QRecord().withValue("firstName", "James").withValue("lastName", "Kirk").withValue("email", "jamestk@starfleet.net"),
+            new QRecord().withValue("firstName", "Jim").withValue("lastName", "Kirk").withValue("email", "jamestk@starfleet.net"))));
+
+      Map<String, Integer> statistics = getBaseRDBMSActionStrategy().getStatistics();
+      assertEquals(2, statistics.get(BaseRDBMSActionStrategy.STAT_QUERIES_RAN));
+
+      runTestSql("SELECT COUNT(*) AS n, MAX(first_name) AS first_name FROM person WHERE email = 'jamestk@starfleet.net'", (rs ->
+      {
+         rs.next();
+         assertEquals(1, rs.getInt("n"));
+         assertEquals("Jim", rs.getString("first_name"));
+      }));
+   }
+
+
+
+   /*******************************************************************************
+    **
+    *******************************************************************************/
+   @Test
+   public void testOnlyGivenFieldsAreUpdated() throws Exception
+   {
+      new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_PERSON)
+         .withKey(new UniqueKey("email"))
+         .withRecords(List.of(new QRecord().withValue("firstName", "Tim").withValue("lastName", "Chamberlain").withValue("email", "tchamberlain@mmltholdings.com").withValue("homeTown", "Chester"))));
+
+      runTestSql("SELECT home_town, birth_date FROM person WHERE id = 3", (rs ->
+      {
+         rs.next();
+         assertEquals("Chester", rs.getString("home_town"));
+         assertEquals("1976-05-28", rs.getString("birth_date"));
+      }));
+   }
+
+
+
+   /*******************************************************************************
+    ** records with different sets of fields go in separate statements - so one
+    ** record's field doesn't get written as null into another record's row.
+    *******************************************************************************/
+   @Test
+   public void testRecordsWithDifferentFields() throws Exception
+   {
+      UpsertInput upsertInput = new UpsertInput(TestUtils.TABLE_NAME_PERSON)
+         .withKey(new UniqueKey("email"))
+         .withRecords(List.of(
+            new QRecord().withValue("firstName", "Darin").withValue("lastName", "Kelkhoff").withValue("email", "darin.kelkhoff@gmail.com").withValue("homeTown", "Avon"),
+            new QRecord().withValue("firstName", "Tim").withValue("lastName", "Chamberlain-Updated").withValue("email", "tchamberlain@mmltholdings.com")));
+      new UpsertAction().execute(upsertInput);
+
+      assertNull(upsertInput.getFieldNamesToUpdate(), "Caller's input should not be changed");
+
+      Map<String, Integer> statistics = getBaseRDBMSActionStrategy().getStatistics();
+      assertEquals(2, statistics.get(BaseRDBMSActionStrategy.STAT_QUERIES_RAN));
+
+      runTestSql("SELECT home_town FROM person WHERE id = 1", (rs ->
+      {
+         rs.next();
+         assertEquals("Avon", rs.getString("home_town"));
+      }));
+
+      runTestSql("SELECT last_name, home_town FROM person WHERE id = 3", (rs ->
+      {
+         rs.next();
+         assertEquals("Chamberlain-Updated", rs.getString("last_name"));
+         assertEquals("Decatur", rs.getString("home_town"));
+      }));
+   }
+
+
+
+   /*******************************************************************************
+    ** a table with record security locks can't use the native upsert - so a
+    ** record whose key conflicts with a row that the session can't access must
+    ** not update that row.
+    *******************************************************************************/
+   @Test
+   public void testRecordSecurityLockedConflictIsNotUpdated() throws Exception
+   {
+      runTestSql("CREATE UNIQUE INDEX item_sku_uk ON item (sku)", null);
+      QContext.getQSession().withSecurityKeyValue(TestUtils.TABLE_NAME_STORE, 1);
+
+      try
+      {
+         new UpsertAction().execute(new UpsertInput(TestUtils.TABLE_NAME_ITEM)
+            .withKey(new UniqueKey("sku"))
+            .withRecords(List.of(new QRecord().withValue("sku", "QRU-1").withValue("description", "Hijacked").withValue("storeId", 1))));
+      }
+      catch(QException e)
+      {
+         ////////////////////////////////////////////////////////////////////
+         // the insert may fail on the unique index - that's fine, as long //
+         // as the other store's row isn't changed.                        //
+         ////////////////////////////////////////////////////////////////////
+      }
+
+      runTestSql("SELECT description, store_id FROM item WHERE id = 4", (rs ->
+      {
+         rs.next();
+         assertEquals("QQQ R Us Item 4", rs.getString("description"));
+         assertEquals(2, rs.getInt("store_id"));
+      }));
+   }
+
+}
@@ -27,21 +27,37 @@ import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import com.kingsrook.qqq.backend.core.actions.automation.AutomationStatus;
+import com.kingsrook.qqq.backend.core.actions.reporting.RecordPipe;
+import com.kingsrook.qqq.backend.core.model.actions.tables.QueryHint;
+import com.kingsrook.qqq.backend.core.model.actions.tables.query.QueryInput;
+import com.kingsrook.qqq.backend.core.model.metadata.fields.QFieldType;
 import com.kingsrook.qqq.backend.module.rdbms.BaseTest;
 import com.kingsrook.qqq.backend.module.rdbms.TestUtils;
 import com.kingsrook.qqq.backend.module.rdbms.jdbc.ConnectionManager;
 import com.kingsrook.qqq.backend.module.rdbms.jdbc.QueryManager;
+import com.kingsrook.qqq.backend.module.rdbms.strategy.RDBMSActionStrategyInterface.ResultSetValueReader;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /*******************************************************************************
@@ -158,4 +174,70 @@ class BaseRDBMSActionStrategyTest extends BaseTest
       }
    }
 
-}
\ No newline at end of file
+
+
+   /*******************************************************************************
+    ** queries that are hinted as large, or that feed a record pipe, get a
+    ** forward-only statement with the streaming fetch size - others get none.
+    *******************************************************************************/
+   @Test
+   void testPrepareStreamingStatement() throws SQLException
+   {
+      try(Connection connection = getConnection())
+      {
+         BaseRDBMSActionStrategy strategy = new BaseRDBMSActionStrategy();
+         String                  sql      = "SELECT * FROM test_table";
+
+         assertNull(strategy.prepareStreamingStatement(connection, sql, new QueryInput(TestUtils.TABLE_NAME_PERSON)));
+
+         for(QueryInput queryInput : new QueryInput[] {
+            new QueryInput(TestUtils.TABLE_NAME_PERSON).withQueryHint(QueryHint.POTENTIALLY_LARGE_NUMBER_OF_RESULTS),
+            new QueryInput(TestUtils.TABLE_NAME_PERSON).withRecordPipe(new RecordPipe()) })
+         {
+            try(PreparedStatement statement = strategy.prepareStreamingStatement(connection, sql, queryInput))
+            {
+               assertNotNull(statement);
+               assertEquals(ResultSet.TYPE_FORWARD_ONLY, statement.getResultSetType());
+               assertEquals(ResultSet.CONCUR_READ_ONLY, statement.getResultSetConcurrency());
+               assertEquals(BaseRDBMSActionStrategy.STREAMING_FETCH_SIZE, statement.getFetchSize());
+            }
+         }
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** each type gets its own reader (rather than one that switches on the type
+    ** for every value) - which reads the type's java value from a result set.
+    *******************************************************************************/
+   @Test
+   void testGetResultSetValueReader() throws SQLException
+   {
+      BaseRDBMSActionStrategy strategy = new BaseRDBMSActionStrategy();
+
+      Map<QFieldType, ResultSetValueReader> readers = new LinkedHashMap<>();
+      for(QFieldType type : List.of(QFieldType.STRING, QFieldType.INTEGER, QFieldType.LONG, QFieldType.DATE, QFieldType.TIME, QFieldType.DATE_TIME))
+      {
+         readers.put(type, strategy.getResultSetValueReader(type));
+      }
+      assertEquals(readers.size(), readers.values().stream().map(Object::getClass).distinct().count());
+
+      try(Connection connection = getConnection())
+      {
+         QueryManager.executeUpdate(connection, "INSERT INTO test_table (int_col, char_col, long_col, date_col, time_col, datetime_col) VALUES (47, 'A', 4700000000, '2026-10-17', '12:34:56', '2026-10-17 12:34:56')");
+         try(PreparedStatement statement = connection.prepareStatement("SELECT char_col, int_col, long_col, date_col, time_col, datetime_col FROM test_table");
+            ResultSet resultSet = statement.executeQuery())
+         {
+            assertTrue(resultSet.next());
+            assertEquals("A", readers.get(QFieldType.STRING).readValue(resultSet, 1));
+            assertEquals(47, readers.get(QFieldType.INTEGER).readValue(resultSet, 2));
+            assertEquals(4_700_000_000L, readers.get(QFieldType.LONG).readValue(resultSet, 3));
+            assertEquals(QueryManager.getDate(resultSet, 4), readers.get(QFieldType.DATE).readValue(resultSet, 4));
+            assertEquals(LocalTime.of(12, 34, 56), readers.get(QFieldType.TIME).readValue(resultSet, 5));
+            assertThat(readers.get(QFieldType.DATE_TIME).readValue(resultSet, 6)).isInstanceOf(Instant.class);
+         }
+      }
+   }
+
+}
@@ -58,35 +58,80 @@ public class SQLiteRDBMSActionStrategy extends BaseRDBMSActionStrategy
    {
       return switch(type)
       {
-         case DATE ->
-         {
-            try
-            {
-               yield parseString(s -> LocalDate.parse(s), resultSet, i);
-            }
-            catch(Exception e)
-            {
-               /////////////////////////////////////////////////////////////////////////////////
-               // handle the case of, the value we got back is actually a date-time -- so --  //
-               // let's parse it as such, and then map into a LocalDate in the session zoneId //
-               /////////////////////////////////////////////////////////////////////////////////
-               Instant instant = (Instant) parseString(s -> Instant.parse(s), resultSet, i);
-               if(instant == null)
-               {
-                  yield null;
-               }
-               ZoneId zoneId = ValueUtils.getSessionOrInstanceZoneId();
-               yield instant.atZone(zoneId).toLocalDate();
-            }
-         }
-         case TIME -> parseString(s -> LocalTime.parse(s), resultSet, i);
-         case DATE_TIME -> parseString(s -> Instant.parse(s), resultSet, i);
+         case DATE -> getLocalDate(resultSet, i);
+         case TIME -> getLocalTime(resultSet, i);
+         case DATE_TIME -> getInstant(resultSet, i);
          default -> super.getFieldValueFromResultSet(type, resultSet, i);
       };
    }
 
 
 
+   /***************************************************************************
+    ** same as getFieldValueFromResultSet - the temporal types are read from
+    ** strings; others use the base class's readers.
+    ***************************************************************************/
+   @Override
+   public ResultSetValueReader getResultSetValueReader(QFieldType type)
+   {
+      return switch(type)
+      {
+         case DATE -> (this::getLocalDate);
+         case TIME -> (this::getLocalTime);
+         case DATE_TIME -> (this::getInstant);
+         default -> super.getResultSetValueReader(type);
+      };
+   }
+
+
+
+   /***************************************************************************
+    **
+    ***************************************************************************/
+   private Serializable getLocalDate(ResultSet resultSet, int i) throws SQLException
+   {
+      try
+      {
+         return (parseString(s -> LocalDate.parse(s), resultSet, i));
+      }
+      catch(Exception e)
+      {
+         /////////////////////////////////////////////////////////////////////////////////
+         // handle the case of, the value we got back is actually a date-time -- so --  //
+         // let's parse it as such, and then map into a LocalDate in the session zoneId //
+         /////////////////////////////////////////////////////////////////////////////////
+         Instant instant = (Instant) parseString(s -> Instant.parse(s), resultSet, i);
+         if(instant == null)
+         {
+            return (null);
+         }
+         ZoneId zoneId = ValueUtils.getSessionOrInstanceZoneId();
+         return (instant.atZone(zoneId).toLocalDate());
+      }
+   }
+
+
+
+   /***************************************************************************
+    **
+    ***************************************************************************/
+   private Serializable getLocalTime(ResultSet resultSet, int i) throws SQLException
+   {
+      return (parseString(s -> LocalTime.parse(s), resultSet, i));
+   }
+
+
+
+   /***************************************************************************
+    **
+    ***************************************************************************/
+   private Serializable getInstant(ResultSet resultSet, int i) throws SQLException
+   {
+      return (parseString(s -> Instant.parse(s), resultSet, i));
+   }
+
+
+
    /***************************************************************************
     ** helper method for getFieldValueFromResultSet
     ***************************************************************************/
@@ -151,4 +196,16 @@ public class SQLiteRDBMSActionStrategy extends BaseRDBMSActionStrategy
       }
    }
 
+
+
+   /***************************************************************************
+    ** sqlite supports INSERT ... ON CONFLICT DO UPDATE, and RETURNING (as of 3.24 / 3.35) -
+    ** so an upsert gives back one id per row, in order, just like an insert.
+    ***************************************************************************/
+   @Override
+   public List<Serializable> executeUpsertForIds(Connection connection, String insertSQL, List<Object> params, List<String> keyColumnNames, List<String> updateColumnNames, QFieldMetaData primaryKeyField) throws SQLException
+   {
+      return (executeInsertForGeneratedIds(connection, insertSQL + buildOnConflictDoUpdateClause(keyColumnNames, updateColumnNames), params, primaryKeyField));
+   }
+
 }
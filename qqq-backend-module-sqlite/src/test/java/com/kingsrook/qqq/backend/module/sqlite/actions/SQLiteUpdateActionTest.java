@@ -27,10 +27,12 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import com.kingsrook.qqq.backend.core.actions.tables.GetAction;
+import com.kingsrook.qqq.backend.core.actions.tables.InsertAction;
 import com.kingsrook.qqq.backend.core.actions.tables.UpdateAction;
 import com.kingsrook.qqq.backend.core.exceptions.QException;
 import com.kingsrook.qqq.backend.core.model.actions.tables.get.GetInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.get.GetOutput;
+import com.kingsrook.qqq.backend.core.model.actions.tables.insert.InsertInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateInput;
 import com.kingsrook.qqq.backend.core.model.actions.tables.update.UpdateOutput;
 import com.kingsrook.qqq.backend.core.model.data.QRecord;
@@ -39,6 +41,7 @@ import com.kingsrook.qqq.backend.module.rdbms.strategy.BaseRDBMSActionStrategy;
 import com.kingsrook.qqq.backend.module.sqlite.BaseTest;
 import com.kingsrook.qqq.backend.module.sqlite.TestUtils;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -276,6 +279,100 @@ public class SQLiteUpdateActionTest extends BaseTest
 
 
 
+   /*******************************************************************************
+    ** with enough records (all updating the same fields, to differing values),
+    ** the update is written as one statement, instead of a batch.
+    *******************************************************************************/
+   @Test
+   public void testUpdateManyWithSameColumnsDifferentValuesInOneStatement() throws Exception
+   {
+      int originalMultiRowUpdateMinRows = BaseRDBMSActionStrategy.MULTI_ROW_UPDATE_MIN_ROWS;
+      try
+      {
+         BaseRDBMSActionStrategy.MULTI_ROW_UPDATE_MIN_ROWS = 2;
+
+         UpdateInput   updateInput = initUpdateRequest();
+         List<QRecord> records     = new ArrayList<>();
+         for(int i = 1; i <= 5; i++)
+         {
+            records.add(new QRecord()
+               .withValue("id", i)
+               .withValue("firstName", "First " + i)
+               .withValue("daysWorked", i * 10));
+         }
+         updateInput.setRecords(records);
+
+         new UpdateAction().execute(updateInput);
+         Map<String, Integer> statistics = getBaseRDBMSActionStrategy().getStatistics();
+         assertNull(statistics.get(BaseRDBMSActionStrategy.STAT_BATCHES_RAN));
+         assertEquals(2, statistics.get(BaseRDBMSActionStrategy.STAT_QUERIES_RAN));
+
+         runTestSql("SELECT id, first_name, days_worked FROM person ORDER BY id", (rs ->
+         {
+            int rowsFound = 0;
+            while(rs.next())
+            {
+               rowsFound++;
+               assertEquals("First " + rs.getInt("id"), rs.getString("first_name"));
+               assertEquals(rs.getInt("id") * 10, rs.getInt("days_worked"));
+            }
+            assertEquals(5, rowsFound);
+         }));
+      }
+      finally
+      {
+         BaseRDBMSActionStrategy.MULTI_ROW_UPDATE_MIN_ROWS = originalMultiRowUpdateMinRows;
+      }
+   }
+
+
+
+   /*******************************************************************************
+    ** compare the time to update a large number of records, each with different
+    ** values, via a JDBC batch vs. via multi-row (CASE) update statements (SQLite).
+    *******************************************************************************/
+   @Test
+   @Disabled("performance test, used during multi-row update change")
+   void testMultiRowUpdatePerformance() throws Exception
+   {
+      int           originalMultiRowUpdateMinRows = BaseRDBMSActionStrategy.MULTI_ROW_UPDATE_MIN_ROWS;
+      List<QRecord> records                       = new ArrayList<>();
+      for(int i = 0; i < 20_000; i++)
+      {
+         records.add(new QRecord().withValue("firstName", "First" + i).withValue("lastName", "Last" + i).withValue("email", i + "@kingsrook.com"));
+      }
+      List<QRecord> insertedRecords = new InsertAction().execute(new InsertInput(TestUtils.TABLE_NAME_PERSON).withRecords(records)).getRecords();
+
+      try
+      {
+         int round = 0;
+         for(boolean useMultiRow : new boolean[] { false, true, false, true })
+         {
+            BaseRDBMSActionStrategy.MULTI_ROW_UPDATE_MIN_ROWS = useMultiRow ? originalMultiRowUpdateMinRows : Integer.MAX_VALUE;
+
+            List<QRecord> updates = new ArrayList<>();
+            for(QRecord insertedRecord : insertedRecords)
+            {
+               updates.add(new QRecord().withValue("id", insertedRecord.getValue("id")).withValue("firstName", "Round" + round + "-" + insertedRecord.getValue("id")).withValue("daysWorked", round));
+            }
+            round++;
+
+            UpdateInput updateInput = initUpdateRequest();
+            updateInput.setRecords(updates);
+
+            long start = System.currentTimeMillis();
+            new UpdateAction().execute(updateInput);
+            System.out.printf("%s: %,d records in %,d ms%n", useMultiRow ? "MULTI-ROW" : "BATCH", updates.size(), System.currentTimeMillis() - start);
+         }
+      }
+      finally
+      {
+         BaseRDBMSActionStrategy.MULTI_ROW_UPDATE_MIN_ROWS = originalMultiRowUpdateMinRows;
+      }
+   }
+
+
+
    /*******************************************************************************
     **
     *******************************************************************************/
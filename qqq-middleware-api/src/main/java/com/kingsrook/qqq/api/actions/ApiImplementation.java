@@ -172,6 +172,8 @@ public class ApiImplementation
       String booleanOperator   = getSingleParam(paramMap, "booleanOperator");
       String includeCountParam = getSingleParam(paramMap, "includeCount");
       String orderBy           = getSingleParam(paramMap, "orderBy");
+      String continuationToken = getSingleParam(paramMap, "continuationToken");
+      String includeTokenParam = getSingleParam(paramMap, "includeContinuationToken");
 
       Integer pageSize = 50;
       if(StringUtils.hasContent(pageSizeParam))
@@ -207,6 +209,24 @@ public class ApiImplementation
          badRequestMessages.add("pageNo must be greater than 0.");
       }
 
+      /////////////////////////////////////////////////////////////////////////////////////////////////
+      // a continuationToken (from a previous page's response) replaces pageNo - so don't allow both //
+      /////////////////////////////////////////////////////////////////////////////////////////////////
+      if(StringUtils.hasContent(continuationToken) && StringUtils.hasContent(pageNoParam))
+      {
+         badRequestMessages.add("pageNo and continuationToken may not both be given.");
+      }
+
+      if(StringUtils.hasContent(continuationToken) || "true".equalsIgnoreCase(includeTokenParam))
+      {
+         queryInput.setContinuationToken(continuationToken);
+         queryInput.setShouldGenerateContinuationToken(true);
+      }
+      else if(StringUtils.hasContent(includeTokenParam) && !"false".equalsIgnoreCase(includeTokenParam))
+      {
+         badRequestMessages.add("includeContinuationToken must be either true or false");
+      }
+
       QQueryFilter filter = new QQueryFilter();
       filter.setLimit(pageSize);
       filter.setSkip((pageNo - 1) * pageSize);
@@ -299,7 +319,7 @@ public class ApiImplementation
          filter.withOrderBy(new QFilterOrderBy(table.getPrimaryKeyField(), false));
       }
 
-      Set<String> nonFilterParams = Set.of("pageSize", "pageNo", "orderBy", "booleanOperator", "includeCount");
+      Set<String> nonFilterParams = Set.of("pageSize", "pageNo", "orderBy", "booleanOperator", "includeCount", "continuationToken", "includeContinuationToken");
 
       ////////////////////////////
       // look for filter params //
@@ -407,6 +427,11 @@ public class ApiImplementation
 
       output.put("records", records);
 
+      if(queryOutput.getContinuationToken() != null)
+      {
+         output.put("continuationToken", queryOutput.getContinuationToken());
+      }
+
       return (output);
    }
 
@@ -118,6 +118,7 @@ public class GenerateOpenApiSpecAction extends AbstractQActionFunction<GenerateO
       Execute a query on this table, using query criteria as specified in query string parameters.
       
       * Pagination is managed via the `pageNo` & `pageSize` query string parameters.  pageNo starts at 1.  pageSize defaults to 50.
+      * For paging through large result sets, specify `includeContinuationToken=true` instead of `pageNo`.  Full pages of results will then include a `continuationToken`, which can be passed back (in place of `pageNo`, with the same criteria and orderBy) to get the next page.
       * By default, the response includes the total count of records that match the query criteria.  The count can be omitted by specifying `includeCount=false`
       * By default, results are sorted by the table's primary key, descending.  This can be changed by specifying the `orderBy` query string parameter, following SQL ORDER BY syntax (e.g., `fieldName1 ASC, fieldName2 DESC`)
       * By default, all given query criteria are combined using logical AND.  This can be changed by specifying the query string parameter `booleanOperator=OR`.
@@ -730,7 +731,10 @@ public class GenerateOpenApiSpecAction extends AbstractQActionFunction<GenerateO
                .withDescription("Requested result page number"),
             "pageSize", new Schema()
                .withType(Type.INTEGER)
-               .withDescription("Requested result page size")
+               .withDescription("Requested result page size"),
+            "continuationToken", new Schema()
+               .withType(Type.STRING)
+               .withDescription("Token to pass in a subsequent request, to get the next page of results (only included if requested, and if this page was full)")
          )));
 
       List<Tag>   tagList          = new ArrayList<>();
@@ -923,7 +927,17 @@ public class GenerateOpenApiSpecAction extends AbstractQActionFunction<GenerateO
                   .withName("booleanOperator")
                   .withDescription("Whether to combine query field as an AND or an OR.  Default is AND.")
                   .withIn(In.QUERY)
-                  .withSchema(new Schema().withType(Type.STRING).withEnumValues(ListBuilder.of("AND", "OR")))))
+                  .withSchema(new Schema().withType(Type.STRING).withEnumValues(ListBuilder.of("AND", "OR"))),
+               new Parameter()
+                  .withName("includeContinuationToken")
+                  .withDescription("Whether or not to include a continuationToken in the result (if the page of results is full), for getting the next page.  Default is false.")
+                  .withIn(In.QUERY)
+                  .withSchema(new Schema().withType(Type.BOOLEAN).withEnumValues(ListBuilder.of("true", "false"))),
+               new Parameter()
+                  .withName("continuationToken")
+                  .withDescription("Token from a previous page of results, to get the page after it.  May not be combined with pageNo.")
+                  .withIn(In.QUERY)
+                  .withSchema(new Schema().withType(Type.STRING))))
             .withResponses(buildStandardErrorResponses(apiInstanceMetaData))
             .withResponse(HttpStatus.OK.getCode(), new Response()
                .withDescription("Successfully searched the " + tableLabel + " table (though may have found 0 records).")
@@ -1226,6 +1226,12 @@ public class QJavalinImplementation
     *    }
     * </pre>
     * Additional field names in the JSONObjects there are: baseTableOrAlias, alias, joinName.
+    *
+    * For keyset pagination (e.g., to page through a large table without the cost of
+    * a large skip), pass includeContinuationToken=true - and then, if a full page of
+    * records (per the limit) is returned, the response will include a
+    * continuationToken.  Pass that back as the continuationToken parameter (with the
+    * same filter & orderBys) to get the next page.
     *******************************************************************************/
    static void dataQuery(Context context)
    {
@@ -1271,6 +1277,13 @@ public class QJavalinImplementation
             QJavalinUtils.handleQueryNullLimit(javalinMetaData, queryInput, context);
          }
 
+         String continuationToken = QJavalinUtils.getQueryParamOrFormParam(context, "continuationToken");
+         if(StringUtils.hasContent(continuationToken) || "true".equals(QJavalinUtils.getQueryParamOrFormParam(context, "includeContinuationToken")))
+         {
+            queryInput.setContinuationToken(continuationToken);
+            queryInput.setShouldGenerateContinuationToken(true);
+         }
+
          List<QueryJoin> queryJoins = processQueryJoinsParam(context);
          queryInput.setQueryJoins(queryJoins);
 